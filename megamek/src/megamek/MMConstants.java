@@ -65,6 +65,7 @@ public final class MMConstants extends SuiteConstants {
     public static final String SAVE_FILE_EXT = ".sav";
     public static final String GZ_FILE_EXT = ".gz";
     public static final String SAVE_FILE_GZ_EXT = SAVE_FILE_EXT + GZ_FILE_EXT;
+    public static final String SAVE_FILE_BIN_EXT = SAVE_FILE_EXT + ".bin";
     //endregion SaveGame
 
     //region Unsorted Constants
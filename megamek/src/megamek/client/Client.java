@@ -15,7 +15,6 @@
  */
 package megamek.client;
 
-import com.thoughtworks.xstream.XStream;
 import megamek.MMConstants;
 import megamek.MegaMek;
 import megamek.Version;
@@ -50,12 +49,13 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.image.RenderedImage;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.zip.GZIPInputStream;
 
 /**
  * This class is instantiated for each client and for each bot running on that
@@ -938,13 +938,13 @@ public class Client implements IClientCommandHandler {
      * sends a load game file to the server
      */
     public void sendLoadGame(File f) {
-        try (InputStream fis = new FileInputStream(f); InputStream is = new GZIPInputStream(fis)) {
+        try {
             game.reset();
-            
-            XStream xstream = SerializationHelper.getXStream();            
-            Game newGame = (Game) xstream.fromXML(is);
+            Game newGame = SerializationHelper.loadSaveGame(f);
 
-            send(new Packet(Packet.COMMAND_LOAD_GAME, new Object[] { newGame }));
+            if (connection != null) {
+                connection.sendLarge(new Packet(Packet.COMMAND_LOAD_GAME, new Object[] { newGame }), null);
+            }
         } catch (Exception e) {
             LogManager.getLogger().error("Can't find the local savegame " + f, e);
         }
@@ -1380,10 +1380,12 @@ public class Client implements IClientCommandHandler {
                 break;
             case Packet.COMMAND_SERVER_VERSION_CHECK:
                 send(new Packet(Packet.COMMAND_CLIENT_VERSIONS, new Object[] {
-                        MMConstants.VERSION, MegaMek.getMegaMekSHA256() }));
+                        MMConstants.VERSION, MegaMek.getMegaMekSHA256(),
+                        PacketCompression.getDictionaryId() }));
                 break;
             case Packet.COMMAND_SERVER_GREETING:
                 connected = true;
+                connection.setAuthenticated(true);
                 send(new Packet(Packet.COMMAND_CLIENT_NAME, new Object[] { name, isBot() }));
                 if (this instanceof Princess) {
                     ((Princess) this).sendPrincessSettings();
@@ -1597,7 +1599,8 @@ public class Client implements IClientCommandHandler {
                 break;
             case Packet.COMMAND_SEND_SAVEGAME:
                 String sFinalFile = (String) c.getObject(0);
-                String sLocalPath = (String) c.getObject(2);
+                String sLocalPath = (String) c.getObject(1);
+                File receivedFile = (File) c.getObject(2);
                 String localFile = sLocalPath + File.separator + sFinalFile;
                 File sDir = new File(sLocalPath);
                 if (!sDir.exists()) {
@@ -1611,13 +1614,9 @@ public class Client implements IClientCommandHandler {
                     }
                 }
 
-                try (OutputStream os = new FileOutputStream(localFile);
-                     BufferedOutputStream bos = new BufferedOutputStream(os)) {
-                    List<Integer> data = (List<Integer>) c.getObject(1);
-                    for (Integer d : data) {
-                        bos.write(d);
-                    }
-                    bos.flush();
+                try {
+                    Files.move(receivedFile.toPath(), new File(localFile).toPath(),
+                            StandardCopyOption.REPLACE_EXISTING);
                 } catch (Exception ex) {
                     LogManager.getLogger().error("Unable to save file " + sFinalFile, ex);
                 }
@@ -626,7 +626,7 @@ public abstract class BotClient extends Client {
         List<RankedCoords> validCoords = new LinkedList<>();
         Vector<Entity> valid_attackers;
         WeaponAttackAction test_attack;
-        List<ECMInfo> allECMInfo = ComputeECM.computeAllEntitiesECMInfo(game.getEntitiesVector());
+        List<ECMInfo> allECMInfo = ComputeECM.getAllEntitiesECMInfo(game);
 
         // Create array of hexes in the deployment zone that can be deployed to
         // Check for prohibited terrain, stacking limits
@@ -280,18 +280,7 @@ public class TestBot extends BotClient {
                     // of the units damage, its still better to have it
                     // functional
                     // If nothing is "close" then unjam anyways
-                    int check_range = 100;
-                    for (Entity enemy : game.getEntitiesVector()) {
-                        if ((min.getCEntity().entity.getPosition() != null)
-                            && (enemy.getPosition() != null)
-                            && (enemy.isEnemyOf(min.getCEntity().entity))) {
-                            if (enemy.isVisibleToEnemy()) {
-                                if (min.getCEntity().entity.getPosition().distance(enemy.getPosition()) < check_range) {
-                                    check_range = min.getCEntity().entity.getPosition().distance(enemy.getPosition());
-                                }
-                            }
-                        }
-                    }
+                    int check_range = distanceToClosestVisibleEnemy(min.getCEntity().entity, 100);
                     if ((rac_damage >= other_damage)
                         || (check_range < clearance_range)) {
                         min.addStep(MoveStepType.UNJAM_RAC);
@@ -1894,21 +1883,7 @@ public class TestBot extends BotClient {
                     // of the units damage, its still better to have it
                     // functional
                     // If nothing is "close" then unjam anyways
-                    int check_range = 100;
-                    for (Entity enemy : game.getEntitiesVector()) {
-                        if ((min.getCEntity().entity.getPosition() != null)
-                            && (enemy.getPosition() != null)
-                            && (enemy.isEnemyOf(min.getCEntity().entity))) {
-                            if (enemy.isVisibleToEnemy()) {
-                                if (min.getCEntity().entity.getPosition()
-                                                           .distance(enemy.getPosition()) < check_range) {
-                                    check_range = min.getCEntity().entity
-                                            .getPosition().distance(
-                                                    enemy.getPosition());
-                                }
-                            }
-                        }
-                    }
+                    int check_range = distanceToClosestVisibleEnemy(min.getCEntity().entity, 100);
                     if ((rac_damage >= other_damage)
                         || (check_range < clearance_range)) {
                         min.addStep(MoveStepType.UNJAM_RAC);
@@ -1920,6 +1895,19 @@ public class TestBot extends BotClient {
         return min;
     }
 
+    /**
+     * @return the distance from the entity to the closest enemy that is visible to it, or the
+     * given limit if there is no such enemy closer than that
+     */
+    private int distanceToClosestVisibleEnemy(Entity entity, int limit) {
+        if (entity.getPosition() == null) {
+            return limit;
+        }
+        Entity enemy = game.getClosestEntity(entity.getPosition(), limit - 1,
+                e -> e.isEnemyOf(entity) && e.isVisibleToEnemy());
+        return (enemy == null) ? limit : entity.getPosition().distance(enemy.getPosition());
+    }
+
     @Override
     protected Vector<Minefield> calculateMinefieldDeployment() {
         Vector<Minefield> deployedMinefields = new Vector<>();
@@ -15,6 +15,7 @@
 package megamek.client.bot.princess;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -58,10 +59,10 @@ public class ArtilleryTargetingControl {
     // (summed over all units within blast radius of hex) (1/unit run speed + 1) * odds of hitting hex * unit friendliness factor (1 for enemy, -1 for ally)
     // repeat and sum over all hexes within scatter pattern
     
-    // this is a data structure that maps artillery damage value (which directly correlates with blast radius)
-    // to a dictionary containing sets of coordinates and the damage value if one of those coordinates were hit by a shell
+    // this is a data structure that maps the owner of the shooting units to the raster of unit values
+    // from which the damage value of a shell hitting any coordinates is looked up
     // does not take into account hit odds or anything like that
-    private Map<Integer, HashMap<Coords, Double>> damageValues = new HashMap<>();
+    private Map<Integer, ArtilleryValueRaster> valueRasters = new HashMap<>();
     
     private Set<Targetable> targetSet;
     
@@ -69,7 +70,7 @@ public class ArtilleryTargetingControl {
      * Worker function that calculates the total damage that would be done if a shot with the given damage value
      * would hit the target coordinates.
      * 
-     * Caches computation results to avoid repeat 
+     * Looks the value up in a raster of unit values that is built once per targeting phase
      * @param damage
      * @param coords
      * @param shooter
@@ -78,107 +79,77 @@ public class ArtilleryTargetingControl {
      */
     public double calculateDamageValue(int damage, Coords coords, Entity shooter, Game game,
                                        Princess owner) {
-        if (getDamageValue(damage, coords) != null) {
-            return getDamageValue(damage, coords);
-        }
-        
-        // calculate blast radius = ceiling(damage / 10) - 1
         // for each hex in blast radius, value is 
         // (damage - (distance from center * 10)) * [over all units] 1/(unit run MP + 1) * +/-1 (depending on if unit is friendly or not
         // it's not correct for cruise missiles, but I don't think the bot will be using those.
-        int blastRadius = (int) Math.ceil(damage / 10.0) - 1; 
-        double totalDamage = calculateDamageValueForHex(damage, coords, shooter, game, owner);
-        
-        // loop around each concentric hex centered on the given coords
-        for (int distanceFromCenter = 1; distanceFromCenter <= blastRadius; distanceFromCenter++) {
-            // the damage done is actual damage - 10 * # hexes from center
-            int currentDamage = damage - distanceFromCenter * 10;
-
-            for (Coords currentCoords : coords.allAtDistance(distanceFromCenter)) {
-                totalDamage += calculateDamageValueForHex(currentDamage, currentCoords, shooter, game, owner);
-            }
+        // friendliness only depends on the owner of the shooter, so the raster is shared by its units
+        ArtilleryValueRaster raster = valueRasters.get(shooter.getOwnerId());
+        if (raster == null) {
+            raster = buildValueRaster(shooter, game, owner);
+            valueRasters.put(shooter.getOwnerId(), raster);
         }
-        
-        cacheDamageValue(damage, coords, totalDamage);
-        return totalDamage;
+        return raster.getDamageValue(damage, coords);
     }
-    
+
     /**
-     * Worker function that calculates the "damage value" of a single hex.
-     * The formula is (summed over all units in target hex) 
-     *  [incoming damage] * [1 / (unit run mp + 1)] * [-1 if friendly, +1 if enemy] 
-     * @param damage How much damage will we do
-     * @param coords Coordinates to hit
+     * Worker function that sums the values of the units in each hex, as seen by the given shooter.
      * @param shooter Entity doing the shooting
      * @param game The current {@link Game}
+     * @param owner the {@link Princess} bot to calculate for
      */
-    private double calculateDamageValueForHex(int damage, Coords coords, Entity shooter, Game game, Princess owner) {
-        double value = 0;
-        
-        for (Entity entity : game.getEntitiesVector(coords, true)) {
+    private ArtilleryValueRaster buildValueRaster(Entity shooter, Game game, Princess owner) {
+        Map<Coords, Double> hexValues = new HashMap<>();
+        for (Entity entity : game.getEntitiesVector()) {
             // ignore aircraft for now, and also transported entities
             if (entity.isAirborne() || entity.isAirborneVTOLorWIGE() || entity.getTransportId() != Entity.NONE) {
                 continue;
             }
-            
-            int friendlyMultiplier = -1;
-            
-            // try to avoid shooting at friendlies
-            // ignore routed enemies who haven't resumed fire
-            if (entity.isEnemyOf(shooter)) {
-                boolean enemyUnitBroken = owner.getHonorUtil().isEnemyBroken(entity.getId(), 
-                        shooter.getOwnerId(), 
-                        owner.getBehaviorSettings().isForcedWithdrawal());
-                
-                boolean enemyDishonored = owner.getHonorUtil().isEnemyDishonored(entity.getOwnerId());
-                
-                if (!enemyUnitBroken || enemyDishonored) {
-                    friendlyMultiplier = 1;
-                } else {
-                    friendlyMultiplier = 0;
+
+            double value = calculateUnitValue(entity, shooter, owner);
+            if (value != 0) {
+                for (Coords coords : entity.getOccupiedCoords()) {
+                    hexValues.merge(coords, value, Double::sum);
                 }
             }
-            
-            double speedMultiplier = (double) 1 / (entity.getRunMP() + 1);
-            value += damage * speedMultiplier * friendlyMultiplier;
         }
-        
-        return value;
+        return new ArtilleryValueRaster(game.getBoard().getWidth(), game.getBoard().getHeight(), hexValues);
     }
-    
-    /**
-     * Cache a calculated damage value for the given damage/coordinates combo
-     * @param damage
-     * @param coords
-     * @param value
-     */
-    private void cacheDamageValue(int damage, Coords coords, Double value) {
-        if (!damageValues.containsKey(damage)) {
-            damageValues.put(damage, new HashMap<>());
-        }
-        
-        damageValues.get(damage).put(coords, value);
-    }
-    
+
     /**
-     * Retrieve a calculated damage value for the given damage/coords combo
-     * @param damage
-     * @param coords
-     * @return
+     * Worker function that calculates the "value" of a single unit, which is multiplied by the damage done to its hex.
+     * The formula is [1 / (unit run mp + 1)] * [-1 if friendly, +1 if enemy] 
+     * @param entity The unit that may be hit
+     * @param shooter Entity doing the shooting
+     * @param owner the {@link Princess} bot to calculate for
      */
-    private Double getDamageValue(int damage, Coords coords) {
-        if (damageValues.containsKey(damage)) {
-            return damageValues.get(damage).get(coords);
+    private double calculateUnitValue(Entity entity, Entity shooter, Princess owner) {
+        int friendlyMultiplier = -1;
+
+        // try to avoid shooting at friendlies
+        // ignore routed enemies who haven't resumed fire
+        if (entity.isEnemyOf(shooter)) {
+            boolean enemyUnitBroken = owner.getHonorUtil().isEnemyBroken(entity.getId(), 
+                    shooter.getOwnerId(), 
+                    owner.getBehaviorSettings().isForcedWithdrawal());
+
+            boolean enemyDishonored = owner.getHonorUtil().isEnemyDishonored(entity.getOwnerId());
+
+            if (!enemyUnitBroken || enemyDishonored) {
+                friendlyMultiplier = 1;
+            } else {
+                friendlyMultiplier = 0;
+            }
         }
-        
-        return null;
+
+        double speedMultiplier = (double) 1 / (entity.getRunMP() + 1);
+        return speedMultiplier * friendlyMultiplier;
     }
     
     /**
      * Clears out all cached elements in preparation for a new targeting phase.
      */
     public void initializeForTargetingPhase() {
-        damageValues = new HashMap<>();
+        valueRasters = new HashMap<>();
         targetSet = null;
     }
     
@@ -295,7 +266,9 @@ public class ArtilleryTargetingControl {
                 double maxDamage = 0;
                 
                 // for each enemy unit, evaluate damage value of firing at its hex.
-                // keep track of top target hexes with the same value and fire at them
+                // only targets with a positive value can be picked, and as the chance to hit is at most 1,
+                // going through them from the highest value lets us stop once the rest can't beat the best one
+                Map<Targetable, Double> damageValues = new HashMap<>();
                 for (Targetable hexTarget : targetSet) {
                     double damageValue = 0.0;
                     if (hexTarget.getTargetType() == Targetable.TYPE_ENTITY) {
@@ -303,6 +276,19 @@ public class ArtilleryTargetingControl {
                     } else {
                         damageValue = calculateDamageValue(damage, hexTarget.getPosition(), shooter, game, owner);
                     }
+                    if (damageValue > 0) {
+                        damageValues.put(hexTarget, damageValue);
+                    }
+                }
+                List<Targetable> rankedTargets = new ArrayList<>(damageValues.keySet());
+                rankedTargets.sort(Comparator.comparing(damageValues::get, Comparator.reverseOrder()));
+                
+                // keep track of top target hexes with the same value and fire at them
+                for (Targetable hexTarget : rankedTargets) {
+                    double damageValue = damageValues.get(hexTarget);
+                    if (damageValue < maxDamage) {
+                        break;
+                    }
                     
                     WeaponFireInfo wfi = new WeaponFireInfo(shooter, hexTarget,
                             currentWeapon, game, false, owner);
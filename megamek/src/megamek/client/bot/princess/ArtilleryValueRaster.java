@@ -0,0 +1,113 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.client.bot.princess;
+
+import megamek.common.Coords;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The value of dropping indirect artillery fire on each hex of the board, made from the values of
+ * the units in each hex. A shell does its damage in the hex it lands in and 10 less in each ring of
+ * hexes around it, so the damage value of a shot is the convolution of the unit values with that
+ * blast pattern.
+ * <p>
+ * For every ring distance, the unit values are summed over the ring around each hex of the board
+ * once, by adding the value of each occupied hex to the hexes on the ring around it. The damage
+ * value of a shot then takes a single lookup per ring, whatever the damage or the number of units.
+ *
+ * @see ArtilleryTargetingControl
+ */
+class ArtilleryValueRaster {
+    private final int width;
+    private final int height;
+
+    /** The sum of the unit values in each hex that has any */
+    private final Map<Coords, Double> hexValues;
+
+    /** By ring distance, the sums of the hex values on the ring around each hex, by y * width + x */
+    private final List<double[]> ringSums = new ArrayList<>();
+
+    /**
+     * @param width the width of the board
+     * @param height the height of the board
+     * @param hexValues the sum of the unit values in each occupied hex; hexes off the board count
+     *                  towards the hexes on the board that are near enough
+     */
+    ArtilleryValueRaster(int width, int height, Map<Coords, Double> hexValues) {
+        this.width = width;
+        this.height = height;
+        this.hexValues = hexValues;
+    }
+
+    /**
+     * Returns the value of a shell landing in the given hex, the sum over all hexes within its
+     * blast radius of the shell's damage there times the unit values in the hex.
+     *
+     * @param damage the damage of the shell in the hex it lands in
+     * @param coords the hex the shell lands in
+     * @return the damage value
+     */
+    double getDamageValue(int damage, Coords coords) {
+        // blast radius = ceiling(damage / 10) - 1
+        int blastRadius = (int) Math.ceil(damage / 10.0) - 1;
+        double totalDamage = 0;
+        if (hexValues.isEmpty()) {
+            return totalDamage;
+        }
+
+        if (!contains(coords)) {
+            // Not in the raster, add up the occupied hexes that are near enough
+            for (Map.Entry<Coords, Double> hex : hexValues.entrySet()) {
+                int distance = coords.distance(hex.getKey());
+                if (distance <= blastRadius) {
+                    totalDamage += (damage - distance * 10) * hex.getValue();
+                }
+            }
+            return totalDamage;
+        }
+
+        int index = coords.getY() * width + coords.getX();
+        for (int distance = 0; distance <= blastRadius; distance++) {
+            totalDamage += (damage - distance * 10) * getRingSums(distance)[index];
+        }
+        return totalDamage;
+    }
+
+    private boolean contains(Coords coords) {
+        return (coords.getX() >= 0) && (coords.getX() < width)
+                && (coords.getY() >= 0) && (coords.getY() < height);
+    }
+
+    /**
+     * @return the sums of the hex values on the ring at the given distance around each hex
+     */
+    private double[] getRingSums(int distance) {
+        while (ringSums.size() <= distance) {
+            double[] sums = new double[width * height];
+            for (Map.Entry<Coords, Double> hex : hexValues.entrySet()) {
+                // A hex is on the ring around another exactly when the other is on the ring around it
+                for (Coords coords : hex.getKey().allAtDistance(ringSums.size())) {
+                    if (contains(coords)) {
+                        sums[coords.getY() * width + coords.getX()] += hex.getValue();
+                    }
+                }
+            }
+            ringSums.add(sums);
+        }
+        return ringSums.get(distance);
+    }
+}
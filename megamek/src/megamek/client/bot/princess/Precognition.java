@@ -88,8 +88,7 @@ public class Precognition implements Runnable {
         });
         setPathEnumerator(new PathEnumerator(owner, getGame()));
         // Initialize ECM Info, especially important if Princess added mid-game
-        ecmInfo = ComputeECM.computeAllEntitiesECMInfo(
-                getGame().getEntitiesVector());
+        ecmInfo = ComputeECM.getAllEntitiesECMInfo(getGame());
     }
     
     /**
@@ -348,8 +347,7 @@ public class Precognition implements Runnable {
             while (!getDone().get()) {
                 if (!getEventsToProcess().isEmpty()) {
                     processGameEvents();
-                    ecmInfo = ComputeECM.computeAllEntitiesECMInfo(
-                            getGame().getEntitiesVector());
+                    ecmInfo = ComputeECM.getAllEntitiesECMInfo(getGame());
                 } else if (!getDirtyUnits().isEmpty()) {
                     Entity entity = getGame().getEntity(getDirtyUnits().pollFirst());
                     if ((entity != null) && isEntityOnMap(entity)) {
@@ -569,8 +567,11 @@ public class Precognition implements Runnable {
         }
     }
     
+    /**
+     * @return the unmodifiable list of E(C)CM fields of the units as of the last update
+     */
     public List<ECMInfo> getECMInfo() {
-        return Collections.unmodifiableList(ecmInfo);
+        return ecmInfo;
     }
 
     private ConcurrentSkipListSet<Integer> getDirtyUnits() {
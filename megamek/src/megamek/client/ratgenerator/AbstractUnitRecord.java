@@ -13,6 +13,7 @@
  */
 package megamek.client.ratgenerator;
 
+import java.io.Serializable;
 import java.util.HashSet;
 
 import megamek.common.UnitType;
@@ -22,7 +23,8 @@ import megamek.common.UnitType;
  *
  * @author Neoancient
  */
-public class AbstractUnitRecord {
+public class AbstractUnitRecord implements Serializable {
+    private static final long serialVersionUID = -2314579186472518834L;
 
     protected String chassis;
     protected boolean omni;
@@ -17,6 +17,10 @@ package megamek.client.ratgenerator;
 
 import org.apache.logging.log4j.LogManager;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Handles availability rating values and calculations for RAT generator.
  * Availability is rated on a base-2 logarithmic scale from 0 (non-existent) to 10 (ubiquitous),
@@ -94,6 +98,48 @@ public class AvailabilityRating {
         }
     }
 
+    private AvailabilityRating(String unit, int era) {
+        unitName = unit;
+        this.era = era;
+    }
+
+    /**
+     * Reads a rating written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in the RAT generator snapshot
+     * @param unit The chassis or model key
+     * @param era  The era that this availability code applies to.
+     * @return the rating
+     * @throws IOException if the rating cannot be read
+     */
+    static AvailabilityRating readFrom(DataInput in, String unit, int era) throws IOException {
+        AvailabilityRating ar = new AvailabilityRating(unit, era);
+        ar.faction = in.readUTF();
+        ar.ratings = in.readBoolean() ? in.readUTF() : null;
+        ar.availability = in.readInt();
+        ar.ratingAdjustment = in.readInt();
+        ar.startYear = in.readInt();
+        return ar;
+    }
+
+    /**
+     * Writes this rating to the RAT generator snapshot. The unit and era are left out, as they are
+     * the same for all ratings written together.
+     *
+     * @param out the RAT generator snapshot
+     * @throws IOException if the rating cannot be written
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeUTF(faction);
+        out.writeBoolean(ratings != null);
+        if (ratings != null) {
+            out.writeUTF(ratings);
+        }
+        out.writeInt(availability);
+        out.writeInt(ratingAdjustment);
+        out.writeInt(startYear);
+    }
+
     public String getFaction() {
         return faction;
     }
@@ -27,6 +27,7 @@ import java.util.List;
  * @author Neoancient
  */
 public class ChassisRecord extends AbstractUnitRecord {
+    private static final long serialVersionUID = 6417052783416292157L;
 
     protected HashSet<ModelRecord> models;
     
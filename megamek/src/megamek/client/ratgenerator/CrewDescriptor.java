@@ -15,7 +15,6 @@ package megamek.client.ratgenerator;
 
 import megamek.client.generator.RandomGenderGenerator;
 import megamek.client.generator.RandomNameGenerator;
-import megamek.common.Compute;
 import megamek.common.Crew;
 import megamek.common.CrewType;
 import megamek.common.UnitType;
@@ -148,7 +147,7 @@ public class CrewDescriptor {
      * @return The experience rating index, starting at green as zero.
      */
     public static int randomExperienceLevel() {
-        int roll = Compute.d6(2);
+        int roll = ForceGeneratorRandom.d6(2);
         if (roll < 6) {
             return SKILL_GREEN;
         } else if (roll < 10) {
@@ -187,7 +186,7 @@ public class CrewDescriptor {
      */
     private int randomSkillRating(int[][] table, int experience, int mod) {
         int column = Math.max(0, Math.min(experience, table.length - 1));
-        int roll = Compute.d6() + mod;
+        int roll = ForceGeneratorRandom.d6() + mod;
         if (roll < 0) {
             return table[column][0];
         } else {
@@ -243,7 +242,7 @@ public class CrewDescriptor {
                     return;
             }
         }
-        int roll = Compute.d6(2) + mod -
+        int roll = ForceGeneratorRandom.d6(2) + mod -
                 getGunnery() -
                 getPiloting();
         if (assignment.getYear() <= 2950) roll++;
@@ -19,6 +19,7 @@ import org.apache.logging.log4j.LogManager;
 import org.w3c.dom.Node;
 
 import java.io.PrintWriter;
+import java.io.Serializable;
 import java.text.ParseException;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -32,7 +33,9 @@ import java.util.stream.Collectors;
  *
  * @author Neoancient
  */
-public class FactionRecord {
+public class FactionRecord implements Serializable {
+    private static final long serialVersionUID = -5210954167402383913L;
+
     /**
      * Proportions of omni/Clan/upgraded tech are given for each faction
      * by the field manual series.
@@ -810,7 +813,9 @@ public class FactionRecord {
         return key;
     }
 
-    private static class DateRange {
+    private static class DateRange implements Serializable {
+        private static final long serialVersionUID = 1903687164572209946L;
+
         public Integer start;
         public Integer end;
 
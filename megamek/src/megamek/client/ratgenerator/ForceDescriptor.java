@@ -15,10 +15,14 @@
 package megamek.client.ratgenerator;
 
 import megamek.common.*;
+import megamek.common.annotations.Nullable;
 import megamek.common.loaders.EntityLoadingException;
 import org.apache.logging.log4j.LogManager;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -67,6 +71,13 @@ public class ForceDescriptor {
             "XI", "XII", "XIII", "XIV", "XV", "XVI", "XVII", "XVIII", "XIX", "XX"
     };
 
+    /* Salts used to derive the random streams of the generation steps of a node */
+    private static final int STEP_GENERATE_UNITS = 1;
+    private static final int STEP_ASSIGN_COMMANDERS = 2;
+    private static final int STEP_LOAD_ENTITIES = 3;
+    private static final int STEP_ASSIGN_TRANSPORT = 4;
+    private static final int STEP_CHILDREN = 5;
+
     private int index;
     private String name;
     private String faction;
@@ -108,6 +119,8 @@ public class ForceDescriptor {
     private double dropshipPct = 0.0;
     private double jumpshipPct = 0.0;
     private double cargo = 0.0;
+    /* When the force is generated from a seed, the seed of this node */
+    private Long generationSeed;
 
     public ForceDescriptor() {
         faction = "IS";
@@ -175,6 +188,28 @@ public class ForceDescriptor {
      * Goes through the force tree structure and generates units for all leaf nodes.
      */
     public void generateUnits(Ruleset.ProgressListener l, double progress) {
+        generateUnits(l, progress, false);
+    }
+
+    /**
+     * Goes through the force tree structure and generates units for all leaf nodes.
+     *
+     * @param l        Notified of the progress; may be called from several threads at once
+     * @param progress The fraction of the whole generation represented by this step
+     * @param parallel Whether to process the subforces concurrently when running in a
+     *                 <code>ForkJoinPool</code>
+     */
+    public void generateUnits(Ruleset.ProgressListener l, double progress, boolean parallel) {
+        runStep(STEP_GENERATE_UNITS, this::generateUnitsForNode);
+        seedChildren();
+        int count = subforces.size() + attached.size();
+        processAll(getSubforcesAndAttached(), fd -> fd.generateUnits(l, progress / count, parallel), parallel);
+        if (count == 0 && null != l) {
+            l.updateProgress(progress, "Populating force tree");
+        }
+    }
+
+    private void generateUnitsForNode() {
         //If the parent node has a chassis or model assigned, it carries through to the children.
         if (null != parent) {
             chassis.addAll(parent.getChassis());
@@ -241,12 +276,6 @@ public class ForceDescriptor {
                 }
             }
         }
-        int count = subforces.size() + attached.size();
-        subforces.forEach(fd -> fd.generateUnits(l, progress / count));
-        attached.forEach(fd -> fd.generateUnits(l, progress / count));
-        if (count == 0 && null != l) {
-            l.updateProgress(progress, "Populating force tree");
-        }
     }
 
     /**
@@ -369,9 +398,9 @@ public class ForceDescriptor {
             } else {
                 // If no master was generated, each slave unit gives a cumulative 1/3 chance of a network. Isolated
                 // C3 slaves will be encountered, but not usually more than one or maybe two in a lance.
-                if (c3s > Compute.randomInt(3)) {
+                if (c3s > ForceGeneratorRandom.randomInt(3)) {
                     networkMask = ModelRecord.NETWORK_C3_MASTER;
-                } else if (c3i > Compute.randomInt(5)) {
+                } else if (c3i > ForceGeneratorRandom.randomInt(5)) {
                     // Each C3i gives a 1/5 chance of a full C3i network. A network is still useful if not full.
                     networkMask = ModelRecord.NETWORK_C3I;
                 } else if (nova > 0) {
@@ -586,7 +615,7 @@ public class ForceDescriptor {
                                 }
                             }
                         }
-                        if (Compute.d6(2) >= target - ((av == null) ? 0 : av.adjustForRating(ratingLevel, totalLevels))) {
+                        if (ForceGeneratorRandom.d6(2) >= target - ((av == null) ? 0 : av.adjustForRating(ratingLevel, totalLevels))) {
                             sub.getChassis().clear();
                             sub.getChassis().add(model);
                             int oldWt = sub.getWeightClass();
@@ -616,7 +645,7 @@ public class ForceDescriptor {
                                     }
                                 }
                             }
-                            if (Compute.d6(2) >= target - ((av == null) ? 0 : av.adjustForRating(ratingLevel, totalLevels))) {
+                            if (ForceGeneratorRandom.d6(2) >= target - ((av == null) ? 0 : av.adjustForRating(ratingLevel, totalLevels))) {
                                 sub.setUnit(mRec);
                                 if (useWeights) {
                                     weights.remove((Object) mRec.getWeightClass());
@@ -637,7 +666,7 @@ public class ForceDescriptor {
                             }
                         }
                     }
-                    if (Compute.d6(2) >= target - ((av == null) ? 0 : av.adjustForRating(ratingLevel, totalLevels))) {
+                    if (ForceGeneratorRandom.d6(2) >= target - ((av == null) ? 0 : av.adjustForRating(ratingLevel, totalLevels))) {
                         sub.getChassis().add(baseModel.getChassis());
                         sub.setWeightClass(-1);
                         unit = sub.generate();
@@ -648,7 +677,7 @@ public class ForceDescriptor {
                             }
                             foundUnit = true;
                         }
-                    } else if (ut == UnitType.TANK && Compute.d6(2) >= target - 6) {
+                    } else if (ut == UnitType.TANK && ForceGeneratorRandom.d6(2) >= target - 6) {
                         if (useWeights) {
                             switch (baseModel.getMechSummary().getUnitSubType()) {
                                 case "Hover":
@@ -806,6 +835,28 @@ public class ForceDescriptor {
     }
 
     public void loadEntities(Ruleset.ProgressListener l, double progress) {
+        loadEntities(l, progress, false);
+    }
+
+    /**
+     * Loads the entities of all element nodes of the force tree.
+     *
+     * @param l        Notified of the progress; may be called from several threads at once
+     * @param progress The fraction of the whole generation represented by this step
+     * @param parallel Whether to process the subforces concurrently when running in a
+     *                 <code>ForkJoinPool</code>
+     */
+    public void loadEntities(Ruleset.ProgressListener l, double progress, boolean parallel) {
+        runStep(STEP_LOAD_ENTITIES, this::loadEntity);
+        seedChildren();
+        int count = subforces.size() + attached.size();
+        processAll(getSubforcesAndAttached(), fd -> fd.loadEntities(l, progress / count, parallel), parallel);
+        if (count == 0 && null != l) {
+            l.updateProgress(progress, "Loading entities");
+        }
+    }
+
+    private void loadEntity() {
         if (element) {
             MechSummary ms = MechSummaryCache.getInstance().getMech(getModelName());
             if (ms != null) {
@@ -820,12 +871,6 @@ public class ForceDescriptor {
                 }
             }
         }
-        int count = subforces.size() + attached.size();
-        subforces.forEach(fd -> fd.loadEntities(l, progress / count));
-        attached.forEach(fd -> fd.loadEntities(l, progress / count));
-        if (count == 0 && null != l) {
-            l.updateProgress(progress, "Loading entities");
-        }
     }
     
     /** Generates a force string for exporting these units to MUL / adding to the game. */
@@ -848,8 +893,23 @@ public class ForceDescriptor {
     }
 
     public void assignCommanders() {
-        subforces.forEach(ForceDescriptor::assignCommanders);
+        assignCommanders(false);
+    }
 
+    /**
+     * Assigns commanders to the force tree, working up from the leaf nodes.
+     *
+     * @param parallel Whether to process the subforces concurrently when running in a
+     *                 <code>ForkJoinPool</code>
+     */
+    public void assignCommanders(boolean parallel) {
+        seedChildren();
+        processAll(subforces, fd -> fd.assignCommanders(parallel), parallel);
+        runStep(STEP_ASSIGN_COMMANDERS, this::assignCommandersForNode);
+        processAll(attached, fd -> fd.assignCommanders(parallel), parallel);
+    }
+
+    private void assignCommandersForNode() {
         Ruleset rules = Ruleset.findRuleset(this);
         CommanderNode coNode = null;
         CommanderNode xoNode = null;
@@ -1002,8 +1062,6 @@ public class ForceDescriptor {
                 weightClass = (int) (wt / c + 0.5);
             }
         }
-
-        attached.forEach(ForceDescriptor::assignCommanders);
     }
 
     public void assignPositions() {
@@ -1098,9 +1156,16 @@ public class ForceDescriptor {
         if ((getDropshipPct() <= 0) && (getJumpshipPct() <= 0) && (getCargo() <= 0)) {
             return null;
         }
+        return runStep(STEP_ASSIGN_TRANSPORT, this::createTransports);
+    }
+
+    private ForceDescriptor createTransports() {
         TransportCalculator tp = new TransportCalculator(this);
         List<MechSummary> dropships = tp.calcDropships(getDropshipPct());
         ForceDescriptor transports = createChild(subforces.size() + attached.size());
+        if (generationSeed != null) {
+            transports.generationSeed = ForceGeneratorRandom.deriveSeed(generationSeed, STEP_ASSIGN_TRANSPORT);
+        }
         transports.setUnitType(null);
         transports.setName("Transport");
         // TODO: put this in the faction files
@@ -1680,6 +1745,81 @@ public class ForceDescriptor {
         attached.stream().forEach(sf -> sf.addAllEntities(list));
     }
 
+    /**
+     * Sets the seed from which the random streams of this node and, once they are processed,
+     * its subforces are derived. Generating the same force tree from the same seed gives the
+     * same result, whether or not the subforces are processed concurrently.
+     *
+     * @param seed The seed, or null to draw from the default random number generator
+     */
+    public void setGenerationSeed(@Nullable Long seed) {
+        generationSeed = seed;
+    }
+
+    public @Nullable Long getGenerationSeed() {
+        return generationSeed;
+    }
+
+    /**
+     * Runs one generation step of this node, drawing from the stream of that step if the force
+     * is generated from a seed.
+     */
+    private <T> T runStep(int step, Supplier<T> task) {
+        if (generationSeed == null) {
+            return task.get();
+        }
+        return ForceGeneratorRandom.withSeed(ForceGeneratorRandom.deriveSeed(generationSeed, step), task);
+    }
+
+    private void runStep(int step, Runnable task) {
+        runStep(step, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Derives the seeds of any subforces and attached forces that do not have one yet from their
+     * position among the children of this node.
+     */
+    private void seedChildren() {
+        if (generationSeed == null) {
+            return;
+        }
+        long childSeed = ForceGeneratorRandom.deriveSeed(generationSeed, STEP_CHILDREN);
+        for (int i = 0; i < subforces.size(); i++) {
+            if (subforces.get(i).generationSeed == null) {
+                subforces.get(i).generationSeed = ForceGeneratorRandom.deriveSeed(childSeed, i);
+            }
+        }
+        for (int i = 0; i < attached.size(); i++) {
+            if (attached.get(i).generationSeed == null) {
+                attached.get(i).generationSeed = ForceGeneratorRandom.deriveSeed(childSeed, -1 - i);
+            }
+        }
+    }
+
+    private List<ForceDescriptor> getSubforcesAndAttached() {
+        List<ForceDescriptor> retVal = new ArrayList<>(subforces);
+        retVal.addAll(attached);
+        return retVal;
+    }
+
+    /**
+     * Applies the action to each of the forces, concurrently if requested and running in a
+     * <code>ForkJoinPool</code>, and returns when all are done.
+     */
+    private static void processAll(List<ForceDescriptor> forces, Consumer<ForceDescriptor> action,
+                                   boolean parallel) {
+        if (parallel && (forces.size() > 1) && ForkJoinTask.inForkJoinPool()) {
+            ForkJoinTask.invokeAll(forces.stream()
+                    .map(fd -> ForkJoinTask.adapt(() -> action.accept(fd)))
+                    .collect(Collectors.toList()));
+        } else {
+            forces.forEach(action);
+        }
+    }
+
     public ForceDescriptor createChild(int index) {
         ForceDescriptor retVal = new ForceDescriptor();
         retVal.index = index;
@@ -0,0 +1,105 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.client.ratgenerator;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import megamek.common.Compute;
+
+/**
+ * The source of random numbers for the RAT and force generators. Normally this defers to
+ * {@link Compute}. While a force is generated from a seed, each step of each node of the force
+ * tree draws from its own stream, derived from the seed and the position of the node in the tree.
+ * The generated force then only depends on the seed, no matter in which order or on how many
+ * threads the nodes are processed.
+ */
+public final class ForceGeneratorRandom {
+
+    /** The stream of the generation step running on the current thread, if any */
+    private static final ThreadLocal<Random> stream = new ThreadLocal<>();
+
+    private ForceGeneratorRandom() { }
+
+    /**
+     * @param maxValue the exclusive upper bound
+     * @return a random integer between 0 and maxValue - 1
+     */
+    public static int randomInt(int maxValue) {
+        Random random = stream.get();
+        return (random == null) ? Compute.randomInt(maxValue) : random.nextInt(maxValue);
+    }
+
+    /**
+     * @return the result of rolling a single six-sided die
+     */
+    public static int d6() {
+        Random random = stream.get();
+        return (random == null) ? Compute.d6() : random.nextInt(6) + 1;
+    }
+
+    /**
+     * @param dice the number of dice to roll
+     * @return the sum of rolling the given number of six-sided dice
+     */
+    public static int d6(int dice) {
+        Random random = stream.get();
+        if (random == null) {
+            return Compute.d6(dice);
+        }
+        int total = 0;
+        for (int i = 0; i < dice; i++) {
+            total += random.nextInt(6) + 1;
+        }
+        return total;
+    }
+
+    /**
+     * Runs the task on the current thread, with all random numbers drawn from a stream created
+     * from the given seed. The previous stream, if any, is restored afterwards.
+     *
+     * @param seed the seed of the stream
+     * @param task the task to run
+     * @return the result of the task
+     */
+    static <T> T withSeed(long seed, Supplier<T> task) {
+        Random previous = stream.get();
+        stream.set(new Random(seed));
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) {
+                stream.remove();
+            } else {
+                stream.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Derives the seed of an independent stream from another seed. Seeds derived with different
+     * salts, or from different seeds, give streams that are not correlated.
+     *
+     * @param seed the seed to derive from
+     * @param salt distinguishes the streams derived from the same seed
+     * @return the derived seed
+     */
+    static long deriveSeed(long seed, long salt) {
+        // SplitMix64 finalizer
+        long z = seed + (salt + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -319,7 +319,7 @@ public class FormationType {
         List<String> infModeAttemptOrder = new ArrayList<>();
         while (!veeMap.isEmpty()) {
             int total = veeMap.values().stream().mapToInt(Integer::intValue).sum();
-            int r = Compute.randomInt(total);
+            int r = ForceGeneratorRandom.randomInt(total);
             String mode = "Tracked";
             for (String m : veeMap.keySet()) {
                 if (r < veeMap.get(m)) {
@@ -334,7 +334,7 @@ public class FormationType {
         }
         while (!infMap.isEmpty()) {
             int total = infMap.values().stream().mapToInt(Integer::intValue).sum();
-            int r = Compute.randomInt(total);
+            int r = ForceGeneratorRandom.randomInt(total);
             String mode = "Leg";
             for (String m : infMap.keySet()) {
                 if (r < infMap.get(m)) {
@@ -497,7 +497,7 @@ public class FormationType {
             final int POS_C3MM = 2;
             final int POS_C3_NUM = 3;
             while (combinations.size() > 0) {
-                int index = Compute.randomInt(combinations.size());
+                int index = ForceGeneratorRandom.randomInt(combinations.size());
                 Map<Integer,Integer> baseCombo = combinations.get(index);
 
                 int[] networkGroups = new int[POS_C3_NUM];
@@ -517,7 +517,7 @@ public class FormationType {
                 }
                 while (networkGroupings.size() > 0) {
                     list.clear();
-                    int networkIndex = Compute.randomInt(networkGroupings.size());
+                    int networkIndex = ForceGeneratorRandom.randomInt(networkGroupings.size());
                     Map<Integer,Integer> combo = networkGroupings.get(networkIndex);
 
                     int[] unitsPerGroup = new int[params.size()];
@@ -528,7 +528,7 @@ public class FormationType {
                             otherCriteria.size() + POS_C3_NUM);
                     while (unitTypeGroupings.size() > 0) {
                         list.clear();
-                        int utIndex = Compute.randomInt(unitTypeGroupings.size());
+                        int utIndex = ForceGeneratorRandom.randomInt(unitTypeGroupings.size());
                         combo = unitTypeGroupings.get(utIndex);
 
                         if (useGrouping != null
@@ -547,7 +547,7 @@ public class FormationType {
                             List<List<Map<Integer,Integer>>> groups = findMatchedGroups(groupedUnits, useGrouping);
 
                             while (groups.size() > 0) {
-                                int gIndex = Compute.randomInt(groups.size());
+                                int gIndex = ForceGeneratorRandom.randomInt(groups.size());
                                 list.clear();
                                 Map<Integer,List<MechSummary>> found = new TreeMap<>();
                                 Map<Integer,Integer> workingCombo = new HashMap<>(combo);
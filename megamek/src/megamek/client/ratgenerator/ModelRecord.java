@@ -16,6 +16,10 @@ package megamek.client.ratgenerator;
 import megamek.common.*;
 import org.apache.logging.log4j.LogManager;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.Set;
@@ -27,6 +31,8 @@ import java.util.Set;
  * @author Neoancient
  */
 public class ModelRecord extends AbstractUnitRecord {
+    private static final long serialVersionUID = -7780634157287314020L;
+
     public static final int NETWORK_NONE = 0;
     public static final int NETWORK_C3_SLAVE = 1;
     public static final int NETWORK_BA_C3 = 1;
@@ -41,7 +47,8 @@ public class ModelRecord extends AbstractUnitRecord {
     public static final int NETWORK_BOOSTED_SLAVE = NETWORK_C3_SLAVE | NETWORK_BOOSTED;
     public static final int NETWORK_BOOSTED_MASTER = NETWORK_C3_MASTER | NETWORK_BOOSTED;
 
-    private MechSummary mechSummary;
+    /** Not serialized, as it belongs to the unit cache; it is looked up there by name instead */
+    private transient MechSummary mechSummary;
     private boolean starLeague;
     private int weightClass;
     private EntityMovementMode movementMode;
@@ -341,5 +348,19 @@ public class ModelRecord extends AbstractUnitRecord {
     public void setMagClamp(boolean magClamp) {
         this.magClamp = magClamp;
     }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeUTF(mechSummary.getName());
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        String name = in.readUTF();
+        mechSummary = MechSummaryCache.getInstance().getMech(name);
+        if (mechSummary == null) {
+            throw new InvalidObjectException(name + " is not in the unit cache");
+        }
+    }
 }
 
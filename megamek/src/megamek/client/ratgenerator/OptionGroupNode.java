@@ -15,7 +15,6 @@ package megamek.client.ratgenerator;
 
 import java.util.ArrayList;
 
-import megamek.common.Compute;
 
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
@@ -49,7 +48,7 @@ public class OptionGroupNode extends RulesetNode {
             }
         }
         if (list.size() > 0) {
-            ValueNode n = list.get(Compute.randomInt(list.size()));
+            ValueNode n = list.get(ForceGeneratorRandom.randomInt(list.size()));
             if (apply) {
                 n.apply(fd);
             }
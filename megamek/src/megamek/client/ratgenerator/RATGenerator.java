@@ -13,11 +13,13 @@
  */
 package megamek.client.ratgenerator;
 
+import megamek.MMConstants;
 import megamek.common.*;
 import megamek.common.annotations.Nullable;
 import megamek.common.util.fileUtils.MegaMekFile;
 import megamek.utils.MegaMekXmlUtil;
 import org.apache.logging.log4j.LogManager;
+import org.nibblesec.tools.SerialKiller;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -26,23 +28,40 @@ import org.w3c.dom.NodeList;
 import javax.xml.parsers.DocumentBuilder;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.CRC32;
 
 /**
  * Generates a random assignment table (RAT) dynamically based on a variety of criteria,
  * including faction, era, unit type, weight class, equipment rating, faction subcommand, vehicle
  * movement mode, and mission role.
+ * <p>
+ * Once all eras have been loaded from the XML files, the data is saved to a snapshot next to the
+ * unit cache. As long as the MegaMek version and the checksums of the files and the unit cache
+ * stay the same, later runs load everything from the snapshot, so that generating a table never
+ * waits for an era to be parsed.
  * 
  * @author Neoancient
  */
 public class RATGenerator {
+
+    private static final String FILENAME_SNAPSHOT = "ratgen.cache";
+
+    /** The number of threads the snapshot is built and loaded on */
+    private static final int SNAPSHOT_THREADS =
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
     
     private final HashMap<String, ModelRecord> models;
     private final HashMap<String, ChassisRecord> chassis;
@@ -80,7 +99,7 @@ public class RATGenerator {
             rg.initializing = true;
             interrupted = false;
             dispose = false;
-            rg.loader = new Thread(() -> rg.initialize(Configuration.forceGeneratorDir()),
+            rg.loader = new Thread(() -> rg.load(Configuration.forceGeneratorDir()),
                     "RAT Generator unit populator");
             rg.loader.setPriority(Thread.NORM_PRIORITY - 1);
             rg.loader.start();
@@ -105,7 +124,7 @@ public class RATGenerator {
         eraSet.clear();
         initialized = false;
         initializing = false;
-        initialize(dir);
+        initialize(dir, false);
         rg.getEraSet().forEach(e -> rg.loadEra(e, dir));
     }
 
@@ -796,33 +815,46 @@ public class RATGenerator {
     public void dispose() {
         interrupted = true;
         dispose = true;
+        if (loader != null) {
+            // Stop waiting for the unit cache
+            loader.interrupt();
+        }
         if (initialized) {
             rg = null;
         }
     }
 
-    private synchronized void initialize(File dir) {
-        // Give the MSC some time to initialize
-        MechSummaryCache msc = MechSummaryCache.getInstance();
-        long waitLimit = System.currentTimeMillis() + 3000; /* 3 seconds */
-        while (!interrupted && !msc.isInitialized() && waitLimit > System.currentTimeMillis()) {
-            try {
-                Thread.sleep(50);
-            } catch (InterruptedException e) {
-                // Ignore
-            }
+    /**
+     * Initializes from the snapshot if it is up to date. Otherwise, initializes from the XML files
+     * and builds a new snapshot in the background.
+     *
+     * @param dir The directory to load from
+     */
+    private void load(File dir) {
+        if (!initialize(dir, true) && !interrupted && dir.isDirectory()) {
+            // Build the snapshot on a separate generator, as this one is in use meanwhile
+            Thread builder = new Thread(() -> buildSnapshot(dir), "RAT Generator snapshot builder");
+            builder.setDaemon(true);
+            builder.setPriority(Thread.MIN_PRIORITY);
+            builder.start();
         }
+    }
 
-        if (!(dir.exists() && dir.isDirectory())) {
+    /**
+     * @return true if the data was loaded from the snapshot
+     */
+    private synchronized boolean initialize(File dir, boolean useSnapshot) {
+        // Give the MSC some time to initialize
+        awaitUnitCache(3, TimeUnit.SECONDS);
+
+        final boolean snapshotLoaded = useSnapshot && loadSnapshot(dir);
+        if (snapshotLoaded) {
+            LogManager.getLogger().info("Loaded RAT generator data from " + getSnapshotFile());
+        } else if (!(dir.exists() && dir.isDirectory())) {
             LogManager.getLogger().error(dir + " is not a directory");
         } else {
             loadFactions(dir);
-
-            for (File f : dir.listFiles()) {
-                if (f.getName().matches("\\d+\\.xml")) {
-                    eraSet.add(Integer.parseInt(f.getName().replace(".xml", "")));
-                }
-            }
+            loadEraSet(dir);
         }
 
         if (!interrupted) {
@@ -834,6 +866,15 @@ public class RATGenerator {
             rg = null;
             dispose = false;
         }
+        return snapshotLoaded;
+    }
+
+    private void loadEraSet(File dir) {
+        for (File f : dir.listFiles()) {
+            if (f.getName().matches("\\d+\\.xml")) {
+                eraSet.add(Integer.parseInt(f.getName().replace(".xml", "")));
+            }
+        }
     }
 
     /**
@@ -905,19 +946,44 @@ public class RATGenerator {
     }
     
     private synchronized void loadEra(int era, File dir) {
+        if (!eraIsLoaded(era)) {
+            applyEra(era, parseEra(era, dir), dir);
+        }
+    }
+
+    /**
+     * Parses the file of an era; may be called on any thread.
+     *
+     * @return the parsed document, or null if the file cannot be read
+     */
+    private @Nullable Document parseEra(int era, File dir) {
+        File file = new MegaMekFile(dir, era + ".xml").getFile();
+        try (InputStream fis = new FileInputStream(file)) {
+            DocumentBuilder db = MegaMekXmlUtil.newSafeDocumentBuilder();
+            return db.parse(fis);
+        } catch (FileNotFoundException e) {
+            LogManager.getLogger().error("Unable to read RAT generator file for era " + era);
+        } catch (Exception ex) {
+            LogManager.getLogger().error("", ex);
+        }
+        return null;
+    }
+
+    /**
+     * Adds the availability data of an era, unless the era has been loaded already.
+     *
+     * @param xmlDoc the parsed file of the era, or null if it cannot be read
+     */
+    private synchronized void applyEra(int era, @Nullable Document xmlDoc, File dir) {
         if (eraIsLoaded(era)) {
             return;
         }
         chassisIndex.put(era, new HashMap<>());
         modelIndex.put(era, new HashMap<>());
-        File file = new MegaMekFile(dir, era + ".xml").getFile();
-        FileInputStream fis;
-        try {
-            fis = new FileInputStream(file);
-        } catch (FileNotFoundException e) {
-            LogManager.getLogger().error("Unable to read RAT generator file for era " + era);
+        if (xmlDoc == null) {
             return;
         }
+        File file = new MegaMekFile(dir, era + ".xml").getFile();
         while (!MechSummaryCache.getInstance().isInitialized()) {
             try {
                 Thread.sleep(50);
@@ -926,16 +992,6 @@ public class RATGenerator {
             }
         }
 
-        Document xmlDoc;
-
-        try {
-            DocumentBuilder db = MegaMekXmlUtil.newSafeDocumentBuilder();
-            xmlDoc = db.parse(fis);
-        } catch (Exception ex) {
-            LogManager.getLogger().error("", ex);
-            return;
-        }
-
         Element element = xmlDoc.getDocumentElement();
         NodeList nl = element.getChildNodes();
 
@@ -971,7 +1027,291 @@ public class RATGenerator {
         }
         notifyListenersEraLoaded();
     }
-    
+
+    /**
+     * Loads all eras into a new generator and saves them to the snapshot.
+     */
+    private static void buildSnapshot(File dir) {
+        RATGenerator builder = new RATGenerator();
+        builder.loadFactions(dir);
+        builder.loadEraSet(dir);
+        if (builder.loadAllEras(dir) && !interrupted) {
+            builder.saveSnapshot(dir);
+        }
+    }
+
+    /**
+     * Parses the files of all eras on a few threads, and adds them in order.
+     *
+     * @return true if all eras were loaded
+     */
+    private boolean loadAllEras(File dir) {
+        ExecutorService executor = createLoaderExecutor();
+        try {
+            // Only parse a few eras ahead, as parsed documents are much larger than the files
+            Iterator<Integer> eras = new ArrayList<>(getEraSet()).iterator();
+            Deque<Integer> pendingEras = new ArrayDeque<>();
+            Deque<Future<Document>> documents = new ArrayDeque<>();
+            boolean complete = true;
+            while (eras.hasNext() || !pendingEras.isEmpty()) {
+                while (eras.hasNext() && (pendingEras.size() < SNAPSHOT_THREADS * 2)) {
+                    int era = eras.next();
+                    pendingEras.add(era);
+                    documents.add(executor.submit(() -> parseEra(era, dir)));
+                }
+                if (interrupted) {
+                    return false;
+                }
+                int era = pendingEras.poll();
+                Document xmlDoc = documents.poll().get();
+                complete &= (xmlDoc != null);
+                applyEra(era, xmlDoc, dir);
+            }
+            return complete;
+        } catch (InterruptedException | ExecutionException e) {
+            LogManager.getLogger().error("Unable to load RAT generator eras", e);
+            return false;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ExecutorService createLoaderExecutor() {
+        return Executors.newFixedThreadPool(SNAPSHOT_THREADS, r -> {
+            Thread thread = new Thread(r, "RAT Generator loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Waits for the unit cache to finish loading. Returns early when the thread is interrupted,
+     * leaving it interrupted.
+     *
+     * @return true if the unit cache is loaded
+     */
+    private static boolean awaitUnitCache(long timeout, TimeUnit unit) {
+        MechSummaryCache msc = MechSummaryCache.getInstance();
+        CountDownLatch loaded = new CountDownLatch(1);
+        MechSummaryCache.Listener listener = loaded::countDown;
+        msc.addListener(listener);
+        try {
+            return msc.isInitialized() || loaded.await(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            msc.removeListener(listener);
+        }
+    }
+
+    private static File getSnapshotFile() {
+        return new MegaMekFile(MechSummaryCache.getUnitCacheDir(), FILENAME_SNAPSHOT).getFile();
+    }
+
+    /**
+     * @return the checksums of the files the data is loaded from, by file name, which must be the
+     * same as those in the snapshot for it to be used
+     */
+    private static Map<String, Long> getSnapshotSources(File dir) throws IOException {
+        Map<String, Long> sources = new TreeMap<>();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (f.getName().matches("\\d+\\.xml") || f.getName().equals("factions.xml")) {
+                    sources.put(f.getName(), checksum(f));
+                }
+            }
+        }
+        // The model records are made from the unit cache
+        File unitCache = new MegaMekFile(MechSummaryCache.getUnitCacheDir(),
+                MechSummaryCache.FILENAME_UNITS_CACHE).getFile();
+        sources.put(unitCache.getName(), unitCache.exists() ? checksum(unitCache) : 0);
+        return sources;
+    }
+
+    private static long checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, count);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Loads the factions, chassis, models and all eras from the snapshot. The records are
+     * serialized, while the availability ratings of each era are written as plain data that is
+     * read on several threads.
+     *
+     * @return true if the snapshot was up to date and has been loaded
+     */
+    @SuppressWarnings("unchecked")
+    private boolean loadSnapshot(File dir) {
+        File file = getSnapshotFile();
+        if (!file.exists()) {
+            return false;
+        }
+        // The model records are looked up in the unit cache
+        if (!awaitUnitCache(Long.MAX_VALUE, TimeUnit.MILLISECONDS) || interrupted) {
+            return false;
+        }
+
+        ExecutorService executor = createLoaderExecutor();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            // The format of the snapshot may change with any version, so only the same one is used
+            if (!in.readUTF().equals(MMConstants.VERSION.toString())) {
+                LogManager.getLogger().info("The RAT generator snapshot is from another version");
+                return false;
+            }
+            Map<String, Long> sources = new TreeMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                sources.put(in.readUTF(), in.readLong());
+            }
+            if (!sources.equals(getSnapshotSources(dir))) {
+                LogManager.getLogger().info("The RAT generator snapshot is out of date");
+                return false;
+            }
+            byte[] records = readBlock(in);
+            Map<Integer, Future<HashMap<String, HashMap<String, AvailabilityRating>>>> chassisEras = new TreeMap<>();
+            Map<Integer, Future<HashMap<String, HashMap<String, AvailabilityRating>>>> modelEras = new TreeMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                int era = in.readInt();
+                byte[] chassisData = readBlock(in);
+                byte[] modelData = readBlock(in);
+                chassisEras.put(era, executor.submit(() -> readIndex(chassisData, era)));
+                modelEras.put(era, executor.submit(() -> readIndex(modelData, era)));
+            }
+
+            // The records are read while the eras are
+            Map<String, FactionRecord> snapshotFactions;
+            Map<String, ChassisRecord> snapshotChassis;
+            Map<String, ModelRecord> snapshotModels;
+            try (ObjectInputStream recordsIn = new SerialKiller(new ByteArrayInputStream(records),
+                    "mmconf/serialkiller.xml")) {
+                snapshotFactions = (Map<String, FactionRecord>) recordsIn.readObject();
+                snapshotChassis = (Map<String, ChassisRecord>) recordsIn.readObject();
+                snapshotModels = (Map<String, ModelRecord>) recordsIn.readObject();
+            }
+            Map<Integer, HashMap<String, HashMap<String, AvailabilityRating>>> snapshotChassisIndex = new HashMap<>();
+            Map<Integer, HashMap<String, HashMap<String, AvailabilityRating>>> snapshotModelIndex = new HashMap<>();
+            for (int era : chassisEras.keySet()) {
+                snapshotChassisIndex.put(era, chassisEras.get(era).get());
+                snapshotModelIndex.put(era, modelEras.get(era).get());
+            }
+
+            factions.putAll(snapshotFactions);
+            chassis.putAll(snapshotChassis);
+            models.putAll(snapshotModels);
+            chassisIndex.putAll(snapshotChassisIndex);
+            modelIndex.putAll(snapshotModelIndex);
+            eraSet.addAll(snapshotChassisIndex.keySet());
+            return true;
+        } catch (Exception e) {
+            LogManager.getLogger().warn("Unable to load the RAT generator snapshot", e);
+            return false;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Saves the factions, chassis, models and all eras to the snapshot.
+     */
+    private void saveSnapshot(File dir) {
+        File file = getSnapshotFile();
+        // Written to another file first, so that an incomplete snapshot is never read
+        File newFile = new File(file.getPath() + ".new");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(newFile)))) {
+                out.writeUTF(MMConstants.VERSION.toString());
+                Map<String, Long> sources = getSnapshotSources(dir);
+                out.writeInt(sources.size());
+                for (Map.Entry<String, Long> source : sources.entrySet()) {
+                    out.writeUTF(source.getKey());
+                    out.writeLong(source.getValue());
+                }
+
+                ByteArrayOutputStream records = new ByteArrayOutputStream();
+                try (ObjectOutputStream recordsOut = new ObjectOutputStream(records)) {
+                    recordsOut.writeObject(factions);
+                    recordsOut.writeObject(chassis);
+                    recordsOut.writeObject(models);
+                }
+                writeBlock(out, records.toByteArray());
+
+                out.writeInt(eraSet.size());
+                for (int era : eraSet) {
+                    out.writeInt(era);
+                    writeBlock(out, writeIndex(chassisIndex.get(era)));
+                    writeBlock(out, writeIndex(modelIndex.get(era)));
+                }
+            }
+            Files.move(newFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            LogManager.getLogger().info("Saved RAT generator data to " + file);
+        } catch (Exception e) {
+            LogManager.getLogger().error("Unable to save the RAT generator snapshot", e);
+            if (!newFile.delete()) {
+                newFile.deleteOnExit();
+            }
+        }
+    }
+
+    private static byte[] readBlock(DataInputStream in) throws IOException {
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return data;
+    }
+
+    private static void writeBlock(DataOutputStream out, byte[] data) throws IOException {
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    /**
+     * Reads the availability ratings of one era by unit key and faction code.
+     */
+    private static HashMap<String, HashMap<String, AvailabilityRating>> readIndex(byte[] data, int era)
+            throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        int units = in.readInt();
+        HashMap<String, HashMap<String, AvailabilityRating>> index = new HashMap<>(units * 4 / 3 + 1);
+        for (int i = 0; i < units; i++) {
+            String unit = in.readUTF();
+            int ratings = in.readInt();
+            HashMap<String, AvailabilityRating> unitRatings = new HashMap<>(ratings * 4 / 3 + 1);
+            for (int j = 0; j < ratings; j++) {
+                AvailabilityRating ar = AvailabilityRating.readFrom(in, unit, era);
+                unitRatings.put(ar.getFactionCode(), ar);
+            }
+            index.put(unit, unitRatings);
+        }
+        return index;
+    }
+
+    private static byte[] writeIndex(@Nullable Map<String, HashMap<String, AvailabilityRating>> index)
+            throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(data);
+        if (index == null) {
+            out.writeInt(0);
+        } else {
+            out.writeInt(index.size());
+            for (Map.Entry<String, HashMap<String, AvailabilityRating>> unit : index.entrySet()) {
+                out.writeUTF(unit.getKey());
+                out.writeInt(unit.getValue().size());
+                for (AvailabilityRating ar : unit.getValue().values()) {
+                    ar.writeTo(out);
+                }
+            }
+        }
+        out.flush();
+        return data.toByteArray();
+    }
+
     /**
      * Creates model and chassis records for all units that don't already have entries. This should
      * only be called after all availability records are loaded, otherwise they will be overwritten.
@@ -26,6 +26,8 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -60,6 +62,12 @@ public class Ruleset {
 
     private static final String directory = "data/forcegenerator/faction_rules";
     private static final String CONSTANTS_FILE = "constants.txt";
+    /* How far back to load the RAT generator eras before generating a force in parallel */
+    private static final int SALVAGE_PRELOAD_YEARS = 50;
+    /* Salts used to derive the random streams of the steps that work on the whole force tree */
+    private static final int STEP_BUILD_FORCE_TREE = 101;
+    private static final int STEP_RECALC_WEIGHT_CLASS = 102;
+    private static final int STEP_ASSIGN_POSITIONS = 103;
 
     private static HashMap<String,String> constants;
     private static Pattern constantPattern = Pattern.compile("%(.*?)%");
@@ -141,7 +149,8 @@ public class Ruleset {
     @FunctionalInterface
     public interface ProgressListener {
         /**
-         * Notifies listener of progress in generating force.
+         * Notifies listener of progress in generating force. When the force is generated in
+         * parallel, this is called from several threads.
          * 
          * @param progress The fraction of the task that has been completed in this step.
          * @param message A message that describes the current step.
@@ -151,28 +160,66 @@ public class Ruleset {
     }
 
     public void processRoot(ForceDescriptor fd, ProgressListener l) {
-        defaults.apply(fd);
+        fd.setGenerationSeed(null);
+        processRoot(fd, l, false);
+    }
+
+    /**
+     * Generates the force from the given seed. Generating the same force from the same seed gives
+     * the same units and crews, except for crew names and genders, whether or not it is done in
+     * parallel.
+     *
+     * @param fd       The root of the force to generate
+     * @param l        Notified of the progress; in parallel mode it is called from several threads
+     * @param seed     The seed for the random numbers used in generating the force
+     * @param parallel Whether to generate independent subforces concurrently. The force tree
+     *                 itself is always built sequentially.
+     */
+    public void processRoot(ForceDescriptor fd, ProgressListener l, long seed, boolean parallel) {
+        fd.setGenerationSeed(seed);
+        if (!parallel) {
+            processRoot(fd, l, false);
+            return;
+        }
+        // Make sure everything that is loaded on first use is loaded before generation fans out.
+        // Salvage tables are drawn from years before, so load those eras as well.
+        FormationType.getAllFormations();
+        for (int year = fd.getYear(); year >= fd.getYear() - SALVAGE_PRELOAD_YEARS; year -= 5) {
+            RATGenerator.getInstance().loadYear(year);
+        }
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            pool.invoke(ForkJoinTask.adapt(() -> processRoot(fd, l, true)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void processRoot(ForceDescriptor fd, ProgressListener l, boolean parallel) {
         // save the setting so it can be restored after assigning names
         String rngFaction = RandomNameGenerator.getInstance().getChosenFaction();
 
-        buildForceTree(fd, l, 0.05);
-        fd.generateUnits(l, 0.5);
+        runRootStep(fd, STEP_BUILD_FORCE_TREE, () -> {
+            defaults.apply(fd);
+            buildForceTree(fd, l, 0.05);
+        });
+        fd.generateUnits(l, 0.5, parallel);
         if (null != l) {
             l.updateProgress(0, "Finalizing formation");
         }
-        fd.recalcWeightClass();
-        fd.assignCommanders();
-        fd.assignPositions();
+        runRootStep(fd, STEP_RECALC_WEIGHT_CLASS, fd::recalcWeightClass);
+        fd.assignCommanders(parallel);
+        runRootStep(fd, STEP_ASSIGN_POSITIONS, fd::assignPositions);
         
         if (null != l) {
             l.updateProgress(0.05, "Finalizing formation");
         }
-        fd.loadEntities(l, 0.4);
+        fd.loadEntities(l, 0.4, parallel);
         //      fd.assignBloodnames();
 
         ForceDescriptor transports = fd.assignTransport();
         if (null != transports) {
-            transports.loadEntities(l, 0);
+            transports.loadEntities(l, 0, parallel);
             fd.addAttached(transports);
         }
 
@@ -183,6 +230,21 @@ public class Ruleset {
         RandomNameGenerator.getInstance().setChosenFaction(rngFaction);
     }
 
+    /**
+     * Runs a step of the generation that works on the whole force tree at once, using the
+     * stream of the root node if the force is generated from a seed.
+     */
+    private void runRootStep(ForceDescriptor fd, int salt, Runnable step) {
+        if (fd.getGenerationSeed() == null) {
+            step.run();
+        } else {
+            ForceGeneratorRandom.withSeed(ForceGeneratorRandom.deriveSeed(fd.getGenerationSeed(), salt), () -> {
+                step.run();
+                return null;
+            });
+        }
+    }
+
     /**
      * Recursively build the force structure by assigning appropriate values to the current node,
      * including number and type of subforce and attached force nodes, and process those as well.
@@ -17,13 +17,14 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
-import megamek.common.Compute;
 import megamek.common.EntityMovementMode;
 import megamek.common.MechSummary;
 
@@ -42,15 +43,19 @@ public class UnitTable {
 
     private static final int CACHE_SIZE = 32;
 
-    private static LinkedHashMap<Parameters,UnitTable> cache = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+    /**
+     * The number of draws from the full table that are tried before a filtered draw builds
+     * a table of only the units that pass the filter.
+     */
+    private static final int MAX_FILTER_REJECTIONS = 8;
 
-        private static final long serialVersionUID = -8016095510116134800L;
+    /**
+     * Previously generated tables. Lookups do not lock; when the cache grows too large the least
+     * recently used table is evicted, as determined by the use stamp of each entry.
+     */
+    private static final ConcurrentHashMap<Parameters, CachedTable> cache = new ConcurrentHashMap<>();
 
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<Parameters, UnitTable> entry) {
-            return size() >= CACHE_SIZE;
-        }
-    };
+    private static final AtomicLong cacheClock = new AtomicLong();
 
     /**
      * Checks the cache for a previously generated table meeting the criteria. If none is
@@ -101,22 +106,47 @@ public class UnitTable {
      * @param params - the parameters to use in generating the table.
      * @return a generated table matching the parameters
      */
-    public static synchronized UnitTable findTable(Parameters params) {
+    public static UnitTable findTable(Parameters params) {
         Objects.requireNonNull(params);
-        UnitTable retVal = cache.get(params);
-        if (retVal == null) {
-            retVal = new UnitTable(params);
-            if (retVal.hasUnits()) {
-                //Use a copy of the params for the cache key to prevent changing it.
-                cache.put(params.copy(), retVal);
+        CachedTable cached = cache.get(params);
+        if (cached != null) {
+            cached.lastUsed = cacheClock.incrementAndGet();
+            return cached.table;
+        }
+        UnitTable retVal = new UnitTable(params);
+        if (retVal.hasUnits()) {
+            //Use a copy of the params for the cache key to prevent changing it.
+            cached = cache.putIfAbsent(params.copy(), new CachedTable(retVal, cacheClock.incrementAndGet()));
+            if (cached != null) {
+                // Another thread generated the same table first
+                return cached.table;
+            }
+            while (cache.size() >= CACHE_SIZE) {
+                evictLeastRecentlyUsed();
             }
         }
         return retVal;
     }
 
+    private static void evictLeastRecentlyUsed() {
+        Map.Entry<Parameters, CachedTable> eldest = null;
+        for (Map.Entry<Parameters, CachedTable> entry : cache.entrySet()) {
+            if ((eldest == null) || (entry.getValue().lastUsed < eldest.getValue().lastUsed)) {
+                eldest = entry;
+            }
+        }
+        if (eldest != null) {
+            cache.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
     private Parameters key;
-    private List<TableEntry> salvageTable = new ArrayList<>();
-    private List<TableEntry> unitTable = new ArrayList<>();
+    /* Salvage entries that turn out to have no units are removed on the first salvage draw,
+     * which may happen on any thread drawing from this table. */
+    private final List<TableEntry> salvageTable = new CopyOnWriteArrayList<>();
+    private volatile boolean salvageResolved;
+    private final List<TableEntry> unitTable = new ArrayList<>();
+    private final AliasTable unitAliasTable;
 
     int salvageTotal;
     int unitTotal;
@@ -132,7 +162,7 @@ public class UnitTable {
     protected UnitTable(Parameters key) {
         this.key = key;
         /*
-         * Generate the RAT, then go through it to build the NavigableMaps that
+         * Generate the RAT, then go through it to build the alias table that
          * will be used for random selection.
          */
         if (key.getFaction().isActiveInYear(key.getYear())) {
@@ -155,6 +185,7 @@ public class UnitTable {
                 salvagePct = salvageTotal * 100 / (salvageTotal + unitTotal);
             }
         }
+        unitAliasTable = new AliasTable(unitTable);
     }
 
     /**
@@ -258,32 +289,43 @@ public class UnitTable {
      * @return - the selected unit, or null if no units pass the filter.
      */
     public MechSummary generateUnit(UnitFilter filter) {
-        int roll = Compute.randomInt(100);
+        return generateUnit(filter, (filter == null) ? null : new FilteredUnits(filter));
+    }
+
+    /**
+     * Selects a unit from the entries in the table that pass the filter. Most filters let through
+     * a good part of the table, so a few draws from the full table are tried first; only if those
+     * are all rejected is a table built of the units that pass the filter. Either way each unit
+     * that passes the filter is drawn with probability proportional to its weight.
+     *
+     * @param filter - the function that determines which units are permitted; if null, no filter is applied.
+     * @param filtered - the units of this table that pass the filter, shared by all draws with the same filter
+     * @return - the selected unit, or null if no units pass the filter.
+     */
+    private MechSummary generateUnit(UnitFilter filter, FilteredUnits filtered) {
+        int roll = ForceGeneratorRandom.randomInt(100);
         if (roll < salvagePct) {
             MechSummary ms = generateSalvage(filter);
             if (ms != null) {
                 return ms;
             }
         }
-        List<TableEntry> useUnitList = unitTable;
-        int unitMapSize = unitTotal;
-        if (filter != null) {
-            useUnitList = unitTable.stream().filter(te -> filter.include(te.getUnitEntry()))
-                    .collect(Collectors.toList());
-            unitMapSize = useUnitList.stream().mapToInt(te -> te.weight).sum();
+        if (filter == null) {
+            TableEntry te = unitAliasTable.draw();
+            return (te == null) ? null : te.getUnitEntry();
         }
-
-        if (unitMapSize > 0) {
-            roll = Compute.randomInt(unitMapSize);
-            for (TableEntry te : useUnitList) {
-                if (roll < te.weight) {
+        if (!filtered.isBuilt()) {
+            for (int i = 0; i < MAX_FILTER_REJECTIONS; i++) {
+                TableEntry te = unitAliasTable.draw();
+                if (te == null) {
+                    return null;
+                } else if (filter.include(te.getUnitEntry())) {
                     return te.getUnitEntry();
                 }
-                roll -= te.weight;
             }
         }
-        assert(unitMapSize == 0);
-        return null;
+        TableEntry te = filtered.getAliasTable().draw();
+        return (te == null) ? null : te.getUnitEntry();
     }
 
     /**
@@ -305,8 +347,9 @@ public class UnitTable {
      */
     public ArrayList<MechSummary> generateUnits(int num, UnitFilter filter) {
         ArrayList<MechSummary> retVal = new ArrayList<>();
+        FilteredUnits filtered = (filter == null) ? null : new FilteredUnits(filter);
         for (int i = 0; i < num; i++) {
-            MechSummary ms = generateUnit(filter);
+            MechSummary ms = generateUnit(filter, filtered);
             if (ms != null) {
                 retVal.add(ms);
             }
@@ -317,39 +360,192 @@ public class UnitTable {
     /**
      * Selects a faction from the salvage list and generates a table using the same parameters
      * as this table, but from five years earlier. Generated tables are cached for later use.
-     * If the generated table contains no units, it is discarded and the selected entry is deleted.
-     * This continues until either a unit is generated or there are no remaining entries.
+     * Factions whose table contains no units are removed from the salvage list beforehand.
      *
      * @param filter - passed to generateUnit() in the generated table.
      * @return - a unit generated from another faction, or null if none of the factions in
      * the salvage list contain any units that meet the parameters.
      */
     private MechSummary generateSalvage(UnitFilter filter) {
-        while (salvageTotal > 0) {
-            int roll = Compute.randomInt(salvageTotal);
-            TableEntry salvageEntry = null;
-            for (TableEntry te : salvageTable) {
-                if (roll < te.weight) {
-                    salvageEntry = te;
-                    break;
+        resolveSalvage();
+        if (salvageTotal <= 0) {
+            assert(salvageTable.isEmpty() && salvageTotal == 0);
+            return null;
+        }
+        int roll = ForceGeneratorRandom.randomInt(salvageTotal);
+        for (TableEntry te : salvageTable) {
+            if (roll < te.weight) {
+                return findSalvageTable(te).generateUnit(filter);
+            }
+            roll -= te.weight;
+        }
+        return null;
+    }
+
+    /**
+     * Removes the salvage entries whose table contains no units. This is done for all entries
+     * the first time salvage is drawn rather than as each empty entry comes up, so that the
+     * result of a draw does not depend on what other draws from the same table, possibly on
+     * other threads, have already found.
+     */
+    private void resolveSalvage() {
+        if (salvageResolved) {
+            return;
+        }
+        synchronized (salvageTable) {
+            if (!salvageResolved) {
+                List<TableEntry> empty = salvageTable.stream()
+                        .filter(te -> !findSalvageTable(te).hasUnits())
+                        .collect(Collectors.toList());
+                salvageTable.removeAll(empty);
+                salvageTotal -= empty.stream().mapToInt(te -> te.weight).sum();
+                salvageResolved = true;
+            }
+        }
+    }
+
+    private UnitTable findSalvageTable(TableEntry salvageEntry) {
+        return UnitTable.findTable(salvageEntry.getSalvageFaction(),
+                key.getUnitType(), key.getYear() - 5, key.getRating(),
+                key.getWeightClasses(), key.getNetworkMask(), key.getMovementModes(),
+                key.getRoles(), key.getRoleStrictness(), key.getFaction());
+    }
+
+    /**
+     * The units of a table that pass a filter. The table of these units is only built when
+     * it is needed, and then reused for all further draws with the same filter.
+     */
+    private class FilteredUnits {
+        private final UnitFilter filter;
+        private AliasTable aliasTable;
+
+        FilteredUnits(UnitFilter filter) {
+            this.filter = filter;
+        }
+
+        boolean isBuilt() {
+            return aliasTable != null;
+        }
+
+        AliasTable getAliasTable() {
+            if (aliasTable == null) {
+                aliasTable = new AliasTable(unitTable.stream()
+                        .filter(te -> filter.include(te.getUnitEntry()))
+                        .collect(Collectors.toList()));
+            }
+            return aliasTable;
+        }
+    }
+
+    /**
+     * An alias table built with Vose's method, which draws an entry with probability proportional
+     * to its weight in constant time. Each of the n columns holds one entry with part of its weight
+     * and, for the rest of the column, an alias entry. The weights are scaled by n rather than
+     * normalized so that all arithmetic stays in integers and the result is exactly the same
+     * distribution as a walk over the cumulative weights.
+     */
+    static final class AliasTable {
+        private final List<TableEntry> entries;
+        private final int totalWeight;
+        /* The part of each column, out of totalWeight, that selects the entry itself */
+        private final int[] threshold;
+        private final int[] alias;
+
+        AliasTable(List<TableEntry> entries) {
+            this.entries = new ArrayList<>(entries);
+            int n = this.entries.size();
+            long[] weights = new long[n];
+            long total = 0;
+            for (int i = 0; i < n; i++) {
+                weights[i] = Math.max(this.entries.get(i).weight, 0);
+                total += weights[i];
+            }
+            if (total > Integer.MAX_VALUE) {
+                // Scale the weights down to fit, keeping every entry that can be drawn at all
+                long divisor = (total + Integer.MAX_VALUE - n - 1) / (Integer.MAX_VALUE - n);
+                total = 0;
+                for (int i = 0; i < n; i++) {
+                    if (weights[i] > 0) {
+                        weights[i] = Math.max(weights[i] / divisor, 1);
+                        total += weights[i];
+                    }
                 }
-                roll -= te.weight;
-            }
-            if (salvageEntry != null) {
-                UnitTable salvage = UnitTable.findTable(salvageEntry.getSalvageFaction(),
-                        key.getUnitType(), key.getYear() - 5, key.getRating(),
-                        key.getWeightClasses(), key.getNetworkMask(), key.getMovementModes(),
-                        key.getRoles(), key.getRoleStrictness(), key.getFaction());
-                if (salvage.hasUnits()) {
-                    return salvage.generateUnit(filter);
+            }
+            totalWeight = (int) total;
+            threshold = new int[n];
+            alias = new int[n];
+            if (totalWeight == 0) {
+                return;
+            }
+
+            long[] scaled = new long[n];
+            int[] small = new int[n];
+            int[] large = new int[n];
+            int smallCount = 0;
+            int largeCount = 0;
+            for (int i = 0; i < n; i++) {
+                scaled[i] = weights[i] * n;
+                if (scaled[i] < totalWeight) {
+                    small[smallCount++] = i;
                 } else {
-                    salvageTotal -= salvageEntry.weight;
-                    salvageTable.remove(salvageEntry);
+                    large[largeCount++] = i;
                 }
             }
+            while ((smallCount > 0) && (largeCount > 0)) {
+                int less = small[--smallCount];
+                int more = large[--largeCount];
+                threshold[less] = (int) scaled[less];
+                alias[less] = more;
+                scaled[more] += scaled[less] - totalWeight;
+                if (scaled[more] < totalWeight) {
+                    small[smallCount++] = more;
+                } else {
+                    large[largeCount++] = more;
+                }
+            }
+            // With exact arithmetic whatever remains fills its whole column
+            while (largeCount > 0) {
+                int i = large[--largeCount];
+                threshold[i] = totalWeight;
+                alias[i] = i;
+            }
+            while (smallCount > 0) {
+                int i = small[--smallCount];
+                threshold[i] = totalWeight;
+                alias[i] = i;
+            }
+        }
+
+        /**
+         * @return - a randomly drawn entry, or null if the table has no entries with a positive weight
+         */
+        TableEntry draw() {
+            int n = entries.size();
+            if (totalWeight == 0) {
+                return null;
+            }
+            int column;
+            int roll;
+            if ((long) n * totalWeight <= Integer.MAX_VALUE) {
+                int r = ForceGeneratorRandom.randomInt(n * totalWeight);
+                column = r / totalWeight;
+                roll = r % totalWeight;
+            } else {
+                column = ForceGeneratorRandom.randomInt(n);
+                roll = ForceGeneratorRandom.randomInt(totalWeight);
+            }
+            return entries.get((roll < threshold[column]) ? column : alias[column]);
+        }
+    }
+
+    private static final class CachedTable {
+        private final UnitTable table;
+        private volatile long lastUsed;
+
+        CachedTable(UnitTable table, long lastUsed) {
+            this.table = table;
+            this.lastUsed = lastUsed;
         }
-        assert(salvageTable.isEmpty() && salvageTotal == 0);
-        return null;
     }
 
     /* A tuple that contains either a salvage or a faction entry along with its relative weight.
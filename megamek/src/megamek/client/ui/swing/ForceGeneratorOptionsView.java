@@ -21,6 +21,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -1179,7 +1180,9 @@ public class ForceGeneratorOptionsView extends JPanel implements FocusListener,
         @Override
         protected ForceDescriptor doInBackground() throws Exception {
             btnGenerate.setEnabled(false);
-            Ruleset.findRuleset(fd).processRoot(fd, this);
+            long seed = ThreadLocalRandom.current().nextLong();
+            LogManager.getLogger().debug("Generating force with seed " + seed);
+            Ruleset.findRuleset(fd).processRoot(fd, this, seed, true);
             return fd;
         }
 
@@ -16,7 +16,6 @@
  */
 package megamek.client.ui.swing;
 
-import com.thoughtworks.xstream.XStream;
 import megamek.MegaMek;
 import megamek.MMConstants;
 import megamek.client.Client;
@@ -65,7 +64,6 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.List;
 import java.util.*;
-import java.util.zip.GZIPInputStream;
 
 import static megamek.common.Compute.d6;
 
@@ -528,7 +526,8 @@ public class MegaMekGUI implements IPreferenceChangeListener {
         fc.setFileFilter(new FileFilter() {
             @Override
             public boolean accept(File dir) {
-                return ((dir.getName().endsWith(MMConstants.SAVE_FILE_EXT) || dir.getName().endsWith(MMConstants.SAVE_FILE_GZ_EXT) || dir.isDirectory()));
+                return ((dir.getName().endsWith(MMConstants.SAVE_FILE_EXT) || dir.getName().endsWith(MMConstants.SAVE_FILE_GZ_EXT)
+                        || dir.getName().endsWith(MMConstants.SAVE_FILE_BIN_EXT) || dir.isDirectory()));
             }
 
             @Override
@@ -544,9 +543,8 @@ public class MegaMekGUI implements IPreferenceChangeListener {
 
         // extract game data before starting to check and get player names
         Game newGame;
-        try (InputStream is = new FileInputStream(fc.getSelectedFile()); InputStream gzi = new GZIPInputStream(is)) {
-            XStream xstream = SerializationHelper.getXStream();
-            newGame = (Game) xstream.fromXML(gzi);
+        try {
+            newGame = SerializationHelper.loadSaveGame(fc.getSelectedFile());
         } catch (Exception e) {
             LogManager.getLogger().error("Unable to load file: " + fc.getSelectedFile().getAbsolutePath(), e);
             JOptionPane.showMessageDialog(frame, Messages.getFormattedString("MegaMek.LoadGameAlert.message", fc.getSelectedFile().getAbsolutePath()),
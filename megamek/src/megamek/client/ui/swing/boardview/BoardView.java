@@ -71,13 +71,17 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.font.GlyphVector;
 import java.awt.geom.AffineTransform;
-import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.awt.image.*;
 import java.io.File;
 import java.util.List;
 import java.util.Queue;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static megamek.client.ui.swing.util.UIUtil.guiScaledFontHTML;
@@ -100,7 +104,7 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
     public static final int HEX_H = HexTileset.HEX_H;
     public static final int HEX_DIAG = (int) Math.round(Math.sqrt(HEX_W * HEX_W + HEX_H * HEX_H));
 
-    private static final int HEX_WC = HEX_W - (HEX_W / 4);
+    static final int HEX_WC = HEX_W - (HEX_W / 4);
     static final int HEX_ELEV = 12;
 
     private static final float[] ZOOM_FACTORS = { 0.30f, 0.41f, 0.50f, 0.60f,
@@ -142,7 +146,6 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
 
     Dimension hex_size;
 
-    private Font font_note = FONT_10;
     private Font font_hexnum = FONT_10;
     private Font font_elev = FONT_9;
     private Font font_minefield = FONT_12;
@@ -251,9 +254,24 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
     Shape upArrow;
     Shape downArrow;
 
-    // Image to hold the complete board shadow map
-    BufferedImage shadowMap;
-    double[] lightDirection = { -19, 7 };
+    // The shadows of the board, rendered in tiles
+    volatile ShadowMap shadowMap;
+
+    /** Prepares and updates the shadow map off the event dispatch thread */
+    private final ExecutorService shadowMapExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Shadow Map");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** True while preparing the shadow map is queued or running */
+    private final AtomicBoolean shadowMapBuilding = new AtomicBoolean();
+
+    /** Changes whenever the shadow map is dropped, so that one prepared meanwhile is not used */
+    private final AtomicInteger shadowMapGeneration = new AtomicInteger();
+
+    /** The hexes changed since the shadow map was last updated; guards replacing the shadow map */
+    private final Set<Coords> shadowMapChanges = new HashSet<>();
     private static Kernel kernel = new Kernel(5, 5,
             new float[] {
                     1f / 25f, 1f / 25f, 1f / 25f, 1f / 25f, 1f / 25f,
@@ -277,10 +295,10 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
 
     // Initial scale factor for sprites and map
     float scale = 1.00f;
-    private ImageCache<Integer, Image> scaledImageCache = new ImageCache<>();
-    private ImageCache<Integer, BufferedImage> shadowImageCache = new ImageCache<>();
+    private final ImageCache<Integer, Image> scaledImageCache = new ImageCache<>("Scaled images", ImageCache::estimateBytes);
+    private final ImageCache<Integer, BufferedImage> shadowImageCache = new ImageCache<>("Shadow images", ImageCache::estimateBytes);
 
-    private Set<Integer> animatedImages = new HashSet<>();
+    private Set<Integer> animatedImages = ConcurrentHashMap.newKeySet();
 
     // Displayables (Chat box, etc.)
     ArrayList<IDisplayable> displayables = new ArrayList<>();
@@ -301,6 +319,15 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
     private ArrayList<WreckSprite> wreckSprites = new ArrayList<>();
     private ArrayList<IsometricWreckSprite> isometricWreckSprites = new ArrayList<>();
 
+    // The sprites drawn hex by hex in isometric rendering, sorted by hex each frame
+    private final HexSpriteIndex<HexSprite> fieldofFireSpriteIndex = new HexSpriteIndex<>(HexSprite::getPosition);
+    private final HexSpriteIndex<HexSprite> moveEnvSpriteIndex = new HexSpriteIndex<>(HexSprite::getPosition);
+    private final HexSpriteIndex<HexSprite> moveModEnvSpriteIndex = new HexSpriteIndex<>(HexSprite::getPosition);
+    private final HexSpriteIndex<IsometricSprite> isometricSpriteIndex =
+            new HexSpriteIndex<>(IsometricSprite::getPosition);
+    private final HexSpriteIndex<IsometricWreckSprite> isometricWreckSpriteIndex =
+            new HexSpriteIndex<>(IsometricWreckSprite::getPosition);
+
     private Coords rulerStart;
     private Coords rulerEnd;
     private Color rulerStartColor;
@@ -342,6 +369,7 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
     private long averageTime;
     private int frameCount;
     private Font fpsFont = new Font("SansSerif", Font.PLAIN, 20);
+    private Font cacheStatsFont = new Font("SansSerif", Font.PLAIN, 12);
 
     /**
      * Keeps track of whether we have an active ChatterBox2
@@ -369,6 +397,33 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
     */
     ImageCache<Coords, HexImageCacheEntry> hexImageCache;
 
+    /**
+     * Cache that stores the hex images rendered into tiles of several hexes, used when not
+     * using isometric rendering; tiles are dropped along with the hex images they contain
+     */
+    private final HexTileCache hexTileCache = new HexTileCache();
+
+    /** Prepares missing hex images in the background while placeholders are shown */
+    private final HexImagePreparer hexImagePreparer = new HexImagePreparer(this::prepareHexImageInBackground);
+
+    /** Guards storing hex images prepared in the background against clearing the cache */
+    private final Object hexImageCacheLock = new Object();
+
+    /** Changes whenever hex images are dropped, so that images prepared meanwhile are not stored */
+    private int hexImageCacheModCount;
+
+    /** The hex in the center of the view while drawing hexes; hexes near it are prepared first */
+    private Coords hexPreparationCenter;
+
+    /**
+     * Hexes whose images can't be prepared in the background, because they are animated or
+     * their images are not loaded; these are drawn as before
+     */
+    private final Set<Coords> foregroundHexes = ConcurrentHashMap.newKeySet();
+
+    /** The color of the placeholder drawn for hexes whose images are still being prepared */
+    private static final Color HEX_PLACEHOLDER_COLOR = new Color(128, 128, 128, 96);
+
 
     /**
      * Keeps track of whether all deployment zones should
@@ -421,7 +476,8 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
         this.game = game;
         this.clientgui = clientgui;
 
-        hexImageCache = new ImageCache<>();
+        hexImageCache = new ImageCache<>("Hex images", entry -> ImageCache.estimateBytes(entry.hexImage));
+        updateImageCacheMemory();
 
         tileManager = new TilesetManager(this);
         ToolTipManager.sharedInstance().registerComponent(this);
@@ -917,11 +973,24 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
                 break;
 
             case KeyBindParser.KEYBINDS_CHANGED:
+            case GUIPreferences.ADVANCED_SHOW_CACHE_STATS:
+                repaint();
+                break;
+
+            case GUIPreferences.ADVANCED_IMAGE_CACHE_MEMORY:
+                updateImageCacheMemory();
                 repaint();
                 break;
         }
     }
 
+    /**
+     * Sets the memory budget of the image caches from the preferences, given in MB.
+     */
+    private void updateImageCacheMemory() {
+        ImageCache.setMemoryBudget(GUIPreferences.getInstance().getInt(GUIPreferences.ADVANCED_IMAGE_CACHE_MEMORY) * 1024L * 1024L);
+    }
+
     /**
      * Adds the specified board listener to receive board events from this
      * board.
@@ -1087,8 +1156,8 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
         g.translate(HEX_W, HEX_H);
 
         // Initialize the shadow map when it's not yet present
-        if (shadowMap == null) {
-            updateShadowMap();
+        if ((shadowMap == null) && isShadowMapNeeded()) {
+            requestShadowMap();
         }
 
         drawHexes(g, g.getClipBounds());
@@ -1224,6 +1293,16 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
             g.drawString(s, -getX() + 5, -getY() + 20);
         }
 
+        if (guip.getBoolean(GUIPreferences.ADVANCED_SHOW_CACHE_STATS)) {
+            g.setFont(cacheStatsFont);
+            g.setColor(Color.YELLOW);
+            int y = -getY() + 40;
+            for (String line : ImageCache.getStatistics()) {
+                g.drawString(line, -getX() + 5, y);
+                y += g.getFontMetrics().getHeight();
+            }
+        }
+
         // debugging method that renders the bounding box of a unit's movement envelope.
         //renderClusters((Graphics2D) g);
         //renderMovementBoundingBox((Graphics2D) g);
@@ -1348,7 +1427,7 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
         return coordList;
     }
 
-    private Image createBlurredShadow(Image orig) {
+    Image createBlurredShadow(Image orig) {
         if ((orig == null) ||
                 orig.getWidth(this) < 0 ||
                 orig.getHeight(this) < 0) {
@@ -1378,9 +1457,97 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
 
     /**
      *  Prepares a shadow map for the board, drawing shadows for hills/trees/buildings.
-     *  The shadow map is an image the size of the whole board.
+     *  The shadow map renders the shadows of parts of the board as their hexes are drawn.
      */
     private void updateShadowMap() {
+        ShadowMap newShadowMap = createShadowMap();
+        if (newShadowMap != null) {
+            shadowMap = newShadowMap;
+        }
+    }
+
+    /**
+     * @return true if shadows should be drawn on the board
+     */
+    private boolean isShadowMapNeeded() {
+        Board board = game.getBoard();
+        // Map editor? No shadows
+        return GUIPreferences.getInstance().getShadowMap() && (board != null) && !board.inSpace()
+                && !game.getPhase().isUnknown();
+    }
+
+    /**
+     * Starts preparing the shadow map on the shadow map thread, unless it is already being
+     * prepared, and repaints when it is done. Hexes are drawn as placeholders meanwhile.
+     */
+    private void requestShadowMap() {
+        if (!shadowMapBuilding.compareAndSet(false, true)) {
+            return;
+        }
+        final int generation = shadowMapGeneration.get();
+        shadowMapExecutor.execute(() -> {
+            try {
+                ShadowMap newShadowMap = createShadowMap();
+                // Hexes changed since then are updated by the tasks queued after this one
+                synchronized (shadowMapChanges) {
+                    if ((newShadowMap != null) && (generation == shadowMapGeneration.get())) {
+                        shadowMap = newShadowMap;
+                    }
+                }
+            } catch (Exception e) {
+                LogManager.getLogger().error("Unable to prepare the shadow map", e);
+            } finally {
+                shadowMapBuilding.set(false);
+                repaint(100);
+            }
+        });
+    }
+
+    /**
+     * Updates the shadows around changed hexes on the shadow map thread and drops the images of
+     * the hexes whose shadows may have changed. Changes arriving while an update is pending are
+     * handled by the same update.
+     *
+     * @param coords the changed hexes
+     */
+    private void updateShadowMap(Collection<Coords> coords) {
+        synchronized (shadowMapChanges) {
+            boolean updatePending = !shadowMapChanges.isEmpty();
+            shadowMapChanges.addAll(coords);
+            if (updatePending) {
+                return;
+            }
+        }
+        shadowMapExecutor.execute(() -> {
+            Set<Coords> changes;
+            ShadowMap shadows;
+            synchronized (shadowMapChanges) {
+                changes = new HashSet<>(shadowMapChanges);
+                shadowMapChanges.clear();
+                shadows = shadowMap;
+            }
+            // Without a shadow map, the next one is made from the changed board
+            if (shadows == null) {
+                return;
+            }
+            try {
+                long start = System.nanoTime();
+                Set<Coords> affectedHexes = shadows.update(changes);
+                if (shadows == shadowMap) {
+                    clearHexImageCache(affectedHexes);
+                    repaint();
+                }
+                LogManager.getLogger().debug("Updated the shadows of " + affectedHexes.size() + " hexes around "
+                        + changes.size() + " changed hexes in " + (System.nanoTime() - start) / 1e6 + " ms");
+            } catch (Exception e) {
+                LogManager.getLogger().error("Unable to update the shadow map", e);
+                clearShadowMap();
+                repaint();
+            }
+        });
+    }
+
+    private @Nullable ShadowMap createShadowMap() {
         // Issues:
         // Bridge shadows show a gap towards connected hexes. I don't know why.
         // More than one super image on a hex (building+road) doesnt work. how do I get
@@ -1390,23 +1557,17 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
         // this seems to need a lot of additional copying (paint shadow on a clean map for this level alone; soften up; copy to real shadow
         // map with clipping area active; get new clean shadow map for next shadowed level;
         // too much hassle currently; it works so beautifully
-        if (!GUIPreferences.getInstance().getShadowMap()) return;
-
-        Board board = game.getBoard();
-        if ((board == null) || board.inSpace()) {
-            return;
+        if (!isShadowMapNeeded()) {
+            return null;
         }
+        Board board = game.getBoard();
 
         if (boardSize == null) {
             updateBoardSize();
         }
 
         if (!isTileImagesLoaded()) {
-            return;
-        }
-        // Map editor? No shadows
-        if (game.getPhase().isUnknown()) {
-            return;
+            return null;
         }
 
         long stT = System.nanoTime();
@@ -1415,237 +1576,27 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
         Image hexShadow = createBlurredShadow(tileManager.getHexMask());
         if (hexShadow == null) {
             repaint(1000);
-            return;
-        }
-
-        // the shadowmap needs to be painted as if scale == 1
-        // therefore some of the methods of boardview1 cannot be used
-        int width = game.getBoard().getWidth() * HEX_WC + (int) (HEX_W / 4);
-        int height = game.getBoard().getHeight() * (int) (HEX_H) + (int) (HEX_H / 2);
-
-        GraphicsConfiguration config = GraphicsEnvironment
-                .getLocalGraphicsEnvironment().getDefaultScreenDevice()
-                .getDefaultConfiguration();
-
-        shadowMap = config.createCompatibleImage(width, height,
-                Transparency.TRANSLUCENT);
-
-        Graphics2D g = shadowMap.createGraphics();
-
-        if ((game.getPlanetaryConditions().getLight() == PlanetaryConditions.L_MOONLESS) ||
-        (game.getPlanetaryConditions().getLight() == PlanetaryConditions.L_PITCH_BLACK)) {
-            lightDirection = new double[] { 0, 0 };
-        } else if (game.getPlanetaryConditions().getLight() == PlanetaryConditions.L_DUSK) {
-            // TODO: replace when made user controlled
-            lightDirection = new double[] { -38, 14 };
-        } else {
-            lightDirection = new double[] { -19, 7 };
-        }
-
-        // Shadows for elevation
-        // 1a) Sort the board hexes by elevation
-        // 1b) Create a reduced list of shadowcasting hexes
-        double angle = Math.atan2(-lightDirection[1], lightDirection[0]);
-        int mDir = (int) (0.5 + 1.5 - angle / Math.PI * 3); // +0.5 to counter the (int)
-        int[] sDirs = { mDir % 6, (mDir + 1) % 6, (mDir + 5) % 6 };
-        HashMap<Integer,Set<Coords>> sortedHexes = new HashMap<>();
-        HashMap<Integer,Set<Coords>> shadowCastingHexes = new HashMap<>();
-        for (Coords c: allBoardHexes()) {
-            Hex hex = board.getHex(c);
-            int level = hex.getLevel();
-            if (!sortedHexes.containsKey(level)) { // no hexes yet for this height
-                sortedHexes.put(level, new HashSet<>());
-            }
-            if (!shadowCastingHexes.containsKey(level)) { // no hexes yet for this height
-                shadowCastingHexes.put(level, new HashSet<>());
-            }
-            sortedHexes.get(level).add(c);
-            // add a hex to the shadowcasting hexes only
-            // if it is nor surrounded by same height hexes
-            boolean surrounded = true;
-            for (int dir: sDirs) {
-                if (!board.contains(c.translated(dir))) {
-                    surrounded = false;
-                } else {
-                    Hex nhex = board.getHex(c.translated(dir));
-                    int lv = nhex.getLevel();
-                    if (lv < level)
-                        surrounded = false;
-                }
-            }
-            if (!surrounded) shadowCastingHexes.get(level).add(c);
-        }
-
-        // 2) Create clipping areas
-        HashMap<Integer,Shape> levelClips = new HashMap<>();
-        for (Integer h: sortedHexes.keySet()) {
-            Path2D path = new Path2D.Float();
-            for (Coords c: sortedHexes.get(h)) {
-                Point p = getHexLocationLargeTile(c.getX(), c.getY(), 1);
-                AffineTransform t = AffineTransform.getTranslateInstance(p.x + HEX_W / 2, p.y + HEX_H / 2);
-                t.scale(1.02, 1.02);
-                t.translate(-HEX_W / 2, -HEX_H / 2);
-                path.append(t.createTransformedShape(hexPoly), false);
-            }
-            levelClips.put(h, path);
-        }
-
-
-        // 3) Find all level differences
-        final int maxDiff = 35; // limit all diffs to this value
-        Set<Integer> lDiffs = new TreeSet<>();
-        for (int shadowed = board.getMinElevation(); shadowed < board.getMaxElevation(); shadowed++) {
-            if (levelClips.get(shadowed) == null) {
-                continue;
-            }
-
-            for (int shadowcaster = shadowed + 1; shadowcaster <= board.getMaxElevation(); shadowcaster++) {
-                if (levelClips.get(shadowcaster) == null) {
-                    continue;
-                }
-
-                lDiffs.add(Math.min(shadowcaster - shadowed, maxDiff));
-            }
-        }
-
-        // 4) Elevation Shadow images for all level differences present
-        int n = 10;
-        double deltaX = lightDirection[0] / n;
-        double deltaY = lightDirection[1] / n;
-        Map<Integer,BufferedImage> hS = new HashMap<>();
-        for (int lDiff: lDiffs) {
-            Dimension eSize = new Dimension(
-                    (int) (Math.abs(lightDirection[0]) * lDiff + HEX_W) * 2,
-                    (int) (Math.abs(lightDirection[1]) * lDiff + HEX_H) * 2);
-
-            BufferedImage elevShadow = config.createCompatibleImage(eSize.width, eSize.height,
-                    Transparency.TRANSLUCENT);
-            Graphics gS = elevShadow.getGraphics();
-            Point2D p1 = new Point2D.Double(eSize.width / 2, eSize.height / 2);
-            if (GUIPreferences.getInstance().getHexInclines()) {
-                // With inclines, the level 1 shadows are only very slight
-                int beg = 4;
-                p1.setLocation(p1.getX() + deltaX * beg, p1.getY() + deltaY * beg);
-                for (int i = beg; i < n * (lDiff - 0.4); i++) {
-                    gS.drawImage(hexShadow, (int) p1.getX(), (int) p1.getY(), null);
-                    p1.setLocation(p1.getX() + deltaX, p1.getY() + deltaY);
-                }   
-            } else {
-                for (int i = 0; i < n * lDiff; i++) {
-                    gS.drawImage(hexShadow, (int) p1.getX(), (int) p1.getY(), null);
-                    p1.setLocation(p1.getX() + deltaX, p1.getY() + deltaY);
-                }
-            }
-            gS.dispose();
-            hS.put(lDiff, elevShadow);
-        }
-
-        // 5) Actually draw the elevation shadows
-        for (int shadowed = board.getMinElevation(); shadowed < board.getMaxElevation(); shadowed++) {
-            if (levelClips.get(shadowed) == null) continue;
-
-            Shape saveClip = g.getClip();
-            g.setClip(levelClips.get(shadowed));
-
-            for (int shadowcaster = shadowed+1; shadowcaster <= board.getMaxElevation(); shadowcaster++) {
-                if (levelClips.get(shadowcaster) == null) continue;
-                int lDiff = shadowcaster - shadowed;
-
-                for (Coords c: shadowCastingHexes.get(shadowcaster)) {
-                    Point2D p0 = getHexLocationLargeTile(c.getX(), c.getY(), 1);
-                    g.drawImage(hS.get(Math.min(lDiff, maxDiff)),
-                            (int) p0.getX() - (int) (Math.abs(lightDirection[0]) * Math.min(lDiff, maxDiff) + HEX_W),
-                            (int) p0.getY() - (int) (Math.abs(lightDirection[1]) * Math.min(lDiff, maxDiff) + HEX_H), null);
-                }
-            }
-            g.setClip(saveClip);
+            return null;
         }
 
-        n = 5;
-        deltaX = lightDirection[0]/n;
-        deltaY = lightDirection[1]/n;
-        // 4) woods and building shadows
-        for (int shadowed = board.getMinElevation(); shadowed <= board.getMaxElevation(); shadowed++) {
-            if (levelClips.get(shadowed) == null) {
-                continue;
-            }
-
-            Shape saveClip = g.getClip();
-            g.setClip(levelClips.get(shadowed));
-
-            for (int shadowcaster = board.getMinElevation(); shadowcaster <= board.getMaxElevation(); shadowcaster++) {
-                if (levelClips.get(shadowcaster) == null) {
-                    continue;
-                }
-
-                for (Coords c: sortedHexes.get(shadowcaster)) {
-                    Point2D p0 = getHexLocationLargeTile(c.getX(), c.getY(), 1);
-                    Point2D p1 = new Point2D.Double();
-
-                    // Woods Shadow
-                    Hex hex = board.getHex(c);
-                    List<Image> supers = tileManager.supersFor(hex);
-
-                    if (!supers.isEmpty()) {
-                        Image lastSuper = createBlurredShadow(supers.get(supers.size() - 1));
-                        if (lastSuper == null) {
-                            clearShadowMap();
-                            return;
-                        }
-                        if (hex.containsTerrain(Terrains.WOODS) || hex.containsTerrain(Terrains.JUNGLE)) {
-                            // Woods are 2 levels high, but then shadows
-                            // appear very extreme, therefore only
-                            // 1.5 levels: (shadowcaster + 1.5 - shadowed)
-                            double shadowHeight = 0.75 * hex.terrainLevel(Terrains.FOLIAGE_ELEV);
-                            p1.setLocation(p0);
-                            if ((shadowcaster + shadowHeight - shadowed) > 0) {
-                                for (int i = 0; i < n * (shadowcaster + shadowHeight - shadowed); i++) {
-                                    g.drawImage(lastSuper, (int) p1.getX(), (int) p1.getY(), null);
-                                    p1.setLocation(p1.getX() + deltaX, p1.getY() + deltaY);
-                                }
-                            }
-                        }
-
-                        // Buildings Shadow
-                        if (hex.containsTerrain(Terrains.BUILDING)) {
-                            int h = hex.terrainLevel(Terrains.BLDG_ELEV);
-                            if ((shadowcaster + h - shadowed) > 0) {
-                                p1.setLocation(p0);
-                                for (int i = 0; i < (n * (shadowcaster + h - shadowed)); i++) {
-                                    g.drawImage(lastSuper, (int) p1.getX(), (int) p1.getY(), null);
-                                    p1.setLocation(p1.getX() + deltaX, p1.getY() + deltaY);
-                                }
-                            }
-                        }
-                    }
-                    // Bridge Shadow
-                    if (hex.containsTerrain(Terrains.BRIDGE)) {
-                        supers = tileManager.orthoFor(hex);
-                        if (supers.isEmpty()) break;
-                        Image maskB = createBlurredShadow(supers.get(supers.size() - 1));
-                        if (maskB == null) {
-                            clearShadowMap();
-                            return;
-                        }
-                        int h = hex.terrainLevel(Terrains.BRIDGE_ELEV);
-                        p1.setLocation(p0.getX() + deltaX * n * (shadowcaster + h - shadowed),
-                                p0.getY() + deltaY * n * (shadowcaster + h - shadowed));
-                        // the shadowmask is translucent, therefore draw n times
-                        // stupid hack
-                        for (int i = 0; i < n; i++)
-                            g.drawImage(maskB, (int) p1.getX(), (int) p1.getY(), null);
-                    }
-                }
-            }
-            g.setClip(saveClip);
-        }
+        // The shadows are rendered in tiles when the hexes are drawn
+        ShadowMap newShadowMap = new ShadowMap(this, board, game.getPlanetaryConditions().getLight(), hexShadow);
 
         long tT5 = System.nanoTime() - stT;
         LogManager.getLogger().info("Time to prepare the shadow map: " + tT5 / 1e6 + " ms");
+        return newShadowMap;
     }
 
     public void clearShadowMap() {
-        shadowMap = null;
+        ShadowMap oldShadowMap;
+        synchronized (shadowMapChanges) {
+            shadowMapGeneration.incrementAndGet();
+            oldShadowMap = shadowMap;
+            shadowMap = null;
+        }
+        if (oldShadowMap != null) {
+            oldShadowMap.clear();
+        }
     }
 
     /**
@@ -1670,15 +1621,29 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
         }
     }
 
-    private synchronized void drawHexSpritesForHex(Coords c, Graphics g,
-            ArrayList<? extends HexSprite> spriteArrayList) {
+    /**
+     * Sorts the sprites that isometric rendering draws hex by hex by their hex, see
+     * {@link #drawHexSpritesForHex(Coords, Graphics, HexSpriteIndex)}.
+     */
+    private synchronized void indexIsometricSprites() {
+        if (GUIPreferences.getInstance().getShowFieldOfFire()) {
+            fieldofFireSpriteIndex.index(fieldofFireSprites);
+        } else {
+            fieldofFireSpriteIndex.clear();
+        }
+        moveEnvSpriteIndex.index(moveEnvSprites);
+        moveModEnvSpriteIndex.index(moveModEnvSprites);
+        isometricSpriteIndex.index(isometricSprites);
+        isometricWreckSpriteIndex.index(isometricWreckSprites);
+    }
+
+    private void drawHexSpritesForHex(Coords c, Graphics g, HexSpriteIndex<HexSprite> spriteIndex) {
         Rectangle view = g.getClipBounds();
 
-        for (HexSprite sprite : spriteArrayList) {
-            Coords cp = sprite.getPosition();
+        for (HexSprite sprite : spriteIndex.get(c)) {
             // This can potentially be an expensive operation
             Rectangle spriteBounds = sprite.getBounds();
-            if (cp.equals(c) && view.intersects(spriteBounds) && !sprite.isHidden()) {
+            if (view.intersects(spriteBounds) && !sprite.isHidden()) {
                 if (!sprite.isReady()) {
                     sprite.prepare();
                 }
@@ -1696,16 +1661,15 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
      * @param c               The Coordinates of the hex that the sprites should be drawn
      *                        for.
      * @param g               The Graphics object for this board.
-     * @param spriteArrayList The complete list of all IsometricSprite on the board.
+     * @param spriteIndex     All IsometricSprites on the board, sorted by hex.
      */
-    private synchronized void drawIsometricSpritesForHex(Coords c, Graphics g,
-            Collection<IsometricSprite> spriteArrayList) {
+    private void drawIsometricSpritesForHex(Coords c, Graphics g,
+            HexSpriteIndex<IsometricSprite> spriteIndex) {
         Rectangle view = g.getClipBounds();
-        for (IsometricSprite sprite : spriteArrayList) {
-            Coords cp = sprite.getPosition();
+        for (IsometricSprite sprite : spriteIndex.get(c)) {
             // This can potentially be an expensive operation
             Rectangle spriteBounds = sprite.getBounds();
-            if (cp.equals(c) && view.intersects(spriteBounds) && !sprite.isHidden()) {
+            if (view.intersects(spriteBounds) && !sprite.isHidden()) {
                 if (!sprite.isReady()) {
                     sprite.prepare();
                 }
@@ -1723,14 +1687,13 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
      * @param c               The Coordinates of the hex that the sprites should be drawn
      *                        for.
      * @param g               The Graphics object for this board.
-     * @param spriteArrayList The complete list of all IsometricSprite on the board.
+     * @param spriteIndex     All IsometricWreckSprites on the board, sorted by hex.
      */
-    private synchronized void drawIsometricWreckSpritesForHex(Coords c,
-            Graphics g, ArrayList<IsometricWreckSprite> spriteArrayList) {
+    private void drawIsometricWreckSpritesForHex(Coords c,
+            Graphics g, HexSpriteIndex<IsometricWreckSprite> spriteIndex) {
         Rectangle view = g.getClipBounds();
-        for (IsometricWreckSprite sprite : spriteArrayList) {
-            Coords cp = sprite.getPosition();
-            if (cp.equals(c) && view.intersects(sprite.getBounds()) && !sprite.isHidden()) {
+        for (IsometricWreckSprite sprite : spriteIndex.get(c)) {
+            if (view.intersects(sprite.getBounds()) && !sprite.isHidden()) {
                 if (!sprite.isReady()) {
                     sprite.prepare();
                 }
@@ -2260,10 +2223,12 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
 
         int drawWidth = (int) (view.width / xs) + 3;
         int drawHeight = (int) (view.height / ys) + 3;
+        hexPreparationCenter = new Coords(drawX + drawWidth / 2, drawY + drawHeight / 2);
 
         // draw some hexes.
         if (useIsometric()) {
             Board board = game.getBoard();
+            indexIsometricSprites();
             for (int y = 0; y < drawHeight; y++) {
                 // Half of each row is one-half hex
                 // farther back (above) the other; draw those first
@@ -2276,12 +2241,9 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
                         if ((hex != null)) {
                             drawHex(c, g, saveBoardImage);
                             drawOrthograph(c, g);
-                            if (GUIPreferences.getInstance()
-                                    .getShowFieldOfFire()) {
-                                drawHexSpritesForHex(c, g, fieldofFireSprites);
-                            }
-                            drawHexSpritesForHex(c, g, moveEnvSprites);
-                            drawHexSpritesForHex(c, g, moveModEnvSprites);
+                            drawHexSpritesForHex(c, g, fieldofFireSpriteIndex);
+                            drawHexSpritesForHex(c, g, moveEnvSpriteIndex);
+                            drawHexSpritesForHex(c, g, moveModEnvSpriteIndex);
                             if ((en_Deployer != null)
                                     && board.isLegalDeployment(c,
                                             en_Deployer.getStartingPos())) {
@@ -2299,9 +2261,9 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
                         if (!saveBoardImage) {
                             if (GUIPreferences.getInstance().getShowWrecks()) {
                                 drawIsometricWreckSpritesForHex(c, g,
-                                        isometricWreckSprites);
+                                        isometricWreckSpriteIndex);
                             }
-                            drawIsometricSpritesForHex(c, g, isometricSprites);
+                            drawIsometricSpritesForHex(c, g, isometricSpriteIndex);
                         }
                     }
                 }
@@ -2312,9 +2274,21 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
                 // still be seen by the user.
                 drawIsometricSprites(g, isometricSprites);
             }
-        } else {
+        } else if (!saveBoardImage) {
             // Draw hexes without regard to elevation when
             // not using Isometric, since it does not matter.
+            int firstTileX = Math.max(0, Math.floorDiv(drawX, HexTileCache.TILE_SIZE));
+            int firstTileY = Math.max(0, Math.floorDiv(drawY, HexTileCache.TILE_SIZE));
+            int lastTileX = Math.min((game.getBoard().getWidth() - 1) / HexTileCache.TILE_SIZE,
+                    Math.floorDiv(drawX + drawWidth - 1, HexTileCache.TILE_SIZE));
+            int lastTileY = Math.min((game.getBoard().getHeight() - 1) / HexTileCache.TILE_SIZE,
+                    Math.floorDiv(drawY + drawHeight - 1, HexTileCache.TILE_SIZE));
+            for (int tileY = firstTileY; tileY <= lastTileY; tileY++) {
+                for (int tileX = firstTileX; tileX <= lastTileX; tileX++) {
+                    drawHexTile(tileX, tileY, g);
+                }
+            }
+        } else {
             for (int i = 0; i < drawHeight; i++) {
                 for (int j = 0; j < drawWidth; j++) {
                     Coords c = new Coords(j + drawX, i + drawY);
@@ -2324,26 +2298,159 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
         }
     }
 
+    /**
+     * Draws the hexes of a tile of {@link HexTileCache#TILE_SIZE} by {@link HexTileCache#TILE_SIZE}
+     * hexes onto the board buffer. The tile is rendered into an image and cached unless one of its
+     * hexes can't be cached; in that case its hexes are drawn one by one.
+     */
+    private void drawHexTile(int tileX, int tileY, Graphics boardGraph) {
+        final int size = HexTileCache.TILE_SIZE;
+        final Point origin = getHexLocation(tileX * size, tileY * size, true);
+        BufferedImage tile = hexTileCache.get(tileX, tileY);
+        if (tile != null) {
+            boardGraph.drawImage(tile, origin.x, origin.y, this);
+            return;
+        }
+
+        int modCount = hexTileCache.getModCount();
+        if (hexTileCache.isUncacheable(tileX, tileY)) {
+            boolean allCached = true;
+            for (int y = tileY * size; y < (tileY + 1) * size; y++) {
+                for (int x = tileX * size; x < (tileX + 1) * size; x++) {
+                    allCached &= drawHex(new Coords(x, y), boardGraph, false);
+                }
+            }
+            // Hexes whose images were not ready before may be cached now
+            if (allCached) {
+                hexTileCache.setUncacheable(tileX, tileY, false, modCount);
+            }
+            return;
+        }
+
+        // Every hex image fits into the hex size; odd columns are half a hex lower
+        int width = (size - 1) * (int) (HEX_WC * scale) + (int) Math.ceil(HEX_W * scale) + 1;
+        int height = (size - 1) * (int) (HEX_H * scale) + (int) ((HEX_H / 2) * scale)
+                + (int) Math.ceil(HEX_H * scale) + 1;
+        tile = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D tileGraph = tile.createGraphics();
+        tileGraph.translate(-origin.x, -origin.y);
+        boolean allCached = true;
+        for (int y = tileY * size; y < (tileY + 1) * size; y++) {
+            for (int x = tileX * size; x < (tileX + 1) * size; x++) {
+                allCached &= drawHex(new Coords(x, y), tileGraph, false);
+            }
+        }
+        tileGraph.dispose();
+        if (allCached) {
+            hexTileCache.put(tileX, tileY, tile, modCount);
+        } else {
+            hexTileCache.setUncacheable(tileX, tileY, true, modCount);
+        }
+        boardGraph.drawImage(tile, origin.x, origin.y, this);
+    }
+
     /**
      * Draws a hex onto the board buffer. This assumes that drawRect is current,
      * and does not check if the hex is visible.
+     *
+     * @return true if the hex is off the board or was drawn from a cached image, false if a
+     *         placeholder or an image that can't be cached was drawn in its place
      */
-    private void drawHex(Coords c, Graphics boardGraph,
-                         boolean saveBoardImage) {
+    private boolean drawHex(Coords c, Graphics boardGraph,
+                            boolean saveBoardImage) {
         if (!game.getBoard().contains(c)) {
-            return;
+            return true;
         }
 
-        final GUIPreferences guip = GUIPreferences.getInstance();
-        final Hex hex = game.getBoard().getHex(c);
         final Point hexLoc = getHexLocation(c);
 
         // Check the cache to see if we already have the image
         HexImageCacheEntry cacheEntry = hexImageCache.get(c);
         if ((cacheEntry != null) && !cacheEntry.needsUpdating) {
             boardGraph.drawImage(cacheEntry.hexImage, hexLoc.x, hexLoc.y, this);
+            return true;
+        }
+
+        // Prepare the image in the background and show a placeholder meanwhile; the shadow map
+        // must be ready as it is part of the image
+        boolean shadowsReady = (shadowMap != null) || !isShadowMapNeeded();
+        if (!saveBoardImage && !shadowsReady) {
+            drawHexPlaceholder(boardGraph, hexLoc);
+            return false;
+        }
+        // Highlighted or darkened hexes depend on the selection, so they are drawn here
+        if (!saveBoardImage && (hexPreparationCenter != null) && !foregroundHexes.contains(c)
+                && !fovHighlightingAndDarkening.isActive()) {
+            hexImagePreparer.request(c, c.distance(hexPreparationCenter));
+            drawHexPlaceholder(boardGraph, hexLoc);
+            return false;
+        }
+
+        cacheEntry = prepareHexImage(c, saveBoardImage, true);
+        if (cacheEntry == null) {
+            repaint();
+            return false;
+        }
+        if (cacheEntry.isCacheable) {
+            hexImageCache.put(c, cacheEntry);
+        }
+        boardGraph.drawImage(cacheEntry.hexImage, hexLoc.x, hexLoc.y, this);
+        return cacheEntry.isCacheable;
+    }
+
+    /**
+     * Draws the placeholder for a hex whose image is not ready yet.
+     */
+    private void drawHexPlaceholder(Graphics boardGraph, Point hexLoc) {
+        Color origColor = boardGraph.getColor();
+        boardGraph.setColor(HEX_PLACEHOLDER_COLOR);
+        AffineTransform t = AffineTransform.getTranslateInstance(hexLoc.x, hexLoc.y);
+        t.scale(scale, scale);
+        ((Graphics2D) boardGraph).fill(t.createTransformedShape(hexPoly));
+        boardGraph.setColor(origColor);
+    }
+
+    /**
+     * Prepares the image of a hex on a worker thread of the {@link HexImagePreparer} and stores
+     * it in the hex image cache, unless hex images were dropped meanwhile. Hexes that can't be
+     * cached are drawn on the event dispatch thread from then on.
+     */
+    private void prepareHexImageInBackground(Coords c) {
+        // Without the shadow map, the image would lack the shadows; it is drawn again once ready
+        if (!game.getBoard().contains(c) || ((shadowMap == null) && isShadowMapNeeded())) {
             return;
         }
+        int modCount;
+        synchronized (hexImageCacheLock) {
+            modCount = hexImageCacheModCount;
+        }
+        HexImageCacheEntry cacheEntry = prepareHexImage(c, false, false);
+        synchronized (hexImageCacheLock) {
+            if (modCount != hexImageCacheModCount) {
+                return;
+            }
+            if ((cacheEntry == null) || !cacheEntry.isCacheable) {
+                foregroundHexes.add(c);
+            } else {
+                hexImageCache.put(c, cacheEntry);
+            }
+        }
+        repaint();
+    }
+
+    /**
+     * Composes the image of a hex. This may run on the event dispatch thread or on a worker
+     * thread of the {@link HexImagePreparer}, so it must only read the state of the board view.
+     * The field of view highlighting reads the selection and the movement path, which are only
+     * safe to read on the event dispatch thread; worker threads leave it out, as they are only
+     * used while it is off.
+     *
+     * @param drawFov whether to draw the field of view highlighting and darkening
+     * @return the hex image, or null if it can't be composed yet
+     */
+    private @Nullable HexImageCacheEntry prepareHexImage(Coords c, boolean saveBoardImage, boolean drawFov) {
+        final GUIPreferences guip = GUIPreferences.getInstance();
+        final Hex hex = game.getBoard().getHex(c);
 
         int level = hex.getLevel();
         int depth = hex.depth(false);
@@ -2400,10 +2507,9 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
             }
             imgHeight += HEX_ELEV * scale * largestLevelDiff;
         }
-        // If the base image isn't ready, we should signal a repaint and stop
+        // If the base image isn't ready, the caller should signal a repaint and stop
         if ((imgWidth < 0) || (imgHeight < 0)) {
-            repaint();
-            return;
+            return null;
         }
 
         BufferedImage hexImage = new BufferedImage(imgWidth, imgHeight,
@@ -2484,12 +2590,8 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
         }
 
         // Add the terrain & building shadows
-        if (guip.getBoolean(GUIPreferences.SHADOWMAP) &&
-            (shadowMap != null)) {
-            Point p1SRC = getHexLocationLargeTile(c.getX(), c.getY(), 1);
-            Point p2SRC = new Point(p1SRC.x + HEX_W, p1SRC.y + HEX_H);
-            Point p2DST = new Point(hex_size.width, hex_size.height);
-
+        ShadowMap shadows = shadowMap;
+        if (guip.getBoolean(GUIPreferences.SHADOWMAP) && (shadows != null)) {
             Composite svComp = g.getComposite();
             if (game.getPlanetaryConditions().getLight() == PlanetaryConditions.L_DAY) {
                 g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_ATOP, 0.55f));
@@ -2497,9 +2599,7 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
                 g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_ATOP, 0.45f));
             }
 
-            // paint the right slice from the big pic
-            g.drawImage(shadowMap, 0, 0, p2DST.x, p2DST.y, p1SRC.x, p1SRC.y,
-                    p2SRC.x, p2SRC.y, null);
+            shadows.drawHexShadow(g, c, hex_size.width, hex_size.height);
             g.setComposite(svComp);
         }
 
@@ -2617,8 +2717,7 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
             }
         } catch (Exception e) {
             LogManager.getLogger().error("Exception, probably can't load file.", e);
-            drawCenteredString("Loading Error", 0, (int) (50 * scale), font_note, g);
-            return;
+            return null;
         }
 
         // write hex coordinate unless deactivated or scale factor too small
@@ -2725,7 +2824,7 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
 
         }
 
-        boolean hasLoS = fovHighlightingAndDarkening.draw(g, c, 0, 0,
+        boolean hasLoS = !drawFov || fovHighlightingAndDarkening.draw(g, c, 0, 0,
                 saveBoardImage);
 
         // draw mapsheet borders
@@ -2775,11 +2874,9 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
             }
         }
 
-        cacheEntry = new HexImageCacheEntry(hexImage);
-        if (!dontCache) {
-            hexImageCache.put(c, cacheEntry);
-        }
-        boardGraph.drawImage(cacheEntry.hexImage, hexLoc.x, hexLoc.y, this);
+        HexImageCacheEntry cacheEntry = new HexImageCacheEntry(hexImage);
+        cacheEntry.isCacheable = !dontCache;
+        return cacheEntry;
     }
 
     /**
@@ -3101,7 +3198,7 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
      * be used for small tiles as it will make gaps appear between hexes This
      * will not factor in Isometric as this would be incorrect for large tiles
      */
-    private Point getHexLocationLargeTile(int x, int y, float tscale) {
+    Point getHexLocationLargeTile(int x, int y, float tscale) {
         int ypos = (int) (y * HEX_H * tscale)
                 + ((x & 1) == 1 ? (int) ((HEX_H / 2) * tscale) : 0);
         return new Point((int) (x * HEX_WC * tscale), ypos);
@@ -4910,12 +5007,12 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
      */
     @Override
     public void boardChangedHex(BoardEvent b) {
-        hexImageCache.remove(b.getCoords());
+        clearHexImageCache(b.getCoords());
         // Also repaint the surrounding hexes because of shadows, border etc.
         for (int dir: allDirections) { 
-            hexImageCache.remove(b.getCoords().translated(dir));
+            clearHexImageCache(b.getCoords().translated(dir));
         }
-        clearShadowMap();
+        updateShadowMap(Collections.singleton(b.getCoords()));
         repaint();
     }
 
@@ -5189,7 +5286,7 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
         Map<Coords, Color> newECCMCenters = new HashMap<>();
 
         // Compute info about all E(C)CM on the board
-        final List<ECMInfo> allEcmInfo = ComputeECM.computeAllEntitiesECMInfo(game.getEntitiesVector());
+        final List<ECMInfo> allEcmInfo = ComputeECM.getAllEntitiesECMInfo(game);
 
         // First, mark the sources of E(C)CM
         // Used for highlighting hexes and tooltips
@@ -6028,7 +6125,7 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
 
         hex_size = new Dimension((int) (HEX_W * scale), (int) (HEX_H * scale));
 
-        scaledImageCache = new ImageCache<>();
+        scaledImageCache.clear();
 
         cursorSprite.prepare();
         highlightSprite.prepare();
@@ -6196,7 +6293,13 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
 
     public void die() {
         ourTask.cancel();
+        hexImagePreparer.shutdown();
+        shadowMapExecutor.shutdownNow();
         fovHighlightingAndDarkening.die();
+        clearShadowMap();
+        clearHexImageCache();
+        scaledImageCache.clear();
+        shadowImageCache.clear();
         KeyBindParser.removePreferenceChangeListener(this);
         GUIPreferences.getInstance().removePreferenceChangeListener(this);
         PreferenceManager.getClientPreferences().removePreferenceChangeListener(this);
@@ -6235,7 +6338,13 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
     }
 
     public void clearHexImageCache() {
-        hexImageCache.clear();
+        synchronized (hexImageCacheLock) {
+            hexImageCache.clear();
+            hexImageCacheModCount++;
+        }
+        hexImagePreparer.cancelAll();
+        foregroundHexes.clear();
+        hexTileCache.clear();
     }
 
     /**
@@ -6244,8 +6353,20 @@ public class BoardView extends JPanel implements Scrollable, BoardListener, Mous
      */
     public void clearHexImageCache(Set<Coords> coords) {
         for (Coords c : coords) {
+            clearHexImageCache(c);
+        }
+    }
+
+    /**
+     * Clear the given Coords from the hex image cache, together with the tile containing it.
+     */
+    private void clearHexImageCache(Coords c) {
+        synchronized (hexImageCacheLock) {
             hexImageCache.remove(c);
+            hexImageCacheModCount++;
         }
+        foregroundHexes.remove(c);
+        hexTileCache.invalidate(c);
     }
 
     /**
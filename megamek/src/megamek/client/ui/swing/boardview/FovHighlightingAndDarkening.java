@@ -224,6 +224,18 @@ class FovHighlightingAndDarkening {
 
     GameListener cacheGameListner;
 
+    /**
+     * @return true if hexes are highlighted or darkened, so that their images depend on the
+     * selection and the movement path; these are only read on the event dispatch thread
+     */
+    boolean isActive() {
+        if ((boardView1.selected == null) && (boardView1.selectedEntity == null)) {
+            return false;
+        }
+        return (gs.getBoolean(GUIPreferences.FOV_HIGHLIGHT) || gs.getBoolean(GUIPreferences.FOV_DARKEN))
+                && (boardView1.game.getPhase() == GamePhase.MOVEMENT);
+    }
+
     /**
      * Checks for los effects, preferably from cache, if not getLosEffects
      * is invoked and it's return value is cached.
@@ -242,7 +254,7 @@ class FovHighlightingAndDarkening {
             cachedStepSprite = lastStepSprite;
             cachedSrc = src;
             cacheGameChanged = false;
-            cachedAllECMInfo = ComputeECM.computeAllEntitiesECMInfo(boardView1.game.getEntitiesVector());
+            cachedAllECMInfo = ComputeECM.getAllEntitiesECMInfo(boardView1.game);
         }
 
         LosEffects los = losCache.get(dest);
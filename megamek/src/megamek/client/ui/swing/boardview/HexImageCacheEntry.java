@@ -12,6 +12,9 @@ public class HexImageCacheEntry {
     public Image hexImage;
     
     public boolean needsUpdating;
+
+    /** False if the image contains animated images and must not be cached */
+    public boolean isCacheable = true;
     
     HexImageCacheEntry(Image h) {
         hexImage = h;
@@ -0,0 +1,123 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.client.ui.swing.boardview;
+
+import megamek.common.Coords;
+import org.apache.logging.log4j.LogManager;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Prepares hex images for the board view on a pool of worker threads, so that opening a large
+ * board or zooming does not block the event dispatch thread while every visible hex image is
+ * composed. Requested hexes are prepared nearest first; {@link #cancelAll()} drops all work that
+ * has not started yet, for example when the zoom level changes.
+ */
+class HexImagePreparer {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /** A request to prepare the image of a hex; requests with a lower priority run first */
+    private static class Request implements Runnable, Comparable<Request> {
+        final Coords coords;
+        final int priority;
+        final long order;
+        final Consumer<Coords> preparation;
+
+        Request(Coords coords, int priority, long order, Consumer<Coords> preparation) {
+            this.coords = coords;
+            this.priority = priority;
+            this.order = order;
+            this.preparation = preparation;
+        }
+
+        @Override
+        public void run() {
+            preparation.accept(coords);
+        }
+
+        @Override
+        public int compareTo(Request other) {
+            if (priority != other.priority) {
+                return Integer.compare(priority, other.priority);
+            }
+            return Long.compare(order, other.order);
+        }
+    }
+
+    private final Consumer<Coords> preparation;
+    private final ThreadPoolExecutor executor;
+    private final Set<Coords> requested = ConcurrentHashMap.newKeySet();
+    private final AtomicLong requestOrder = new AtomicLong();
+
+    /**
+     * @param preparation prepares the image of a hex and stores it; called on a worker thread
+     */
+    HexImagePreparer(Consumer<Coords> preparation) {
+        this.preparation = preparation;
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "Hex Image Preparation " + THREAD_COUNT.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+    }
+
+    /**
+     * Asks for the image of the given hex to be prepared, unless it is already asked for.
+     *
+     * @param c the hex
+     * @param priority the priority of the hex, such as its distance to the center of the view;
+     *                 lower values are prepared first
+     */
+    void request(Coords c, int priority) {
+        if (executor.isShutdown() || !requested.add(c)) {
+            return;
+        }
+        executor.execute(new Request(c, priority, requestOrder.incrementAndGet(), coords -> {
+            try {
+                preparation.accept(coords);
+            } catch (Exception e) {
+                LogManager.getLogger().error("Failed to prepare the image of hex " + coords, e);
+            } finally {
+                requested.remove(coords);
+            }
+        }));
+    }
+
+    /**
+     * Drops all requests that have not started yet.
+     */
+    void cancelAll() {
+        executor.getQueue().clear();
+        requested.clear();
+    }
+
+    /**
+     * Stops the worker threads; no hex images are prepared afterwards.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+        requested.clear();
+    }
+}
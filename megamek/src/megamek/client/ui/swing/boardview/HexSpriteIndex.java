@@ -0,0 +1,73 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.client.ui.swing.boardview;
+
+import megamek.common.Coords;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Sorts the sprites of one sprite layer by the hex they are in, so that isometric rendering, which
+ * draws the sprites hex by hex, only looks at the sprites of each hex. Within a hex, the sprites
+ * keep the order of the layer.
+ *
+ * @param <S> the type of sprite
+ */
+class HexSpriteIndex<S extends Sprite> {
+
+    private final Function<? super S, Coords> position;
+    private final Map<Coords, List<S>> spritesByHex = new HashMap<>();
+
+    /**
+     * @param position gives the hex a sprite is in
+     */
+    HexSpriteIndex(Function<? super S, Coords> position) {
+        this.position = position;
+    }
+
+    /**
+     * Replaces the indexed sprites with the given ones.
+     */
+    void index(Iterable<? extends S> sprites) {
+        for (List<S> hexSprites : spritesByHex.values()) {
+            hexSprites.clear();
+        }
+        for (S sprite : sprites) {
+            Coords c = position.apply(sprite);
+            if (c != null) {
+                spritesByHex.computeIfAbsent(c, k -> new ArrayList<>(2)).add(sprite);
+            }
+        }
+        spritesByHex.values().removeIf(List::isEmpty);
+    }
+
+    /**
+     * @return the sprites in the given hex
+     */
+    List<S> get(Coords c) {
+        return spritesByHex.getOrDefault(c, Collections.emptyList());
+    }
+
+    /**
+     * Drops all indexed sprites.
+     */
+    void clear() {
+        spritesByHex.clear();
+    }
+}
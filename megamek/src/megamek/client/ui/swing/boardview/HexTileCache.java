@@ -0,0 +1,117 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.client.ui.swing.boardview;
+
+import megamek.client.ui.swing.util.ImageCache;
+import megamek.common.Coords;
+
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps the hex images of the board view rendered into tiles of {@link #TILE_SIZE} by
+ * {@link #TILE_SIZE} hexes, so that painting the board draws a few tiles instead of every hex.
+ * A tile must be dropped whenever the cached image of one of its hexes is, which the board view
+ * does alongside its hex image cache. The tiles count towards the memory budget of the image
+ * caches, which drops the least recently drawn ones when it is exceeded.
+ * <p>
+ * Tiles containing hexes that cannot be cached, such as animated ones, are marked as uncacheable
+ * and their hexes are drawn one by one until the tile is invalidated.
+ */
+class HexTileCache {
+
+    /** The width and height of a tile in hexes; even, so that every tile starts at an even column */
+    static final int TILE_SIZE = 8;
+
+    private final ImageCache<Integer, BufferedImage> tiles = new ImageCache<>("Hex tiles", ImageCache::estimateBytes);
+    private final Set<Integer> uncacheable = new HashSet<>();
+
+    /** Changes whenever tiles are invalidated, so that tiles rendered meanwhile are not stored */
+    private int modCount;
+
+    /**
+     * @return the tile with the given tile coordinates, or null if it is not cached
+     */
+    synchronized BufferedImage get(int tileX, int tileY) {
+        return tiles.get(key(tileX, tileY));
+    }
+
+    /**
+     * @return true if the tile with the given tile coordinates holds hexes that cannot be cached
+     */
+    synchronized boolean isUncacheable(int tileX, int tileY) {
+        return uncacheable.contains(key(tileX, tileY));
+    }
+
+    /**
+     * @return the current modification count, to be passed to {@link #put(int, int, BufferedImage, int)}
+     * and {@link #setUncacheable(int, int, boolean, int)}
+     */
+    synchronized int getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Stores a rendered tile, unless tiles were invalidated since rendering started.
+     *
+     * @param modCount the modification count from before rendering the tile
+     */
+    synchronized void put(int tileX, int tileY, BufferedImage tile, int modCount) {
+        if (modCount != this.modCount) {
+            return;
+        }
+        tiles.put(key(tileX, tileY), tile);
+    }
+
+    /**
+     * Marks a tile as holding hexes that cannot be cached or removes the mark, unless tiles were
+     * invalidated since the mark was decided on.
+     *
+     * @param modCount the modification count from before drawing the hexes of the tile
+     */
+    synchronized void setUncacheable(int tileX, int tileY, boolean isUncacheable, int modCount) {
+        if (modCount != this.modCount) {
+            return;
+        }
+        if (isUncacheable) {
+            uncacheable.add(key(tileX, tileY));
+        } else {
+            uncacheable.remove(key(tileX, tileY));
+        }
+    }
+
+    /**
+     * Drops the tile containing the given hex.
+     */
+    synchronized void invalidate(Coords c) {
+        int key = key(Math.floorDiv(c.getX(), TILE_SIZE), Math.floorDiv(c.getY(), TILE_SIZE));
+        tiles.remove(key);
+        uncacheable.remove(key);
+        modCount++;
+    }
+
+    /**
+     * Drops all tiles.
+     */
+    synchronized void clear() {
+        tiles.clear();
+        uncacheable.clear();
+        modCount++;
+    }
+
+    private static int key(int tileX, int tileY) {
+        return (tileY << 16) | (tileX & 0xFFFF);
+    }
+}
@@ -0,0 +1,529 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.client.ui.swing.boardview;
+
+import megamek.client.ui.swing.GUIPreferences;
+import megamek.client.ui.swing.tileset.TilesetManager;
+import megamek.client.ui.swing.util.ImageCache;
+import megamek.common.Board;
+import megamek.common.Coords;
+import megamek.common.Hex;
+import megamek.common.PlanetaryConditions;
+import megamek.common.Terrains;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static megamek.client.ui.swing.boardview.BoardView.HEX_H;
+import static megamek.client.ui.swing.boardview.BoardView.HEX_W;
+import static megamek.client.ui.swing.boardview.BoardView.HEX_WC;
+
+/**
+ * The shadows of hills, woods, buildings and bridges on the board, which the board view draws into
+ * the hex images. The shadows are painted as if the scale was 1.
+ * <p>
+ * When hexes change, {@link #update(Set)} only drops the tiles that shadows cast by or onto the
+ * changed hexes can fall into; this is meant to run off the event dispatch thread. Rendering
+ * tiles and updating are synchronized on the shadow map.
+ * <p>
+ * Instead of one image of the whole board, the shadows are rendered into tiles of
+ * {@link #TILE_SIZE} by {@link #TILE_SIZE} hexes when a hex of the tile is first drawn. Only the
+ * hexes whose shadows reach into a tile are painted into it. The tiles are kept in an
+ * {@link ImageCache} and count towards its memory budget; a tile that is dropped is rendered again
+ * when needed.
+ */
+class ShadowMap {
+
+    /** The width and height of a tile in hexes; even, so that every tile starts at an even column */
+    static final int TILE_SIZE = HexTileCache.TILE_SIZE;
+
+    /** Elevation shadows are limited to this level difference */
+    private static final int MAX_LEVEL_DIFF = 35;
+
+    private final BoardView bv;
+    private final Board board;
+    private final Image hexShadow;
+    private final double[] lightDirection;
+
+    /** The directions towards the light; a hex surrounded by hexes as high in these casts no elevation shadow */
+    private final int[] shadowDirections;
+
+    /** The level of each hex when it was last added, by y * width + x */
+    private final int[] hexLevels;
+
+    /** The hexes of the board by level */
+    private final TreeMap<Integer, Set<Coords>> sortedHexes = new TreeMap<>();
+
+    /** The hexes by level that are not surrounded by hexes as high in the direction of the light */
+    private final TreeMap<Integer, Set<Coords>> shadowCastingHexes = new TreeMap<>();
+
+    /** The elevation shadow images by level difference */
+    private final Map<Integer, Image> elevationShadows = new HashMap<>();
+
+    private int minLevel = Integer.MAX_VALUE;
+    private int maxLevel = Integer.MIN_VALUE;
+    private double maxStructureHeight;
+
+    /** How far shadows reach at most from the hexes that cast them, in pixels */
+    private int reachX;
+    private int reachY;
+
+    private final ImageCache<Integer, BufferedImage> tiles = new ImageCache<>("Shadow map", ImageCache::estimateBytes);
+    private volatile boolean cleared;
+
+    /**
+     * Prepares the shadows of the board, without rendering any tiles yet.
+     *
+     * @param bv the board view drawing the shadows
+     * @param board the board
+     * @param light the light of the planetary conditions
+     * @param hexShadow the blurred shadow of a hex
+     */
+    ShadowMap(BoardView bv, Board board, int light, Image hexShadow) {
+        this.bv = bv;
+        this.board = board;
+        this.hexShadow = hexShadow;
+        hexLevels = new int[board.getWidth() * board.getHeight()];
+
+        if ((light == PlanetaryConditions.L_MOONLESS) || (light == PlanetaryConditions.L_PITCH_BLACK)) {
+            lightDirection = new double[] { 0, 0 };
+        } else if (light == PlanetaryConditions.L_DUSK) {
+            // TODO: replace when made user controlled
+            lightDirection = new double[] { -38, 14 };
+        } else {
+            lightDirection = new double[] { -19, 7 };
+        }
+        double angle = Math.atan2(-lightDirection[1], lightDirection[0]);
+        int mDir = (int) (0.5 + 1.5 - angle / Math.PI * 3); // +0.5 to counter the (int)
+        shadowDirections = new int[] { mDir % 6, (mDir + 1) % 6, (mDir + 5) % 6 };
+
+        // Shadows for elevation
+        // 1a) Sort the board hexes by elevation
+        // 1b) Create a reduced list of shadowcasting hexes
+        for (int y = 0; y < board.getHeight(); y++) {
+            for (int x = 0; x < board.getWidth(); x++) {
+                addHex(new Coords(x, y));
+            }
+        }
+        updateReach();
+    }
+
+    /**
+     * Updates the shadows after hexes of the board changed. Only the tiles within the reach of
+     * the shadows of the changed hexes are dropped, to be rendered again when drawn.
+     *
+     * @param changedHexes the hexes that changed
+     * @return the hexes whose shadows may have changed, whose images must be drawn again
+     */
+    synchronized Set<Coords> update(Set<Coords> changedHexes) {
+        // The changed hexes and those around them, which they may now surround
+        Set<Coords> casters = new HashSet<>();
+        for (Coords c : changedHexes) {
+            if (board.contains(c)) {
+                casters.add(c);
+                for (int dir = 0; dir < 6; dir++) {
+                    if (board.contains(c.translated(dir))) {
+                        casters.add(c.translated(dir));
+                    }
+                }
+            }
+        }
+        // Drop the shadows that fell from the old hexes before they are replaced
+        Set<Coords> result = new HashSet<>();
+        invalidate(casters, result);
+        for (Coords c : casters) {
+            removeHex(c);
+        }
+        for (Coords c : casters) {
+            addHex(c);
+        }
+        // Then the shadows that fall from the new ones, as they may reach further
+        if (updateReach()) {
+            invalidate(casters, result);
+        }
+        return result;
+    }
+
+    /**
+     * Adds a hex to the hexes by level and to the shadowcasting hexes if it casts shadows.
+     */
+    private void addHex(Coords c) {
+        Hex hex = board.getHex(c);
+        int level = hex.getLevel();
+        hexLevels[c.getY() * board.getWidth() + c.getX()] = level;
+        sortedHexes.computeIfAbsent(level, l -> new HashSet<>()).add(c);
+        // add a hex to the shadowcasting hexes only
+        // if it is nor surrounded by same height hexes
+        boolean surrounded = true;
+        for (int dir : shadowDirections) {
+            if (!board.contains(c.translated(dir))) {
+                surrounded = false;
+            } else if (board.getHex(c.translated(dir)).getLevel() < level) {
+                surrounded = false;
+            }
+        }
+        if (!surrounded) {
+            shadowCastingHexes.computeIfAbsent(level, l -> new HashSet<>()).add(c);
+        }
+        minLevel = Math.min(minLevel, level);
+        maxLevel = Math.max(maxLevel, level);
+        maxStructureHeight = Math.max(maxStructureHeight, Math.max(0.75 * hex.terrainLevel(Terrains.FOLIAGE_ELEV),
+                Math.max(hex.terrainLevel(Terrains.BLDG_ELEV), hex.terrainLevel(Terrains.BRIDGE_ELEV))));
+    }
+
+    /**
+     * Removes a hex from the hexes by level and the shadowcasting hexes, at the level it was
+     * added with.
+     */
+    private void removeHex(Coords c) {
+        int level = hexLevels[c.getY() * board.getWidth() + c.getX()];
+        for (Map<Integer, Set<Coords>> hexes : List.of(sortedHexes, shadowCastingHexes)) {
+            Set<Coords> levelHexes = hexes.get(level);
+            if (levelHexes != null) {
+                levelHexes.remove(c);
+                if (levelHexes.isEmpty()) {
+                    hexes.remove(level);
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates how far shadows may reach; the reach only grows, as hexes that cast long shadows
+     * may have been removed.
+     *
+     * @return true if the reach grew
+     */
+    private boolean updateReach() {
+        // Shadows move by the light direction per level; add room for the images being drawn
+        double maxHeight = Math.max(0, maxLevel - minLevel) + maxStructureHeight + 1;
+        int newReachX = (int) Math.ceil(Math.abs(lightDirection[0]) * maxHeight) + HEX_W / 2;
+        int newReachY = (int) Math.ceil(Math.abs(lightDirection[1]) * maxHeight) + HEX_H / 2;
+        boolean grown = (newReachX > reachX) || (newReachY > reachY);
+        reachX = Math.max(reachX, newReachX);
+        reachY = Math.max(reachY, newReachY);
+        return grown;
+    }
+
+    /**
+     * @return the area that the shadows cast by the given hex can fall into, at scale 1
+     */
+    private Rectangle getShadowBounds(Coords c) {
+        Point p0 = bv.getHexLocationLargeTile(c.getX(), c.getY(), 1);
+        return new Rectangle(p0.x - reachX, p0.y - reachY, HEX_W + 2 * reachX, HEX_H + 2 * reachY);
+    }
+
+    /**
+     * Drops the tiles that the shadows of the given hexes can fall into and adds the hexes in
+     * their reach to the given set.
+     */
+    private void invalidate(Set<Coords> casters, Set<Coords> hexesInReach) {
+        for (Coords c : casters) {
+            Rectangle shadowBounds = getShadowBounds(c);
+            int firstX = Math.max(0, Math.floorDiv(shadowBounds.x, HEX_WC) - 1);
+            int lastX = Math.min(board.getWidth() - 1, (shadowBounds.x + shadowBounds.width) / HEX_WC + 1);
+            int firstY = Math.max(0, Math.floorDiv(shadowBounds.y, HEX_H) - 1);
+            int lastY = Math.min(board.getHeight() - 1, (shadowBounds.y + shadowBounds.height) / HEX_H + 1);
+            for (int y = firstY; y <= lastY; y++) {
+                for (int x = firstX; x <= lastX; x++) {
+                    Point p = bv.getHexLocationLargeTile(x, y, 1);
+                    if (shadowBounds.intersects(p.x, p.y, HEX_W, HEX_H)) {
+                        hexesInReach.add(new Coords(x, y));
+                        tiles.remove(tileKey(Math.floorDiv(x, TILE_SIZE), Math.floorDiv(y, TILE_SIZE)));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the elevation shadow image for the given level difference, created when first needed
+     */
+    private Image getElevationShadow(int lDiff) {
+        Image elevShadow = elevationShadows.get(lDiff);
+        if (elevShadow != null) {
+            return elevShadow;
+        }
+        GraphicsConfiguration config = GraphicsEnvironment
+                .getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDefaultConfiguration();
+        int n = 10;
+        double deltaX = lightDirection[0] / n;
+        double deltaY = lightDirection[1] / n;
+        int width = (int) (Math.abs(lightDirection[0]) * lDiff + HEX_W) * 2;
+        int height = (int) (Math.abs(lightDirection[1]) * lDiff + HEX_H) * 2;
+        elevShadow = config.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        Graphics gS = elevShadow.getGraphics();
+        double x = width / 2;
+        double y = height / 2;
+        if (GUIPreferences.getInstance().getHexInclines()) {
+            // With inclines, the level 1 shadows are only very slight
+            int beg = 4;
+            x += deltaX * beg;
+            y += deltaY * beg;
+            for (int i = beg; i < n * (lDiff - 0.4); i++) {
+                gS.drawImage(hexShadow, (int) x, (int) y, null);
+                x += deltaX;
+                y += deltaY;
+            }
+        } else {
+            for (int i = 0; i < n * lDiff; i++) {
+                gS.drawImage(hexShadow, (int) x, (int) y, null);
+                x += deltaX;
+                y += deltaY;
+            }
+        }
+        gS.dispose();
+        elevationShadows.put(lDiff, elevShadow);
+        return elevShadow;
+    }
+
+    /**
+     * Draws the shadows on a hex, scaled to the given size. Renders the tile of the hex first if
+     * it is not cached.
+     *
+     * @param g the graphics of the hex image
+     * @param c the hex
+     * @param width the width of the hex image
+     * @param height the height of the hex image
+     */
+    void drawHexShadow(Graphics g, Coords c, int width, int height) {
+        int tileX = Math.floorDiv(c.getX(), TILE_SIZE);
+        int tileY = Math.floorDiv(c.getY(), TILE_SIZE);
+        BufferedImage tile = getTile(tileX, tileY);
+        if (tile == null) {
+            return;
+        }
+        Point origin = getTileOrigin(tileX, tileY);
+        Point hexLocation = bv.getHexLocationLargeTile(c.getX(), c.getY(), 1);
+        int x = hexLocation.x - origin.x;
+        int y = hexLocation.y - origin.y;
+        // paint the right slice from the tile
+        g.drawImage(tile, 0, 0, width, height, x, y, x + HEX_W, y + HEX_H, null);
+    }
+
+    /**
+     * Drops all rendered tiles; the shadow map must not be used afterwards.
+     */
+    void clear() {
+        cleared = true;
+        tiles.clear();
+    }
+
+    /**
+     * @return the tile with the given tile coordinates, rendered if it is not cached, or null if
+     * it cannot be rendered
+     */
+    private synchronized BufferedImage getTile(int tileX, int tileY) {
+        int key = tileKey(tileX, tileY);
+        BufferedImage tile = tiles.get(key);
+        if ((tile == null) && !cleared) {
+            tile = renderTile(tileX, tileY);
+            if ((tile != null) && !cleared) {
+                tiles.put(key, tile);
+            }
+        }
+        return tile;
+    }
+
+    private static int tileKey(int tileX, int tileY) {
+        return (tileY << 16) | (tileX & 0xFFFF);
+    }
+
+    private Point getTileOrigin(int tileX, int tileY) {
+        return bv.getHexLocationLargeTile(tileX * TILE_SIZE, tileY * TILE_SIZE, 1);
+    }
+
+    /**
+     * Renders the shadows that fall onto the hexes of a tile.
+     *
+     * @return the tile, or null if the shadow images cannot be created
+     */
+    private BufferedImage renderTile(int tileX, int tileY) {
+        Point origin = getTileOrigin(tileX, tileY);
+        // Every hex fits into the tile; odd columns are half a hex lower
+        Rectangle bounds = new Rectangle(origin.x, origin.y,
+                bv.getHexLocationLargeTile(TILE_SIZE - 1, 0, 1).x + HEX_W,
+                TILE_SIZE * HEX_H + HEX_H / 2);
+        // 4) Create clipping areas from the hexes of the tile and those around it, as the clipping
+        // areas are a little larger than the hexes
+        Map<Integer, Path2D> levelClips = new TreeMap<>();
+        for (int y = tileY * TILE_SIZE - 1; y <= (tileY + 1) * TILE_SIZE; y++) {
+            for (int x = tileX * TILE_SIZE - 1; x <= (tileX + 1) * TILE_SIZE; x++) {
+                if (!board.contains(x, y)) {
+                    continue;
+                }
+                Point p = bv.getHexLocationLargeTile(x, y, 1);
+                AffineTransform t = AffineTransform.getTranslateInstance(p.x + HEX_W / 2, p.y + HEX_H / 2);
+                t.scale(1.02, 1.02);
+                t.translate(-HEX_W / 2, -HEX_H / 2);
+                levelClips.computeIfAbsent(board.getHex(x, y).getLevel(), l -> new Path2D.Float())
+                        .append(t.createTransformedShape(BoardView.hexPoly), false);
+            }
+        }
+
+        GraphicsConfiguration config = GraphicsEnvironment
+                .getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDefaultConfiguration();
+        BufferedImage tile = config.createCompatibleImage(bounds.width, bounds.height, Transparency.TRANSLUCENT);
+        Graphics2D g = tile.createGraphics();
+        g.translate(-origin.x, -origin.y);
+
+        // 5) Actually draw the elevation shadows
+        for (Map.Entry<Integer, Path2D> levelClip : levelClips.entrySet()) {
+            int shadowed = levelClip.getKey();
+            Rectangle clipBounds = levelClip.getValue().getBounds().intersection(bounds);
+            g.setClip(levelClip.getValue());
+
+            for (Map.Entry<Integer, Set<Coords>> casters : shadowCastingHexes.tailMap(shadowed, false).entrySet()) {
+                int lDiff = Math.min(casters.getKey() - shadowed, MAX_LEVEL_DIFF);
+                Image elevShadow = getElevationShadow(lDiff);
+                int offsetX = (int) (Math.abs(lightDirection[0]) * lDiff + HEX_W);
+                int offsetY = (int) (Math.abs(lightDirection[1]) * lDiff + HEX_H);
+                for (Coords c : casters.getValue()) {
+                    Point p0 = bv.getHexLocationLargeTile(c.getX(), c.getY(), 1);
+                    if (clipBounds.intersects(p0.x - offsetX, p0.y - offsetY, 2 * offsetX, 2 * offsetY)) {
+                        g.drawImage(elevShadow, p0.x - offsetX, p0.y - offsetY, null);
+                    }
+                }
+            }
+        }
+
+        // 6) woods and building shadows
+        int n = 5;
+        double deltaX = lightDirection[0] / n;
+        double deltaY = lightDirection[1] / n;
+        TilesetManager tileManager = bv.getTilesetManager();
+        for (Map.Entry<Integer, Path2D> levelClip : levelClips.entrySet()) {
+            int shadowed = levelClip.getKey();
+            Rectangle clipBounds = levelClip.getValue().getBounds().intersection(bounds);
+            g.setClip(levelClip.getValue());
+
+            for (Map.Entry<Integer, Set<Coords>> casters : sortedHexes.entrySet()) {
+                int shadowcaster = casters.getKey();
+                for (Coords c : casters.getValue()) {
+                    if (!getShadowBounds(c).intersects(bounds)) {
+                        continue;
+                    }
+                    Point p0 = bv.getHexLocationLargeTile(c.getX(), c.getY(), 1);
+
+                    // Woods Shadow
+                    Hex hex = board.getHex(c);
+                    List<Image> supers = tileManager.supersFor(hex);
+
+                    if (!supers.isEmpty()) {
+                        Image lastSuper = supers.get(supers.size() - 1);
+                        if (hex.containsTerrain(Terrains.WOODS) || hex.containsTerrain(Terrains.JUNGLE)) {
+                            // Woods are 2 levels high, but then shadows
+                            // appear very extreme, therefore only
+                            // 1.5 levels: (shadowcaster + 1.5 - shadowed)
+                            double shadowHeight = 0.75 * hex.terrainLevel(Terrains.FOLIAGE_ELEV);
+                            if ((shadowcaster + shadowHeight - shadowed) > 0) {
+                                int steps = (int) Math.ceil(n * (shadowcaster + shadowHeight - shadowed));
+                                if (!drawShadowSteps(g, clipBounds, lastSuper, p0, deltaX, deltaY, steps)) {
+                                    return null;
+                                }
+                            }
+                        }
+
+                        // Buildings Shadow
+                        if (hex.containsTerrain(Terrains.BUILDING)) {
+                            int h = hex.terrainLevel(Terrains.BLDG_ELEV);
+                            if ((shadowcaster + h - shadowed) > 0) {
+                                int steps = n * (shadowcaster + h - shadowed);
+                                if (!drawShadowSteps(g, clipBounds, lastSuper, p0, deltaX, deltaY, steps)) {
+                                    return null;
+                                }
+                            }
+                        }
+                    }
+                    // Bridge Shadow
+                    if (hex.containsTerrain(Terrains.BRIDGE)) {
+                        supers = tileManager.orthoFor(hex);
+                        if (supers.isEmpty()) {
+                            continue;
+                        }
+                        Image bridge = supers.get(supers.size() - 1);
+                        int h = hex.terrainLevel(Terrains.BRIDGE_ELEV);
+                        int x = (int) (p0.getX() + deltaX * n * (shadowcaster + h - shadowed));
+                        int y = (int) (p0.getY() + deltaY * n * (shadowcaster + h - shadowed));
+                        if (!clipBounds.intersects(x, y, bridge.getWidth(null) + 4, bridge.getHeight(null) + 4)) {
+                            continue;
+                        }
+                        Image maskB = bv.createBlurredShadow(bridge);
+                        if (maskB == null) {
+                            return null;
+                        }
+                        // the shadowmask is translucent, therefore draw n times
+                        // stupid hack
+                        for (int i = 0; i < n; i++) {
+                            g.drawImage(maskB, x, y, null);
+                        }
+                    }
+                }
+            }
+        }
+        g.dispose();
+        return tile;
+    }
+
+    /**
+     * Draws the shadow of a super image the given number of times, each a step further along the
+     * light direction, unless none of them fall into the given clipping bounds.
+     *
+     * @return false if the shadow of the image cannot be created
+     */
+    private boolean drawShadowSteps(Graphics2D g, Rectangle clipBounds, Image superImage, Point p0,
+                                    double deltaX, double deltaY, int steps) {
+        // The blurred shadow is a little larger than the image
+        int width = superImage.getWidth(null) + 4;
+        int height = superImage.getHeight(null) + 4;
+        double endX = p0.getX() + deltaX * (steps - 1);
+        double endY = p0.getY() + deltaY * (steps - 1);
+        Rectangle shadowBounds = new Rectangle((int) Math.floor(Math.min(p0.getX(), endX)),
+                (int) Math.floor(Math.min(p0.getY(), endY)),
+                (int) Math.ceil(Math.abs(endX - p0.getX())) + width + 1,
+                (int) Math.ceil(Math.abs(endY - p0.getY())) + height + 1);
+        if (!clipBounds.intersects(shadowBounds)) {
+            return true;
+        }
+        Image shadow = bv.createBlurredShadow(superImage);
+        if (shadow == null) {
+            return false;
+        }
+        double x = p0.getX();
+        double y = p0.getY();
+        for (int i = 0; i < steps; i++) {
+            g.drawImage(shadow, (int) x, (int) y, null);
+            x += deltaX;
+            y += deltaY;
+        }
+        return true;
+    }
+}
@@ -15,70 +15,392 @@
 
 package megamek.client.ui.swing.util;
 
-import java.util.Hashtable;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
 
 /**
- * An ImageCache that keeps a Hashtable of mapped keys and values.
- * 
+ * An ImageCache that keeps mapped keys and values.
+ * <p>
+ * A cache created with {@link #ImageCache()} keeps all its entries, and one created with
+ * {@link #ImageCache(int)} drops the least recently used ones beyond the given number. A cache
+ * created with {@link #ImageCache(String, ToLongFunction)} weighs its values in bytes instead; all
+ * such caches share one memory budget, see {@link #setMemoryBudget(long)}. When they exceed it,
+ * the entries used least recently in any of them are dropped first. Their hits, misses and memory
+ * use are listed by {@link #getStatistics()}.
+ * <p>
+ * Each cache is locked on its own. Adding to or removing from a cache that weighs its values also
+ * takes a lock shared by these caches, as the budget may require dropping entries of the others;
+ * that lock is always taken before the lock of any cache.
+ *
  * @author Arlith
  */
 public class ImageCache<K, V> {
-    
+
     /**
-     * Default maximum size
+     * Default initial capacity
      */
     public static int MAX_SIZE = 30000;
-    
+
+    private static final double MEGABYTE = 1024 * 1024;
+
+    /** Taken to account for and keep to the memory budget of the caches that weigh their values */
+    private static final Object BUDGET_LOCK = new Object();
+
+    /** The caches that weigh their values; dropped when no longer used */
+    private static final Set<ImageCache<?, ?>> WEIGHED_CACHES = Collections.newSetFromMap(new WeakHashMap<>());
+
+    /** The memory budget in bytes of all caches that weigh their values */
+    private static long memoryBudget = getDefaultMemoryBudget();
+
+    /** Counts up on every use of an entry, so that the least recently used entries of all caches can be found */
+    private static final AtomicLong useCount = new AtomicLong();
+
+    private static class Entry<V> {
+        final V value;
+        final long bytes;
+        long lastUse;
+
+        Entry(V value, long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
 
     /**
-     * The cache of Key/Value pairs.
+     * The cache of Key/Value pairs, in the order of their last use.
      */
-    private Hashtable<K, V> cache;
-        
+    private final LinkedHashMap<K, Entry<V>> cache;
+
+    private final String name;
+    private final int maxSize;
+    private final ToLongFunction<? super V> weigher;
+
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
     /**
-     * Create a cache with the default maximum size.
+     * Create a cache that keeps all its entries.
      */
     public ImageCache() {
-        cache = new Hashtable<>(MAX_SIZE * 5 / 4, .75f);
+        cache = new LinkedHashMap<>(MAX_SIZE * 5 / 4, .75f, true);
+        name = null;
+        maxSize = Integer.MAX_VALUE;
+        weigher = null;
     }
 
-    
+    /**
+     * Create a cache holding at most the given number of entries.
+     */
     public ImageCache(int max) {
-        cache = new Hashtable<>(max * 5 / 4, .75f);
+        cache = new LinkedHashMap<>(16, .75f, true);
+        name = null;
+        maxSize = max;
+        weigher = null;
+    }
+
+    /**
+     * Create a cache that weighs its values in bytes and counts towards the shared memory budget.
+     *
+     * @param name the name of the cache, for its statistics
+     * @param weigher gives the number of bytes a value takes up, e.g. {@link #estimateBytes(Image)}
+     */
+    public ImageCache(String name, ToLongFunction<? super V> weigher) {
+        cache = new LinkedHashMap<>(16, .75f, true);
+        this.name = name;
+        maxSize = Integer.MAX_VALUE;
+        this.weigher = weigher;
+        synchronized (BUDGET_LOCK) {
+            WEIGHED_CACHES.add(this);
+        }
     }
 
     /**
      * Adds a new key/value pair into the cache.
-     * 
+     *
      * @param key
      * @param value
      * @return
      */
-    public synchronized V put(K key, V value) {
+    public V put(K key, V value) {
         if ((key == null) || (value == null))
             return null;
-      
-        cache.put(key, value);
+
+        if (weigher == null) {
+            synchronized (this) {
+                putEntry(key, new Entry<>(value, 0));
+                if (cache.size() > maxSize) {
+                    Iterator<Entry<V>> eldest = cache.values().iterator();
+                    while (cache.size() > maxSize) {
+                        eldest.next();
+                        eldest.remove();
+                        evictions++;
+                    }
+                }
+            }
+        } else {
+            Entry<V> entry = new Entry<>(value, Math.max(0, weigher.applyAsLong(value)));
+            synchronized (BUDGET_LOCK) {
+                synchronized (this) {
+                    putEntry(key, entry);
+                }
+                evictOverBudget(entry);
+            }
+        }
         return value;
     }
 
+    private void putEntry(K key, Entry<V> entry) {
+        entry.lastUse = useCount.incrementAndGet();
+        Entry<V> old = cache.put(key, entry);
+        if (old != null) {
+            bytes -= old.bytes;
+        }
+        bytes += entry.bytes;
+    }
+
     public synchronized V get(K key) {
-        if (!cache.containsKey(key))
+        Entry<V> entry = cache.get(key);
+        if (entry == null) {
+            misses++;
             return null;
-
-        return cache.get(key);
+        }
+        hits++;
+        entry.lastUse = useCount.incrementAndGet();
+        return entry.value;
     }
 
     public void remove(Object key) {
-        cache.remove(key);
+        if (weigher == null) {
+            removeEntry(key);
+        } else {
+            synchronized (BUDGET_LOCK) {
+                removeEntry(key);
+            }
+        }
+    }
+
+    private synchronized void removeEntry(Object key) {
+        Entry<V> old = cache.remove(key);
+        if (old != null) {
+            bytes -= old.bytes;
+        }
     }
-    
-    public int size() {
+
+    public synchronized int size() {
         return cache.size();
     }
-    
+
     public void clear() {
+        if (weigher == null) {
+            clearEntries();
+        } else {
+            synchronized (BUDGET_LOCK) {
+                clearEntries();
+            }
+        }
+    }
+
+    private synchronized void clearEntries() {
         cache.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @return the name of the cache, null if it does not weigh its values
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of bytes taken up by the values of the cache, 0 if it does not weigh them
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the number of times a value was found in the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of times a value was not found in the cache
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of values dropped to make room for others
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Sets the memory budget shared by all caches that weigh their values and drops the least
+     * recently used entries until they fit into it.
+     *
+     * @param budget the budget in bytes, or 0 or less for {@link #getDefaultMemoryBudget()}
+     */
+    public static void setMemoryBudget(long budget) {
+        synchronized (BUDGET_LOCK) {
+            memoryBudget = (budget > 0) ? budget : getDefaultMemoryBudget();
+            evictOverBudget(null);
+        }
+    }
+
+    /**
+     * @return the memory budget in bytes shared by all caches that weigh their values
+     */
+    public static long getMemoryBudget() {
+        synchronized (BUDGET_LOCK) {
+            return memoryBudget;
+        }
+    }
+
+    /**
+     * @return the default memory budget, a quarter of the maximum heap size
+     */
+    public static long getDefaultMemoryBudget() {
+        return Runtime.getRuntime().maxMemory() / 4;
+    }
+
+    /**
+     * @return the number of bytes taken up by the values of all caches that weigh their values
+     */
+    public static long getTotalBytes() {
+        synchronized (BUDGET_LOCK) {
+            return totalBytes();
+        }
+    }
+
+    /**
+     * @return the bytes taken up by all caches that weigh their values. Must be called while
+     * holding the budget lock, which keeps their sizes from changing.
+     */
+    private static long totalBytes() {
+        long total = 0;
+        for (ImageCache<?, ?> imageCache : WEIGHED_CACHES) {
+            total += imageCache.getBytes();
+        }
+        return total;
+    }
+
+    /**
+     * Describes the memory use of the caches that weigh their values, first in total and then for
+     * each name, adding up the caches with the same name.
+     *
+     * @return one line per name, following the total
+     */
+    public static List<String> getStatistics() {
+        synchronized (BUDGET_LOCK) {
+            Map<String, long[]> byName = new TreeMap<>();
+            long total = 0;
+            for (ImageCache<?, ?> imageCache : WEIGHED_CACHES) {
+                long[] stats = byName.computeIfAbsent(imageCache.name, n -> new long[5]);
+                synchronized (imageCache) {
+                    stats[0] += imageCache.cache.size();
+                    stats[1] += imageCache.bytes;
+                    stats[2] += imageCache.hits;
+                    stats[3] += imageCache.misses;
+                    stats[4] += imageCache.evictions;
+                    total += imageCache.bytes;
+                }
+            }
+            List<String> result = new ArrayList<>();
+            result.add(String.format("Image caches: %.1f of %.1f MB", total / MEGABYTE, memoryBudget / MEGABYTE));
+            for (Map.Entry<String, long[]> entry : byName.entrySet()) {
+                long[] stats = entry.getValue();
+                long lookups = stats[2] + stats[3];
+                result.add(String.format("%s: %d, %.1f MB, %d hits, %d misses (%.1f%%), %d evicted",
+                        entry.getKey(), stats[0], stats[1] / MEGABYTE, stats[2], stats[3],
+                        (lookups == 0) ? 0 : 100d * stats[2] / lookups, stats[4]));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Estimates the memory taken up by the pixels of an image.
+     *
+     * @param image the image
+     * @return its size in bytes, 0 if it is null or not loaded
+     */
+    public static long estimateBytes(Image image) {
+        if (image instanceof BufferedImage) {
+            BufferedImage bufferedImage = (BufferedImage) image;
+            int bitsPerPixel = Math.max(8, bufferedImage.getColorModel().getPixelSize());
+            return (long) bufferedImage.getWidth() * bufferedImage.getHeight() * bitsPerPixel / 8;
+        } else if (image != null) {
+            int width = image.getWidth(null);
+            int height = image.getHeight(null);
+            return ((width > 0) && (height > 0)) ? 4L * width * height : 0;
+        }
+        return 0;
+    }
+
+    /**
+     * Drops the least recently used entries of all caches that weigh their values until they fit
+     * into the memory budget. Must be called while holding the budget lock.
+     *
+     * @param keep an entry that must not be dropped, the one just added, or null
+     */
+    private static void evictOverBudget(Entry<?> keep) {
+        long total = totalBytes();
+        while (total > memoryBudget) {
+            ImageCache<?, ?> eldestCache = null;
+            Entry<?> eldest = null;
+            long eldestUse = Long.MAX_VALUE;
+            for (ImageCache<?, ?> imageCache : WEIGHED_CACHES) {
+                synchronized (imageCache) {
+                    Entry<?> candidate = imageCache.eldest(keep);
+                    if ((candidate != null) && (candidate.lastUse < eldestUse)) {
+                        eldest = candidate;
+                        eldestUse = candidate.lastUse;
+                        eldestCache = imageCache;
+                    }
+                }
+            }
+            if (eldestCache == null) {
+                return;
+            }
+            synchronized (eldestCache) {
+                // Still there, as entries are only removed while holding the budget lock
+                eldestCache.cache.values().remove(eldest);
+                eldestCache.bytes -= eldest.bytes;
+                eldestCache.evictions++;
+            }
+            total -= eldest.bytes;
+        }
+    }
+
+    /**
+     * @return the least recently used entry other than the given one, or null if there is none.
+     * Must be called while holding the lock of this cache.
+     */
+    private Entry<V> eldest(Entry<?> keep) {
+        for (Entry<V> entry : cache.values()) {
+            if (entry != keep) {
+                return entry;
+            }
+        }
+        return null;
     }
-    
 }
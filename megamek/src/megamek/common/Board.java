@@ -73,6 +73,9 @@ public class Board implements Serializable {
 
     private Hex[] data;
 
+    /** The terrain movement costs of the hexes, created when first needed */
+    private transient volatile MovementCostRaster movementCosts;
+
     /**
      * The path to the file to load as background image for this board. To avoid
      * the Server sending a serialized image, the image isn't loaded until
@@ -243,6 +246,7 @@ public class Board implements Serializable {
         this.width = width;
         this.height = height;
         this.data = data;
+        movementCosts = null;
 
         initializeAll(errBuff);
         processBoardEvent(new BoardEvent(this, null, BoardEvent.BOARD_NEW_BOARD));
@@ -632,6 +636,7 @@ public class Board implements Serializable {
      */
     public void setHex(int x, int y, Hex hex) {
         data[(y * width) + x] = hex;
+        invalidateMovementCost(x, y);
         initializeHex(x, y);
         // If this hex has exitable terrain, we may need to update the exits in
         // adjacent hexes
@@ -673,6 +678,7 @@ public class Board implements Serializable {
             int x = currCoord.getX();
             int y = currCoord.getY();
             data[(y * width) + x] = currHex;
+            invalidateMovementCost(x, y);
             initializeHex(x, y);
 
             // Add any adjacent hexes that may need to have exits updated
@@ -692,6 +698,34 @@ public class Board implements Serializable {
 
     }
 
+    /**
+     * Returns the additional movement cost for entering the hex at the given position, the same
+     * as {@link Hex#movementCost(Entity)} returns for a unit of the given cost class. The costs are
+     * kept per hex and cost class, so path finding should prefer this to asking the hex.
+     *
+     * @param c the position of the hex
+     * @param costClass the cost class of the moving unit, see {@link MovementCostRaster#costClassOf(Entity)}
+     * @return the terrain movement cost, or 0 if the board does not contain the position
+     */
+    public int getMovementCost(Coords c, int costClass) {
+        MovementCostRaster raster = movementCosts;
+        if (raster == null) {
+            raster = new MovementCostRaster(this);
+            movementCosts = raster;
+        }
+        return raster.getMovementCost(c.getX(), c.getY(), costClass);
+    }
+
+    /**
+     * Drops the stored movement costs of the hex at the given position.
+     */
+    private void invalidateMovementCost(int x, int y) {
+        MovementCostRaster raster = movementCosts;
+        if (raster != null) {
+            raster.invalidate(x, y);
+        }
+    }
+
     /**
      * Sets the hex into the location specified by the Coords.
      *
@@ -927,93 +961,72 @@ public class Board implements Serializable {
         Hex[] nd = new Hex[0];
         int index = 0;
         resetStoredElevation();
-        try (Reader r = new BufferedReader(new InputStreamReader(is))) {
-            StreamTokenizer st = new StreamTokenizer(r);
-            st.eolIsSignificant(true);
-            st.commentChar('#');
-            st.quoteChar('"');
-            st.wordChars('_', '_');
-            while (st.nextToken() != StreamTokenizer.TT_EOF) {
-                if ((st.ttype == StreamTokenizer.TT_WORD) && st.sval.equalsIgnoreCase("size")) {
-                    // read rest of line
-                    String[] args = { "0", "0" };
-                    int i = 0;
-                    while ((st.nextToken() == StreamTokenizer.TT_WORD) || (st.ttype == '"')
-                            || (st.ttype == StreamTokenizer.TT_NUMBER)) {
-                        args[i++] = st.ttype == StreamTokenizer.TT_NUMBER ? (int) st.nval + "" : st.sval;
-                    }
-                    nw = Integer.parseInt(args[0]);
-                    nh = Integer.parseInt(args[1]);
+        // Read line by line and create the hexes right away; boards hold many hexes but
+        // only a few different themes, which are interned
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(is))) {
+            List<String> args = new ArrayList<>();
+            String line;
+            while ((line = r.readLine()) != null) {
+                tokenizeBoardLine(line, args);
+                if (args.isEmpty()) {
+                    continue;
+                }
+                String keyword = args.get(0);
+                if (keyword.equalsIgnoreCase("size")) {
+                    nw = Integer.parseInt(boardLineArg(args, 1, "0"));
+                    nh = Integer.parseInt(boardLineArg(args, 2, "0"));
                     nd = new Hex[nw * nh];
                     di = 0;
-                } else if ((st.ttype == StreamTokenizer.TT_WORD) && st.sval.equalsIgnoreCase("option")) {
-                    // read rest of line
-                    String[] args = { "", "" };
-                    int i = 0;
-                    while ((st.nextToken() == StreamTokenizer.TT_WORD) || (st.ttype == '"')
-                            || (st.ttype == StreamTokenizer.TT_NUMBER)) {
-                        args[i++] = st.ttype == StreamTokenizer.TT_NUMBER ? (int) st.nval + "" : st.sval;
-                    }
+                } else if (keyword.equalsIgnoreCase("option")) {
                     // Only expect certain options.
-                    if (args[0].equalsIgnoreCase("exit_roads_to_pavement")) {
-                        roadsAutoExit = !args[1].equalsIgnoreCase("false");
-                    }
-                } else if ((st.ttype == StreamTokenizer.TT_WORD) && st.sval.equalsIgnoreCase("hex")) {
-                    // read rest of line
-                    String[] args = { "", "0", "", "" };
-                    int i = 0;
-                    while ((st.nextToken() == StreamTokenizer.TT_WORD) || (st.ttype == '"')
-                            || (st.ttype == StreamTokenizer.TT_NUMBER)) {
-                        args[i++] = st.ttype == StreamTokenizer.TT_NUMBER ? (int) st.nval + "" : st.sval;
+                    if (boardLineArg(args, 1, "").equalsIgnoreCase("exit_roads_to_pavement")) {
+                        roadsAutoExit = !boardLineArg(args, 2, "").equalsIgnoreCase("false");
                     }
-                    int elevation = Integer.parseInt(args[1]);
+                } else if (keyword.equalsIgnoreCase("hex")) {
+                    int elevation = Integer.parseInt(boardLineArg(args, 2, "0"));
+                    String theme = boardLineArg(args, 4, "");
                     // The coordinates in the .board file are ignored!
-                    nd[index] = new Hex(elevation, args[2], args[3], new Coords(index % nw, index / nw));
+                    if (index < nd.length) {
+                        nd[index] = new Hex(elevation, boardLineArg(args, 3, ""),
+                                theme.isEmpty() ? null : theme.intern(), new Coords(index % nw, index / nw));
+                    }
                     index++;
-                } else if ((st.ttype == StreamTokenizer.TT_WORD) && st.sval.equalsIgnoreCase("background")) {
-                    st.nextToken();
+                } else if (keyword.equalsIgnoreCase("background") && (args.size() > 1)) {
                     File bgFile = new MegaMekFile(Configuration.boardBackgroundsDir(),
-                            st.sval).getFile();
+                            args.get(1)).getFile();
                     if (bgFile.exists()) {
                         backgroundPaths.add(bgFile.getPath());
                     } else {
                         LogManager.getLogger().error("Board specified background image, but path couldn't be found! Path: " + bgFile.getPath());
                     }
-                } else if ((st.ttype == StreamTokenizer.TT_WORD) && st.sval.equalsIgnoreCase("description")) {
-                    st.nextToken();
-                    if (st.ttype == '"') {
-                        String d = getDescription();
-                        if (null == d) {
-                            setDescription(st.sval);
-                        } else {
-                            setDescription(d + "\n\n" + st.sval);
-                        }
+                } else if (keyword.equalsIgnoreCase("description") && (args.size() > 1)) {
+                    String d = getDescription();
+                    if (null == d) {
+                        setDescription(args.get(1));
+                    } else {
+                        setDescription(d + "\n\n" + args.get(1));
                     }
-                } else if ((st.ttype == StreamTokenizer.TT_WORD) && st.sval.equalsIgnoreCase("note")) {
-                    st.nextToken();
-                    if (st.ttype == StreamTokenizer.TT_NUMBER) {
-                        int x, y, coordWidth = 100;
-                        int coords = (int) st.nval;
-                        if (coords > 9999) {
-                            coordWidth = 1000;
-                        }
-                        y = coords % coordWidth;
-                        coords /= coordWidth;
-                        x = coords;
-                        st.nextToken();
-                        Coords c = new Coords(x, y);
-                        if (st.ttype == '"') {
-                            Collection<String> a = new ArrayList<>(getAnnotations(c));
-                            a.add(st.sval);
-                            setAnnotations(c, a);
-                        }
+                } else if (keyword.equalsIgnoreCase("note") && (args.size() > 2)) {
+                    int x, y, coordWidth = 100;
+                    int coords;
+                    try {
+                        coords = Integer.parseInt(args.get(1));
+                    } catch (NumberFormatException ex) {
+                        continue;
                     }
-                } else if ((st.ttype == StreamTokenizer.TT_WORD) && st.sval.equalsIgnoreCase("tag")) {
-                    st.nextToken();
-                    if (st.ttype == '"') {
-                        addTag(st.sval);
+                    if (coords > 9999) {
+                        coordWidth = 1000;
                     }
-                } else if ((st.ttype == StreamTokenizer.TT_WORD) && st.sval.equalsIgnoreCase("end")) {
+                    y = coords % coordWidth;
+                    coords /= coordWidth;
+                    x = coords;
+                    Coords c = new Coords(x, y);
+                    Collection<String> a = new ArrayList<>(getAnnotations(c));
+                    a.add(args.get(2));
+                    setAnnotations(c, a);
+                } else if (keyword.equalsIgnoreCase("tag") && (args.size() > 1)) {
+                    addTag(args.get(1));
+                } else if (keyword.equalsIgnoreCase("end")) {
                     break;
                 }
             }
@@ -1040,6 +1053,144 @@ public class Board implements Serializable {
 
     }
 
+    /**
+     * Splits a line of a board file into its words, numbers and quoted strings with the syntax of
+     * the {@link StreamTokenizer} that the other board file readers use: words are letters and _
+     * followed by letters, _, digits, . and -; numbers are cut to their integer part; strings are
+     * quoted with " or ', end at the closing quote or the end of the line and know the escapes of
+     * Java character literals; # and / start a comment. As the arguments of a statement ended at
+     * any other character before, such a character ends the tokens of the line.
+     *
+     * @param line the line to split
+     * @param tokens is cleared and receives the tokens of the line
+     */
+    static void tokenizeBoardLine(String line, List<String> tokens) {
+        tokens.clear();
+        int length = line.length();
+        int i = 0;
+        while (i < length) {
+            char c = line.charAt(i);
+            if (c <= ' ') {
+                i++;
+            } else if ((c == '#') || (c == '/')) {
+                return;
+            } else if ((c == '"') || (c == '\'')) {
+                i = readBoardLineString(line, i, tokens);
+            } else if (isBoardLineNumberChar(c)) {
+                char next = (i + 1 < length) ? line.charAt(i + 1) : ' ';
+                if ((c == '-') && (next != '.') && ((next < '0') || (next > '9'))) {
+                    // A - that starts no number is an ordinary character
+                    return;
+                }
+                int start = i++;
+                boolean decimalPoint = (c == '.');
+                while ((i < length) && (((line.charAt(i) >= '0') && (line.charAt(i) <= '9'))
+                        || ((line.charAt(i) == '.') && !decimalPoint))) {
+                    decimalPoint |= (line.charAt(i) == '.');
+                    i++;
+                }
+                tokens.add(Integer.toString((int) parseBoardNumber(line.substring(start, i))));
+            } else if (isBoardLineWordChar(c)) {
+                int start = i++;
+                while ((i < length) && (isBoardLineWordChar(line.charAt(i))
+                        || isBoardLineNumberChar(line.charAt(i)))) {
+                    i++;
+                }
+                tokens.add(line.substring(start, i));
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads the quoted string starting at the given position of a board file line.
+     *
+     * @return the position after the closing quote
+     */
+    private static int readBoardLineString(String line, int start, List<String> tokens) {
+        char quote = line.charAt(start);
+        int length = line.length();
+        StringBuilder quoted = new StringBuilder();
+        int i = start + 1;
+        while ((i < length) && (line.charAt(i) != quote)) {
+            char c = line.charAt(i++);
+            if (c == '\\') {
+                if (i == length) {
+                    // A string cannot go on in the next line
+                    break;
+                }
+                c = line.charAt(i++);
+                if ((c >= '0') && (c <= '7')) {
+                    // Up to three octal digits, as long as the value fits into a byte
+                    int value = c - '0';
+                    int maxDigits = (c <= '3') ? 3 : 2;
+                    for (int digits = 1; (digits < maxDigits) && (i < length)
+                            && (line.charAt(i) >= '0') && (line.charAt(i) <= '7'); digits++) {
+                        value = (value << 3) + (line.charAt(i++) - '0');
+                    }
+                    c = (char) value;
+                } else {
+                    switch (c) {
+                        case 'a':
+                            c = 0x7;
+                            break;
+                        case 'b':
+                            c = '\b';
+                            break;
+                        case 'f':
+                            c = '\f';
+                            break;
+                        case 'n':
+                            c = '\n';
+                            break;
+                        case 'r':
+                            c = '\r';
+                            break;
+                        case 't':
+                            c = '\t';
+                            break;
+                        case 'v':
+                            c = 0xB;
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+            quoted.append(c);
+        }
+        tokens.add(quoted.toString());
+        return i + 1;
+    }
+
+    private static boolean isBoardLineWordChar(char c) {
+        return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) || (c == '_') || (c >= 160);
+    }
+
+    private static boolean isBoardLineNumberChar(char c) {
+        return ((c >= '0') && (c <= '9')) || (c == '.') || (c == '-');
+    }
+
+    /**
+     * @return the value of the given number token, 0 for a lone decimal point
+     */
+    private static double parseBoardNumber(String token) {
+        try {
+            return Double.parseDouble(token);
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return the token of a board file line at the given position, or the default if the line is
+     * shorter
+     */
+    private static String boardLineArg(List<String> args, int index, String defaultValue) {
+        return (index < args.size()) ? args.get(index) : defaultValue;
+    }
+
     public boolean isValid() {
         // Search for black-listed hexes
         return isValid(data, width, height, null);
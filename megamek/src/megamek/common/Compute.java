@@ -1880,8 +1880,7 @@ public class Compute {
         }
 
         // ensure network connectivity
-        List<ECMInfo> allECMInfo = ComputeECM.computeAllEntitiesECMInfo(game
-                .getEntitiesVector());
+        List<ECMInfo> allECMInfo = ComputeECM.getAllEntitiesECMInfo(game);
         int position = 0;
         for (Entity spotter : network) {
             for (int count = position++; count < network.size(); count++) {
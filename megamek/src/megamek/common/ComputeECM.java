@@ -488,9 +488,14 @@ public class ComputeECM {
             return null;
         }
 
-        if (allEcmInfo == null) {
-            allEcmInfo = computeAllEntitiesECMInfo(ae.getGame()
-                    .getEntitiesVector());
+        Game game = ae.getGame();
+        ECMFieldMap ecmFieldMap = (game == null) ? null : game.getECMFieldMap(allEcmInfo);
+        if (ecmFieldMap == null) {
+            // Without a game that keeps the map, map the fields for this call only
+            if (allEcmInfo == null) {
+                allEcmInfo = computeAllEntitiesECMInfo(game.getEntitiesVector());
+            }
+            ecmFieldMap = new ECMFieldMap(allEcmInfo, null);
         }
         
         // Get intervening Coords
@@ -498,27 +503,40 @@ public class ComputeECM {
         ECMInfo worstECMEffects = null;
         // Loop through intervening coords, and find the worst effects        
         for (Coords c : coords) {
-            ECMInfo affectedInfo = null;
+            ECMInfo affectedInfo;
             if (c.equals(ae.getPosition()) && ae.isINarcedWith(INarcPod.ECM)) {
-                affectedInfo = new ECMInfo(0, 1, ae.getOwner(), c);
-            }
-            for (ECMInfo ecmInfo : allEcmInfo) {
-                // Is the ECMInfo in range of this position?
-                int dist = c.distance(ecmInfo.getPos());
-                if (dist <= ecmInfo.getRange()) {
-                    if (affectedInfo == null) {
-                        affectedInfo = new ECMInfo(0, 0, ae.getOwner(), c);
-                    }
-                    affectedInfo.addOpposingECMEffects(ecmInfo);
-                }
+                affectedInfo = ecmFieldMap.computeOpposingEffects(ae.getOwner(), c,
+                        new ECMInfo(0, 1, ae.getOwner(), c));
+            } else {
+                affectedInfo = ecmFieldMap.getOpposingEffects(ae.getOwner(), c);
             }
             if ((worstECMEffects == null && affectedInfo != null)
                     || (affectedInfo != null && ecmComparator.compare(
                             affectedInfo, worstECMEffects) > 0)) {
                 worstECMEffects = affectedInfo;
             }
-        }       
-        return worstECMEffects;
+        }
+        if (worstECMEffects == null) {
+            return null;
+        }
+        // The effects on a hex are shared, so return a copy
+        ECMInfo result = new ECMInfo(worstECMEffects);
+        result.setECMNova(worstECMEffects.isNovaECM());
+        return result;
+    }
+
+    /**
+     * Returns the E(C)CM fields of all units in the game, see
+     * {@link #computeAllEntitiesECMInfo(List)}. These are kept by the game until units move,
+     * change modes or are damaged.
+     *
+     * @param game the game
+     * @return an unmodifiable list of the E(C)CM fields
+     */
+    public static List<ECMInfo> getAllEntitiesECMInfo(Game game) {
+        ECMFieldMap ecmFieldMap = game.getECMFieldMap(null);
+        return (ecmFieldMap == null) ? computeAllEntitiesECMInfo(game.getEntitiesVector())
+                : ecmFieldMap.getECMInfo();
     }
     
 
@@ -0,0 +1,177 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common;
+
+import megamek.common.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A map of the E(C)CM fields over the board. For every hex it holds the {@link ECMInfo}s whose
+ * range covers the hex, so that the ECM effects on a hex are found without checking the distance
+ * to every E(C)CM source on the board. The combined effects of the fields opposed to a player,
+ * as {@link ComputeECM#getECMEffects(Entity, Coords, Coords, boolean, List)} computes them, are
+ * kept per player and hex once computed.
+ * <p>
+ * The map is built from a list of ECMInfo, usually from
+ * {@link ComputeECM#computeAllEntitiesECMInfo(List)}, and does not change afterwards. The game
+ * keeps the map for its current state, see {@link Game#getECMFieldMap(List)}, and drops it
+ * whenever units move, change equipment modes or lose equipment.
+ */
+public class ECMFieldMap {
+
+    /** Marks a hex whose combined effects were computed and found to be empty */
+    private static final ECMInfo NO_EFFECTS = new ECMInfo();
+
+    private static final ECMInfo[] NO_FIELDS = new ECMInfo[0];
+
+    private final List<ECMInfo> ecmInfo;
+    private final List<ECMInfo> unmodifiableECMInfo;
+    private final int width;
+    private final int height;
+    private final ECMInfo[][] fields;
+    private final Map<Player, ECMInfo[]> opposingEffects = new HashMap<>();
+
+    /** The state of the game this map was built for, see {@link Game#getECMFieldMap(List)} */
+    int gameVersion;
+
+    /**
+     * Builds the map of the given E(C)CM fields over the given board.
+     *
+     * @param ecmInfo the E(C)CM fields; the list must not be changed afterwards
+     * @param board the board the fields are on; without a board, every hex is checked against
+     *              all fields
+     */
+    public ECMFieldMap(List<ECMInfo> ecmInfo, @Nullable Board board) {
+        this.ecmInfo = ecmInfo;
+        unmodifiableECMInfo = Collections.unmodifiableList(ecmInfo);
+        width = (board == null) ? 0 : board.getWidth();
+        height = (board == null) ? 0 : board.getHeight();
+        fields = new ECMInfo[width * height][];
+
+        List<List<ECMInfo>> cells = new ArrayList<>(Collections.nCopies(width * height, null));
+        for (ECMInfo info : ecmInfo) {
+            Coords pos = info.getPos();
+            if (pos == null) {
+                continue;
+            }
+            int range = info.getRange();
+            // The hex distance is never less than the difference in x or in y
+            int minX = Math.max(0, pos.getX() - range);
+            int maxX = Math.min(width - 1, pos.getX() + range);
+            int minY = Math.max(0, pos.getY() - range);
+            int maxY = Math.min(height - 1, pos.getY() + range);
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    if (pos.distance(x, y) <= range) {
+                        List<ECMInfo> cell = cells.get(index(x, y));
+                        if (cell == null) {
+                            cell = new ArrayList<>(2);
+                            cells.set(index(x, y), cell);
+                        }
+                        cell.add(info);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < fields.length; i++) {
+            List<ECMInfo> cell = cells.get(i);
+            fields[i] = (cell == null) ? NO_FIELDS : cell.toArray(NO_FIELDS);
+        }
+    }
+
+    /**
+     * @return the E(C)CM fields this map was built from
+     */
+    public List<ECMInfo> getECMInfo() {
+        return unmodifiableECMInfo;
+    }
+
+    /**
+     * @return true if this map was built from the given list, or it is the list returned by
+     * {@link #getECMInfo()}
+     */
+    boolean isBuiltFrom(List<ECMInfo> ecmInfo) {
+        return (this.ecmInfo == ecmInfo) || (unmodifiableECMInfo == ecmInfo);
+    }
+
+    /**
+     * Returns the combined effects of the E(C)CM fields on a hex for a unit of the given player,
+     * that is, the strength of all enemy ECM and all allied ECCM covering the hex. The returned
+     * ECMInfo is shared and must not be changed.
+     *
+     * @param owner the player whose unit is affected
+     * @param position the hex
+     * @return the combined effects, or null if no field covers the hex
+     */
+    public synchronized @Nullable ECMInfo getOpposingEffects(Player owner, Coords position) {
+        if (!isOnBoard(position)) {
+            return computeOpposingEffects(owner, position, null);
+        }
+        ECMInfo[] effects = opposingEffects.computeIfAbsent(owner, p -> new ECMInfo[fields.length]);
+        int index = index(position.getX(), position.getY());
+        if (effects[index] == null) {
+            ECMInfo computed = computeOpposingEffects(owner, position, null);
+            effects[index] = (computed == null) ? NO_EFFECTS : computed;
+        }
+        return (effects[index] == NO_EFFECTS) ? null : effects[index];
+    }
+
+    /**
+     * Combines the effects of the E(C)CM fields on a hex for a unit of the given player into a new
+     * ECMInfo.
+     *
+     * @param owner the player whose unit is affected
+     * @param position the hex
+     * @param start the effects to start with, or null to start with none
+     * @return the combined effects, or start if no field covers the hex
+     */
+    @Nullable ECMInfo computeOpposingEffects(Player owner, Coords position, @Nullable ECMInfo start) {
+        ECMInfo affectedInfo = start;
+        for (ECMInfo info : getFields(position)) {
+            if (position.distance(info.getPos()) <= info.getRange()) {
+                if (affectedInfo == null) {
+                    affectedInfo = new ECMInfo(0, 0, owner, position);
+                }
+                affectedInfo.addOpposingECMEffects(info);
+            }
+        }
+        return affectedInfo;
+    }
+
+    /**
+     * @return the E(C)CM fields that may cover the given hex; for hexes outside of the board these
+     * are all fields
+     */
+    private Iterable<ECMInfo> getFields(Coords position) {
+        if (!isOnBoard(position)) {
+            return ecmInfo;
+        }
+        return Arrays.asList(fields[index(position.getX(), position.getY())]);
+    }
+
+    private boolean isOnBoard(Coords position) {
+        return (position.getX() >= 0) && (position.getX() < width)
+                && (position.getY() >= 0) && (position.getY() < height);
+    }
+
+    private int index(int x, int y) {
+        return y * width + x;
+    }
+}
@@ -770,6 +770,19 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
 
     // contains a HTML string describing BV calculation
     protected StringBuffer bvText = new StringBuffer();
+
+    /**
+     * Battle Values calculated for the current state of this unit, indexed by
+     * {@link #bvCacheIndex(boolean, boolean)}; an entry of -1 has not been calculated yet.
+     * Null when the cache has been invalidated.
+     */
+    private transient int[] cachedBV;
+
+    /** The state fingerprint (see {@link #bvCacheStamp()}) the cached Battle Values belong to. */
+    private transient long cachedBVStamp;
+
+    /** The BV breakdown written when the cached full Battle Value was calculated, or null. */
+    private transient String cachedBVText;
     protected String startTable = "<TABLE>";
     protected String endTable = "</TABLE>";
 
@@ -1074,6 +1087,7 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
     @Override
     public void setGame(Game game) {
         this.game = game;
+        invalidateBVCache();
         restore();
         // Make sure the owner is set.
         if (null == owner) {
@@ -1591,6 +1605,7 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
 
     public void setCrew(Crew crew) {
         this.crew = crew;
+        invalidateBVCache();
     }
     
     /**
@@ -1650,6 +1665,9 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
     public void setShutDown(boolean shutDown) {
         this.shutDown = shutDown;
         setShutDownThisPhase(shutDown);
+        if (game != null) {
+            game.invalidateECMFieldMap();
+        }
     }
 
     public void setShutDownThisPhase(boolean shutDown) {
@@ -3798,6 +3816,7 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
             throws LocationFullException {
         mounted.setLocation(loc, rearMounted);
         equipmentList.add(mounted);
+        invalidateBVCache();
 
         compositeTechLevel.addComponent(mounted.getType());
         if (mounted.isArmored()) {
@@ -6890,7 +6909,117 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
      * @return The Battle Value of this unit
      */
     private int manualOrCalculateBV(boolean ignoreC3, boolean ignoreSkill) {
-        return useManualBV ? manualBV : doBattleValueCalculation(ignoreC3, ignoreSkill);
+        if (useManualBV) {
+            return manualBV;
+        } else if (!cacheBattleValue() || (!ignoreC3 && hasAnyC3System())) {
+            // The C3 bonus depends on the other members of the network, which this unit doesn't track
+            return doBattleValueCalculation(ignoreC3, ignoreSkill);
+        }
+        int[] cache = currentBVCache();
+        int index = bvCacheIndex(ignoreC3, ignoreSkill);
+        if (cache[index] < 0) {
+            cache[index] = doBattleValueCalculation(ignoreC3, ignoreSkill);
+            if (index == 0) {
+                cachedBVText = (bvText == null) ? null : bvText.toString();
+            }
+        }
+        return cache[index];
+    }
+
+    /**
+     * @return the cached Battle Values, emptied first when the state of this unit has changed
+     */
+    private int[] currentBVCache() {
+        long stamp = bvCacheStamp();
+        int[] cache = cachedBV;
+        if ((cache == null) || (stamp != cachedBVStamp)) {
+            cache = new int[] { -1, -1, -1, -1 };
+            cachedBV = cache;
+            cachedBVStamp = stamp;
+            cachedBVText = null;
+        }
+        return cache;
+    }
+
+    /**
+     * @return true when the Battle Value for the given parameters would be taken from the cache
+     *         rather than calculated
+     */
+    boolean isBattleValueCached(boolean ignoreC3, boolean ignoreSkill) {
+        int[] cache = cachedBV;
+        return (cache != null) && (bvCacheStamp() == cachedBVStamp)
+                && (cache[bvCacheIndex(ignoreC3, ignoreSkill)] >= 0);
+    }
+
+    private static int bvCacheIndex(boolean ignoreC3, boolean ignoreSkill) {
+        return (ignoreC3 ? 2 : 0) + (ignoreSkill ? 1 : 0);
+    }
+
+    /**
+     * Returns true when the calculated Battle Value of this unit may be cached between calls to
+     * {@link #calculateBattleValue(boolean, boolean)}. Units whose BV is derived from other
+     * units should override this to return false.
+     *
+     * @return True when the Battle Value of this unit may be cached
+     */
+    protected boolean cacheBattleValue() {
+        return true;
+    }
+
+    /**
+     * Discards any cached Battle Values of this unit. This must be called when the equipment of
+     * this unit changes in a way that affects its Battle Value. Damage, movement, the crew's skills
+     * and abilities, quirks and game options are detected without this.
+     */
+    public void invalidateBVCache() {
+        cachedBV = null;
+    }
+
+    /**
+     * Returns a fingerprint of the state the Battle Value depends on that commonly changes
+     * in place: armor and structure by location, critical hits, movement, the crew's skills,
+     * its abilities and implants, unit and weapon quirks, partial repairs and the game options.
+     * When it changes, the cached Battle Values are discarded. Replacing the game or the crew
+     * discards them explicitly.
+     */
+    private long bvCacheStamp() {
+        long stamp = equipmentList.size();
+        stamp = 31 * stamp + getOriginalWalkMP();
+        stamp = 31 * stamp + getWalkMP(false, true, true);
+        stamp = 31 * stamp + getOriginalJumpMP();
+        for (Mounted mounted : equipmentList) {
+            stamp = 31 * stamp + mounted.getQuirks().getVersion();
+        }
+        stamp = 31 * stamp + quirks.getVersion();
+        stamp = 31 * stamp + partReps.getVersion();
+        for (int loc = 0; loc < locations(); loc++) {
+            stamp = 31 * stamp + getArmor(loc);
+            if (hasRearArmor(loc)) {
+                stamp = 31 * stamp + getArmor(loc, true);
+            }
+            stamp = 31 * stamp + getInternal(loc);
+            for (int slot = 0; slot < getNumberOfCriticals(loc); slot++) {
+                CriticalSlot cs = getCritical(loc, slot);
+                if ((cs != null) && (cs.isDamaged() || cs.isMissing())) {
+                    stamp = 31 * stamp + (loc * 100L) + slot;
+                }
+            }
+        }
+        stamp = 31 * stamp + (useGeometricMeanBV() ? 1 : 0);
+        stamp = 31 * stamp + (useReducedOverheatModifierBV() ? 1 : 0);
+        stamp = 31 * stamp + (isShutDown() ? 1 : 0);
+        stamp = 31 * stamp + (isOffBoard() ? 1 : 0);
+        stamp = 31 * stamp + (isCarcass() ? 1 : 0);
+        if (game != null) {
+            stamp = 31 * stamp + game.getOptions().getVersion();
+        }
+        if (crew != null) {
+            stamp = 31 * stamp + crew.getOptions().getVersion();
+            stamp = 31 * stamp + crew.getGunnery();
+            stamp = 31 * stamp + crew.getPiloting();
+            stamp = 31 * stamp + Double.hashCode(crew.getBVImplantMultiplier());
+        }
+        return stamp;
     }
 
     public boolean useGeometricMeanBV() {
@@ -9056,6 +9185,9 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
      */
     public void setTransportId(int transportId) {
         conveyance = transportId;
+        if (game != null) {
+            game.invalidateECMFieldMap();
+        }
         // If we were unloaded, set the appropriate flags.
         if (transportId == Entity.NONE) {
             unloadedThisTurn = true;
@@ -12940,9 +13072,20 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
     public String getBVText() {
         if (bvText == null) {
             return "";
+        } else if (useManualBV) {
+            return bvText.toString();
+        } else if (!cacheBattleValue() || hasAnyC3System()) {
+            doBattleValueCalculation(false, false);
+            return bvText.toString();
         }
-
-        return bvText.toString();
+        // The breakdown is only written when the BV is actually calculated, so keep the one
+        // written with the cached BV rather than one left over from another calculation
+        int[] cache = currentBVCache();
+        if (cachedBVText == null) {
+            cache[0] = doBattleValueCalculation(false, false);
+            cachedBVText = bvText.toString();
+        }
+        return cachedBVText;
     }
 
     /**
@@ -13292,6 +13435,9 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
 
     public void setAltitude(int a) {
         altitude = a;
+        if (game != null) {
+            game.invalidateECMFieldMap();
+        }
     }
 
     public boolean getUseManualBV() {
@@ -15345,6 +15491,7 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
 
     public void setUseGeometricBV(boolean useGeometricBV) {
         this.useGeometricBV = useGeometricBV;
+        invalidateBVCache();
     }
 
     public boolean isUseReducedOverheatModifierBV() {
@@ -15353,6 +15500,7 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
 
     public void setUseReducedOverheatModifierBV(boolean useReducedOverheatModifierBV) {
         this.useReducedOverheatModifierBV = useReducedOverheatModifierBV;
+        invalidateBVCache();
     }
 
     public void addAttackedByThisTurn(int entityId) {
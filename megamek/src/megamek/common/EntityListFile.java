@@ -507,20 +507,63 @@ public class EntityListFile {
      *             is thrown on any error.
      */
     public static void saveTo(File file, ArrayList<Entity> list) throws IOException {
-        // Open up the file. Produce UTF-8 output.
-        Writer output = new BufferedWriter(new OutputStreamWriter(
-                new FileOutputStream(file), StandardCharsets.UTF_8));
+        try (UnitWriter output = new UnitWriter(new FileOutputStream(file), list)) {
+            for (Entity entity : list) {
+                output.write(entity);
+            }
+        }
+    }
 
-        // Output the doctype and header stuff.
-        output.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n\n");
-        output.write("<unit version=\"" + MMConstants.VERSION + "\" >\n\n");
+    /**
+     * Writes a unit file one <code>Entity</code> at a time, so that large lists of entities can be
+     * saved without first being collected. The file is complete once the writer is closed, and is
+     * the same as the one {@link #saveTo(File, ArrayList)} writes for the same entities.
+     */
+    public static class UnitWriter implements Closeable {
+        private final Writer output;
+        private final Collection<Entity> c3Entities;
+
+        /**
+         * Starts a unit file by writing its header.
+         *
+         * @param out the stream to write the file to; it is closed with the writer
+         * @param c3Entities the entities whose C3i and naval C3 links are written for the written
+         *                   entities, usually all entities to be written or those of the game
+         * @throws IOException if the header cannot be written
+         */
+        public UnitWriter(OutputStream out, Collection<Entity> c3Entities) throws IOException {
+            this.c3Entities = c3Entities;
+            // Produce UTF-8 output.
+            output = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+
+            // Output the doctype and header stuff.
+            output.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n\n");
+            output.write("<unit version=\"" + MMConstants.VERSION + "\" >\n\n");
+        }
 
-        writeEntityList(output, list);
+        /**
+         * Writes one entity to the file. Fighter squadrons are skipped, as for
+         * {@link #saveTo(File, ArrayList)}.
+         *
+         * @param entity the entity to write
+         * @throws IOException if the entity cannot be written
+         */
+        public void write(Entity entity) throws IOException {
+            writeEntityList(output, Collections.singletonList(entity), c3Entities);
+        }
 
-        // Finish writing.
-        output.write("</unit>\n");
-        output.flush();
-        output.close();
+        /**
+         * Finishes the file and closes the stream.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                output.write("</unit>\n");
+                output.flush();
+            } finally {
+                output.close();
+            }
+        }
     }
 
     /**
@@ -680,6 +723,17 @@ public class EntityListFile {
     }
 
     private static void writeEntityList(Writer output, ArrayList<Entity> list) throws IOException {
+        writeEntityList(output, list, list);
+    }
+
+    /**
+     * Writes the Entity tags of the given entities.
+     *
+     * @param c3Entities the entities searched for the members of the C3i and naval C3 networks of
+     *                   the written entities
+     */
+    private static void writeEntityList(Writer output, Collection<Entity> list,
+                                        Collection<Entity> c3Entities) throws IOException {
         // Walk through the list of entities.
         Iterator<Entity> items = list.iterator();
         while (items.hasNext()) {
@@ -957,7 +1011,7 @@ public class EntityListFile {
             // Write the C3i Data if needed
             if (entity.hasC3i()) {
                 output.write(indentStr(indentLvl + 1) + "<c3iset>\n");
-                Iterator<Entity> c3iList = list.iterator();
+                Iterator<Entity> c3iList = c3Entities.iterator();
                 while (c3iList.hasNext()) {
                     final Entity C3iEntity = c3iList.next();
 
@@ -973,7 +1027,7 @@ public class EntityListFile {
             // Write the NC3 Data if needed
             if (entity.hasNavalC3()) {
                 output.write(indentStr(indentLvl + 1) + "<NC3set>\n");
-                Iterator<Entity> NC3List = list.iterator();
+                Iterator<Entity> NC3List = c3Entities.iterator();
                 while (NC3List.hasNext()) {
                     final Entity NC3Entity = NC3List.next();
 
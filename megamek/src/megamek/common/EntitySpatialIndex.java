@@ -0,0 +1,165 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/**
+ * A grid of square cells over the board that holds the IDs of the entities whose position falls
+ * into each cell. Radius and nearest-entity queries only look at the cells that can hold an
+ * entity close enough, instead of all entities of the game. The index is updated incrementally
+ * whenever an entity's position changes.
+ * <p>
+ * The hex distance between two positions is never less than the difference of either their x or
+ * their y coordinates, so an entity within a given distance is always within the square of that
+ * size around the center.
+ * <p>
+ * This class is not thread-safe; {@link Game} accesses it only while holding its own lock.
+ */
+class EntitySpatialIndex {
+
+    /** The side length of a cell, in hexes */
+    static final int CELL_SIZE = 8;
+
+    private final Map<Long, Set<Integer>> cells = new HashMap<>();
+    private final Map<Integer, Coords> positions = new HashMap<>();
+
+    /**
+     * Moves the entity with the given ID to the given position.
+     *
+     * @param id the entity ID
+     * @param position the new position, or null when the entity has left the board
+     */
+    void update(int id, Coords position) {
+        Coords previous = (position == null) ? positions.remove(id) : positions.put(id, position);
+        if (previous != null) {
+            if ((position != null) && (cellKey(previous) == cellKey(position))) {
+                return;
+            }
+            Set<Integer> cell = cells.get(cellKey(previous));
+            if (cell != null) {
+                cell.remove(id);
+                if (cell.isEmpty()) {
+                    cells.remove(cellKey(previous));
+                }
+            }
+        }
+        if (position != null) {
+            cells.computeIfAbsent(cellKey(position), k -> new HashSet<>()).add(id);
+        }
+    }
+
+    void remove(int id) {
+        update(id, null);
+    }
+
+    void clear() {
+        cells.clear();
+        positions.clear();
+    }
+
+    /**
+     * Adds the IDs of all entities at most the given distance from the center to the given list,
+     * in no particular order.
+     */
+    void collectWithin(Coords center, int distance, List<Integer> ids) {
+        if (distance < 0) {
+            return;
+        }
+        int minCellX = Math.floorDiv(center.getX() - distance, CELL_SIZE);
+        int maxCellX = Math.floorDiv(center.getX() + distance, CELL_SIZE);
+        int minCellY = Math.floorDiv(center.getY() - distance, CELL_SIZE);
+        int maxCellY = Math.floorDiv(center.getY() + distance, CELL_SIZE);
+        if ((long) (maxCellX - minCellX + 1) * (maxCellY - minCellY + 1) > cells.size()) {
+            // A large radius on a sparse board; checking every entity is cheaper
+            for (Map.Entry<Integer, Coords> entry : positions.entrySet()) {
+                if (center.distance(entry.getValue()) <= distance) {
+                    ids.add(entry.getKey());
+                }
+            }
+            return;
+        }
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+                Set<Integer> cell = cells.get(cellKey(cellX, cellY));
+                if (cell != null) {
+                    for (Integer id : cell) {
+                        if (center.distance(positions.get(id)) <= distance) {
+                            ids.add(id);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the entity closest to the center that is accepted by the filter, searching the cells
+     * in rings of growing size around the center. Of several entities at the same distance, the
+     * one with the lowest ID is returned.
+     *
+     * @param center the position to search from
+     * @param maxDistance the largest distance to search
+     * @param filter accepts the IDs of the entities that may be returned
+     * @return the ID of the closest accepted entity, or {@link Entity#NONE} if there is none
+     */
+    int findClosest(Coords center, int maxDistance, IntPredicate filter) {
+        int centerCellX = Math.floorDiv(center.getX(), CELL_SIZE);
+        int centerCellY = Math.floorDiv(center.getY(), CELL_SIZE);
+        int bestId = Entity.NONE;
+        int bestDistance = Integer.MAX_VALUE;
+        int checked = 0;
+        for (int ring = 0; checked < positions.size(); ring++) {
+            // Any hex in this ring is at least this far from the center
+            int minDistance = (ring == 0) ? 0 : (ring - 1) * CELL_SIZE + 1;
+            if ((minDistance > bestDistance) || (minDistance > maxDistance)) {
+                break;
+            }
+            for (int cellX = centerCellX - ring; cellX <= centerCellX + ring; cellX++) {
+                boolean edgeColumn = (cellX == centerCellX - ring) || (cellX == centerCellX + ring);
+                int step = edgeColumn ? 1 : 2 * ring;
+                for (int cellY = centerCellY - ring; cellY <= centerCellY + ring; cellY += Math.max(step, 1)) {
+                    Set<Integer> cell = cells.get(cellKey(cellX, cellY));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (Integer id : cell) {
+                        checked++;
+                        int distance = center.distance(positions.get(id));
+                        if ((distance <= maxDistance)
+                                && ((distance < bestDistance) || ((distance == bestDistance) && (id < bestId)))
+                                && filter.test(id)) {
+                            bestId = id;
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+        }
+        return bestId;
+    }
+
+    private static long cellKey(Coords position) {
+        return cellKey(Math.floorDiv(position.getX(), CELL_SIZE), Math.floorDiv(position.getY(), CELL_SIZE));
+    }
+
+    private static long cellKey(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+}
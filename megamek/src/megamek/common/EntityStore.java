@@ -0,0 +1,272 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common;
+
+import megamek.common.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Holds the entities of a {@link Game} in the order they were added, together with a table to
+ * find them by ID.
+ * <p>
+ * The entities are kept in an array that only grows: adding an entity writes it into the next
+ * free slot and publishes a new {@link #snapshot()} covering one more element, so that adding
+ * many entities takes linear instead of quadratic time. A snapshot never changes, so it can be
+ * iterated by any thread without locking while the store is being changed. Replacing and removing
+ * entities copy the array, as the slots seen by earlier snapshots must not change.
+ * <p>
+ * Entity IDs are handed out in sequence, so the ID table is an array indexed by ID; IDs outside
+ * of {@link #DENSE_ID_LIMIT} are kept in a map instead. Looking up an entity does not lock.
+ * <p>
+ * Changes to the store are synchronized on the store.
+ */
+final class EntityStore implements Iterable<Entity>, Serializable {
+    private static final long serialVersionUID = -4618209183326587703L;
+
+    /** IDs from 0 up to this are kept in the ID table array */
+    static final int DENSE_ID_LIMIT = 1 << 16;
+
+    private static final Entity[] NO_ENTITIES = new Entity[0];
+
+    private transient volatile Snapshot snapshot;
+    private transient volatile AtomicReferenceArray<Entity> byId;
+    private transient Map<Integer, Entity> sparseIds;
+    private transient int idCount;
+
+    EntityStore() {
+        init();
+    }
+
+    private void init() {
+        snapshot = new Snapshot(NO_ENTITIES, 0);
+        byId = new AtomicReferenceArray<>(16);
+        sparseIds = new ConcurrentHashMap<>();
+        idCount = 0;
+    }
+
+    /**
+     * @return the entities as they are now, in the order they were added. The list is unmodifiable
+     * and does not change when the store changes.
+     */
+    List<Entity> snapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public Iterator<Entity> iterator() {
+        return snapshot.iterator();
+    }
+
+    int size() {
+        return snapshot.size;
+    }
+
+    boolean isEmpty() {
+        return snapshot.size == 0;
+    }
+
+    /**
+     * @return the entity with the given ID, or null if there is none
+     */
+    @Nullable Entity getById(int id) {
+        if ((id >= 0) && (id < DENSE_ID_LIMIT)) {
+            AtomicReferenceArray<Entity> table = byId;
+            return (id < table.length()) ? table.get(id) : null;
+        }
+        return sparseIds.get(id);
+    }
+
+    boolean containsId(int id) {
+        return getById(id) != null;
+    }
+
+    /**
+     * @return the number of IDs in the ID table; this equals the size unless several entities with
+     * the same ID were added through {@link #setAll(Collection)}
+     */
+    synchronized int idCount() {
+        return idCount;
+    }
+
+    /**
+     * Adds the entity at the end. The caller makes sure that its ID is not used yet.
+     */
+    synchronized void add(Entity entity) {
+        Snapshot current = snapshot;
+        Entity[] elements = current.elements;
+        if (current.size == elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(16, current.size * 2));
+        }
+        elements[current.size] = entity;
+        putId(entity.getId(), entity);
+        snapshot = new Snapshot(elements, current.size + 1);
+    }
+
+    /**
+     * Puts the entity in the place of the one with the given ID.
+     *
+     * @return the replaced entity, or null if there was none and nothing was changed
+     */
+    synchronized @Nullable Entity replace(int id, Entity entity) {
+        Entity previous = getById(id);
+        if (previous == null) {
+            return null;
+        }
+        Snapshot current = snapshot;
+        int index = current.indexOf(previous);
+        if (index >= 0) {
+            Entity[] elements = Arrays.copyOf(current.elements, current.size);
+            elements[index] = entity;
+            snapshot = new Snapshot(elements, current.size);
+        }
+        putId(id, entity);
+        return previous;
+    }
+
+    /**
+     * Removes all entities with the given ID.
+     *
+     * @return the entity that was found under the ID, or null if there was none
+     */
+    synchronized @Nullable Entity remove(int id) {
+        Snapshot current = snapshot;
+        Entity[] elements = new Entity[current.elements.length];
+        int size = 0;
+        for (int i = 0; i < current.size; i++) {
+            if (current.elements[i].getId() != id) {
+                elements[size++] = current.elements[i];
+            }
+        }
+        if (size != current.size) {
+            snapshot = new Snapshot(elements, size);
+        }
+        Entity removed = getById(id);
+        if (removed != null) {
+            putId(id, null);
+        }
+        return removed;
+    }
+
+    /**
+     * Replaces the content of the store with the given entities. Of several entities with the same
+     * ID, only the last one can be found by its ID.
+     */
+    synchronized void setAll(Collection<Entity> entities) {
+        Entity[] elements = entities.toArray(new Entity[Math.max(16, entities.size())]);
+        AtomicReferenceArray<Entity> table = new AtomicReferenceArray<>(byId.length());
+        byId = table;
+        sparseIds.clear();
+        idCount = 0;
+        for (int i = 0; i < entities.size(); i++) {
+            putId(elements[i].getId(), elements[i]);
+        }
+        snapshot = new Snapshot(elements, entities.size());
+    }
+
+    synchronized void clear() {
+        init();
+    }
+
+    private void putId(int id, @Nullable Entity entity) {
+        Entity previous;
+        if ((id >= 0) && (id < DENSE_ID_LIMIT)) {
+            AtomicReferenceArray<Entity> table = byId;
+            if (id >= table.length()) {
+                if (entity == null) {
+                    return;
+                }
+                AtomicReferenceArray<Entity> grown = new AtomicReferenceArray<>(
+                        Math.min(DENSE_ID_LIMIT, Math.max(id + 1, table.length() * 2)));
+                for (int i = 0; i < table.length(); i++) {
+                    grown.set(i, table.get(i));
+                }
+                byId = grown;
+                table = grown;
+            }
+            previous = table.getAndSet(id, entity);
+        } else {
+            previous = (entity == null) ? sparseIds.remove(id) : sparseIds.put(id, entity);
+        }
+        if ((previous == null) && (entity != null)) {
+            idCount++;
+        } else if ((previous != null) && (entity == null)) {
+            idCount--;
+        }
+    }
+
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        Snapshot current = snapshot;
+        out.writeObject(Arrays.copyOf(current.elements, current.size));
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        init();
+        setAll(Arrays.asList((Entity[]) in.readObject()));
+    }
+
+    /**
+     * An unmodifiable view of the first entities of an array whose first elements never change.
+     * It is sent and saved as a plain list.
+     */
+    private static final class Snapshot extends AbstractList<Entity> implements RandomAccess, Serializable {
+        private static final long serialVersionUID = 4127709237410315532L;
+
+        private final Entity[] elements;
+        private final int size;
+
+        Snapshot(Entity[] elements, int size) {
+            this.elements = elements;
+            this.size = size;
+        }
+
+        @Override
+        public Entity get(int index) {
+            Objects.checkIndex(index, size);
+            return elements[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            for (int i = 0; i < size; i++) {
+                if (Objects.equals(o, elements[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return indexOf(o) >= 0;
+        }
+
+        private Object writeReplace() {
+            return new ArrayList<>(this);
+        }
+    }
+}
@@ -237,6 +237,12 @@ public class FighterSquadron extends Aero {
                 .mapToInt(ent -> ((IAero) ent).getClusterMods()).sum();
     }
 
+    @Override
+    protected boolean cacheBattleValue() {
+        // The fighters cache their own BV; the squadron can't see changes to them
+        return false;
+    }
+
     @Override
     public int doBattleValueCalculation(boolean ignoreC3, boolean ignoreSkill) {
         int bv = 0;
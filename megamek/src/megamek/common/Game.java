@@ -37,6 +37,8 @@ import org.apache.logging.log4j.LogManager;
 import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 /**
@@ -61,8 +63,14 @@ public class Game implements Serializable {
 
     private Board board = new Board();
 
-    private final List<Entity> entities = new CopyOnWriteArrayList<>();
-    private Hashtable<Integer, Entity> entityIds = new Hashtable<>();
+    private EntityStore entityStore = new EntityStore();
+
+    /**
+     * The entity list and ID table of save games written before the {@link EntityStore}. They are
+     * only read to convert such save games, see {@link #readResolve()}, and are null otherwise.
+     */
+    private List<Entity> entities;
+    private Hashtable<Integer, Entity> entityIds;
 
     /**
      * Track entities removed from the game (probably by death)
@@ -76,6 +84,19 @@ public class Game implements Serializable {
 
     private final Map<Coords, HashSet<Integer>> entityPosLookup = new HashMap<>();
 
+    /** Answers radius and nearest-entity queries; built on first use */
+    private transient EntitySpatialIndex spatialIndex;
+
+    /**
+     * The E(C)CM fields of the units; built on first use and dropped when they may have changed,
+     * which increases the version
+     */
+    private transient volatile ECMFieldMap ecmFieldMap;
+    private transient AtomicInteger ecmFieldVersion = new AtomicInteger();
+
+    /** The E(C)CM field map of the list of E(C)CM fields last given to getECMFieldMap */
+    private transient volatile ECMFieldMap givenECMFieldMap;
+
     /**
      * have the entities been deployed?
      */
@@ -171,6 +192,23 @@ public class Game implements Serializable {
         // empty
     }
 
+    /**
+     * Restores the transient state and moves the entities of save games written before the
+     * {@link EntityStore} into one.
+     */
+    private Object readResolve() {
+        ecmFieldVersion = new AtomicInteger();
+        if (entityStore == null) {
+            entityStore = new EntityStore();
+            if (entities != null) {
+                entityStore.setAll(entities);
+            }
+            entities = null;
+            entityIds = null;
+        }
+        return this;
+    }
+
     // Added public accessors for external game id
     public int getExternalGameId() {
         return externalGameId;
@@ -196,6 +234,7 @@ public class Game implements Serializable {
 
     public void setBoardDirect(final Board board) {
         this.board = board;
+        invalidateECMFieldMap();
     }
 
     public boolean containsMinefield(Coords coords) {
@@ -339,6 +378,7 @@ public class Game implements Serializable {
             LogManager.getLogger().error("Can't set the game options to null!");
         } else {
             this.options = options;
+            invalidateECMFieldMap();
             processGameEvent(new GameSettingsChangeEvent(this));
         }
     }
@@ -501,7 +541,7 @@ public class Game implements Serializable {
      */
     public int getEntitiesOwnedBy(Player player) {
         int count = 0;
-        for (Entity entity : entities) {
+        for (Entity entity : entityStore) {
             if ((entity != null) && player.equals(entity.getOwner())) {
                 count++;
             }
@@ -515,7 +555,7 @@ public class Game implements Serializable {
      */
     public int getAllEntitiesOwnedBy(Player player) {
         int count = 0;
-        for (Entity entity : entities) {
+        for (Entity entity : entityStore) {
             if (entity.getOwner().equals(player)) {
                 count++;
             }
@@ -533,7 +573,7 @@ public class Game implements Serializable {
      */
     public int getLiveEntitiesOwnedBy(Player player) {
         int count = 0;
-        for (Entity entity : entities) {
+        for (Entity entity : entityStore) {
             if (entity.getOwner().equals(player) && !entity.isDestroyed()
                     && !entity.isCarcass()) {
                 count++;
@@ -548,7 +588,7 @@ public class Game implements Serializable {
      */
     public int getLiveDeployedEntitiesOwnedBy(Player player) {
         int count = 0;
-        for (Entity entity : entities) {
+        for (Entity entity : entityStore) {
             if (entity.getOwner().equals(player) && !entity.isDestroyed()
                 && !entity.isCarcass()
                 && !entity.isOffBoard() && !entity.isCaptured()) {
@@ -564,7 +604,7 @@ public class Game implements Serializable {
      */
     public int getLiveCommandersOwnedBy(Player player) {
         int count = 0;
-        for (Entity entity : entities) {
+        for (Entity entity : entityStore) {
             if (entity.getOwner().equals(player) && !entity.isDestroyed()
                     && !entity.isCarcass()
                     && entity.isCommander() && !entity.isOffBoard()
@@ -579,7 +619,7 @@ public class Game implements Serializable {
      * @return true if the player has a valid unit with the Tactical Genius pilot special ability.
      */
     public boolean hasTacticalGenius(Player player) {
-        for (Entity entity : entities) {
+        for (Entity entity : entityStore) {
             if (entity.hasAbility(OptionsConstants.MISC_TACTICAL_GENIUS)
                     && entity.getOwner().equals(player) && !entity.isDestroyed() && entity.isDeployed()
                     && !entity.isCarcass() && !entity.getCrew().isUnconscious()) {
@@ -598,7 +638,7 @@ public class Game implements Serializable {
 
         boolean friendlyFire = getOptions().booleanOption(OptionsConstants.BASE_FRIENDLY_FIRE);
 
-        for (Entity otherEntity : entities) {
+        for (Entity otherEntity : entityStore) {
             // Even if friendly fire is acceptable, do not shoot yourself
             // Enemy units not on the board can not be shot.
             if ((otherEntity.getPosition() != null)
@@ -747,6 +787,7 @@ public class Game implements Serializable {
     public void setPhase(GamePhase phase) {
         final GamePhase oldPhase = this.phase;
         this.phase = phase;
+        invalidateECMFieldMap();
         // Handle phase-specific items.
         switch (phase) {
             case LOUNGE:
@@ -800,7 +841,7 @@ public class Game implements Serializable {
     public void setupRoundDeployment() {
         deploymentTable = new Hashtable<>();
 
-        for (Entity ent : entities) {
+        for (Entity ent : entityStore) {
             if (ent.isDeployed()) {
                 continue;
             }
@@ -864,7 +905,7 @@ public class Game implements Serializable {
      * @return an enumeration of all the entities in the game.
      */
     public Iterator<Entity> getEntities() {
-        return entities.iterator();
+        return entityStore.iterator();
     }
 
     /**
@@ -873,6 +914,7 @@ public class Game implements Serializable {
      * to the end of the list if necessary, returning null if there are no entities.
      */
     public @Nullable Entity getPreviousEntityFromList(final @Nullable Entity current) {
+        final List<Entity> entities = entityStore.snapshot();
         if ((current != null) && entities.contains(current)) {
             int prev = entities.indexOf(current) - 1;
             if (prev < 0) {
@@ -889,6 +931,7 @@ public class Game implements Serializable {
      * the beginning of the list if necessary, returning null if there are no entities.
      */
     public @Nullable Entity getNextEntityFromList(final @Nullable Entity current) {
+        final List<Entity> entities = entityStore.snapshot();
         if ((current != null) && entities.contains(current)) {
             int next = entities.indexOf(current) + 1;
             if (next >= entities.size()) {
@@ -900,16 +943,17 @@ public class Game implements Serializable {
     }
 
     /**
-     * @return the actual vector for the entities
+     * @return the entities of the game as they are now. The list is unmodifiable and does not
+     * change when entities are added or removed later, so it can be iterated while the game
+     * changes.
      */
     public List<Entity> getEntitiesVector() {
-        return Collections.unmodifiableList(entities);
+        return entityStore.snapshot();
     }
 
     public synchronized void setEntitiesVector(List<Entity> entities) {
         // checkPositionCacheConsistency();
-        this.entities.clear();
-        this.entities.addAll(entities);
+        entityStore.setAll(entities);
         reindexEntities();
         resetEntityPositionLookup();
         processGameEvent(new GameEntityNewEvent(this, entities));
@@ -987,7 +1031,7 @@ public class Game implements Serializable {
 
             // Walk throught the entities in the game, and add all
             // members of the C3 network to the output Vector.
-            for (Entity unit : entities) {
+            for (Entity unit : entityStore) {
                 if (entity.equals(unit) || entity.onSameC3NetworkAs(unit)) {
                     members.addElement(unit);
                 }
@@ -1029,7 +1073,7 @@ public class Game implements Serializable {
 
             // Walk throught the entities in the game, and add all
             // sub-members of the C3 network to the output Vector.
-            for (Entity unit : entities) {
+            for (Entity unit : entityStore) {
                 if (entity.equals(unit) || unit.C3MasterIs(entity)) {
                     members.addElement(unit);
                 }
@@ -1055,7 +1099,7 @@ public class Game implements Serializable {
         Vector<Entity> atPos;
 
         // Walk through the entities in this game.
-        for (Entity entity : entities) {
+        for (Entity entity : entityStore) {
             // Get the vector for this entity's position.
             final Coords coords = entity.getPosition();
             if (coords != null) {
@@ -1150,7 +1194,7 @@ public class Game implements Serializable {
     public Enumeration<Entity> getCarcassEntities() {
         Vector<Entity> carcasses = new Vector<>();
         
-        for (Entity entity : entities) {
+        for (Entity entity : entityStore) {
             if (entity.isCarcass()) {
                 carcasses.addElement(entity);
             }
@@ -1163,7 +1207,7 @@ public class Game implements Serializable {
      * Return the current number of entities in the game.
      */
     public int getNoOfEntities() {
-        return entities.size();
+        return entityStore.size();
     }
 
     /**
@@ -1212,7 +1256,7 @@ public class Game implements Serializable {
      * Returns the entity with the given id number, if any.
      */
     public @Nullable Entity getEntity(final int id) {
-        return entityIds.get(id);
+        return entityStore.getById(id);
     }
 
     /**
@@ -1300,14 +1344,11 @@ public class Game implements Serializable {
         }
         // Add this Entity, ensuring that it's id is unique
         int id = entity.getId();
-        if (!entityIds.containsKey(id)) {
-            entityIds.put(id, entity);
-        } else {
+        if (entityStore.containsId(id)) {
             id = getNextEntityId();
             entity.setId(id);
-            entityIds.put(id, entity);
         }
-        entities.add(entity);
+        entityStore.add(entity);
         updateEntityPositionLookup(entity, null);
 
         if (id > lastEntityId) {
@@ -1324,7 +1365,7 @@ public class Game implements Serializable {
             ((Mech) entity).setCondEjectHeadshot(true);
         }
 
-        assert (entities.size() == entityIds.size()) : "Add Entity failed";
+        assert (entityStore.size() == entityStore.idCount()) : "Add Entity failed";
         if (genEvent) {
             entity.setInitialBV(entity.calculateBattleValue(false, false));
             processGameEvent(new GameEntityNewEvent(this, entity));
@@ -1341,8 +1382,7 @@ public class Game implements Serializable {
             addEntity(entity);
         } else {
             entity.setGame(this);
-            entities.set(entities.indexOf(oldEntity), entity);
-            entityIds.put(id, entity);
+            entityStore.replace(id, entity);
             // Get the collection of positions
             HashSet<Coords> oldPositions = oldEntity.getOccupiedCoords();
             // Update position lookup table
@@ -1356,7 +1396,7 @@ public class Game implements Serializable {
             processGameEvent(
                     new GameEntityChangeEvent(this, entity, movePath, oldEntity));
         }
-        assert (entities.size() == entityIds.size()) : "Set Entity Failed";
+        assert (entityStore.size() == entityStore.idCount()) : "Set Entity Failed";
     }
 
     /**
@@ -1370,7 +1410,7 @@ public class Game implements Serializable {
      * @return <code>true</code> if an entity with the specified id number exists in this game.
      */
     public boolean hasEntity(int entityId) {
-        return entityIds.containsKey(entityId);
+        return entityStore.containsId(entityId);
     }
 
     /**
@@ -1380,14 +1420,11 @@ public class Game implements Serializable {
     public synchronized void removeEntity(int id, int condition) {
         // always attempt to remove the entity with this ID from the entities collection
         // as it may have gotten stuck there.
-        entities.removeIf(ent -> (ent.getId() == id));
-        
-        Entity toRemove = getEntity(id);
+        Entity toRemove = entityStore.remove(id);
         if (toRemove == null) {
             return;
         }
 
-        entityIds.remove(id);
         removeEntityPositionLookup(toRemove);
 
         toRemove.setRemovalCondition(condition);
@@ -1432,9 +1469,10 @@ public class Game implements Serializable {
 
         roundCount = 0;
 
-        entities.clear();
-        entityIds.clear();
+        entityStore.clear();
         entityPosLookup.clear();
+        spatialIndex = null;
+        invalidateECMFieldMap();
 
         vOutOfGame.removeAllElements();
 
@@ -1471,26 +1509,22 @@ public class Game implements Serializable {
     }
 
     /**
-     * Regenerates the entities by id hashtable by going thru all entities in
-     * the Vector
+     * Finds the highest entity id and gives all entities the reference to
+     * this game, after the entities have been replaced
      */
     private void reindexEntities() {
-        entityIds.clear();
         lastEntityId = 0;
 
-        // Add these entities to the game.
-        for (Entity entity : entities) {
+        for (Entity entity : entityStore) {
             final int id = entity.getId();
-            entityIds.put(id, entity);
-
             if (id > lastEntityId) {
                 lastEntityId = id;
             }
         }
         // We need to ensure that each entity has the proper Game reference
-        // however, the entityIds Hashmap must be fully formed before this
+        // however, the entity store must be fully formed before this
         // is called, since setGame also calls setGame for loaded Entities
-        for (Entity entity : entities) {
+        for (Entity entity : entityStore) {
             entity.setGame(this);
         }
     }
@@ -1502,7 +1536,7 @@ public class Game implements Serializable {
      * @param c the coordinates to search at
      */
     public Entity getFirstEntity(Coords c) {
-        for (Entity entity : entities) {
+        for (Entity entity : entityStore) {
             if (c.equals(entity.getPosition()) && entity.isTargetable()) {
                 return entity;
             }
@@ -1518,7 +1552,7 @@ public class Game implements Serializable {
      * @param currentEntity the entity that is firing
      */
     public Entity getFirstEnemyEntity(Coords c, Entity currentEntity) {
-        for (Entity entity : entities) {
+        for (Entity entity : entityStore) {
             if (c.equals(entity.getPosition()) && entity.isTargetable()
                 && entity.isEnemyOf(currentEntity)) {
                 return entity;
@@ -1562,36 +1596,136 @@ public class Game implements Serializable {
     public synchronized List<Entity> getEntitiesVector(Coords c, boolean ignore) {
         // checkPositionCacheConsistency();
         // Make sure the look-up is initialized
-        if (entityPosLookup.isEmpty() && !entities.isEmpty()) {
+        if (entityPosLookup.isEmpty() && !entityStore.isEmpty()) {
             resetEntityPositionLookup();
         }
         Set<Integer> posEntities = entityPosLookup.get(c);
-        List<Entity> vector = new ArrayList<>();
-        if (posEntities != null) {
-            for (Integer eId : posEntities) {
-                Entity e = getEntity(eId);
-                
-                // if the entity with the given ID doesn't exist, we will update the lookup table
-                // and move on
-                if (e == null) {
-                    posEntities.remove(eId);
-                    continue;
-                }
-                
-                if (e.isTargetable() || ignore) {
-                    vector.add(e);
-
-                    // Sanity check
-                    HashSet<Coords> positions = e.getOccupiedCoords();
-                    if (!positions.contains(c)) {
-                        LogManager.getLogger().error(e.getDisplayName() + " is not in " + c + "!");
-                    }
+        if ((posEntities == null) || posEntities.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Entity> vector = new ArrayList<>(posEntities.size());
+        for (Iterator<Integer> iterator = posEntities.iterator(); iterator.hasNext(); ) {
+            Entity e = getEntity(iterator.next());
+
+            // if the entity with the given ID doesn't exist, we will update the lookup table
+            // and move on
+            if (e == null) {
+                iterator.remove();
+                continue;
+            }
+
+            if (e.isTargetable() || ignore) {
+                vector.add(e);
+
+                // Sanity check; only multi-hex units need their occupied hexes collected
+                if (!c.equals(e.getPosition()) && !e.getOccupiedCoords().contains(c)) {
+                    LogManager.getLogger().error(e.getDisplayName() + " is not in " + c + "!");
                 }
             }
         }
         return Collections.unmodifiableList(vector);
     }
-    
+
+    /**
+     * Returns the entities whose position is at most the given distance from the given hex,
+     * ordered by ID. Only the part of the board within that distance is searched.
+     *
+     * @param center the hex to measure from
+     * @param distance the largest distance to include
+     * @param filter accepts the entities to return, may be null to return all
+     * @return the matching entities
+     */
+    public synchronized List<Entity> getEntitiesWithin(Coords center, int distance,
+                                                       @Nullable Predicate<Entity> filter) {
+        List<Integer> ids = new ArrayList<>();
+        getSpatialIndex().collectWithin(center, distance, ids);
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Collections.sort(ids);
+        List<Entity> result = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            Entity entity = getEntity(id);
+            if ((entity != null) && ((filter == null) || filter.test(entity))) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the entity closest to the given hex that the filter accepts, for example the
+     * closest enemy of a unit. Of several entities at the same distance, the one with the lowest
+     * ID is returned. The board is searched outwards from the given hex, so that the search
+     * usually ends long before all entities have been looked at.
+     *
+     * @param center the hex to measure from
+     * @param maxDistance the largest distance to search
+     * @param filter accepts the entities that may be returned
+     * @return the closest accepted entity, or null if there is none within the distance
+     */
+    public synchronized @Nullable Entity getClosestEntity(Coords center, int maxDistance,
+                                                          Predicate<Entity> filter) {
+        int id = getSpatialIndex().findClosest(center, maxDistance, entityId -> {
+            Entity entity = getEntity(entityId);
+            return (entity != null) && filter.test(entity);
+        });
+        return (id == Entity.NONE) ? null : getEntity(id);
+    }
+
+    /**
+     * Returns the map of E(C)CM fields over the board. Without a list of E(C)CM fields, the map of
+     * all fields of the units in the game is returned. It is kept until units move, change modes
+     * or lose equipment, or the phase ends.
+     *
+     * @param ecmInfo the E(C)CM fields to map, or null for those of all units
+     * @return the map of the fields
+     * @see ComputeECM#computeAllEntitiesECMInfo(List)
+     */
+    public ECMFieldMap getECMFieldMap(@Nullable List<ECMInfo> ecmInfo) {
+        ECMFieldMap map;
+        if (ecmInfo != null) {
+            map = ecmFieldMap;
+            if ((map != null) && map.isBuiltFrom(ecmInfo)) {
+                return map;
+            }
+            map = givenECMFieldMap;
+            if ((map == null) || !map.isBuiltFrom(ecmInfo)) {
+                map = new ECMFieldMap(ecmInfo, board);
+                givenECMFieldMap = map;
+            }
+            return map;
+        }
+        int version = ecmFieldVersion.get();
+        map = ecmFieldMap;
+        if ((map == null) || (map.gameVersion != version)) {
+            map = new ECMFieldMap(ComputeECM.computeAllEntitiesECMInfo(getEntitiesVector()), board);
+            map.gameVersion = version;
+            ecmFieldMap = map;
+        }
+        return map;
+    }
+
+    /**
+     * Drops the map of E(C)CM fields, as units have moved, changed the mode of their equipment or
+     * anything else that may change the E(C)CM fields.
+     */
+    public void invalidateECMFieldMap() {
+        ecmFieldVersion.incrementAndGet();
+    }
+
+    private EntitySpatialIndex getSpatialIndex() {
+        if (spatialIndex == null) {
+            spatialIndex = new EntitySpatialIndex();
+            for (Entity entity : entityStore) {
+                if (entity.getPosition() != null) {
+                    spatialIndex.update(entity.getId(), entity.getPosition());
+                }
+            }
+        }
+        return spatialIndex;
+    }
+
     /**
      * Convenience function that gets a list of all off-board enemy entities.
      * @param player
@@ -1599,7 +1733,7 @@ public class Game implements Serializable {
      */
     public synchronized List<Entity> getAllOffboardEnemyEntities(Player player) {
         List<Entity> vector = new ArrayList<>();
-        for (Entity e : entities) {
+        for (Entity e : entityStore) {
             if (e.getOwner().isEnemyOf(player) && e.isOffBoard() && !e.isDestroyed() && e.isDeployed()) {
                 vector.add(e);
             }
@@ -1784,7 +1918,7 @@ public class Game implements Serializable {
             return -1;
         }
 
-        for (Entity entity : entities) {
+        for (Entity entity : entityStore) {
             if (turn.isValidEntity(entity, this)) {
                 return entity.getId();
             }
@@ -1798,6 +1932,7 @@ public class Game implements Serializable {
      * @return the next selectable entity that can act this turn, or null if none can.
      */
     public @Nullable Entity getNextEntity(int start) {
+        final List<Entity> entities = entityStore.snapshot();
         if (entities.isEmpty()) {
             return null;
         }
@@ -1816,8 +1951,9 @@ public class Game implements Serializable {
         if (turn == null) {
             return Entity.NONE;
         }
+        final List<Entity> entities = entityStore.snapshot();
         boolean hasLooped = false;
-        int i = (entities.indexOf(entityIds.get(start)) + 1) % entities.size();
+        int i = (entities.indexOf(getEntity(start)) + 1) % entities.size();
         if (i == -1) {
             //This means we were given an invalid entity ID, punt
             return Entity.NONE;
@@ -1844,8 +1980,9 @@ public class Game implements Serializable {
      * @return the entity id of the previous entity that can move during the specified turn
      */
     public int getPrevEntityNum(GameTurn turn, int start) {
+        final List<Entity> entities = entityStore.snapshot();
         boolean hasLooped = false;
-        int i = (entities.indexOf(entityIds.get(start)) - 1) % entities.size();
+        int i = (entities.indexOf(getEntity(start)) - 1) % entities.size();
         if (i == -2) {
             //This means we were given an invalid entity ID, punt
             return -1;
@@ -1879,7 +2016,7 @@ public class Game implements Serializable {
         if (turn == null) {
             return -1;
         }
-        for (Entity entity : entities) {
+        for (Entity entity : entityStore) {
             if (turn.isValidEntity(entity, this) && entity.shouldDeploy(getRoundCount())) {
                 return entity.getId();
             }
@@ -1892,6 +2029,7 @@ public class Game implements Serializable {
      */
     public int getNextDeployableEntityNum(GameTurn turn, int start) {
         if (start >= 0) {
+            final List<Entity> entities = entityStore.snapshot();
             for (int i = start; i < entities.size(); i++) {
                 final Entity entity = entities.get(i);
                 if (turn.isValidEntity(entity, this) && entity.shouldDeploy(getRoundCount())) {
@@ -1911,7 +2049,7 @@ public class Game implements Serializable {
      */
     public ArrayList<Entity> getPlayerEntities(Player player, boolean hide) {
         ArrayList<Entity> output = new ArrayList<>();
-        for (Entity entity : entities) {
+        for (Entity entity : entityStore) {
             if (entity.isPartOfFighterSquadron() && hide) {
                 continue;
             }
@@ -1931,7 +2069,7 @@ public class Game implements Serializable {
      */
     public ArrayList<Integer> getPlayerEntityIds(Player player, boolean hide) {
         ArrayList<Integer> output = new ArrayList<>();
-        for (Entity entity : entities) {
+        for (Entity entity : entityStore) {
             if (entity.isPartOfFighterSquadron() && hide) {
                 continue;
             }
@@ -1980,7 +2118,7 @@ public class Game implements Serializable {
         Player player = getPlayer(playerId);
         int remaining = 0;
 
-        for (Entity entity : entities) {
+        for (Entity entity : entityStore) {
             if (player.equals(entity.getOwner()) && entity.isSelectableThisTurn()
                     && (entity instanceof Infantry)) {
                 remaining++;
@@ -1998,7 +2136,7 @@ public class Game implements Serializable {
         Player player = getPlayer(playerId);
         int remaining = 0;
 
-        for (Entity entity : entities) {
+        for (Entity entity : entityStore) {
             if (player.equals(entity.getOwner()) && entity.isSelectableThisTurn()
                     && (entity instanceof Protomech)) {
                 remaining++;
@@ -2016,7 +2154,7 @@ public class Game implements Serializable {
         Player player = getPlayer(playerId);
         int remaining = 0;
 
-        for (Entity entity : entities) {
+        for (Entity entity : entityStore) {
             if (player.equals(entity.getOwner()) && entity.isSelectableThisTurn()
                     && (entity instanceof Tank)) {
                 remaining++;
@@ -2034,7 +2172,7 @@ public class Game implements Serializable {
         Player player = getPlayer(playerId);
         int remaining = 0;
 
-        for (Entity entity : entities) {
+        for (Entity entity : entityStore) {
             if (player.equals(entity.getOwner()) && entity.isSelectableThisTurn()
                     && (entity instanceof Mech)) {
                 remaining++;
@@ -2287,8 +2425,7 @@ public class Game implements Serializable {
     public void rollInitAndResolveTies() {
         if (getOptions().booleanOption(OptionsConstants.RPG_INDIVIDUAL_INITIATIVE)) {
             Vector<TurnOrdered> vRerolls = new Vector<>();
-            for (int i = 0; i < entities.size(); i++) {
-                Entity e = entities.get(i);
+            for (Entity e : entityStore) {
                 if (initiativeRerollRequests.contains(getTeamForPlayer(e.getOwner()))) {
                     vRerolls.add(e);
                 }
@@ -3319,6 +3456,7 @@ public class Game implements Serializable {
 
     public void addSmokeCloud(SmokeCloud cloud) {
         smokeCloudList.add(cloud);
+        invalidateECMFieldMap();
     }
 
     public List<SmokeCloud> getSmokeCloudList() {
@@ -3329,6 +3467,7 @@ public class Game implements Serializable {
         for (SmokeCloud cloud : cloudsToRemove) {
             smokeCloudList.remove(cloud);
         }
+        invalidateECMFieldMap();
     }
 
     /**
@@ -3339,6 +3478,10 @@ public class Game implements Serializable {
      */
     public synchronized void updateEntityPositionLookup(Entity e,
             HashSet<Coords> oldPositions) {
+        invalidateECMFieldMap();
+        if (spatialIndex != null) {
+            spatialIndex.update(e.getId(), e.getPosition());
+        }
         HashSet<Coords> newPositions = e.getOccupiedCoords();
         // Check to see that the position has actually changed
         if (newPositions.equals(oldPositions)) {
@@ -3369,6 +3512,10 @@ public class Game implements Serializable {
     }
 
     private void removeEntityPositionLookup(Entity e) {
+        invalidateECMFieldMap();
+        if (spatialIndex != null) {
+            spatialIndex.remove(e.getId());
+        }
         // Remove Entity from cache
         for (Coords pos : e.getOccupiedCoords()) {
             HashSet<Integer> posEntities = entityPosLookup.get(pos);
@@ -3380,7 +3527,9 @@ public class Game implements Serializable {
 
     private void resetEntityPositionLookup() {
         entityPosLookup.clear();
-        for (Entity e : entities) {
+        spatialIndex = null;
+        invalidateECMFieldMap();
+        for (Entity e : entityStore) {
             updateEntityPositionLookup(e, null);
         }
     }
@@ -3407,7 +3556,7 @@ public class Game implements Serializable {
         List<Integer> entitiesInVector = new ArrayList<>();
         int entitiesInCacheCount = countEntitiesInCache(entitiesInCache);
         int entityVectorSize = 0;
-        for (Entity e : entities) {
+        for (Entity e : entityStore) {
             if (e.getPosition() != null) {
                 entityVectorSize++;
                 entitiesInVector.add(e.getId());
@@ -3418,8 +3567,8 @@ public class Game implements Serializable {
         if ((entitiesInCacheCount != entityVectorSize) && !getPhase().isDeployment()
                 && !getPhase().isExchange() && !getPhase().isLounge()
                 && !getPhase().isInitiativeReport() && !getPhase().isInitiative()) {
-            LogManager.getLogger().warn("Entities vector has " + entities.size()
-                    + " but pos lookup cache has " + entitiesInCache.size() + "entities!");
+            LogManager.getLogger().warn("Entities vector has " + entityStore.size()
+                    + " but pos lookup cache has " + entitiesInCache.size() + " entities!");
             List<Integer> missingIds = new ArrayList<>();
             for (Integer id : entitiesInVector) {
                 if (!entitiesInCache.contains(id)) {
@@ -3428,7 +3577,7 @@ public class Game implements Serializable {
             }
             LogManager.getLogger().info("Missing ids: " + missingIds);
         }
-        for (Entity e : entities) {
+        for (Entity e : entityStore) {
             HashSet<Coords> positions = e.getOccupiedCoords();
             for (Coords c : positions) {
                 HashSet<Integer> ents = entityPosLookup.get(c);
@@ -17,9 +17,9 @@ import megamek.common.annotations.Nullable;
 import megamek.common.enums.BasementType;
 
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Hex represents a single hex on the board.
@@ -30,10 +30,35 @@ public class Hex implements Serializable {
     private static final long serialVersionUID = 82483704768044698L;
     private Coords coords;
     private int level;
-    private Map<Integer, Terrain> terrains = new HashMap<>(1);
+
+    /**
+     * The terrains of this hex ordered by type, without empty slots. Hexes rarely have more than a
+     * few terrains, so this takes much less memory than a map and is searched as quickly.
+     */
+    private Terrain[] terrainsByType = NO_TERRAINS;
+
+    /** Has the bit 1 << type set for each terrain type below 64 in {@link #terrainsByType} */
+    private transient long terrainTypeMask;
+
+    /**
+     * The terrains of save games written before {@link #terrainsByType}. They are only read to
+     * convert such save games, see {@link #readResolve()}, and are null otherwise.
+     */
+    private Map<Integer, Terrain> terrains;
+
     private String theme;
     private String originalTheme;
     private int fireTurn;
+
+    /**
+     * Changes whenever the terrains of this hex change, see {@link #getTerrainVersion()}; 0 until
+     * first asked for
+     */
+    private transient volatile int terrainVersion;
+
+    private static final AtomicInteger TERRAIN_VERSIONS = new AtomicInteger();
+
+    private static final Terrain[] NO_TERRAINS = new Terrain[0];
     //endregion Variable Declarations
 
     //region Constructors
@@ -48,7 +73,7 @@ public class Hex implements Serializable {
      * Constructs a clean, plain hex at specified level.
      */
     public Hex(int level) {
-        this(level, new Terrain[Terrains.SIZE], null, new Coords(0, 0));
+        this(level, NO_TERRAINS, null, new Coords(0, 0));
     }
 
     public Hex(int level, Terrain[] terrains, String theme) {
@@ -61,10 +86,7 @@ public class Hex implements Serializable {
     public Hex(int level, Terrain[] terrains, String theme, Coords c) {
         this.level = level;
         coords = c;
-        for (final Terrain t : terrains) {
-            if (t != null)
-                this.terrains.put(t.getType(), t);
-        }
+        setTerrains(terrains);
 
         if ((theme == null) || (theme.length() > 0)) {
             this.theme = theme;
@@ -82,13 +104,103 @@ public class Hex implements Serializable {
      * Constructs a Hex from a combined string terrains format
      */
     public Hex(int level, String terrain, String theme, Coords c) {
-        this(level, new Terrain[Terrains.SIZE], theme, c);
-        for (StringTokenizer st = new StringTokenizer(terrain, ";", false); st.hasMoreTokens();) {
-            addTerrain(new Terrain(st.nextToken()));
+        this(level, parseTerrains(terrain), theme, c);
+    }
+
+    /**
+     * Parses the terrains of the combined string terrains format, e.g. "woods:1;foliage_elev:2".
+     */
+    private static Terrain[] parseTerrains(String terrain) {
+        Terrain[] parsed = new Terrain[terrain.isEmpty() ? 0 : 1];
+        int count = 0;
+        int start = 0;
+        while (start < terrain.length()) {
+            int end = terrain.indexOf(';', start);
+            if (end < 0) {
+                end = terrain.length();
+            }
+            if (end > start) {
+                if (count == parsed.length) {
+                    parsed = Arrays.copyOf(parsed, count * 2);
+                }
+                parsed[count++] = new Terrain(terrain.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return parsed;
+    }
+
+    /**
+     * Restores the transient state and moves the terrains of save games written before
+     * {@link #terrainsByType} into it.
+     */
+    private Object readResolve() {
+        if (terrains != null) {
+            setTerrains(terrains.values().toArray(NO_TERRAINS));
+            terrains = null;
+        } else {
+            setTerrains((terrainsByType == null) ? NO_TERRAINS : terrainsByType);
         }
+        return this;
     }
     //endregion Constructors
 
+    /**
+     * Replaces the terrains of this hex. Null entries are skipped; of several terrains of the same
+     * type, the last one is kept.
+     */
+    private void setTerrains(Terrain[] given) {
+        Terrain[] sorted = new Terrain[given.length];
+        int count = 0;
+        for (Terrain terrain : given) {
+            if (terrain == null) {
+                continue;
+            }
+            int index = count;
+            while ((index > 0) && (sorted[index - 1].getType() >= terrain.getType())) {
+                index--;
+            }
+            if ((index < count) && (sorted[index].getType() == terrain.getType())) {
+                sorted[index] = terrain;
+            } else {
+                System.arraycopy(sorted, index, sorted, index + 1, count - index);
+                sorted[index] = terrain;
+                count++;
+            }
+        }
+        long mask = 0;
+        for (int i = 0; i < count; i++) {
+            mask |= maskOf(sorted[i].getType());
+        }
+        terrainTypeMask = mask;
+        terrainsByType = (count == 0) ? NO_TERRAINS : Arrays.copyOf(sorted, count);
+        terrainVersion = 0;
+    }
+
+    /**
+     * @return the bit of the given terrain type in {@link #terrainTypeMask}, 0 if it has none
+     */
+    private static long maskOf(int type) {
+        return ((type >= 0) && (type < Long.SIZE)) ? (1L << type) : 0;
+    }
+
+    /**
+     * @return the index of the terrain of the given type in the given terrains of this hex, -1 if
+     * there is none
+     */
+    private int indexOf(Terrain[] current, int type) {
+        long mask = maskOf(type);
+        if ((mask != 0) && ((terrainTypeMask & mask) == 0)) {
+            return -1;
+        }
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].getType() == type) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     //region Getters/Setters
     /**
      * @return The level of a hex, as defined in TW. This refers to the height of the ground terrain.
@@ -118,7 +230,12 @@ public class Hex implements Serializable {
      * @return An array that contains an id for each terrain present in this hex.
      */
     public int[] getTerrainTypes() {
-        return terrains.keySet().stream().mapToInt(Integer::intValue).toArray();
+        Terrain[] current = terrainsByType;
+        int[] types = new int[current.length];
+        for (int i = 0; i < current.length; i++) {
+            types[i] = current[i].getType();
+        }
+        return types;
     }
 
     /**
@@ -132,9 +249,8 @@ public class Hex implements Serializable {
      * Clears the "exits" flag for all terrains in the hex where it is not manually specified.
      */
     public void clearExits() {
-        for (Integer i : terrains.keySet()) {
-            Terrain t = terrains.get(i);
-            if ((t != null) && !t.hasExitsSpecified()) {
+        for (final Terrain t : terrainsByType) {
+            if (!t.hasExitsSpecified()) {
                 t.setExits(0);
             }
         }
@@ -165,16 +281,15 @@ public class Hex implements Serializable {
      * @see Hex#setExits(Hex, int)
      */
     public void setExits(Hex other, int direction, boolean roadsAutoExit) {
-        for (Integer i : terrains.keySet()) {
-            Terrain cTerr = getTerrain(i);
+        for (final Terrain cTerr : terrainsByType) {
             Terrain oTerr;
 
-            if ((cTerr == null) || cTerr.hasExitsSpecified()) {
+            if (cTerr.hasExitsSpecified()) {
                 continue;
             }
 
             if (other != null) {
-                oTerr = other.getTerrain(i);
+                oTerr = other.getTerrain(cTerr.getType());
             } else {
                 oTerr = null;
             }
@@ -250,8 +365,8 @@ public class Hex implements Serializable {
      */
     public boolean containsExit(int direction) {
         boolean rv = false;
-        for (Integer terrType : terrains.keySet()) {
-            rv |= containsTerrainExit(terrType, direction);
+        for (final Terrain terrain : terrainsByType) {
+            rv |= containsTerrainExit(terrain.getType(), direction);
         }
         return rv;
     }
@@ -261,8 +376,8 @@ public class Hex implements Serializable {
      */
     public boolean hasExitableTerrain() {
         boolean rv = false;
-        for (Integer terrType : terrains.keySet()) {
-            rv |= Terrains.exitableTerrain(terrType);
+        for (final Terrain terrain : terrainsByType) {
+            rv |= Terrains.exitableTerrain(terrain.getType());
         }
         return rv;
     }
@@ -295,8 +410,8 @@ public class Hex implements Serializable {
     public int maxTerrainFeatureElevation(boolean inAtmosphere) {
         int maxFeature = 0;
         int featureElev;
-        for (Integer terrainType : terrains.keySet()) {
-            featureElev = terrains.get(terrainType).getTerrainElevation(inAtmosphere);
+        for (final Terrain terrain : terrainsByType) {
+            featureElev = terrain.getTerrainElevation(inAtmosphere);
             if (featureElev > maxFeature) {
                 maxFeature = featureElev;
             }
@@ -346,8 +461,8 @@ public class Hex implements Serializable {
      * @return true if this hex has a terrain with a non-zero terrain factor
      */
     public boolean hasTerrainFactor() {
-        for (int type : terrains.keySet()) {
-            if (terrains.get(type).getTerrainFactor() > 0) {
+        for (final Terrain terrain : terrainsByType) {
+            if (terrain.getTerrainFactor() > 0) {
                 return true;
             }
         }
@@ -362,7 +477,7 @@ public class Hex implements Serializable {
      * @see Hex#containsAnyTerrainOf(int...)
      */
     public boolean containsTerrain(int type) {
-        return getTerrain(type) != null;
+        return indexOf(terrainsByType, type) >= 0;
     }
 
     /**
@@ -438,7 +553,9 @@ public class Hex implements Serializable {
      * in the hex
      */
     public @Nullable Terrain getTerrain(int type) {
-        return terrains.get(type);
+        Terrain[] current = terrainsByType;
+        int index = indexOf(current, type);
+        return (index >= 0) ? current[index] : null;
     }
 
     /**
@@ -449,12 +566,12 @@ public class Hex implements Serializable {
      */
     public @Nullable Terrain getAnyTerrainOf(int type, int... types) {
         if (containsTerrain(type)) {
-            return terrains.get(type);
+            return getTerrain(type);
         }
 
         for (int moreTypes : types) {
             if (containsTerrain(moreTypes)) {
-                return terrains.get(moreTypes);
+                return getTerrain(moreTypes);
             }
         }
 
@@ -465,21 +582,43 @@ public class Hex implements Serializable {
      * @param terrain the terrain to add to this hex
      */
     public void addTerrain(Terrain terrain) {
-        terrains.put(terrain.getType(), terrain);
+        Terrain[] current = terrainsByType;
+        int index = indexOf(current, terrain.getType());
+        if (index >= 0) {
+            Terrain[] replaced = current.clone();
+            replaced[index] = terrain;
+            terrainsByType = replaced;
+            terrainVersion = 0;
+        } else {
+            Terrain[] added = Arrays.copyOf(current, current.length + 1);
+            added[current.length] = terrain;
+            setTerrains(added);
+        }
     }
 
     /**
      * @param type the terrain type to remove
      */
     public void removeTerrain(int type) {
-        terrains.remove(type);
+        Terrain[] current = terrainsByType;
+        int index = indexOf(current, type);
+        if (index >= 0) {
+            Terrain[] removed = new Terrain[current.length - 1];
+            System.arraycopy(current, 0, removed, 0, index);
+            System.arraycopy(current, index + 1, removed, index, removed.length - index);
+            terrainsByType = (removed.length == 0) ? NO_TERRAINS : removed;
+            terrainTypeMask &= ~maskOf(type);
+        }
+        terrainVersion = 0;
     }
 
     /**
      * Removes all Terrains from the hex.
      */
     public void removeAllTerrains() {
-        terrains.clear();
+        terrainsByType = NO_TERRAINS;
+        terrainTypeMask = 0;
+        terrainVersion = 0;
     }
 
     /**
@@ -487,8 +626,8 @@ public class Hex implements Serializable {
      */
     public int displayableTerrainsPresent() {
         int present = 0;
-        for (Integer i : terrains.keySet()) {
-            if ((null != Terrains.getDisplayName(i, terrains.get(i).getLevel()))) {
+        for (final Terrain terrain : terrainsByType) {
+            if ((null != Terrains.getDisplayName(terrain.getType(), terrain.getLevel()))) {
                 present++;
             }
         }
@@ -499,7 +638,7 @@ public class Hex implements Serializable {
      * @return the number of terrain attributes present
      */
     public int terrainsPresent() {
-        return terrains.size();
+        return terrainsByType.length;
     }
 
     /**
@@ -507,9 +646,9 @@ public class Hex implements Serializable {
      * @return new hex which is equal to this
      */
     public Hex duplicate() {
-        Terrain[] tcopy = new Terrain[Terrains.SIZE];
-        for (Integer i : terrains.keySet()) {
-            tcopy[i] = new Terrain(terrains.get(i));
+        Terrain[] tcopy = new Terrain[terrainsByType.length];
+        for (int i = 0; i < tcopy.length; i++) {
+            tcopy[i] = new Terrain(terrainsByType[i]);
         }
         return new Hex(level, tcopy, theme, coords);
     }
@@ -519,8 +658,8 @@ public class Hex implements Serializable {
      */
     public void terrainPilotingModifier(EntityMovementMode moveMode, PilotingRollData roll,
                                         boolean enteringRubble) {
-        for (Integer i : terrains.keySet()) {
-            terrains.get(i).pilotingModifier(moveMode, roll, enteringRubble);
+        for (final Terrain terrain : terrainsByType) {
+            terrain.pilotingModifier(moveMode, roll, enteringRubble);
         }
     }
 
@@ -528,19 +667,45 @@ public class Hex implements Serializable {
      * @return extra movement cost for entering the hex
      */
     public int movementCost(Entity entity) {
+        return movementCost(MovementCostRaster.costClassOf(entity));
+    }
+
+    /**
+     * @param costClass the cost class of the entity, see {@link MovementCostRaster#costClassOf(Entity)}
+     * @return extra movement cost for entering the hex
+     */
+    int movementCost(int costClass) {
         int rv = 0;
-        for (final Terrain terrain : terrains.values()) {
-            rv += terrain.movementCost(entity);
+        for (final Terrain terrain : terrainsByType) {
+            rv += terrain.movementCost(costClass);
         }
         return rv;
     }
 
+    /**
+     * Returns a number that identifies the current terrains of this hex. The number changes
+     * whenever terrain is added or removed and no two hexes share a number, so that values
+     * derived from the terrains can be stored along with it and checked later.
+     *
+     * @return the terrain version of this hex
+     */
+    public int getTerrainVersion() {
+        int version = terrainVersion;
+        if (version == 0) {
+            do {
+                version = TERRAIN_VERSIONS.incrementAndGet();
+            } while (version == 0);
+            terrainVersion = version;
+        }
+        return version;
+    }
+
     /**
      * @return the modifier to the roll to ignite this hex
      */
     public int getIgnitionModifier() {
         int mod = 0;
-        for (final Terrain terrain : terrains.values()) {
+        for (final Terrain terrain : terrainsByType) {
             if (terrain != null) {
                 mod += terrain.ignitionModifier();
             }
@@ -558,8 +723,9 @@ public class Hex implements Serializable {
     }
 
     public boolean isClearForTakeoff() {
-        for (final Integer i : terrains.keySet()) {
-            if (containsTerrain(i) && (i != Terrains.PAVEMENT) && (i != Terrains.ROAD) && (i != Terrains.FLUFF)
+        for (final Terrain terrain : terrainsByType) {
+            int i = terrain.getType();
+            if ((i != Terrains.PAVEMENT) && (i != Terrains.ROAD) && (i != Terrains.FLUFF)
                     && (i != Terrains.ARMS) && (i != Terrains.LEGS) && (i != Terrains.SNOW) && (i != Terrains.MUD)
                     && (i != Terrains.SMOKE) && (i != Terrains.METAL_CONTENT)) {
                 return false;
@@ -591,7 +757,7 @@ public class Hex implements Serializable {
      */
     public int getBogDownModifier(EntityMovementMode moveMode, boolean largeVee) {
         int mod = TargetRoll.AUTOMATIC_SUCCESS;
-        for (final Terrain terrain : terrains.values()) {
+        for (final Terrain terrain : terrainsByType) {
             if ((terrain != null) && (mod < terrain.getBogDownModifier(moveMode, largeVee))) {
                 mod = terrain.getBogDownModifier(moveMode, largeVee);
             }
@@ -603,7 +769,7 @@ public class Hex implements Serializable {
      * get any modifiers to an unstuck roll in this hex.
      */
     public void getUnstuckModifier(int elev, PilotingRollData rollTarget) {
-        for (final Terrain terrain : terrains.values()) {
+        for (final Terrain terrain : terrainsByType) {
             terrain.getUnstuckModifier(elev, rollTarget);
         }
     }
@@ -669,7 +835,7 @@ public class Hex implements Serializable {
         }
         
         // Check individual terrains for validity
-        for (final Terrain terrain : terrains.values()) {
+        for (final Terrain terrain : terrainsByType) {
             if (terrain == null) {
                 valid = false;
                 errBuff.append("Hex contains a null terrain!\n");
@@ -763,7 +929,7 @@ public class Hex implements Serializable {
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder("Level: ").append(getLevel()).append("  Features: ");
-        for (final Terrain terrain : terrains.values()) {
+        for (final Terrain terrain : terrainsByType) {
             if (terrain != null) {
                 switch (terrain.getType()) {
                     case Terrains.WOODS:
@@ -28,15 +28,30 @@ import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
-import javax.xml.parsers.DocumentBuilder;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Class for reading in and parsing MUL XML files. The MUL xsl is defined in
  * the docs directory.
+ * <p>
+ * Files and streams are read with StAX, one element at a time: only the element of the current
+ * entity is kept in memory, and the unit files of the entities are loaded from the
+ * {@link MechSummaryCache} in parallel while the file is read. Entities are still added to their
+ * lists in file order, and can be handed to a consumer as soon as each one is complete.
  *
  * @author arlith
  */
@@ -266,11 +281,50 @@ public class MULParser {
 
     StringBuffer warning;
 
+    /**
+     * Receives every entity as soon as it has been parsed, may be null
+     */
+    private final Consumer<Entity> entityConsumer;
+
+    /**
+     * Loads the unit files of entities in parallel while a file is read, shared by all parsers.
+     * Null on too few processors, in which case the unit files are loaded as each tag is read.
+     */
+    private static final ExecutorService ENTITY_LOADER = createEntityLoader();
+
+    /**
+     * Entities whose unit files are being loaded, in file order
+     */
+    private final Deque<PendingEntity> pendingEntities = new ArrayDeque<>();
+
+    /**
+     * The document the elements read from a stream are built in
+     */
+    private Document document;
+
+    /**
+     * An entity tag read from a stream, waiting for its unit file to be loaded
+     */
+    private static class PendingEntity {
+        final Element element;
+        final Vector<Entity> list;
+        final Future<Entity> entity;
+        final StringBuffer warning;
+
+        PendingEntity(Element element, Vector<Entity> list, Future<Entity> entity, StringBuffer warning) {
+            this.element = element;
+            this.list = list;
+            this.entity = entity;
+            this.warning = warning;
+        }
+    }
+
     //region Constructors
     /**
      * This initializes all the variables utilised by the MUL parser.
      */
-    private MULParser() {
+    private MULParser(final @Nullable Consumer<Entity> entityConsumer) {
+        this.entityConsumer = entityConsumer;
         warning = new StringBuffer();
         entities = new Vector<>();
         survivors = new Vector<>();
@@ -294,7 +348,25 @@ public class MULParser {
      * @throws Exception if there is an issue with parsing the file
      */
     public MULParser(final @Nullable File file, final @Nullable GameOptions options) throws Exception {
-        this();
+        this(file, options, null);
+    }
+
+    /**
+     * This is the MULParser constructor for a file whose entities are to be processed as soon as
+     * each is parsed, such as large MekHQ unit files. It parses the file like
+     * {@link #MULParser(File, GameOptions)} and additionally hands every entity to the given
+     * consumer, in file order, right after it has been parsed.
+     *
+     * @param file the file to parse, or null if there isn't anything to parse
+     * @param options the game options to parse the MUL with, which may be null (only to be used
+     *                when the crew is not to be loaded, as no saved optional Crew-based values are
+     *                loaded).
+     * @param entityConsumer receives every parsed entity, may be null
+     * @throws Exception if there is an issue with parsing the file
+     */
+    public MULParser(final @Nullable File file, final @Nullable GameOptions options,
+                     final @Nullable Consumer<Entity> entityConsumer) throws Exception {
+        this(entityConsumer);
 
         if (file == null) {
             return;
@@ -314,7 +386,25 @@ public class MULParser {
      *                loaded).
      */
     public MULParser(final InputStream is, final @Nullable GameOptions options) throws Exception {
-        this();
+        this(is, options, null);
+    }
+
+    /**
+     * This is the MULParser constructor for a stream whose entities are to be processed as soon
+     * as each is parsed. It parses the stream like {@link #MULParser(InputStream, GameOptions)}
+     * and additionally hands every entity to the given consumer, in file order, right after it has
+     * been parsed.
+     *
+     * @param is the input stream to parse from
+     * @param options the game options to parse the MUL with, which may be null (only to be used
+     *                when the crew is not to be loaded, as no saved optional Crew-based values are
+     *                loaded).
+     * @param entityConsumer receives every parsed entity, may be null
+     * @throws Exception if there is an issue with parsing the stream
+     */
+    public MULParser(final InputStream is, final @Nullable GameOptions options,
+                     final @Nullable Consumer<Entity> entityConsumer) throws Exception {
+        this(entityConsumer);
         parse(is, options);
     }
 
@@ -329,31 +419,239 @@ public class MULParser {
      *                loaded).
      */
     public MULParser(final Element element, final @Nullable GameOptions options) {
-        this();
+        this(null);
         parse(element, options);
     }
     //endregion Constructors
 
-    private void parse(final InputStream fin, final @Nullable GameOptions options) throws Exception {
-        Document xmlDoc;
+    private static @Nullable ExecutorService createEntityLoader() {
+        final int threads = Math.min(4, Runtime.getRuntime().availableProcessors() - 1);
+        if (threads <= 1) {
+            return null;
+        }
+        // The threads end when no file has been read for a while
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "MUL Entity Loader");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
 
+    private void parse(final InputStream fin, final @Nullable GameOptions options) throws Exception {
         try {
-            final DocumentBuilder db = MegaMekXmlUtil.newSafeDocumentBuilder();
-            xmlDoc = db.parse(fin);
-        } catch (Exception e) {
-            warning.append("Error parsing MUL file!\n");
-            throw e;
+            final XMLStreamReader reader;
+            try {
+                reader = MegaMekXmlUtil.createSafeXmlStreamReader(fin);
+                while (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    // skip the prolog
+                }
+            } catch (Exception e) {
+                warning.append("Error parsing MUL file!\n");
+                throw e;
+            }
+
+            final String version = reader.getAttributeValue(null, VERSION);
+            if ((version == null) || version.isBlank()) {
+                warning.append("Warning: No version specified, correct parsing ")
+                        .append("not guaranteed!\n");
+            }
+
+            try {
+                final String name = reader.getLocalName();
+                if (name.equalsIgnoreCase(RECORD)) {
+                    readRecord(reader, options);
+                } else if (name.equalsIgnoreCase(UNIT)) {
+                    readUnit(reader, options, entities);
+                } else if (name.equalsIgnoreCase(ENTITY)) {
+                    queueEntity(readElement(reader), options, entities);
+                } else {
+                    warning.append("Error: root element isn't a Record, Unit, or Entity tag! Nothing to parse!\n");
+                }
+                finishEntities(0, options);
+            } catch (XMLStreamException e) {
+                warning.append("Error parsing MUL file!\n");
+                throw e;
+            }
+        } finally {
+            // Only left over when the file could not be read to its end
+            for (PendingEntity pendingEntity : pendingEntities) {
+                pendingEntity.entity.cancel(true);
+            }
+            pendingEntities.clear();
+        }
+
+        // Finally, output the warning if there is any
+        if (hasWarningMessage()) {
+            LogManager.getLogger().warn(getWarningMessage());
+        }
+    }
+
+    /**
+     * Reads the children of a Record tag from a stream, the streaming counterpart of
+     * {@link #parseRecord(Element, GameOptions)}.
+     */
+    private void readRecord(final XMLStreamReader reader, final @Nullable GameOptions options)
+            throws Exception {
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String nodeName = reader.getLocalName();
+            if (nodeName.equalsIgnoreCase(UNIT) || nodeName.equalsIgnoreCase(ENTITY)) {
+                readUnit(reader, options, entities);
+            } else if (nodeName.equalsIgnoreCase(SURVIVORS)) {
+                readUnit(reader, options, survivors);
+            } else if (nodeName.equalsIgnoreCase(ALLIES)) {
+                readUnit(reader, options, allies);
+            } else if (nodeName.equalsIgnoreCase(SALVAGE)) {
+                readUnit(reader, options, salvage);
+            } else if (nodeName.equalsIgnoreCase(RETREATED)) {
+                readUnit(reader, options, retreated);
+            } else if (nodeName.equalsIgnoreCase(DEVASTATED)) {
+                readUnit(reader, options, devastated);
+            } else if (nodeName.equalsIgnoreCase(KILLS)) {
+                finishEntities(0, options);
+                parseKills(readElement(reader));
+            } else if (nodeName.equalsIgnoreCase(PILOT)) {
+                finishEntities(0, options);
+                parsePilot(readElement(reader), options);
+            } else if (nodeName.equalsIgnoreCase(CREW)) {
+                finishEntities(0, options);
+                parseCrew(readElement(reader), options);
+            } else {
+                skipElement(reader);
+            }
+        }
+    }
+
+    /**
+     * Reads the children of a Unit tag from a stream, the streaming counterpart of
+     * {@link #parseUnit(Element, GameOptions, Vector)}.
+     */
+    private void readUnit(final XMLStreamReader reader, final @Nullable GameOptions options,
+                          final Vector<Entity> list) throws Exception {
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String nodeName = reader.getLocalName();
+            if (nodeName.equalsIgnoreCase(ENTITY)) {
+                queueEntity(readElement(reader), options, list);
+            } else if (nodeName.equalsIgnoreCase(PILOT)) {
+                // pilots are collected in file order, so the pending entities come first
+                finishEntities(0, options);
+                parsePilot(readElement(reader), options);
+            } else if (nodeName.equalsIgnoreCase(CREW)) {
+                finishEntities(0, options);
+                parseCrew(readElement(reader), options);
+            } else {
+                skipElement(reader);
+            }
         }
+    }
+
+    /**
+     * Starts loading the unit file of an entity tag read from a stream. The entity is parsed once
+     * its unit file is loaded and all entities before it are parsed.
+     */
+    private void queueEntity(final Element entityNode, final @Nullable GameOptions options,
+                             final Vector<Entity> list) throws Exception {
+        final String chassis = entityNode.getAttribute(CHASSIS);
+        final String model = entityNode.getAttribute(MODEL);
+        final StringBuffer entityWarning = new StringBuffer();
+        final Future<Entity> entity = (ENTITY_LOADER == null)
+                ? CompletableFuture.completedFuture(getEntity(chassis, model, entityWarning))
+                : ENTITY_LOADER.submit(() -> getEntity(chassis, model, entityWarning));
+        pendingEntities.add(new PendingEntity(entityNode, list, entity, entityWarning));
+        // Don't read too far ahead of the loaders, so that few elements are kept in memory
+        finishEntities(4 * Runtime.getRuntime().availableProcessors(), options);
+    }
+
+    /**
+     * Parses the pending entities in file order, waiting for their unit files as necessary, until
+     * no more than the given number are pending.
+     */
+    private void finishEntities(final int maxPending, final @Nullable GameOptions options)
+            throws InterruptedException {
+        while (pendingEntities.size() > maxPending) {
+            final PendingEntity pendingEntity = pendingEntities.poll();
+            Entity entity;
+            try {
+                entity = pendingEntity.entity.get();
+            } catch (ExecutionException e) {
+                LogManager.getLogger().error("", e.getCause());
+                entity = null;
+            }
+            warning.append(pendingEntity.warning);
+            if (entity == null) {
+                warning.append("Failed to load entity!");
+            } else {
+                parseEntity(entity, pendingEntity.element, options, pendingEntity.list);
+            }
+        }
+    }
 
-        final Element element = xmlDoc.getDocumentElement();
+    /**
+     * Reads the current element and all of its content from a stream into a DOM element, so that
+     * it can be parsed like an element of a document. The stream is left at the end of the element.
+     */
+    private Element readElement(final XMLStreamReader reader) throws Exception {
+        if (document == null) {
+            document = MegaMekXmlUtil.newSafeDocumentBuilder().newDocument();
+        }
+        final Element element = createElement(reader);
+        Element current = element;
+        int depth = 1;
+        while (depth > 0) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    final Element child = createElement(reader);
+                    current.appendChild(child);
+                    current = child;
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    if (depth > 0) {
+                        current = (Element) current.getParentNode();
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    current.appendChild(document.createTextNode(reader.getText()));
+                    break;
+                default:
+                    break;
+            }
+        }
         element.normalize();
+        return element;
+    }
 
-        final String version = element.getAttribute(VERSION);
-        if (version.isBlank()) {
-            warning.append("Warning: No version specified, correct parsing ")
-                    .append("not guaranteed!\n");
+    private Element createElement(final XMLStreamReader reader) {
+        final Element element = document.createElement(qualifiedName(reader.getPrefix(), reader.getLocalName()));
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            element.setAttribute(qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+                    reader.getAttributeValue(i));
+        }
+        return element;
+    }
+
+    private static String qualifiedName(final @Nullable String prefix, final String localName) {
+        return ((prefix == null) || prefix.isEmpty()) ? localName : prefix + ':' + localName;
+    }
+
+    /**
+     * Skips the current element and all of its content.
+     */
+    private static void skipElement(final XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
         }
-        parse(element, options);
     }
 
     private void parse(final Element element, final @Nullable GameOptions options) {
@@ -493,7 +791,7 @@ public class MULParser {
         String model = entityNode.getAttribute(MODEL);
 
         // Create a new entity
-        entity = getEntity(chassis, model);
+        entity = getEntity(chassis, model, warning);
 
         // Make sure we've got an Entity
         if (entity == null) {
@@ -501,6 +799,19 @@ public class MULParser {
             return;
         }
 
+        parseEntity(entity, entityNode, options, list);
+    }
+
+    /**
+     * Sets up a newly created Entity from its Entity tag and adds it to the list.
+     *
+     * @param entity the entity created from the chassis and model of the tag
+     * @param entityNode the node to parse the entity tag from
+     * @param options the game options to parse using
+     * @param list the list to add found entities to
+     */
+    private void parseEntity(final Entity entity, final Element entityNode,
+                             final @Nullable GameOptions options, final Vector<Entity> list) {
         // Set the attributes for the entity
         parseEntityAttributes(entity, entityNode);
 
@@ -577,6 +888,9 @@ public class MULParser {
 
         //Now we should be done setting up the Entity, add it to the list
         list.add(entity);
+        if (entityConsumer != null) {
+            entityConsumer.accept(entity);
+        }
     }
 
     /**
@@ -584,9 +898,10 @@ public class MULParser {
      *
      * @param chassis
      * @param model
+     * @param warning the warnings to add to; may be used on a loader thread
      * @return
      */
-    private Entity getEntity(String chassis, String model) {
+    private Entity getEntity(String chassis, String model, StringBuffer warning) {
         Entity newEntity = null;
 
         //first check for ejected mechwarriors, vee crews, escape pods and spacecraft crews
@@ -23,47 +23,40 @@ import org.apache.logging.log4j.LogManager;
 import java.io.*;
 import java.util.*;
 import java.util.function.Predicate;
-import java.util.zip.ZipFile;
 
 /**
  * Switches between the various type-specific parsers depending on suffix
  */
 public class MechFileParser {
     private Entity m_entity = null;
-    private static Vector<String> canonUnitNames = null;
+    private static volatile Vector<String> canonUnitNames = null;
     public static final String FILENAME_OFFICIAL_UNITS = "OfficialUnitList.txt"; // TODO : Remove inline filename
 
     public MechFileParser(File f) throws EntityLoadingException {
         this(f, null);
     }
 
+    /**
+     * Parses the given unit file, or the given entry of the given zip file. Units that are loaded
+     * repeatedly are served from the {@link UnitSourceCache} instead of being read from disk again.
+     *
+     * @param f the unit file or zip file
+     * @param entryName the zip entry name, or null when the file is the unit file itself
+     */
     public MechFileParser(File f, String entryName) throws EntityLoadingException {
-        if (entryName == null) {
-            // try normal file
-            try (InputStream is = new FileInputStream(f.getAbsolutePath())) {
-                parse(is, f.getName());
-            } catch (Exception ex) {
-                LogManager.getLogger().error("", ex);
-                if (ex instanceof EntityLoadingException) {
-                    throw new EntityLoadingException("While parsing file " + f.getName() + ", " + ex.getMessage());
-                } else {
-                    throw new EntityLoadingException("Exception from " + ex.getClass() + ": " + ex.getMessage());
-                }
-            }
-        } else {
-            // try zip file
-            try {
-                ZipFile zFile = new ZipFile(f.getAbsolutePath());
-                parse(zFile.getInputStream(zFile.getEntry(entryName)), entryName);
-                zFile.close();
-            } catch (EntityLoadingException ele) {
+        String fileName = (entryName == null) ? f.getName() : entryName;
+        try {
+            parse(new ByteArrayInputStream(UnitSourceCache.getSource(f, entryName)), fileName);
+        } catch (EntityLoadingException ele) {
+            if (entryName == null) {
+                LogManager.getLogger().error("", ele);
+                throw new EntityLoadingException("While parsing file " + f.getName() + ", " + ele.getMessage());
+            } else {
                 throw new EntityLoadingException(ele.getMessage());
-            } catch (NullPointerException npe) {
-                throw new NullPointerException();
-            } catch (Exception ex) {
-                LogManager.getLogger().error("", ex);
-                throw new EntityLoadingException("Exception from " + ex.getClass() + ": " + ex.getMessage());
             }
+        } catch (Exception ex) {
+            LogManager.getLogger().error("", ex);
+            throw new EntityLoadingException("Exception from " + ex.getClass() + ": " + ex.getMessage());
         }
     }
 
@@ -747,10 +740,12 @@ public class MechFileParser {
         
         // Check if it's canon; if it is, mark it as such.
         ent.setCanon(false);// Guilty until proven innocent
+        // Units may be parsed in parallel; work on one published list throughout
+        Vector<String> canonNames = canonUnitNames;
         try {
-            if (canonUnitNames == null) {
-                canonUnitNames = new Vector<>();
-                // init the list.
+            if (canonNames == null) {
+                // init the list; it is only published once complete
+                Vector<String> names = new Vector<>();
                 try (BufferedReader br = new BufferedReader(new FileReader(new MegaMekFile(
                             Configuration.docsDir(), FILENAME_OFFICIAL_UNITS).getFile()))) {
                     String s;
@@ -759,18 +754,20 @@ public class MechFileParser {
                         int nIndex1 = s.indexOf('|');
                         if (nIndex1 > -1) {
                             name = s.substring(0, nIndex1);
-                            canonUnitNames.addElement(name);
+                            names.addElement(name);
                         }
                     }
-                    Collections.sort(canonUnitNames);
+                    Collections.sort(names);
                 } catch (Exception ignored) {
 
                 }
+                canonNames = names;
+                canonUnitNames = names;
             }
         } catch (Exception ignored) {
 
         }
-        int index = Collections.binarySearch(canonUnitNames, ent.getShortNameRaw());
+        int index = Collections.binarySearch(canonNames, ent.getShortNameRaw());
         if (index >= 0) {
             ent.setCanon(true);
         }        
@@ -900,5 +897,6 @@ public class MechFileParser {
 
     public static void dispose() {
         canonUnitNames = null;
+        UnitSourceCache.clear();
     }
 }
@@ -38,7 +38,7 @@ public class MechSummaryCache {
         void doneLoading();
     }
 
-    private static final String FILENAME_UNITS_CACHE = "units.cache";
+    public static final String FILENAME_UNITS_CACHE = "units.cache";
     private static final String FILENAME_LOOKUP = "name_changes.txt";
 
     private static MechSummaryCache instance;
@@ -310,7 +310,12 @@ public class MechSummaryCache {
 
             initialized = true;
 
-            for (Listener listener : listeners) {
+            // Listeners may remove themselves once notified
+            List<Listener> notified;
+            synchronized (listeners) {
+                notified = new ArrayList<>(listeners);
+            }
+            for (Listener listener : notified) {
                 listener.doneLoading();
             }
 
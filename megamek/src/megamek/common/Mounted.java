@@ -354,6 +354,7 @@ public class Mounted implements Serializable, RoundUpdated, PhaseUpdated {
             if (canInstantSwitch(newMode)) {
                 mode = newMode;
                 pendingMode = -1;
+                invalidateECMFields();
             } else if (pendingMode != newMode) {
                 if (mode == newMode) {
                     pendingMode = -1;
@@ -398,6 +399,7 @@ public class Mounted implements Serializable, RoundUpdated, PhaseUpdated {
         if ((type != null) && (type.hasModes() && (pendingMode != -1))) {
             mode = pendingMode;
             pendingMode = -1;
+            invalidateECMFields();
         }
         called.reset();
     }
@@ -618,6 +620,8 @@ public class Mounted implements Serializable, RoundUpdated, PhaseUpdated {
 
     public void setBreached(boolean breached) {
         useless = breached;
+        invalidateEntityBV();
+        invalidateECMFields();
     }
 
     public boolean isDestroyed() {
@@ -634,6 +638,8 @@ public class Mounted implements Serializable, RoundUpdated, PhaseUpdated {
      */
     public void setDestroyed(boolean destroyed) {
         this.destroyed = destroyed;
+        invalidateEntityBV();
+        invalidateECMFields();
         if ((destroyed == true)
                 && getType().hasFlag(MiscType.F_RADICAL_HEATSINK)) {
             if (entity != null) {
@@ -660,6 +666,7 @@ public class Mounted implements Serializable, RoundUpdated, PhaseUpdated {
      */
     public void setHit(boolean hit) {
         this.hit = hit;
+        invalidateEntityBV();
         if ((hit == true)
                 && getType().hasFlag(MiscType.F_RADICAL_HEATSINK)) {
             if (entity != null) {
@@ -674,6 +681,8 @@ public class Mounted implements Serializable, RoundUpdated, PhaseUpdated {
 
     public void setMissing(boolean missing) {
         this.missing = missing;
+        invalidateEntityBV();
+        invalidateECMFields();
     }
 
     public boolean isJammed() {
@@ -752,6 +761,24 @@ public class Mounted implements Serializable, RoundUpdated, PhaseUpdated {
             shotsLeft = 0;
         }
         this.shotsLeft = shotsLeft;
+        invalidateEntityBV();
+    }
+
+    /**
+     * The state of this equipment is part of the Battle Value of its unit; discard any BV the unit
+     * has cached.
+     */
+    private void invalidateEntityBV() {
+        if (entity != null) {
+            entity.invalidateBVCache();
+        }
+    }
+
+    /** The E(C)CM fields of the game depend on the modes and state of equipment */
+    private void invalidateECMFields() {
+        if ((entity != null) && (entity.getGame() != null)) {
+            entity.getGame().invalidateECMFieldMap();
+        }
     }
 
     /**
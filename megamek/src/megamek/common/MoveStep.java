@@ -2982,7 +2982,7 @@ public class MoveStep implements Serializable {
             if ((moveMode != EntityMovementMode.BIPED_SWIM)
                     && (moveMode != EntityMovementMode.QUAD_SWIM)
                     && getClearance() == 0) {
-                mp += destHex.movementCost(getEntity());
+                mp += game.getBoard().getMovementCost(getPosition(), cachedEntityState.getMovementCostClass());
             }
 
             // if this is an amphibious unit crossing water, increment movement cost by 1
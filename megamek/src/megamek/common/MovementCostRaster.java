@@ -0,0 +1,186 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common;
+
+import megamek.common.options.OptionsConstants;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the terrain movement costs of the hexes of a board, as {@link Hex#movementCost(Entity)}
+ * returns them, so that path finding does not have to sum up the terrain costs of a hex again for
+ * every step that enters it.
+ * <p>
+ * The terrain cost of a hex depends only on a few properties of the moving unit: its movement
+ * mode and some abilities and equipment. These are packed into a cost class, see
+ * {@link #costClassOf(Entity)}, and the raster holds one layer of costs per cost class in use.
+ * Costs are computed when first asked for. The board drops the costs of a hex when the hex is
+ * replaced; changes made to the terrains of a hex in place are noticed through the terrain
+ * version of the hex.
+ */
+public class MovementCostRaster {
+
+    // Cost class flags; the low bits hold the movement mode
+    private static final int MODE_MASK = 0xFF;
+    static final int SUPERHEAVY_MECH = 1 << 8;
+    static final int MOUNTAINEER = 1 << 9;
+    static final int FOOT_CAVALRY = 1 << 10;
+    static final int FOREST_RANGER = 1 << 11;
+    static final int ANIMAL_MIMIC = 1 << 12;
+    static final int SWAMP_BEAST = 1 << 13;
+    static final int NAVAL = 1 << 14;
+    static final int AIRBORNE_VTOL_OR_WIGE = 1 << 15;
+    static final int DUNE_BUGGY = 1 << 16;
+
+    private static final EntityMovementMode[] MODES = EntityMovementMode.values();
+
+    /** Marks a raster entry whose cost has not been computed; terrain versions are never 0 */
+    private static final long UNKNOWN = 0;
+
+    /** One layer of costs for a cost class */
+    private static class Layer {
+        final int costClass;
+        /** Per hex, the terrain version of the hex in the upper and the cost in the lower half */
+        final AtomicLongArray entries;
+
+        Layer(int costClass, int size) {
+            this.costClass = costClass;
+            entries = new AtomicLongArray(size);
+        }
+    }
+
+    private final Board board;
+    private final int width;
+    private final int height;
+    private volatile Layer[] layers = new Layer[0];
+
+    MovementCostRaster(Board board) {
+        this.board = board;
+        width = board.getWidth();
+        height = board.getHeight();
+    }
+
+    /**
+     * @return the cost class of the given unit, that is, its movement mode together with the
+     * abilities and equipment that change what it pays for terrain
+     */
+    public static int costClassOf(Entity entity) {
+        EntityMovementMode moveMode = entity.getMovementMode();
+        int costClass = moveMode.ordinal();
+        if ((entity instanceof Mech) && entity.isSuperHeavy()) {
+            costClass |= SUPERHEAVY_MECH;
+        }
+        if (entity.hasAbility(OptionsConstants.PILOT_TM_MOUNTAINEER)) {
+            costClass |= MOUNTAINEER;
+        }
+        if (entity.hasAbility(OptionsConstants.INFANTRY_FOOT_CAV)) {
+            costClass |= FOOT_CAVALRY;
+        }
+        if (entity.hasAbility(OptionsConstants.PILOT_TM_FOREST_RANGER)) {
+            costClass |= FOREST_RANGER;
+        }
+        if (entity.hasAbility(OptionsConstants.PILOT_ANIMAL_MIMIC)
+                && (entity.entityIsQuad()
+                    || ((moveMode == EntityMovementMode.BIPED) && entity.hasQuirk("animalistic")))) {
+            costClass |= ANIMAL_MIMIC;
+        }
+        if (entity.hasAbility(OptionsConstants.PILOT_TM_SWAMP_BEAST)) {
+            costClass |= SWAMP_BEAST;
+        }
+        if (entity.isNaval()) {
+            costClass |= NAVAL;
+        }
+        if (entity.isAirborneVTOLorWIGE()) {
+            costClass |= AIRBORNE_VTOL_OR_WIGE;
+        }
+        if ((moveMode == EntityMovementMode.WHEELED) && entity.hasWorkingMisc(MiscType.F_DUNE_BUGGY)) {
+            costClass |= DUNE_BUGGY;
+        }
+        return costClass;
+    }
+
+    /**
+     * @return the movement mode of the given cost class
+     */
+    static EntityMovementMode movementMode(int costClass) {
+        return MODES[costClass & MODE_MASK];
+    }
+
+    /**
+     * @return true if the given cost class has the given flag
+     */
+    static boolean hasFlag(int costClass, int flag) {
+        return (costClass & flag) != 0;
+    }
+
+    /**
+     * Returns the additional movement cost for entering the given hex, see
+     * {@link Hex#movementCost(Entity)}.
+     *
+     * @param x the x coordinate of the hex
+     * @param y the y coordinate of the hex
+     * @param costClass the cost class of the moving unit, see {@link #costClassOf(Entity)}
+     * @return the terrain movement cost, or 0 if the hex is not on the board
+     */
+    int getMovementCost(int x, int y, int costClass) {
+        Hex hex = board.getHex(x, y);
+        if (hex == null) {
+            return 0;
+        }
+        AtomicLongArray entries = getLayer(costClass).entries;
+        int index = (y * width) + x;
+        long entry = entries.get(index);
+        long version = hex.getTerrainVersion() & 0xFFFFFFFFL;
+        if ((entry >>> 32) != version) {
+            entry = (version << 32) | (hex.movementCost(costClass) & 0xFFFFFFFFL);
+            entries.set(index, entry);
+        }
+        return (int) entry;
+    }
+
+    /**
+     * Drops the stored costs of the given hex, to be called when the hex is replaced.
+     */
+    void invalidate(int x, int y) {
+        if ((x < 0) || (x >= width) || (y < 0) || (y >= height)) {
+            return;
+        }
+        int index = (y * width) + x;
+        for (Layer layer : layers) {
+            layer.entries.set(index, UNKNOWN);
+        }
+    }
+
+    private Layer getLayer(int costClass) {
+        Layer[] current = layers;
+        for (Layer layer : current) {
+            if (layer.costClass == costClass) {
+                return layer;
+            }
+        }
+        synchronized (this) {
+            for (Layer layer : layers) {
+                if (layer.costClass == costClass) {
+                    return layer;
+                }
+            }
+            Layer layer = new Layer(costClass, width * height);
+            Layer[] updated = Arrays.copyOf(layers, layers.length + 1);
+            updated[updated.length - 1] = layer;
+            layers = updated;
+            return layer;
+        }
+    }
+}
@@ -16,8 +16,6 @@ package megamek.common;
 import java.io.Serializable;
 import java.util.Objects;
 
-import megamek.common.options.OptionsConstants;
-
 /**
  * Represents a single type of terrain or condition in a hex. The type of a
  * terrain is immutable, once created, but the level and exits are changeable.
@@ -370,7 +368,15 @@ public class Terrain implements Serializable {
      * @return the additional movement cost for this terrain
      */
     public int movementCost(Entity e) {
-        EntityMovementMode moveMode = e.getMovementMode();
+        return movementCost(MovementCostRaster.costClassOf(e));
+    }
+
+    /**
+     * @param costClass the cost class of the entity, see {@link MovementCostRaster#costClassOf(Entity)}
+     * @return the additional movement cost for this terrain
+     */
+    int movementCost(int costClass) {
+        EntityMovementMode moveMode = MovementCostRaster.movementMode(costClass);
         int mp;
         switch (type) {
             case Terrains.MAGMA:
@@ -386,51 +392,47 @@ public class Terrain implements Serializable {
                 } else {
                     mp = 1;
                 }
-                if ((e instanceof Mech) && e.isSuperHeavy()) {
+                if (MovementCostRaster.hasFlag(costClass, MovementCostRaster.SUPERHEAVY_MECH)) {
                     mp -= 1;
                 }
-                if (e.hasAbility(OptionsConstants.PILOT_TM_MOUNTAINEER)) {
+                if (MovementCostRaster.hasFlag(costClass, MovementCostRaster.MOUNTAINEER)) {
                     mp -= 1;
                 }
-                if ((e.hasAbility(OptionsConstants.INFANTRY_FOOT_CAV)
-                                && (moveMode == EntityMovementMode.INF_LEG))) {
+                if (MovementCostRaster.hasFlag(costClass, MovementCostRaster.FOOT_CAVALRY)
+                        && (moveMode == EntityMovementMode.INF_LEG)) {
                     mp -= 1;
                 }
                 return Math.max(0, mp);
             case Terrains.WOODS:
                 mp = level;
-                if ((e instanceof Mech) && e.isSuperHeavy()) {
+                if (MovementCostRaster.hasFlag(costClass, MovementCostRaster.SUPERHEAVY_MECH)) {
                     mp -= 1;
                 }
-                if (e.hasAbility(OptionsConstants.PILOT_TM_FOREST_RANGER)) {
+                if (MovementCostRaster.hasFlag(costClass, MovementCostRaster.FOREST_RANGER)) {
                     mp -= 1;
                 }
-                if ((e.hasAbility(OptionsConstants.INFANTRY_FOOT_CAV)
-                                && (moveMode == EntityMovementMode.INF_LEG))) {
+                if (MovementCostRaster.hasFlag(costClass, MovementCostRaster.FOOT_CAVALRY)
+                        && (moveMode == EntityMovementMode.INF_LEG)) {
                     mp -= 1;
                 }
-                if (e.hasAbility(OptionsConstants.PILOT_ANIMAL_MIMIC)) {
-                    if ((e.entityIsQuad()) || ((moveMode == EntityMovementMode.BIPED) && e.hasQuirk("animalistic"))) {
-                        mp -= 1;
-                    }
+                if (MovementCostRaster.hasFlag(costClass, MovementCostRaster.ANIMAL_MIMIC)) {
+                    mp -= 1;
                 }
                 return Math.max(0, mp);
             case Terrains.JUNGLE:
                 mp = level +1;
-                if ((e instanceof Mech) && e.isSuperHeavy()) {
+                if (MovementCostRaster.hasFlag(costClass, MovementCostRaster.SUPERHEAVY_MECH)) {
                     mp -= 1;
                 }
-                if (e.hasAbility(OptionsConstants.PILOT_TM_FOREST_RANGER)) {
+                if (MovementCostRaster.hasFlag(costClass, MovementCostRaster.FOREST_RANGER)) {
                     mp -= 1;
                 }
-                if ((e.hasAbility(OptionsConstants.INFANTRY_FOOT_CAV)
-                                && (moveMode == EntityMovementMode.INF_LEG))) {
+                if (MovementCostRaster.hasFlag(costClass, MovementCostRaster.FOOT_CAVALRY)
+                        && (moveMode == EntityMovementMode.INF_LEG)) {
                     mp -= 1;
                 }
-                if (e.hasAbility(OptionsConstants.PILOT_ANIMAL_MIMIC)) {
-                    if ((e.entityIsQuad()) || ((moveMode == EntityMovementMode.BIPED) && e.hasQuirk("animalistic"))) {
-                        mp -= 1;
-                    }
+                if (MovementCostRaster.hasFlag(costClass, MovementCostRaster.ANIMAL_MIMIC)) {
+                    mp -= 1;
                 }
                 return Math.max(0, mp);
             case Terrains.SNOW:
@@ -446,10 +448,10 @@ public class Terrain implements Serializable {
                 }
                 return 0;
             case Terrains.MUD:
-                if (moveMode.isHoverOrWiGE() || e.isNaval()) {
+                if (moveMode.isHoverOrWiGE() || MovementCostRaster.hasFlag(costClass, MovementCostRaster.NAVAL)) {
                     return 0;
                 }
-                if (e.hasAbility(OptionsConstants.PILOT_TM_SWAMP_BEAST)) {
+                if (MovementCostRaster.hasFlag(costClass, MovementCostRaster.SWAMP_BEAST)) {
                     return 0;
                 }
                 return 1;
@@ -458,7 +460,7 @@ public class Terrain implements Serializable {
                 if ((moveMode == EntityMovementMode.HOVER) || (moveMode == EntityMovementMode.WIGE)) {
                     return 0;
                 }
-                if (e.hasAbility(OptionsConstants.PILOT_TM_SWAMP_BEAST)) {
+                if (MovementCostRaster.hasFlag(costClass, MovementCostRaster.SWAMP_BEAST)) {
                     mp -= 1;
                 }
                 if ((moveMode == EntityMovementMode.BIPED) || (moveMode == EntityMovementMode.QUAD)) {
@@ -472,7 +474,8 @@ public class Terrain implements Serializable {
                 return 1;
             case Terrains.RAPIDS:
                 // Doesn't apply to Hover, or airborne WiGE or VTOL
-                if (e.isAirborneVTOLorWIGE() || (e.getMovementMode() == EntityMovementMode.HOVER)) {
+                if (MovementCostRaster.hasFlag(costClass, MovementCostRaster.AIRBORNE_VTOL_OR_WIGE)
+                        || (moveMode == EntityMovementMode.HOVER)) {
                     return 0;
                 }
                 if (level == 2) {
@@ -480,7 +483,7 @@ public class Terrain implements Serializable {
                 } else {
                     mp = 1;
                 }
-                if ((e instanceof Mech) && e.isSuperHeavy()) {
+                if (MovementCostRaster.hasFlag(costClass, MovementCostRaster.SUPERHEAVY_MECH)) {
                     mp -= 1;
                 }
                 return Math.max(0, mp);
@@ -490,19 +493,20 @@ public class Terrain implements Serializable {
                 } else {
                     mp = 1;
                 }
-                if ((e instanceof Mech) && e.isSuperHeavy()) {
+                if (MovementCostRaster.hasFlag(costClass, MovementCostRaster.SUPERHEAVY_MECH)) {
                     mp -= 1;
                 }
-                if (e.hasAbility(OptionsConstants.PILOT_TM_MOUNTAINEER)) {
+                if (MovementCostRaster.hasFlag(costClass, MovementCostRaster.MOUNTAINEER)) {
                     mp -= 1;
                 }
-                if ((e.hasAbility(OptionsConstants.INFANTRY_FOOT_CAV)
-                                && (moveMode == EntityMovementMode.INF_LEG))) {
+                if (MovementCostRaster.hasFlag(costClass, MovementCostRaster.FOOT_CAVALRY)
+                        && (moveMode == EntityMovementMode.INF_LEG)) {
                     mp -= 1;
                 }
                 return Math.max(0, mp);
             case Terrains.SAND:
-                if (((moveMode == EntityMovementMode.WHEELED) && !e.hasWorkingMisc(MiscType.F_DUNE_BUGGY))
+                if (((moveMode == EntityMovementMode.WHEELED)
+                        && !MovementCostRaster.hasFlag(costClass, MovementCostRaster.DUNE_BUGGY))
                         || (moveMode == EntityMovementMode.INF_JUMP) || (moveMode == EntityMovementMode.INF_LEG)
                         || (moveMode == EntityMovementMode.INF_MOTORIZED)) {
                     return 1;
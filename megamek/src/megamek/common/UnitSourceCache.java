@@ -0,0 +1,195 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A bounded cache of unit source files for {@link MechFileParser}. Units that are requested
+ * repeatedly, such as the models picked by the force generator or added from the unit selector,
+ * keep their raw file contents in memory so that each new entity is built without touching the
+ * disk or opening the zip file they came from. Every request still runs the loader, so every
+ * returned entity is a fresh, independent instance.
+ * <p>
+ * A unit is only admitted on its second request, so that walking all unit files once (as the
+ * {@link MechSummaryCache} does) does not evict the units that are actually in use. Entries are
+ * validated against the size and modification time of the file they were read from and evicted in
+ * least recently used order once the cache holds more than {@link #MAX_CACHED_BYTES}.
+ * <p>
+ * This class is thread-safe; file I/O happens outside of the lock.
+ */
+final class UnitSourceCache {
+
+    /** The maximum total size of the cached unit files */
+    static final long MAX_CACHED_BYTES = 8L * 1024 * 1024;
+
+    /** The number of units that are remembered as requested once without being cached */
+    private static final int MAX_CANDIDATES = 2048;
+
+    private static final Map<Key, CachedSource> cache = new LinkedHashMap<>(256, 0.75f, true);
+
+    private static final Map<Key, Boolean> candidates = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Boolean> eldest) {
+            return size() > MAX_CANDIDATES;
+        }
+    };
+
+    private static long cachedBytes = 0;
+
+    private UnitSourceCache() { }
+
+    /**
+     * Returns the contents of the given unit file, or of the given entry when the file is a zip
+     * file, from the cache if possible.
+     *
+     * @param file the unit file or zip file
+     * @param entryName the zip entry name, or null when the file is the unit file itself
+     * @return the file contents
+     * @throws IOException if the file or entry cannot be read
+     */
+    static byte[] getSource(File file, String entryName) throws IOException {
+        Key key = new Key(file.getAbsolutePath(), entryName);
+        long lastModified = file.lastModified();
+        long length = file.length();
+
+        boolean admit;
+        synchronized (UnitSourceCache.class) {
+            CachedSource cached = cache.get(key);
+            if (cached != null) {
+                if ((cached.lastModified == lastModified) && (cached.length == length)) {
+                    return cached.data;
+                }
+                remove(key);
+            }
+            admit = (candidates.put(key, Boolean.TRUE) != null);
+        }
+
+        byte[] data = read(file, entryName);
+        if (admit && (data.length <= MAX_CACHED_BYTES)) {
+            synchronized (UnitSourceCache.class) {
+                candidates.remove(key);
+                CachedSource previous = cache.put(key, new CachedSource(data, lastModified, length));
+                if (previous != null) {
+                    cachedBytes -= previous.data.length;
+                }
+                cachedBytes += data.length;
+                evict();
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Removes all cached unit files.
+     */
+    static synchronized void clear() {
+        cache.clear();
+        candidates.clear();
+        cachedBytes = 0;
+    }
+
+    /**
+     * @return the total size of the cached unit files
+     */
+    static synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    private static void remove(Key key) {
+        CachedSource removed = cache.remove(key);
+        if (removed != null) {
+            cachedBytes -= removed.data.length;
+        }
+    }
+
+    private static void evict() {
+        Iterator<CachedSource> iterator = cache.values().iterator();
+        while ((cachedBytes > MAX_CACHED_BYTES) && iterator.hasNext()) {
+            cachedBytes -= iterator.next().data.length;
+            iterator.remove();
+        }
+    }
+
+    private static byte[] read(File file, String entryName) throws IOException {
+        if (entryName == null) {
+            return Files.readAllBytes(file.toPath());
+        }
+        try (ZipFile zipFile = new ZipFile(file)) {
+            ZipEntry entry = zipFile.getEntry(entryName);
+            if (entry == null) {
+                throw new FileNotFoundException(entryName + " not found in " + file.getName());
+            }
+            try (InputStream is = zipFile.getInputStream(entry)) {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream(
+                        (entry.getSize() > 0) ? (int) entry.getSize() : 8192);
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = is.read(buffer)) != -1) {
+                    bos.write(buffer, 0, read);
+                }
+                return bos.toByteArray();
+            }
+        }
+    }
+
+    private static final class Key {
+        private final String path;
+        private final String entryName;
+
+        Key(String path, String entryName) {
+            this.path = path;
+            this.entryName = entryName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            } else if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return path.equals(other.path) && Objects.equals(entryName, other.entryName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, entryName);
+        }
+    }
+
+    private static final class CachedSource {
+        private final byte[] data;
+        private final long lastModified;
+        private final long length;
+
+        CachedSource(byte[] data, long lastModified, long length) {
+            this.data = data;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+}
@@ -16,9 +16,9 @@
 
 package megamek.common.net;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -27,9 +27,9 @@ import java.net.SocketException;
 import java.util.Enumeration;
 import java.util.LinkedList;
 import java.util.Vector;
-import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
+import megamek.common.annotations.Nullable;
 import megamek.common.net.marshall.PacketMarshaller;
 import megamek.common.net.marshall.PacketMarshallerFactory;
 import megamek.common.util.CircularIntegerBuffer;
@@ -116,6 +116,22 @@ public abstract class AbstractConnection {
      */
     private boolean zipData = true;
 
+    /**
+     * Indicates that the peer uses the same preset compression dictionary, see
+     * {@link PacketCompression#DICTIONARY}
+     */
+    private volatile boolean dictionaryCompression;
+
+    /**
+     * Indicates that the peer has been accepted, see {@link #setAuthenticated(boolean)}
+     */
+    private volatile boolean authenticated;
+
+    /**
+     * Chunked file transfers to and from the peer
+     */
+    private final FileTransferChannel fileTransfers = new FileTransferChannel(this);
+
     /**
      * Creates new client (connection from client to server) connection
      *
@@ -149,6 +165,16 @@ public abstract class AbstractConnection {
         return host == null;
     }
 
+    /**
+     * Returns <code>true</code> if this connection reads and writes on its own threads, so that
+     * no thread needs to call {@link #update()} and {@link #flush()} for it.
+     *
+     * @return <code>true</code> if this connection needs no update thread
+     */
+    public boolean isNonBlocking() {
+        return false;
+    }
+
     /**
      * @return the type of the marshalling used to send packets
      */
@@ -204,6 +230,7 @@ public abstract class AbstractConnection {
             }
             socket = null;
         }
+        fileTransfers.close();
         processConnectionEvent(new DisconnectedEvent(this));
     }
 
@@ -258,27 +285,149 @@ public abstract class AbstractConnection {
         zipData = compress;
     }
 
+    /**
+     * Returns <code>true</code> if this connection compresses the sent data with the preset
+     * dictionary of {@link PacketCompression}
+     *
+     * @return <code>true</code> if the preset dictionary is used
+     */
+    public boolean isDictionaryCompression() {
+        return dictionaryCompression;
+    }
+
+    /**
+     * Sets whether the sent data is compressed with the preset dictionary of
+     * {@link PacketCompression}. Must only be enabled once the peer is known to use the same
+     * dictionary, see {@link PacketCompression#getDictionaryId()}. Enabled automatically when the
+     * peer sends data compressed with the dictionary.
+     *
+     * @param dictionaryCompression true to use the preset dictionary
+     */
+    public void setDictionaryCompression(boolean dictionaryCompression) {
+        this.dictionaryCompression = dictionaryCompression;
+    }
+
+    /**
+     * @return <code>true</code> if the peer has been accepted, so that it may send files
+     */
+    public boolean isAuthenticated() {
+        return authenticated;
+    }
+
+    /**
+     * Marks the peer as accepted: on the server once the player has joined, on the client once
+     * the server has greeted it. File transfers from the peer are refused until then.
+     *
+     * @param authenticated true when the peer has been accepted
+     */
+    public void setAuthenticated(boolean authenticated) {
+        this.authenticated = authenticated;
+    }
+
+    /**
+     * @return the compression to ask for when sending packets, see {@link PacketCompression}
+     */
+    private int getCompression() {
+        if (!zipData) {
+            return PacketCompression.NONE;
+        }
+        return dictionaryCompression ? PacketCompression.DICTIONARY : PacketCompression.GZIP;
+    }
+
     /**
      * Adds a packet to the send queue to be send on a seperate thread.
      */
     public synchronized void send(Packet packet) {
-        sendQueue.addPacket(new SendPacket(packet));
+        send(new EncodedPacket(packet));
+    }
+
+    /**
+     * Adds a packet to the send queue to be send on a seperate thread. The packet is marshalled
+     * and compressed only if no other connection with the same settings has sent it already.
+     */
+    public synchronized void send(EncodedPacket packet) {
+        sendQueue.addPacket(new SendPacket(packet, getCompression()));
         // Send right now
         flush();
     }
 
     /**
-     * Send the packet now, on a separate thread; This is the blocking call.
+     * Sends the packet without compressing it, regardless of the compression setting. Used for
+     * packets whose data is compressed already.
+     */
+    protected synchronized void sendUncompressed(Packet packet) {
+        sendQueue.addPacket(new SendPacket(new EncodedPacket(packet), PacketCompression.NONE));
+        flush();
+    }
+
+    /**
+     * Sends a file to the peer in chunks, without reading it into memory as a whole. An
+     * interrupted transfer of the same file resumes where it stopped. Once the file has arrived
+     * and been verified, the listeners on the other side receive a packet with the given command,
+     * whose data is the given data followed by the received <code>File</code>; they are
+     * responsible for moving or deleting it.
+     *
+     * @param file the file to send
+     * @param command the command of the packet delivered to the peer
+     * @param data the data of the packet delivered to the peer, followed by the file
+     * @param listener notified of the progress of the transfer, may be null
+     * @throws IOException if the file cannot be read
+     */
+    public void sendFile(File file, int command, Object[] data, @Nullable FileTransferListener listener)
+            throws IOException {
+        fileTransfers.send(file, FileTransferChannel.KIND_FILE, command, data, marshallingType,
+                false, listener);
+    }
+
+    /**
+     * Sends a packet with a large payload, such as a whole game. The packet is marshalled to a
+     * temporary file and sent in chunks like {@link #sendFile}; the listeners on the other side
+     * receive it like any other packet.
+     *
+     * @param packet the packet to send
+     * @param listener notified of the progress of the transfer, may be null
+     * @throws IOException if the packet cannot be marshalled
+     */
+    public void sendLarge(Packet packet, @Nullable FileTransferListener listener) throws IOException {
+        File file = File.createTempFile("megamek-", ".packet");
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+            marshaller.marshall(packet, out);
+        } catch (Exception e) {
+            file.delete();
+            throw new IOException("Unable to marshall command #" + packet.getCommand(), e);
+        }
+        try {
+            fileTransfers.send(file, FileTransferChannel.KIND_PACKET, packet.getCommand(), null,
+                    marshallingType, true, listener);
+        } catch (IOException e) {
+            file.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * Send the packet now, on a separate thread; This is the blocking call. The connection is
+     * closed when the packet cannot be sent.
      */
     public void sendNow(SendPacket packet) {
         try {
-            sendNetworkPacket(packet.getData(), packet.isCompressed());
+            sendNetworkPacket(packet.getData(), packet.getCompression());
             debugLastFewCommandsSent.push(packet.getCommand());
         } catch (Exception e) {
-            e.printStackTrace();
+            reportSendException(e, packet);
+            close();
         }
     }
 
+    /**
+     * Records the command of a packet that was handed over to the peer outside of the send queue
+     *
+     * @param command the command of the sent packet
+     */
+    protected void recordSentCommand(int command) {
+        debugLastFewCommandsSent.push(command);
+    }
+
     /**
      * @return <code>true</code> if there are pending packets
      */
@@ -475,25 +624,39 @@ public abstract class AbstractConnection {
      * process a received packet
      */
     protected void processPacket(INetworkPacket np) throws Exception {
-        PacketMarshaller pm = marshallerFactory.getMarshaller(np
-                .getMarshallingType());
-        assert (pm != null) : "Unknown marshalling type";
-        Packet packet = null;
         byte[] data = np.getData();
         bytesReceived += data.length;
-        ByteArrayInputStream bis = new ByteArrayInputStream(data);
-        InputStream in;
-        if (np.isCompressed()) {
-            in = new GZIPInputStream(bis);
-        } else {
-            in = bis;
+        InputStream in = PacketCompression.decompress(data, np.getCompression());
+        Packet packet = unmarshall(np.getMarshallingType(), in);
+        if (np.getCompression() == PacketCompression.DICTIONARY) {
+            // The peer has the same dictionary, as its data could be inflated
+            dictionaryCompression = true;
         }
-        packet = pm.unmarshall(in);
         if (packet != null) {
-            debugLastFewCommandsReceived.push(packet.getCommand());
-            processConnectionEvent(new PacketReceivedEvent(
-                    AbstractConnection.this, packet));
+            processReceivedPacket(packet);
+        }
+    }
+
+    /**
+     * Reads a packet with the given marshalling type from the stream
+     */
+    static Packet unmarshall(int marshallingType, InputStream in) throws Exception {
+        PacketMarshaller pm = marshallerFactory.getMarshaller(marshallingType);
+        assert (pm != null) : "Unknown marshalling type";
+        return pm.unmarshall(in);
+    }
+
+    /**
+     * Dispatches a fully unmarshalled packet to the connection listeners
+     *
+     * @param packet the received <code>Packet</code>
+     */
+    protected void processReceivedPacket(Packet packet) {
+        debugLastFewCommandsReceived.push(packet.getCommand());
+        if (fileTransfers.handle(packet)) {
+            return;
         }
+        processConnectionEvent(new PacketReceivedEvent(AbstractConnection.this, packet));
     }
 
     /**
@@ -515,10 +678,10 @@ public abstract class AbstractConnection {
      * Sends the data. This must not be blocked for too long
      *
      * @param data data to send
-     * @param zipped should the data be compressed
+     * @param compression the compression of the data, see {@link PacketCompression}
      * @throws Exception if there's an issue with sending the packet
      */
-    protected abstract void sendNetworkPacket(byte[] data, boolean zipped) throws Exception;
+    protected abstract void sendNetworkPacket(byte[] data, int compression) throws Exception;
 
     /**
      * Wrapper around a <code>LinkedList</code> for keeping a queue of packets
@@ -592,23 +755,15 @@ public abstract class AbstractConnection {
 
     private class SendPacket implements INetworkPacket {
         byte[] data;
-        boolean zipped = false;
+        int compression = PacketCompression.NONE;
         int command;
 
-        public SendPacket(Packet packet) {
+        public SendPacket(EncodedPacket packet, int compression) {
             command = packet.getCommand();
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            OutputStream out;
             try {
-                if (zipData && packet.getData() != null) {
-                    out = new GZIPOutputStream(bos);
-                    zipped = true;
-                } else {
-                    out = bos;
-                }
-                marshaller.marshall(packet, out);
-                out.close();
-                data = bos.toByteArray();
+                EncodedPacket.Encoding encoding = packet.encode(marshaller, marshallingType, compression);
+                data = encoding.data;
+                this.compression = encoding.compression;
                 bytesSent += data.length;
             } catch (Exception e) {
                 e.printStackTrace();
@@ -626,8 +781,8 @@ public abstract class AbstractConnection {
         }
 
         @Override
-        public boolean isCompressed() {
-            return zipped;
+        public int getCompression() {
+            return compression;
         }
 
         public int getCommand() {
@@ -655,10 +810,10 @@ public abstract class AbstractConnection {
         public abstract byte[] getData();
 
         /**
-         * Returns <code>true</code> if data is compressed
+         * Returns the compression of the data, see {@link PacketCompression}
          *
-         * @return <code>true</code> if data is compressed
+         * @return the compression of the data
          */
-        public abstract boolean isCompressed();
+        public abstract int getCompression();
     }
 }
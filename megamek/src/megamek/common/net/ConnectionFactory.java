@@ -13,7 +13,15 @@
  */
 package megamek.common.net;
 
+import java.io.IOException;
+import java.net.InetAddress;
 import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import megamek.MMConstants;
+import megamek.common.annotations.Nullable;
+import org.apache.logging.log4j.LogManager;
 
 /**
  * Connections factory. Creates the Client/Server connections
@@ -21,6 +29,11 @@ import java.net.Socket;
 public class ConnectionFactory {
     private static ConnectionFactory instance = new ConnectionFactory();
 
+    /**
+     * Servers running in this JVM, by the port they listen on
+     */
+    private final Map<Integer, LocalConnectionAcceptor> localServers = new ConcurrentHashMap<>();
+
     private ConnectionFactory() {
 
     }
@@ -43,17 +56,75 @@ public class ConnectionFactory {
      * @return new client (client-server) connection
      */
     public AbstractConnection createClientConnection(String host, int port, int id) {
+        LocalConnectionAcceptor localServer = localServers.get(port);
+        if ((localServer != null) && isLoopbackHost(host)) {
+            return new LoopbackConnection(host, port, id, localServer);
+        }
         return new DataStreamConnection(host, port, id);
     }
 
     /**
-     * Creates new Server connection
+     * Registers a server running in this JVM. Client connections to this port on the local host
+     * are then created as in-memory connections that are handed to the given acceptor on open
+     * instead of going through a socket.
+     *
+     * @param port the port the server listens on
+     * @param acceptor the server
+     */
+    public void registerLocalServer(int port, LocalConnectionAcceptor acceptor) {
+        localServers.put(port, acceptor);
+    }
+
+    /**
+     * Removes a server registered with {@link #registerLocalServer(int, LocalConnectionAcceptor)}
+     *
+     * @param port the port the server listens on
+     * @param acceptor the server
+     */
+    public void unregisterLocalServer(int port, LocalConnectionAcceptor acceptor) {
+        localServers.remove(port, acceptor);
+    }
+
+    private boolean isLoopbackHost(String host) {
+        if ((host == null) || host.isBlank() || host.equalsIgnoreCase(MMConstants.LOCALHOST)) {
+            return true;
+        }
+        try {
+            return InetAddress.getByName(host).isLoopbackAddress();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates new Server connection that reads and writes the socket with its own thread.
      * 
      * @param socket socket to read/write
      * @param id connection ID
      * @return new Server connection
      */
     public AbstractConnection createServerConnection(Socket socket, int id) {
+        return createServerConnection(socket, id, null);
+    }
+
+    /**
+     * Creates new Server connection. Sockets accepted by a <code>ServerSocketChannel</code> get a
+     * non-blocking connection that is read and written by the given selector and needs no update
+     * thread, see {@link AbstractConnection#isNonBlocking()}.
+     * 
+     * @param socket socket to read/write
+     * @param id connection ID
+     * @param selector the selector of the server, or null for a stream connection
+     * @return new Server connection
+     */
+    public AbstractConnection createServerConnection(Socket socket, int id, @Nullable ConnectionSelector selector) {
+        if ((socket.getChannel() != null) && (selector != null)) {
+            try {
+                return new NioConnection(socket.getChannel(), id, selector);
+            } catch (IOException e) {
+                LogManager.getLogger().error("Unable to create a non-blocking connection, using a stream connection", e);
+            }
+        }
         return new DataStreamConnection(socket, id);
     }
 }
@@ -0,0 +1,199 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common.net;
+
+import org.apache.logging.log4j.LogManager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads and writes the data of all {@link NioConnection}s of a server on a single thread, using one
+ * <code>Selector</code> for all of their channels. Received packets are handed to a pool of at most
+ * {@link #MAX_DISPATCHER_THREADS} threads that only exist while there are packets to process, so
+ * idle connections use no threads. Each server has its own selector and shuts it down when it stops,
+ * so stopping one server leaves the connections of the others alone.
+ * <p>
+ * The selector thread owns a small pool of direct buffers that all reads and writes go through.
+ * All methods except {@link #execute(Runnable)}, {@link #dispatch(Runnable)} and
+ * {@link #shutdown()} must only be called on the selector thread. Every
+ * {@link #TIMEOUT_CHECK_MILLIS} it closes the connections whose clients stopped taking data, see
+ * {@link NioConnection#checkSendTimeout(long)}.
+ */
+public class ConnectionSelector implements Runnable {
+
+    /** The size of the pooled direct buffers */
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The maximum number of direct buffers kept in the pool */
+    private static final int MAX_POOLED_BUFFERS = 16;
+
+    /** The interval at which the connections are checked for clients that take no data */
+    static final long TIMEOUT_CHECK_MILLIS = 1000;
+
+    /**
+     * The maximum number of threads processing received packets. The packets of one connection are
+     * processed by one thread at a time, further connections wait in line.
+     */
+    static final int MAX_DISPATCHER_THREADS = 8;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final ArrayDeque<ByteBuffer> buffers = new ArrayDeque<>();
+    private final ThreadPoolExecutor dispatcher;
+    private volatile boolean running = true;
+
+    /**
+     * Opens the selector and starts the selector thread.
+     *
+     * @throws IOException if the selector cannot be opened
+     */
+    public ConnectionSelector() throws IOException {
+        selector = Selector.open();
+        // A core pool that may time out, as an executor only grows beyond its core size when the queue is full
+        dispatcher = new ThreadPoolExecutor(MAX_DISPATCHER_THREADS, MAX_DISPATCHER_THREADS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "Connection Dispatcher " + THREAD_COUNT.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        dispatcher.allowCoreThreadTimeOut(true);
+        Thread thread = new Thread(this, "Connection Selector");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Runs the given task on the selector thread. Does nothing once the selector is shut down.
+     */
+    void execute(Runnable task) {
+        if (running) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Runs the given task on a dispatcher thread. Does nothing once the selector is shut down.
+     */
+    void dispatch(Runnable task) {
+        if (running) {
+            dispatcher.execute(task);
+        }
+    }
+
+    /**
+     * Stops the selector thread after it has run the tasks waiting for it, and closes the selector.
+     * The connections should be closed before.
+     */
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Registers the channel of a connection with the selector.
+     *
+     * @return the selection key of the channel
+     * @throws IOException if the channel cannot be registered
+     */
+    SelectionKey register(SocketChannel channel, NioConnection connection) throws IOException {
+        return channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+
+    /**
+     * @return a cleared direct buffer of {@link #BUFFER_SIZE} bytes
+     */
+    ByteBuffer acquireBuffer() {
+        ByteBuffer buffer = buffers.poll();
+        return (buffer != null) ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    /**
+     * Returns a buffer obtained by {@link #acquireBuffer()} to the pool.
+     */
+    void releaseBuffer(ByteBuffer buffer) {
+        if (buffers.size() < MAX_POOLED_BUFFERS) {
+            buffer.clear();
+            buffers.push(buffer);
+        }
+    }
+
+    @Override
+    public void run() {
+        long nextTimeoutCheck = System.nanoTime();
+        while (running) {
+            try {
+                selector.select(TIMEOUT_CHECK_MILLIS);
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    process(key);
+                }
+                long now = System.nanoTime();
+                if (now - nextTimeoutCheck >= 0) {
+                    nextTimeoutCheck = now + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_CHECK_MILLIS);
+                    for (SelectionKey key : selector.keys()) {
+                        if (key.isValid()) {
+                            ((NioConnection) key.attachment()).checkSendTimeout(now);
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                LogManager.getLogger().error("Unexpected error in the connection selector", e);
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            LogManager.getLogger().error("Failed closing the connection selector", e);
+        }
+    }
+
+    private void process(SelectionKey key) {
+        NioConnection connection = (NioConnection) key.attachment();
+        try {
+            if (key.isReadable()) {
+                connection.readReady();
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.writeReady();
+            }
+        } catch (CancelledKeyException e) {
+            // The connection was closed meanwhile
+        } catch (Exception e) {
+            connection.failed(e);
+        }
+    }
+}
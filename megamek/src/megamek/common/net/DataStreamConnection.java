@@ -63,7 +63,7 @@ class DataStreamConnection extends AbstractConnection {
     /**
      * store data for packet reception statemachine
      */
-    protected boolean zipped = false;
+    protected int compression = PacketCompression.NONE;
     protected int encoding = -1;
     protected int len = 0;
     protected PacketReadState state = PacketReadState.Header;
@@ -80,7 +80,8 @@ class DataStreamConnection extends AbstractConnection {
             synchronized (in) {
                 switch (state) {
                     case Header:
-                        zipped = in.readBoolean();
+                        // Older versions write a boolean, which matches NONE and GZIP
+                        compression = in.readUnsignedByte();
                         encoding = in.readInt();
                         len = in.readInt();
                         state = PacketReadState.Data;
@@ -88,7 +89,7 @@ class DataStreamConnection extends AbstractConnection {
                     case Data:
                         byte[] data = new byte[len];
                         in.readFully(data);
-                        packet = new NetworkPacket(zipped, encoding, data);
+                        packet = new NetworkPacket(compression, encoding, data);
                         state = PacketReadState.Header;
                         return packet;
                     default:
@@ -100,7 +101,7 @@ class DataStreamConnection extends AbstractConnection {
     }
 
     @Override
-    protected void sendNetworkPacket(byte[] data, boolean iszipped)
+    protected void sendNetworkPacket(byte[] data, int compression)
             throws Exception {
         
         if (out == null) {
@@ -108,7 +109,7 @@ class DataStreamConnection extends AbstractConnection {
                     getOutputStream(), getSendBufferSize()));
         }
         synchronized (out) {
-            out.writeBoolean(iszipped);
+            out.writeByte(compression);
             out.writeInt(marshallingType);
             out.writeInt(data.length);
             out.write(data);
@@ -147,12 +148,12 @@ class DataStreamConnection extends AbstractConnection {
         return "DataStreamConnection Id " + getId();
     }
 
-    private static class NetworkPacket implements INetworkPacket {
+    static class NetworkPacket implements INetworkPacket {
 
         /**
-         * Is data compressed
+         * Compression of the data
          */
-        private boolean compressed;
+        private int compression;
 
         /**
          * Data marshalling type
@@ -167,12 +168,12 @@ class DataStreamConnection extends AbstractConnection {
         /**
          * Creates new packet
          * 
-         * @param compressed
+         * @param compression
          * @param marshallingType
          * @param data
          */
-        NetworkPacket(boolean compressed, int marshallingType, byte[] data) {
-            this.compressed = compressed;
+        NetworkPacket(int compression, int marshallingType, byte[] data) {
+            this.compression = compression;
             this.marshallingType = marshallingType;
             this.data = data;
         }
@@ -188,8 +189,8 @@ class DataStreamConnection extends AbstractConnection {
         }
 
         @Override
-        public boolean isCompressed() {
-            return compressed;
+        public int getCompression() {
+            return compression;
         }
     }
 }
@@ -0,0 +1,108 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common.net;
+
+import megamek.common.net.marshall.PacketMarshaller;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A packet that keeps its marshalled and compressed data, so that a packet sent to several
+ * connections is marshalled only once per marshalling type and compressed only once per
+ * compression format. The data is created when the first connection sends the packet; the packet
+ * must not be changed afterwards.
+ */
+public class EncodedPacket {
+
+    /**
+     * The data of a packet as sent over the network
+     */
+    static class Encoding {
+        /** The marshalled and possibly compressed data */
+        final byte[] data;
+
+        /** The compression of the data, see {@link PacketCompression} */
+        final int compression;
+
+        Encoding(byte[] data, int compression) {
+            this.data = data;
+            this.compression = compression;
+        }
+    }
+
+    private final Packet packet;
+
+    /** The marshalled data per marshalling type */
+    private final Map<Integer, byte[]> marshalled = new HashMap<>(2);
+
+    /** The data per marshalling type and asked for compression, see {@link #key(int, int)} */
+    private final Map<Integer, Encoding> encodings = new HashMap<>(2);
+
+    /**
+     * @param packet the packet to send
+     */
+    public EncodedPacket(Packet packet) {
+        this.packet = packet;
+    }
+
+    /**
+     * @return the packet
+     */
+    public Packet getPacket() {
+        return packet;
+    }
+
+    /**
+     * @return the command of the packet
+     */
+    public int getCommand() {
+        return packet.getCommand();
+    }
+
+    /**
+     * Returns the data of the packet, marshalling and compressing it the first time it's asked for.
+     * Packets without data or with too little data to be worth compressing are not compressed.
+     *
+     * @param marshaller the marshaller for the marshalling type
+     * @param marshallingType the marshalling type
+     * @param compression the compression the connection asks for, see {@link PacketCompression}
+     * @return the marshalled and possibly compressed data
+     * @throws Exception if the packet can't be marshalled
+     */
+    synchronized Encoding encode(PacketMarshaller marshaller, int marshallingType, int compression)
+            throws Exception {
+        int key = key(marshallingType, compression);
+        Encoding encoding = encodings.get(key);
+        if (encoding == null) {
+            byte[] data = marshalled.get(marshallingType);
+            if (data == null) {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                marshaller.marshall(packet, bos);
+                data = bos.toByteArray();
+                marshalled.put(marshallingType, data);
+            }
+            int format = (packet.getData() == null) ? PacketCompression.NONE
+                    : PacketCompression.formatFor(data, compression);
+            encoding = new Encoding(PacketCompression.compress(getCommand(), data, format), format);
+            encodings.put(key, encoding);
+        }
+        return encoding;
+    }
+
+    private static int key(int marshallingType, int compression) {
+        return (marshallingType << 2) | compression;
+    }
+}
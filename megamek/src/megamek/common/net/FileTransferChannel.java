@@ -0,0 +1,526 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common.net;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+
+import megamek.common.annotations.Nullable;
+import org.apache.logging.log4j.LogManager;
+
+/**
+ * Transfers files over a connection in chunks, so that neither side has to hold the whole file in
+ * memory. The sender announces a transfer with its size and checksum; the receiver answers with
+ * the offset to start from, which is non-zero when an earlier, interrupted transfer of the same
+ * data left a partial file behind. The sender then streams the remaining chunks from the file on
+ * a separate thread, and the receiver appends them to the partial file and verifies the checksum
+ * once the file is complete.
+ * <p>
+ * A transfer either delivers a file, in which case the receiving listeners get a packet with the
+ * command and data of the transfer followed by the received file, or a marshalled packet, which is
+ * unmarshalled and delivered like any other received packet.
+ * <p>
+ * Transfers are only accepted once the connection is authenticated, see
+ * {@link AbstractConnection#setAuthenticated(boolean)}. A transfer that receives no chunk for
+ * {@link #idleTimeoutMillis} is abandoned and its partial file deleted. The partial files of a
+ * closed connection are kept for {@link #resumeTimeoutMillis} so that a new connection can resume
+ * them, and deleted afterwards. They are kept in a directory that this process creates with
+ * owner-only access, so only partial files of this process are ever resumed.
+ */
+class FileTransferChannel {
+
+    /** The size of the chunks that files are split into */
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    /** The largest file that is accepted from the peer; compressed save games stay far below it */
+    static final int MAX_TRANSFER_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The maximum number of transfers that may be received at the same time on a connection. Save
+     * games and large packets are sent one at a time, so this leaves room for one of each.
+     */
+    static final int MAX_INCOMING_TRANSFERS = 2;
+
+    /** The time after which an incoming transfer that receives no chunks is abandoned */
+    static long idleTimeoutMillis = TimeUnit.MINUTES.toMillis(2);
+
+    /** The time that the partial files of a closed connection are kept for resuming */
+    static long resumeTimeoutMillis = TimeUnit.MINUTES.toMillis(10);
+
+    static final int KIND_FILE = 0;
+    static final int KIND_PACKET = 1;
+
+    private static final AtomicInteger nextTransferId = new AtomicInteger();
+
+    /** The directory of the partial files of this process, created when first needed */
+    private static File partFileDir;
+
+    /** Partial files that are currently being written by any connection in this process */
+    private static final Set<File> partFilesInUse = ConcurrentHashMap.newKeySet();
+
+    /** Abandons idle transfers and deletes the partial files of closed connections */
+    private static final ScheduledExecutorService cleanup = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "File transfer cleanup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AbstractConnection connection;
+    private final Map<Integer, OutgoingTransfer> outgoing = new ConcurrentHashMap<>();
+    private final Map<Integer, IncomingTransfer> incoming = new ConcurrentHashMap<>();
+
+    FileTransferChannel(AbstractConnection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Announces a transfer of the given file to the peer. The chunks are sent once the peer has
+     * answered.
+     *
+     * @param file the file to send
+     * @param kind {@link #KIND_FILE} or {@link #KIND_PACKET}
+     * @param command the command of the packet the peer delivers for a file
+     * @param data the data of the packet the peer delivers for a file
+     * @param marshallingType the marshalling type of a packet transfer
+     * @param deleteWhenDone true to delete the file once the transfer has ended
+     * @param listener notified of the progress of the transfer, may be null
+     * @throws IOException if the file is too large or cannot be read
+     */
+    void send(File file, int kind, int command, Object[] data, int marshallingType,
+              boolean deleteWhenDone, @Nullable FileTransferListener listener) throws IOException {
+        long length = file.length();
+        if (length > MAX_TRANSFER_SIZE) {
+            throw new IOException(file + " is too large to be transferred");
+        }
+        int id = nextTransferId.incrementAndGet();
+        outgoing.put(id, new OutgoingTransfer(file, (int) length, deleteWhenDone, listener));
+        connection.send(new Packet(Packet.COMMAND_FILE_TRANSFER_START, new Object[] {
+                id, kind, command, data, marshallingType, (int) length, checksum(file) }));
+    }
+
+    /**
+     * Handles the transfer packets of this channel.
+     *
+     * @param packet the received packet
+     * @return true if the packet belonged to a transfer and must not be processed further
+     */
+    boolean handle(Packet packet) {
+        switch (packet.getCommand()) {
+            case Packet.COMMAND_FILE_TRANSFER_START:
+                receiveStart(packet);
+                return true;
+            case Packet.COMMAND_FILE_TRANSFER_ACCEPT:
+                receiveAccept(packet.getIntValue(0), packet.getIntValue(1));
+                return true;
+            case Packet.COMMAND_FILE_TRANSFER_CHUNK:
+                receiveChunk(packet.getIntValue(0), packet.getIntValue(1), (byte[]) packet.getObject(2));
+                return true;
+            case Packet.COMMAND_FILE_TRANSFER_DONE:
+                finishOutgoing(packet.getIntValue(0), packet.getBooleanValue(1));
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Ends all transfers of the connection. Partial files are kept for
+     * {@link #resumeTimeoutMillis} so that the transfer can be resumed on a new connection.
+     */
+    void close() {
+        for (Integer id : outgoing.keySet()) {
+            finishOutgoing(id, false);
+        }
+        for (Integer id : incoming.keySet()) {
+            IncomingTransfer transfer = incoming.remove(id);
+            if (transfer != null) {
+                synchronized (transfer) {
+                    transfer.release();
+                }
+                File partFile = transfer.file;
+                if (partFile != null) {
+                    cleanup.schedule(() -> deleteUnusedPartFile(partFile), resumeTimeoutMillis,
+                            TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the partial file of a transfer of the given size and checksum, which an interrupted
+     * transfer of the same data may have left behind
+     */
+    static File getPartFile(int checksum, int length) throws IOException {
+        return new File(getPartFileDir(), Integer.toHexString(checksum) + "-" + length + ".part");
+    }
+
+    /**
+     * @return the directory of the partial files, which only the user running MegaMek can access
+     */
+    private static synchronized File getPartFileDir() throws IOException {
+        if ((partFileDir == null) || !partFileDir.isDirectory()) {
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                partFileDir = Files.createTempDirectory("megamek-transfers-",
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------"))).toFile();
+            } else {
+                partFileDir = Files.createTempDirectory("megamek-transfers-").toFile();
+            }
+            // Registered before its files, so that it is deleted after them
+            partFileDir.deleteOnExit();
+        }
+        return partFileDir;
+    }
+
+    /**
+     * Deletes a partial file left by a closed connection, unless a new transfer resumed it.
+     */
+    private static void deleteUnusedPartFile(File partFile) {
+        if (!partFilesInUse.contains(partFile)) {
+            partFile.delete();
+        }
+    }
+
+    private void receiveStart(Packet packet) {
+        int id = packet.getIntValue(0);
+        int length = packet.getIntValue(5);
+        if (!connection.isAuthenticated()) {
+            LogManager.getLogger().error("Refusing file transfer " + id + " on unauthenticated connection "
+                    + connection.getId());
+            connection.send(new Packet(Packet.COMMAND_FILE_TRANSFER_DONE, id, false));
+            return;
+        }
+        if ((length < 0) || (length > MAX_TRANSFER_SIZE) || (incoming.size() >= MAX_INCOMING_TRANSFERS)) {
+            LogManager.getLogger().error("Refusing file transfer " + id + " of " + length
+                    + " bytes on connection " + connection.getId());
+            connection.send(new Packet(Packet.COMMAND_FILE_TRANSFER_DONE, id, false));
+            return;
+        }
+        IncomingTransfer transfer = new IncomingTransfer(packet.getIntValue(1), packet.getIntValue(2),
+                (Object[]) packet.getObject(3), packet.getIntValue(4), length, packet.getIntValue(6));
+        synchronized (transfer) {
+            try {
+                transfer.open();
+            } catch (IOException e) {
+                LogManager.getLogger().error("Unable to receive file transfer " + id, e);
+                transfer.release();
+                connection.send(new Packet(Packet.COMMAND_FILE_TRANSFER_DONE, id, false));
+                return;
+            }
+            incoming.put(id, transfer);
+            long period = Math.max(1, idleTimeoutMillis / 4);
+            transfer.idleCheck = cleanup.scheduleWithFixedDelay(() -> checkIdle(id, transfer), period,
+                    period, TimeUnit.MILLISECONDS);
+            if (transfer.received == length) {
+                completeIncoming(id, transfer);
+            } else {
+                connection.send(new Packet(Packet.COMMAND_FILE_TRANSFER_ACCEPT, id, transfer.received));
+            }
+        }
+    }
+
+    private void receiveChunk(int id, int offset, byte[] chunk) {
+        IncomingTransfer transfer = incoming.get(id);
+        if (transfer == null) {
+            return;
+        }
+        synchronized (transfer) {
+            if (incoming.get(id) != transfer) {
+                return;
+            }
+            transfer.lastActivity = System.currentTimeMillis();
+            try {
+                if ((offset != transfer.received) || (chunk.length > transfer.length - offset)) {
+                    throw new IOException("Unexpected chunk at " + offset + ", expected " + transfer.received);
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(chunk);
+                while (buffer.hasRemaining()) {
+                    transfer.channel.write(buffer, offset + buffer.position());
+                }
+                transfer.received += chunk.length;
+            } catch (IOException e) {
+                LogManager.getLogger().error("Failed to receive file transfer " + id, e);
+                abandon(id, transfer);
+                return;
+            }
+            if (transfer.received == transfer.length) {
+                completeIncoming(id, transfer);
+            }
+        }
+    }
+
+    /**
+     * Abandons an incoming transfer that has not received a chunk for {@link #idleTimeoutMillis}.
+     */
+    private void checkIdle(int id, IncomingTransfer transfer) {
+        synchronized (transfer) {
+            if (incoming.get(id) != transfer) {
+                transfer.cancelIdleCheck();
+            } else if (System.currentTimeMillis() - transfer.lastActivity > idleTimeoutMillis) {
+                LogManager.getLogger().error("File transfer " + id + " on connection "
+                        + connection.getId() + " timed out");
+                abandon(id, transfer);
+            }
+        }
+    }
+
+    /**
+     * Ends a failed incoming transfer, deletes its partial file and tells the peer. Must be called
+     * while holding the lock of the transfer.
+     */
+    private void abandon(int id, IncomingTransfer transfer) {
+        incoming.remove(id);
+        transfer.release();
+        transfer.file.delete();
+        connection.send(new Packet(Packet.COMMAND_FILE_TRANSFER_DONE, id, false));
+    }
+
+    /**
+     * Verifies and delivers a completely received file. Must be called while holding the lock of
+     * the transfer.
+     */
+    private void completeIncoming(int id, IncomingTransfer transfer) {
+        boolean valid;
+        try {
+            transfer.channel.force(false);
+            valid = (checksum(transfer.file) == transfer.checksum);
+        } catch (IOException e) {
+            LogManager.getLogger().error("Failed to verify file transfer " + id, e);
+            valid = false;
+        }
+
+        if (!valid && transfer.resumedFrom > 0) {
+            // The partial file belonged to different data after all; start over
+            try {
+                transfer.channel.truncate(0);
+                transfer.received = 0;
+                transfer.resumedFrom = 0;
+                connection.send(new Packet(Packet.COMMAND_FILE_TRANSFER_ACCEPT, id, 0));
+                return;
+            } catch (IOException e) {
+                LogManager.getLogger().error("Failed to restart file transfer " + id, e);
+            }
+        }
+
+        incoming.remove(id);
+        transfer.release();
+        if (!valid) {
+            LogManager.getLogger().error("File transfer " + id + " on connection "
+                    + connection.getId() + " was corrupted");
+            transfer.file.delete();
+            connection.send(new Packet(Packet.COMMAND_FILE_TRANSFER_DONE, id, false));
+            return;
+        }
+        connection.send(new Packet(Packet.COMMAND_FILE_TRANSFER_DONE, id, true));
+
+        try {
+            connection.processReceivedPacket(transfer.deliver());
+        } catch (Exception e) {
+            LogManager.getLogger().error("Failed to deliver file transfer " + id, e);
+        }
+    }
+
+    private void receiveAccept(int id, int offset) {
+        OutgoingTransfer transfer = outgoing.get(id);
+        if ((transfer == null) || (offset < 0) || (offset > transfer.length)) {
+            return;
+        }
+        Thread sender = new Thread(() -> stream(id, transfer, offset), "File transfer " + id);
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    /**
+     * Sends the chunks of the file from the given offset on. Chunk buffers are never reused, as a
+     * loopback connection hands them to the peer without copying.
+     */
+    private void stream(int id, OutgoingTransfer transfer, int offset) {
+        try (FileChannel channel = FileChannel.open(transfer.file.toPath(), StandardOpenOption.READ)) {
+            int position = offset;
+            transfer.progress(position);
+            while ((position < transfer.length) && outgoing.containsKey(id) && !connection.isClosed()) {
+                ByteBuffer buffer = ByteBuffer.allocate(Math.min(CHUNK_SIZE, transfer.length - position));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        throw new EOFException(transfer.file + " was truncated during the transfer");
+                    }
+                }
+                // The file is a compressed save or marshalled packet already
+                connection.sendUncompressed(new Packet(Packet.COMMAND_FILE_TRANSFER_CHUNK,
+                        new Object[] { id, position, buffer.array() }));
+                position += buffer.capacity();
+                transfer.progress(position);
+            }
+        } catch (Exception e) {
+            LogManager.getLogger().error("Failed to send file transfer " + id, e);
+            finishOutgoing(id, false);
+        }
+    }
+
+    private void finishOutgoing(int id, boolean success) {
+        OutgoingTransfer transfer = outgoing.remove(id);
+        if (transfer == null) {
+            return;
+        }
+        if (transfer.deleteWhenDone) {
+            transfer.file.delete();
+        }
+        if (transfer.listener != null) {
+            transfer.listener.transferFinished(success);
+        }
+    }
+
+    static int checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return (int) crc.getValue();
+    }
+
+    private static final class OutgoingTransfer {
+        private final File file;
+        private final int length;
+        private final boolean deleteWhenDone;
+        private final FileTransferListener listener;
+
+        OutgoingTransfer(File file, int length, boolean deleteWhenDone, FileTransferListener listener) {
+            this.file = file;
+            this.length = length;
+            this.deleteWhenDone = deleteWhenDone;
+            this.listener = listener;
+        }
+
+        void progress(int sent) {
+            if (listener != null) {
+                listener.transferProgress(sent, length);
+            }
+        }
+    }
+
+    private static final class IncomingTransfer {
+        private final int kind;
+        private final int command;
+        private final Object[] data;
+        private final int marshallingType;
+        private final int length;
+        private final int checksum;
+        private File file;
+        private FileChannel channel;
+        private int received;
+        private int resumedFrom;
+        private volatile long lastActivity = System.currentTimeMillis();
+        private ScheduledFuture<?> idleCheck;
+
+        IncomingTransfer(int kind, int command, Object[] data, int marshallingType, int length, int checksum) {
+            this.kind = kind;
+            this.command = command;
+            this.data = data;
+            this.marshallingType = marshallingType;
+            this.length = length;
+            this.checksum = checksum;
+        }
+
+        /**
+         * Opens the partial file of this transfer. Data that an interrupted transfer of the same
+         * size and checksum left behind is kept, unless another transfer is writing it.
+         */
+        void open() throws IOException {
+            File partFile = getPartFile(checksum, length);
+            if (partFilesInUse.add(partFile)) {
+                file = partFile;
+            } else {
+                file = File.createTempFile("megamek-", ".part", getPartFileDir());
+            }
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.READ, LinkOption.NOFOLLOW_LINKS);
+            // In case the process ends before the transfer completes or times out
+            file.deleteOnExit();
+            if (channel.size() > length) {
+                channel.truncate(0);
+            }
+            received = (int) channel.size();
+            resumedFrom = received;
+        }
+
+        void release() {
+            cancelIdleCheck();
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                LogManager.getLogger().error("Failed to close " + file, e);
+            }
+            if (file != null) {
+                partFilesInUse.remove(file);
+            }
+        }
+
+        void cancelIdleCheck() {
+            if (idleCheck != null) {
+                idleCheck.cancel(false);
+            }
+        }
+
+        /**
+         * @return the packet to deliver for the completely received file
+         */
+        Packet deliver() throws Exception {
+            if (kind == KIND_PACKET) {
+                // The packet is limited like one received directly, however well it was compressed
+                try (InputStream in = new BoundedInputStream(new GZIPInputStream(new BufferedInputStream(
+                        Files.newInputStream(file.toPath()))), NioConnection.MAX_PACKET_SIZE)) {
+                    return AbstractConnection.unmarshall(marshallingType, in);
+                } finally {
+                    file.delete();
+                }
+            }
+            // Move the file out of the way of later transfers of the same data
+            File received = File.createTempFile("megamek-", ".transfer");
+            Files.move(file.toPath(), received.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Object[] packetData = new Object[(data == null) ? 1 : data.length + 1];
+            if (data != null) {
+                System.arraycopy(data, 0, packetData, 0, data.length);
+            }
+            packetData[packetData.length - 1] = received;
+            return new Packet(command, packetData);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common.net;
+
+/**
+ * Receives the progress of a chunked transfer started with
+ * {@link AbstractConnection#sendFile(java.io.File, int, Object[], FileTransferListener)} or
+ * {@link AbstractConnection#sendLarge(Packet, FileTransferListener)}. The methods are called from
+ * the thread sending the chunks or from the connection's reading thread, never from the event
+ * dispatch thread.
+ */
+public interface FileTransferListener {
+
+    /**
+     * Called after each chunk has been sent.
+     *
+     * @param sent the number of bytes sent so far, including those the peer already had
+     * @param total the total number of bytes of the transfer
+     */
+    default void transferProgress(long sent, long total) { }
+
+    /**
+     * Called once when the transfer has ended.
+     *
+     * @param success true if the peer has received and verified the complete data
+     */
+    default void transferFinished(boolean success) { }
+}
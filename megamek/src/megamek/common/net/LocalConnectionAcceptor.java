@@ -0,0 +1,30 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common.net;
+
+/**
+ * A server running in this JVM that accepts in-memory connections from clients running in the
+ * same JVM, see {@link ConnectionFactory#registerLocalServer(int, LocalConnectionAcceptor)}.
+ */
+@FunctionalInterface
+public interface LocalConnectionAcceptor {
+
+    /**
+     * Accepts the server side of a new in-memory connection. It has already been opened.
+     *
+     * @param connection the server side of the connection
+     * @return <code>true</code> if the connection was accepted
+     */
+    boolean acceptLocalConnection(AbstractConnection connection);
+}
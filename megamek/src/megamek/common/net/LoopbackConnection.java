@@ -0,0 +1,247 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common.net;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.logging.log4j.LogManager;
+
+/**
+ * Implementation of the <code>Connection</code> that connects a client and a server running in the
+ * same JVM. Packets are handed over to the peer through a queue, without any framing, compression
+ * or socket I/O. Each sent packet is copied so that the two sides never share mutable state, just
+ * as if the packet had travelled over the network.
+ */
+class LoopbackConnection extends AbstractConnection {
+
+    /**
+     * Marker put into the inbound queue to wake up the reading thread when the connection closes
+     */
+    private static final Packet CLOSED_MARKER = new Packet(Packet.COMMAND_CLOSE_CONNECTION);
+
+    /**
+     * Packets sent by the peer that wait to be processed
+     */
+    private final BlockingQueue<Packet> inbound = new LinkedBlockingQueue<>();
+
+    /**
+     * The other side of this connection
+     */
+    private LoopbackConnection peer;
+
+    /**
+     * The server to hand the server side of this connection to when it is opened. Only set on
+     * client connections.
+     */
+    private final LocalConnectionAcceptor acceptor;
+
+    private volatile boolean open;
+
+    private volatile boolean closed;
+
+    /**
+     * Creates new Client connection
+     *
+     * @param host the host the client asked to connect to
+     * @param port the port of the local server
+     * @param id connection ID
+     * @param acceptor the local server that accepts this connection
+     */
+    LoopbackConnection(String host, int port, int id, LocalConnectionAcceptor acceptor) {
+        super(host, port, id);
+        this.acceptor = acceptor;
+    }
+
+    /**
+     * Creates the server side of a client connection
+     *
+     * @param peer the client side of the connection
+     */
+    private LoopbackConnection(LoopbackConnection peer) {
+        super((Socket) null, peer.getId());
+        this.peer = peer;
+        this.acceptor = null;
+        open = true;
+    }
+
+    @Override
+    public synchronized boolean open() {
+        if (closed) {
+            return false;
+        } else if (!open && (acceptor != null)) {
+            peer = new LoopbackConnection(this);
+            open = true;
+            if (!acceptor.acceptLocalConnection(peer)) {
+                open = false;
+                peer = null;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        LoopbackConnection other;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            other = peer;
+            inbound.clear();
+            inbound.add(CLOSED_MARKER);
+        }
+        super.close();
+        if (other != null) {
+            other.inbound.add(CLOSED_MARKER);
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return !open || closed;
+    }
+
+    @Override
+    public String getInetAddress() {
+        return "loopback";
+    }
+
+    @Override
+    public synchronized void send(Packet packet) {
+        if (isClosed() || (peer == null)) {
+            return;
+        }
+        try {
+            peer.inbound.add(copyOf(packet));
+            recordSentCommand(packet.getCommand());
+        } catch (Exception e) {
+            LogManager.getLogger().error("Failed to hand over command #" + packet.getCommand()
+                    + " on loopback connection " + getId(), e);
+        }
+    }
+
+    @Override
+    public void send(EncodedPacket packet) {
+        send(packet.getPacket());
+    }
+
+    @Override
+    protected void sendUncompressed(Packet packet) {
+        send(packet);
+    }
+
+    @Override
+    public synchronized boolean hasPending() {
+        return false;
+    }
+
+    /**
+     * Processes incoming packets, blocking until the peer sends one. Returns after the connection
+     * has been closed.
+     */
+    @Override
+    public void update() {
+        try {
+            while (!closed) {
+                Packet packet = inbound.take();
+                if (packet == CLOSED_MARKER) {
+                    close();
+                    return;
+                }
+                processReceivedPacket(packet);
+            }
+        } catch (InterruptedException e) {
+            // The reading thread is being shut down; the handler decides whether to continue
+        } catch (Exception e) {
+            LogManager.getLogger().error("", e);
+            reportReceiveException(e);
+            close();
+        }
+    }
+
+    @Override
+    protected INetworkPacket readNetworkPacket() {
+        // Packets are never framed on a loopback connection
+        return null;
+    }
+
+    /**
+     * Hands an already encoded packet over to the peer. Packets are normally sent without being
+     * encoded; this is only reached through <code>sendNow</code>. The data is decoded into
+     * a new packet, which is therefore a copy, and delivered like any other.
+     */
+    @Override
+    protected void sendNetworkPacket(byte[] data, int compression) throws Exception {
+        Packet packet = unmarshall(getMarshallingType(), PacketCompression.decompress(data, compression));
+        synchronized (this) {
+            if (isClosed() || (peer == null)) {
+                throw new SocketException("Loopback connection " + getId() + " is closed");
+            }
+            peer.inbound.add(packet);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LoopbackConnection Id " + getId();
+    }
+
+    /**
+     * Returns a copy of the given packet that shares no mutable state with it. Packets that only
+     * carry immutable values are copied shallowly; all others are deep copied in memory through
+     * Java serialization, without compression, in a single stream so that references shared
+     * between the data objects remain shared in the copy. File transfer chunks are not copied, as
+     * their buffers are never reused by the sender.
+     *
+     * @param packet the packet to copy
+     * @return the copy
+     * @throws Exception if the packet data cannot be copied
+     */
+    static Packet copyOf(Packet packet) throws Exception {
+        Object[] data = packet.getData();
+        if (data == null) {
+            return new Packet(packet.getCommand(), (Object[]) null);
+        } else if (isImmutable(data) || (packet.getCommand() == Packet.COMMAND_FILE_TRANSFER_CHUNK)) {
+            return new Packet(packet.getCommand(), data.clone());
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+            out.writeObject(data);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+            return new Packet(packet.getCommand(), (Object[]) in.readObject());
+        }
+    }
+
+    private static boolean isImmutable(Object[] data) {
+        for (Object object : data) {
+            if ((object != null) && !(object instanceof String) && !(object instanceof Integer)
+                    && !(object instanceof Long) && !(object instanceof Double)
+                    && !(object instanceof Float) && !(object instanceof Boolean)
+                    && !(object instanceof Enum)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,414 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common.net;
+
+import org.apache.logging.log4j.LogManager;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server connection that reads and writes without blocking, on the thread of a
+ * {@link ConnectionSelector} shared by all such connections. It uses the same framing as
+ * {@link DataStreamConnection} (the compression, the marshalling type and the data length,
+ * followed by the data), so clients cannot tell the difference.
+ * <p>
+ * Received packets are processed on a dispatcher thread, in the order they arrived; no thread needs
+ * to call {@link #update()} or {@link #flush()}. When the received packets wait for more than
+ * {@link #MAX_PENDING_INPUT} bytes to be processed, reading pauses until they are. Sending never
+ * blocks: a packet that would leave more than {@link #MAX_PENDING_OUTPUT} bytes waiting to be
+ * written fails, and a connection whose client takes none of the waiting data for
+ * {@link #sendTimeoutMillis} is closed by the selector.
+ */
+class NioConnection extends AbstractConnection {
+
+    /** The size of the header preceding the data of every packet */
+    static final int HEADER_SIZE = 9;
+
+    /** The maximum length of the data of a received packet */
+    static final int MAX_PACKET_SIZE = 128 * 1024 * 1024;
+
+    /** The number of received bytes waiting to be processed at which reading pauses */
+    static final int MAX_PENDING_INPUT = 4 * 1024 * 1024;
+
+    /** The number of bytes waiting to be written above which sending fails */
+    static final int MAX_PENDING_OUTPUT = 16 * 1024 * 1024;
+
+    /** The time after which a connection whose client takes none of the sent data is closed */
+    static long sendTimeoutMillis = TimeUnit.SECONDS.toMillis(30);
+
+    private final SocketChannel channel;
+    private final ConnectionSelector selector;
+
+    /** The selection key of the channel; only used on the selector thread */
+    private SelectionKey key;
+    private boolean registered;
+
+    // The state of the packet being read; only used on the selector thread
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    private int frameCompression;
+    private int frameEncoding;
+    private byte[] frameData;
+    private int frameOffset;
+
+    private final Queue<INetworkPacket> inbound = new ConcurrentLinkedQueue<>();
+    private final AtomicLong inboundBytes = new AtomicLong();
+    private final AtomicBoolean delivering = new AtomicBoolean();
+    private volatile boolean readPaused;
+    private volatile boolean endOfStream;
+
+    /** Packets waiting to be written; also guards the fields below it */
+    private final ArrayDeque<Frame> outbound = new ArrayDeque<>();
+    private long outboundBytes;
+    private boolean writeRequested;
+    private boolean closed;
+
+    /** The time of the last write to the channel, or of the write request if none since */
+    private volatile long lastWriteTime;
+
+    /** The partially written data; only used on the selector thread */
+    private ByteBuffer writeBuffer;
+
+    /**
+     * Creates new server connection
+     *
+     * @param channel the accepted channel
+     * @param id connection ID
+     * @param selector the selector to read and write on
+     * @throws IOException if the channel cannot be made non-blocking
+     */
+    NioConnection(SocketChannel channel, int id, ConnectionSelector selector) throws IOException {
+        super(channel.socket(), id);
+        this.channel = channel;
+        this.selector = selector;
+        channel.configureBlocking(false);
+    }
+
+    @Override
+    public boolean isNonBlocking() {
+        return true;
+    }
+
+    /**
+     * Opens the connection and starts reading from it
+     */
+    @Override
+    public synchronized boolean open() {
+        if (!super.open()) {
+            return false;
+        }
+        if (!registered) {
+            registered = true;
+            selector.execute(() -> {
+                try {
+                    key = selector.register(channel, this);
+                    updateInterest();
+                } catch (IOException e) {
+                    failed(e);
+                }
+            });
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        synchronized (outbound) {
+            closed = true;
+            outbound.clear();
+            outboundBytes = 0;
+        }
+        inbound.clear();
+        inboundBytes.set(0);
+        super.close();
+        selector.execute(this::releaseResources);
+    }
+
+    @Override
+    protected INetworkPacket readNetworkPacket() {
+        INetworkPacket packet = inbound.poll();
+        if (packet != null) {
+            inboundBytes.addAndGet(-packet.getData().length);
+        }
+        return packet;
+    }
+
+    @Override
+    protected void sendNetworkPacket(byte[] data, int compression) throws Exception {
+        byte[] frameHeader = new byte[HEADER_SIZE];
+        ByteBuffer.wrap(frameHeader).put((byte) compression).putInt(marshallingType).putInt(data.length);
+        boolean requestWrite = false;
+        synchronized (outbound) {
+            if (closed) {
+                throw new SocketException("Connection " + getId() + " is closed");
+            }
+            long size = frameHeader.length + data.length;
+            // A single packet may be larger than the limit, as long as nothing else waits
+            if (!outbound.isEmpty() && (outboundBytes + size > MAX_PENDING_OUTPUT)) {
+                throw new IOException("Connection " + getId() + " has more than " + MAX_PENDING_OUTPUT
+                        + " bytes waiting to be sent");
+            }
+            outbound.add(new Frame(frameHeader, data));
+            outboundBytes += size;
+            if (!writeRequested) {
+                writeRequested = true;
+                lastWriteTime = System.nanoTime();
+                requestWrite = true;
+            }
+        }
+        if (requestWrite) {
+            selector.execute(this::updateInterest);
+        }
+    }
+
+    /**
+     * Reads the available data; called on the selector thread
+     */
+    void readReady() throws IOException {
+        ByteBuffer buffer = selector.acquireBuffer();
+        try {
+            if (channel.read(buffer) < 0) {
+                endOfStream = true;
+                updateInterest();
+                deliver();
+                return;
+            }
+            buffer.flip();
+            receive(buffer);
+        } finally {
+            selector.releaseBuffer(buffer);
+        }
+        if (inboundBytes.get() > MAX_PENDING_INPUT) {
+            readPaused = true;
+            // The dispatcher may have taken the packets before it could see the pause
+            readPaused = inboundBytes.get() > MAX_PENDING_INPUT / 2;
+            updateInterest();
+        }
+    }
+
+    /**
+     * Splits the received data into packets and hands complete ones to the dispatcher
+     */
+    private void receive(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (frameData == null) {
+                while (header.hasRemaining() && buffer.hasRemaining()) {
+                    header.put(buffer.get());
+                }
+                if (header.hasRemaining()) {
+                    return;
+                }
+                header.flip();
+                frameCompression = header.get() & 0xFF;
+                frameEncoding = header.getInt();
+                int length = header.getInt();
+                header.clear();
+                if ((length < 0) || (length > MAX_PACKET_SIZE)) {
+                    throw new IOException("Invalid packet length " + length + " on connection " + getId());
+                }
+                frameData = new byte[length];
+                frameOffset = 0;
+            }
+            int count = Math.min(frameData.length - frameOffset, buffer.remaining());
+            buffer.get(frameData, frameOffset, count);
+            frameOffset += count;
+            if (frameOffset == frameData.length) {
+                inboundBytes.addAndGet(frameData.length);
+                inbound.add(new DataStreamConnection.NetworkPacket(frameCompression, frameEncoding, frameData));
+                frameData = null;
+                deliver();
+            }
+        }
+    }
+
+    /**
+     * Writes as much of the queued data as the channel takes; called on the selector thread
+     */
+    void writeReady() throws IOException {
+        if (writeBuffer == null) {
+            writeBuffer = selector.acquireBuffer();
+        }
+        while (true) {
+            synchronized (outbound) {
+                Frame frame;
+                while (writeBuffer.hasRemaining() && ((frame = outbound.peek()) != null)) {
+                    outboundBytes -= frame.writeTo(writeBuffer);
+                    if (frame.isWritten()) {
+                        outbound.poll();
+                    }
+                }
+                if ((writeBuffer.position() == 0) && outbound.isEmpty()) {
+                    writeRequested = false;
+                    selector.releaseBuffer(writeBuffer);
+                    writeBuffer = null;
+                    break;
+                }
+            }
+            writeBuffer.flip();
+            if (channel.write(writeBuffer) > 0) {
+                lastWriteTime = System.nanoTime();
+            }
+            boolean written = !writeBuffer.hasRemaining();
+            writeBuffer.compact();
+            if (!written) {
+                // The channel is full, continue when it can take more
+                return;
+            }
+        }
+        updateInterest();
+    }
+
+    /**
+     * Closes the connection when its client has taken none of the waiting data for
+     * {@link #sendTimeoutMillis}; called on the selector thread
+     *
+     * @param now the current {@link System#nanoTime()}
+     */
+    void checkSendTimeout(long now) {
+        synchronized (outbound) {
+            if (closed || !writeRequested
+                    || (now - lastWriteTime < TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis))) {
+                return;
+            }
+            // Refuse further packets right away, the listeners are told on a dispatcher thread
+            closed = true;
+            outbound.clear();
+            outboundBytes = 0;
+        }
+        LogManager.getLogger().warn("Connection " + getId() + " took no data for "
+                + sendTimeoutMillis + " ms, closing it");
+        selector.dispatch(this::close);
+    }
+
+    /**
+     * Gives up the connection after a failed read or write; called on the selector thread
+     */
+    void failed(Exception e) {
+        if (!(e instanceof IOException)) {
+            LogManager.getLogger().error("Failed reading or writing connection " + getId(), e);
+        }
+        endOfStream = true;
+        releaseResources();
+        deliver();
+    }
+
+    /**
+     * Processes the received packets on a dispatcher thread, unless that is being done already
+     */
+    private void deliver() {
+        if (delivering.compareAndSet(false, true)) {
+            selector.dispatch(this::processReceived);
+        }
+    }
+
+    private void processReceived() {
+        do {
+            update();
+            if (readPaused && (inboundBytes.get() <= MAX_PENDING_INPUT / 2)) {
+                selector.execute(this::resumeReading);
+            }
+            if (endOfStream && inbound.isEmpty() && !isClosed()) {
+                close();
+            }
+            delivering.set(false);
+        } while ((!inbound.isEmpty() || (endOfStream && !isClosed())) && delivering.compareAndSet(false, true));
+    }
+
+    private void resumeReading() {
+        readPaused = false;
+        updateInterest();
+    }
+
+    /**
+     * Selects the operations the selector waits for; called on the selector thread
+     */
+    private void updateInterest() {
+        if ((key == null) || !key.isValid()) {
+            return;
+        }
+        int ops = (readPaused || endOfStream) ? 0 : SelectionKey.OP_READ;
+        synchronized (outbound) {
+            if (writeRequested) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+        }
+        key.interestOps(ops);
+    }
+
+    /**
+     * Stops selecting the channel and returns the write buffer; called on the selector thread
+     */
+    private void releaseResources() {
+        if (key != null) {
+            key.cancel();
+        }
+        if (writeBuffer != null) {
+            selector.releaseBuffer(writeBuffer);
+            writeBuffer = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NioConnection Id " + getId();
+    }
+
+    /**
+     * The header and data of a packet waiting to be written
+     */
+    private static class Frame {
+        private final byte[] header;
+        private final byte[] data;
+        private int position;
+
+        Frame(byte[] header, byte[] data) {
+            this.header = header;
+            this.data = data;
+        }
+
+        /**
+         * Copies as much of the remaining bytes as fit into the buffer
+         *
+         * @return the number of copied bytes
+         */
+        int writeTo(ByteBuffer buffer) {
+            int start = position;
+            if (position < header.length) {
+                int count = Math.min(header.length - position, buffer.remaining());
+                buffer.put(header, position, count);
+                position += count;
+            }
+            if (position >= header.length) {
+                int offset = position - header.length;
+                int count = Math.min(data.length - offset, buffer.remaining());
+                buffer.put(data, offset, count);
+                position += count;
+            }
+            return position - start;
+        }
+
+        boolean isWritten() {
+            return position == header.length + data.length;
+        }
+    }
+}
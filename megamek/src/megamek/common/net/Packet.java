@@ -147,6 +147,11 @@ public class Packet {
     
     public static final int COMMAND_GAME_VICTORY_EVENT = 800;
 
+    public static final int COMMAND_FILE_TRANSFER_START = 900;
+    public static final int COMMAND_FILE_TRANSFER_ACCEPT = 901;
+    public static final int COMMAND_FILE_TRANSFER_CHUNK = 902;
+    public static final int COMMAND_FILE_TRANSFER_DONE = 903;
+
     private int command;
 
     private Object[] data;
@@ -0,0 +1,344 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common.net;
+
+import megamek.common.*;
+import megamek.common.options.Quirks;
+import megamek.common.options.WeaponQuirks;
+import org.apache.logging.log4j.LogManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses the data of packets sent over the network. The format is sent in the header of every
+ * packet, in the byte older versions use as a compressed flag, so they keep understanding
+ * {@link #NONE} and {@link #GZIP}.
+ * <p>
+ * Packets smaller than {@link #THRESHOLD} bytes are never compressed, as compression makes them
+ * larger. {@link #DICTIONARY} deflates with a preset dictionary made from the serialized class
+ * descriptors of the objects that make up typical entity packets, which every Java serialization
+ * stream otherwise repeats in full. It is only used once the peer is known to have the same
+ * dictionary, see {@link #getDictionaryId()}.
+ * <p>
+ * The compression ratio and time are counted per packet command, see {@link #getCounters()}.
+ */
+public final class PacketCompression {
+
+    /** Data that is not compressed */
+    public static final int NONE = 0;
+
+    /** Data compressed with GZIP */
+    public static final int GZIP = 1;
+
+    /** Data deflated with the preset dictionary */
+    public static final int DICTIONARY = 2;
+
+    /** The size in bytes below which data is not compressed */
+    public static final int THRESHOLD = 256;
+
+    /**
+     * The maximum size of the uncompressed data of a received packet. Received data is inflated
+     * before the peer is authenticated, so a small packet must not expand without limit.
+     */
+    static int maxUncompressedSize = NioConnection.MAX_PACKET_SIZE;
+
+    /** The size of the deflate window; longer dictionaries are cut to their last part */
+    private static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+    /**
+     * The classes whose descriptors make up the dictionary. The most common ones come last, as
+     * they are nearest to the data.
+     */
+    private static final Class<?>[] DICTIONARY_CLASSES = {
+            Hashtable.class, HashMap.class, ArrayList.class, Game.class, Player.class,
+            Board.class, Hex.class, Terrain.class, Report.class, Building.class, Minefield.class,
+            SmallCraft.class, Dropship.class, Jumpship.class, Warship.class, SpaceStation.class,
+            ConvFighter.class, Aero.class, Protomech.class,
+            GunEmplacement.class, SupportTank.class, LargeSupportTank.class, SupportVTOL.class,
+            VTOL.class, Tank.class, BattleArmor.class, Infantry.class, QuadMech.class,
+            TripodMech.class, LandAirMech.class, BipedMech.class, Mech.class, Entity.class,
+            Crew.class, Quirks.class, WeaponQuirks.class, CriticalSlot.class, Mounted.class,
+            Coords.class, Vector.class, Packet.class
+    };
+
+    private static volatile byte[] dictionary;
+    private static volatile int dictionaryId;
+
+    private static final Map<Integer, Counters> COUNTERS = new ConcurrentHashMap<>();
+
+    /**
+     * Compression counters for the packets with one command
+     */
+    public static class Counters {
+        private final LongAdder packets = new LongAdder();
+        private final LongAdder compressedPackets = new LongAdder();
+        private final LongAdder uncompressedBytes = new LongAdder();
+        private final LongAdder compressedBytes = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        /**
+         * @return the number of encoded packets
+         */
+        public long getPackets() {
+            return packets.sum();
+        }
+
+        /**
+         * @return the number of packets that were compressed
+         */
+        public long getCompressedPackets() {
+            return compressedPackets.sum();
+        }
+
+        /**
+         * @return the size of the compressed packets before compression
+         */
+        public long getUncompressedBytes() {
+            return uncompressedBytes.sum();
+        }
+
+        /**
+         * @return the size of the compressed packets after compression
+         */
+        public long getCompressedBytes() {
+            return compressedBytes.sum();
+        }
+
+        /**
+         * @return the compressed size divided by the uncompressed size, 1 if nothing was compressed
+         */
+        public double getRatio() {
+            long uncompressed = getUncompressedBytes();
+            return (uncompressed == 0) ? 1 : (double) getCompressedBytes() / uncompressed;
+        }
+
+        /**
+         * @return the time spent compressing, in nanoseconds
+         */
+        public long getNanos() {
+            return nanos.sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d packets, %d compressed, %d -> %d bytes (%.2f), %.2f ms",
+                    getPackets(), getCompressedPackets(), getUncompressedBytes(),
+                    getCompressedBytes(), getRatio(), getNanos() / 1e6);
+        }
+    }
+
+    private PacketCompression() { }
+
+    /**
+     * Decides how to compress marshalled packet data.
+     *
+     * @param data the marshalled data
+     * @param compression the format the connection asks for
+     * @return the format actually used; {@link #NONE} if the data is too small to be worth it
+     */
+    static int formatFor(byte[] data, int compression) {
+        return (data.length < THRESHOLD) ? NONE : compression;
+    }
+
+    /**
+     * Compresses marshalled packet data in the given format.
+     *
+     * @param command the command of the packet, for the counters
+     * @param data the marshalled data
+     * @param format the format, as returned by {@link #formatFor(byte[], int)}
+     * @return the compressed data
+     * @throws IOException if the data cannot be compressed
+     */
+    static byte[] compress(int command, byte[] data, int format) throws IOException {
+        Counters counters = COUNTERS.computeIfAbsent(command, c -> new Counters());
+        counters.packets.increment();
+        if (format == NONE) {
+            return data;
+        }
+        long start = System.nanoTime();
+        byte[] compressed;
+        if (format == GZIP) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length / 4 + 64);
+            try (GZIPOutputStream out = new GZIPOutputStream(bos)) {
+                out.write(data);
+            }
+            compressed = bos.toByteArray();
+        } else if (format == DICTIONARY) {
+            compressed = deflate(data);
+        } else {
+            throw new IOException("Unknown compression " + format);
+        }
+        counters.nanos.add(System.nanoTime() - start);
+        counters.compressedPackets.increment();
+        counters.uncompressedBytes.add(data.length);
+        counters.compressedBytes.add(compressed.length);
+        return compressed;
+    }
+
+    /**
+     * Returns a stream of the uncompressed data of a received packet.
+     *
+     * @param data the received data
+     * @param format the format of the data
+     * @return the uncompressed data
+     * @throws IOException if the data cannot be uncompressed
+     */
+    static InputStream decompress(byte[] data, int format) throws IOException {
+        switch (format) {
+            case NONE:
+                return new ByteArrayInputStream(data);
+            case GZIP:
+                return new BoundedInputStream(new GZIPInputStream(new ByteArrayInputStream(data)),
+                        maxUncompressedSize);
+            case DICTIONARY:
+                return new ByteArrayInputStream(inflate(data));
+            default:
+                throw new IOException("Unknown compression " + format);
+        }
+    }
+
+    /**
+     * @return the compression counters by packet command
+     */
+    public static Map<Integer, Counters> getCounters() {
+        return Collections.unmodifiableMap(COUNTERS);
+    }
+
+    /**
+     * Clears the compression counters.
+     */
+    public static void resetCounters() {
+        COUNTERS.clear();
+    }
+
+    /**
+     * Returns the checksum of the preset dictionary. Peers that report the same checksum can send
+     * each other {@link #DICTIONARY} packets.
+     *
+     * @return the Adler-32 checksum of the dictionary, as found in the header of deflated data
+     */
+    public static int getDictionaryId() {
+        getDictionary();
+        return dictionaryId;
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setDictionary(getDictionary());
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(
+                    (int) Math.min(data.length * 4L, maxUncompressedSize));
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int remaining = inflater.getRemaining();
+                int count = inflater.inflate(buffer);
+                if (count == 0) {
+                    if (inflater.needsDictionary()) {
+                        if (inflater.getAdler() != getDictionaryId()) {
+                            throw new IOException("Packet data was deflated with a different dictionary");
+                        }
+                        inflater.setDictionary(getDictionary());
+                    } else if (inflater.needsInput()) {
+                        throw new EOFException("Packet data ends before the deflated stream");
+                    } else if (!inflater.finished() && (inflater.getRemaining() == remaining)) {
+                        throw new IOException("Inflating packet data makes no progress");
+                    }
+                }
+                if (out.size() + count > maxUncompressedSize) {
+                    throw new IOException("Packet data exceeds " + maxUncompressedSize + " bytes");
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid deflated packet data", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] getDictionary() {
+        byte[] result = dictionary;
+        if (result == null) {
+            synchronized (PacketCompression.class) {
+                result = dictionary;
+                if (result == null) {
+                    result = createDictionary();
+                    Adler32 adler = new Adler32();
+                    adler.update(result);
+                    dictionaryId = (int) adler.getValue();
+                    dictionary = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static byte[] createDictionary() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+            for (Class<?> c : DICTIONARY_CLASSES) {
+                ObjectStreamClass descriptor = ObjectStreamClass.lookup(c);
+                if (descriptor != null) {
+                    out.writeObject(descriptor);
+                }
+            }
+        } catch (IOException e) {
+            LogManager.getLogger().error("Unable to create the packet compression dictionary", e);
+        }
+        byte[] result = bos.toByteArray();
+        return (result.length > MAX_DICTIONARY_SIZE)
+                ? Arrays.copyOfRange(result, result.length - MAX_DICTIONARY_SIZE, result.length)
+                : result;
+    }
+}
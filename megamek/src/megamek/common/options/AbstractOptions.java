@@ -21,6 +21,7 @@ import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Parent class for options settings
@@ -29,6 +30,11 @@ public abstract class AbstractOptions implements Serializable {
     private static final long serialVersionUID = 6406883135074654379L;
     private Hashtable<String, IOption> optionsHash = new Hashtable<>();
 
+    /** Source of the versions of all options objects, so that no two share a version */
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private transient volatile long version;
+
     protected AbstractOptions() {
         initialize();
         getOptionsInfoImp().finish();
@@ -36,6 +42,27 @@ public abstract class AbstractOptions implements Serializable {
 
     protected abstract void initialize();
 
+    /**
+     * Returns the version of the option values. It changes whenever the value of one of the
+     * options changes, and differs between any two options objects, so that a cached result
+     * derived from the options can tell when they were changed or replaced.
+     *
+     * @return the version of the option values
+     */
+    public long getVersion() {
+        if (version == 0) {
+            version = VERSIONS.incrementAndGet();
+        }
+        return version;
+    }
+
+    /**
+     * Called by the options of this object when their value changes.
+     */
+    void optionChanged() {
+        version = VERSIONS.incrementAndGet();
+    }
+
     /**
      * Returns a count of all options in this object.
      * @return Option count.
@@ -159,6 +159,7 @@ public class Option implements IOption, Serializable {
     public void setValue(Object value) {
         if (isValidValue(value)) {
             this.value = value;
+            valueChanged();
         } else {
             throw new IllegalArgumentException("Tried to give wrong type of value for option type.");
         }
@@ -168,6 +169,7 @@ public class Option implements IOption, Serializable {
     public void setValue(String value) {
         if (type == STRING || type == CHOICE) {
             this.value = value;
+            valueChanged();
         } else {
             throw new IllegalArgumentException("Tried to give String value to non-String option.");
         }
@@ -177,6 +179,7 @@ public class Option implements IOption, Serializable {
     public void setValue(boolean value) {
         if (type == BOOLEAN) {
             this.value = value;
+            valueChanged();
         } else {
             throw new IllegalArgumentException("Tried to give boolean value to non-boolean option.");
         }
@@ -186,6 +189,7 @@ public class Option implements IOption, Serializable {
     public void setValue(int value) {
         if (type == INTEGER) {
             this.value = value;
+            valueChanged();
         } else {
             throw new IllegalArgumentException("Tried to give integer value to non-integer option.");
         }
@@ -195,11 +199,18 @@ public class Option implements IOption, Serializable {
     public void setValue(float value) {
         if (type == FLOAT) {
             this.value = value;
+            valueChanged();
         } else {
             throw new IllegalArgumentException("Tried to give float value to non-float option.");
         }
     }
 
+    private void valueChanged() {
+        if (owner != null) {
+            owner.optionChanged();
+        }
+    }
+
     // Turns this option "off"
     @Override
     public void clearValue() {
@@ -7,6 +7,7 @@ import java.util.Map;
 import megamek.common.Entity;
 import megamek.common.Mech;
 import megamek.common.MiscType;
+import megamek.common.MovementCostRaster;
 import megamek.common.QuadMech;
 import megamek.common.TripodMech;
 
@@ -31,6 +32,7 @@ public class CachedEntityState {
     private Integer torsoJumpJets;
     private Integer jumpMPNoGravity;
     private Integer numBreachedLegs;
+    private Integer movementCostClass;
     
     public CachedEntityState(Entity entity) {
         backingEntity = entity;
@@ -145,6 +147,18 @@ public class CachedEntityState {
         return runMPNoGravity;
     }
     
+    /**
+     * The cost class of the backing entity, used to look up terrain movement costs.
+     * See {@link MovementCostRaster#costClassOf(Entity)}
+     */
+    public int getMovementCostClass() {
+        if (movementCostClass == null) {
+            movementCostClass = MovementCostRaster.costClassOf(backingEntity);
+        }
+        
+        return movementCostClass;
+    }
+    
     /**
      * Convenience property to determine if the backing entity is amphibious.
      */
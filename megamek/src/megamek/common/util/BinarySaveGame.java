@@ -0,0 +1,135 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common.util;
+
+import megamek.MMConstants;
+import megamek.common.Game;
+import org.nibblesec.tools.SerialKiller;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reads and writes binary save games (.sav.bin). These hold the same game as the XML save games,
+ * stored through Java serialization, which loads and saves much faster because it streams the
+ * objects directly instead of building and walking an XML document.
+ * <p>
+ * A binary save game starts with an uncompressed header: the magic bytes "MMSAVBIN", the format
+ * version and the MegaMek version that wrote it. The serialized {@link Game} follows, compressed.
+ * <p>
+ * Only binary save games of the same MegaMek version and a supported format version are loaded.
+ * The saved classes declare their <code>serialVersionUID</code>, so a game saved by another version
+ * would still deserialize, with renamed or removed fields silently left empty. Save games of other
+ * versions are therefore refused with a message that names the MegaMek version that wrote them,
+ * so that the game can be loaded from an XML save game instead. Loading checks the serialized
+ * classes against the same whitelist as the network code.
+ */
+public final class BinarySaveGame {
+
+    private static final byte[] MAGIC = "MMSAVBIN".getBytes(StandardCharsets.US_ASCII);
+
+    /** The version of the binary save game layout and the saved classes */
+    static final int FORMAT_VERSION = 1;
+
+    /** The oldest format version that can still be loaded */
+    static final int MIN_FORMAT_VERSION = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private BinarySaveGame() { }
+
+    /**
+     * @param file the file to check
+     * @return true if the file starts like a binary save game
+     */
+    public static boolean isBinarySaveGame(File file) {
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] start = new byte[MAGIC.length];
+            return (in.readNBytes(start, 0, start.length) == start.length) && Arrays.equals(start, MAGIC);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the game as a binary save game.
+     *
+     * @param game the game to save
+     * @param out the stream to write to; it is closed afterwards
+     * @throws IOException if the game cannot be written
+     */
+    public static void write(Game game, OutputStream out) throws IOException {
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE))) {
+            dos.write(MAGIC);
+            dos.writeInt(FORMAT_VERSION);
+            dos.writeUTF(MMConstants.VERSION.toString());
+            GZIPOutputStream gzo = new GZIPOutputStream(dos, BUFFER_SIZE);
+            ObjectOutputStream oos = new ObjectOutputStream(gzo);
+            oos.writeObject(game);
+            oos.flush();
+            gzo.finish();
+        }
+    }
+
+    /**
+     * Reads a game from a binary save game.
+     *
+     * @param file the binary save game
+     * @return the game
+     * @throws IOException if the file is not a binary save game of a supported format or cannot
+     *                     be read
+     */
+    public static Game read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+            byte[] start = new byte[MAGIC.length];
+            in.readFully(start);
+            if (!Arrays.equals(start, MAGIC)) {
+                throw new IOException(file + " is not a binary save game");
+            }
+            int formatVersion = in.readInt();
+            String version = in.readUTF();
+            if ((formatVersion < MIN_FORMAT_VERSION) || (formatVersion > FORMAT_VERSION)
+                    || !version.equals(MMConstants.VERSION.toString())) {
+                throw new IOException(file + " was saved by MegaMek " + version + " in binary save game format "
+                        + formatVersion + ", which this version can't load; load an XML save game instead");
+            }
+            ObjectInputStream ois = new SerialKiller(new GZIPInputStream(in, BUFFER_SIZE), "mmconf/serialkiller.xml");
+            try {
+                return (Game) ois.readObject();
+            } catch (InvalidClassException | ClassNotFoundException e) {
+                throw new IOException(file + " was saved by MegaMek " + version + " with classes that have changed"
+                        + " since; load an XML save game instead", e);
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Unable to read binary save game " + file, e);
+        }
+    }
+
+    /**
+     * Converts an XML save game into a binary save game.
+     *
+     * @param xmlSaveGame the gzipped XML save game to read
+     * @param binarySaveGame the binary save game to write
+     * @throws IOException if either file cannot be read or written
+     */
+    public static void convert(File xmlSaveGame, File binarySaveGame) throws IOException {
+        Game game = SerializationHelper.loadSaveGame(xmlSaveGame);
+        write(game, new FileOutputStream(binarySaveGame));
+    }
+}
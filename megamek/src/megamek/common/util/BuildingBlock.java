@@ -17,7 +17,10 @@ import org.apache.logging.log4j.LogManager;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Vector;
 import java.util.stream.Stream;
 
@@ -33,6 +36,15 @@ public class BuildingBlock {
     private static final int version = 1;
     private static final char comment = '#';
 
+    /**
+     * The line number of the first occurrence of each tag line, such as "&lt;name&gt;" or
+     * "&lt;/name&gt;", by the lower case tag. Built in one pass on first use, so that finding a
+     * block does not scan all lines. Rebuilt when the number of lines changes; changing a line
+     * in place through {@link #getVector()} requires calling {@link #clearData()} or reading anew.
+     */
+    private Map<String, Integer> tagIndex;
+    private int indexedSize = -1;
+
     /**
      * Creates new empty buildingBlock
      */
@@ -71,33 +83,81 @@ public class BuildingBlock {
     }
 
     public boolean readInputStream(InputStream is) {
-        String data;
         // empty the rawData holder...
         rawData.clear();
+        tagIndex = null;
 
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-            // read the file till can't read anymore...
-            while (in.ready()) {
-                data = in.readLine();
-                if (data == null) {
-                    continue;
-                }
-                data = data.trim();
-
-                // check for blank lines & comment lines...
-                // don't add them to the rawData if they are
-                if ((data.length() > 0) && !data.startsWith("" + BuildingBlock.comment)) {
-                    rawData.add(data);
-                }
-            }
+        String content;
+        try {
+            content = new String(is.readAllBytes(), StandardCharsets.UTF_8);
         } catch (Exception e) {
             LogManager.getLogger().error("An Exception occurred while attempting to read a BuildingBlock stream.");
             return false;
+        } finally {
+            try {
+                is.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        // split the content into trimmed lines, as BufferedReader.readLine() followed by trim() would
+        Map<String, Integer> index = new HashMap<>();
+        int length = content.length();
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while ((lineEnd < length) && (content.charAt(lineEnd) != '\n') && (content.charAt(lineEnd) != '\r')) {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if ((lineEnd < length - 1) && (content.charAt(lineEnd) == '\r') && (content.charAt(next) == '\n')) {
+                next++;
+            }
+            int start = lineStart;
+            int end = lineEnd;
+            while ((start < end) && (content.charAt(start) <= ' ')) {
+                start++;
+            }
+            while ((end > start) && (content.charAt(end - 1) <= ' ')) {
+                end--;
+            }
+
+            // check for blank lines & comment lines...
+            // don't add them to the rawData if they are
+            if ((end > start) && (content.charAt(start) != BuildingBlock.comment)) {
+                String data = content.substring(start, end);
+                indexTag(index, data, rawData.size());
+                rawData.add(data);
+            }
+            lineStart = next;
         }
+        tagIndex = index;
+        indexedSize = rawData.size();
 
         return true;
     }
 
+    /**
+     * @return the index of the first line of each tag, built if missing or outdated
+     */
+    private Map<String, Integer> getTagIndex() {
+        if ((tagIndex == null) || (indexedSize != rawData.size())) {
+            Map<String, Integer> index = new HashMap<>();
+            for (int lineNum = 0; lineNum < rawData.size(); lineNum++) {
+                indexTag(index, rawData.get(lineNum), lineNum);
+            }
+            tagIndex = index;
+            indexedSize = rawData.size();
+        }
+        return tagIndex;
+    }
+
+    private static void indexTag(Map<String, Integer> index, String line, int lineNum) {
+        if ((line.length() >= 3) && (line.charAt(0) == '<') && (line.charAt(line.length() - 1) == '>')) {
+            index.putIfAbsent(line.toLowerCase(Locale.ROOT), lineNum);
+        }
+    }
+
     /**
      * Finds the starting index of a block. This is used by the class to locate
      * data, but is a public function that can be useful if you know what you
@@ -108,42 +168,8 @@ public class BuildingBlock {
      * @return Returns the start index of the block data. Or -1 if not found.
      */
     public int findStartIndex(String blockName) {
-
-        String line;
-        int startIndex = -1;
-        StringBuffer buf = new StringBuffer();
-        String key = null;
-
-        // Translate the block name to a key.
-        buf.append('<').append(blockName).append('>');
-        key = buf.toString();
-        buf = null;
-
-        // look for the block...
-        for (int lineNum = 0; lineNum < rawData.size(); lineNum++) {
-
-            line = rawData.get(lineNum).toString();
-
-            // look for "<blockName>"
-            try {
-                if ((line.length() >= 3) && line.equalsIgnoreCase(key)) {
-                    startIndex = ++lineNum;
-                    break;
-                }
-            } catch (StringIndexOutOfBoundsException e) {
-
-                System.err.print("Was looking for ");
-                System.err.print(key);
-                System.err.println(" and caught a");
-                System.err.print("string index out of bounds exception on line: \"");
-                System.err.print(line);
-                System.err.println("\"");
-                System.err.print("rawData index number: ");
-                System.err.println(lineNum);
-
-            }
-        }
-        return startIndex;
+        Integer lineNum = getTagIndex().get(("<" + blockName + ">").toLowerCase(Locale.ROOT));
+        return (lineNum == null) ? -1 : lineNum + 1;
     }
 
     /**
@@ -156,40 +182,8 @@ public class BuildingBlock {
      * @return Returns the end index of the block data. Or -1 if not found.
      */
     public int findEndIndex(String blockName) {
-        String line;
-        int endIndex = -1;
-        StringBuffer buf = new StringBuffer();
-        String key = null;
-
-        // Translate the block name to a key.
-        buf.append('<').append('/').append(blockName).append('>');
-        key = buf.toString();
-        buf = null;
-
-        // look for the block...
-        for (int lineNum = 0; lineNum < rawData.size(); lineNum++) {
-
-            line = rawData.get(lineNum).toString();
-
-            // look for "</blockName>"
-            try {
-                if ((line.length() >= 3) && line.equalsIgnoreCase(key)) {
-                    endIndex = lineNum;
-                    break;
-                }
-            } catch (StringIndexOutOfBoundsException e) {
-
-                System.err.print("Was looking for ");
-                System.err.print(key);
-                System.err.println(" and caught a");
-                System.err.print("string index out of bounds exception on line: \"");
-                System.err.print(line);
-                System.err.println("\"");
-                System.err.print("rawData index number: ");
-                System.err.println(lineNum);
-            }
-        }
-        return endIndex;
+        Integer lineNum = getTagIndex().get(("</" + blockName + ">").toLowerCase(Locale.ROOT));
+        return (lineNum == null) ? -1 : lineNum;
     }
 
     /**
@@ -398,7 +392,7 @@ public class BuildingBlock {
      * @return Returns true on success.
      */
     public boolean createNewBlock() {
-        rawData.clear();
+        clearData();
 
         writeBlockComment("building block data file");
         this.writeBlockData("BlockVersion", "" + BuildingBlock.version);
@@ -549,6 +543,7 @@ public class BuildingBlock {
     public void clearData() {
 
         rawData.clear();
+        tagIndex = null;
 
     }
 
@@ -27,6 +27,13 @@ import com.thoughtworks.xstream.io.HierarchicalStreamReader;
 import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
 
 import megamek.common.Coords;
+import megamek.common.Game;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Class that off-loads serialization related code from Server.java
@@ -80,4 +87,24 @@ public class SerializationHelper {
         
         return xstream;
     }
+
+    /**
+     * Loads a save game, which may be a gzipped XML save game or a binary save game.
+     *
+     * @param file the save game file
+     * @return the saved game
+     * @throws IOException if the file cannot be read or does not contain a game
+     */
+    public static Game loadSaveGame(File file) throws IOException {
+        if (BinarySaveGame.isBinarySaveGame(file)) {
+            return BinarySaveGame.read(file);
+        }
+        try (InputStream is = new FileInputStream(file); InputStream gzi = new GZIPInputStream(is)) {
+            return (Game) getXStream().fromXML(gzi);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Unable to read save game " + file, e);
+        }
+    }
 }
@@ -0,0 +1,246 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.server;
+
+import com.thoughtworks.xstream.XStream;
+import megamek.MMConstants;
+import megamek.common.Game;
+import megamek.common.annotations.Nullable;
+import megamek.common.util.BinarySaveGame;
+import org.apache.logging.log4j.LogManager;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes save games for the server, as XML or, for file names ending in
+ * {@link MMConstants#SAVE_FILE_BIN_EXT}, as a {@link BinarySaveGame}. A save game is written to a temporary file which then
+ * replaces the save game file, so that a save game that is being written, or one whose writing
+ * failed, never replaces a complete one.
+ * <p>
+ * Autosaves are written in the background: the game is first copied into an in-memory snapshot
+ * through Java serialization, which is much faster than writing the XML save game and keeps the
+ * game thread waiting only for that. The snapshot is then restored, written as XML and compressed
+ * on a single background thread. When autosaves are taken faster than they can be written, the
+ * oldest waiting snapshot is dropped.
+ */
+public class GameSaver {
+
+    /** The number of snapshots that may wait to be written */
+    static final int MAX_PENDING_SAVES = 2;
+
+    private final ThreadPoolExecutor executor;
+
+    private final SaveStatistics snapshotTimes = new SaveStatistics();
+    private final SaveStatistics writeTimes = new SaveStatistics();
+    private long snapshotBytes;
+    private long savedBytes;
+    private int droppedSaves;
+    private int failedSaves;
+
+    public GameSaver() {
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_PENDING_SAVES),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "Game Saver");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> {
+                    if (!pool.isShutdown()) {
+                        synchronized (this) {
+                            droppedSaves++;
+                        }
+                        LogManager.getLogger().warn("Dropping an autosave that could not be written in time");
+                        pool.getQueue().poll();
+                        pool.execute(runnable);
+                    }
+                });
+    }
+
+    /**
+     * Writes the game to the given file on the current thread.
+     *
+     * @param game the game to save
+     * @param file the compressed save game file to write
+     * @return true if the game was saved
+     */
+    public boolean save(Game game, File file) {
+        long start = System.nanoTime();
+        boolean saved = write(game, file);
+        writeTimes.add(System.nanoTime() - start);
+        return saved;
+    }
+
+    /**
+     * Takes a snapshot of the game on the current thread and writes it to the given file in the
+     * background. The game may be changed as soon as this method returns.
+     *
+     * @param game the game to save
+     * @param file the compressed save game file to write
+     * @param onSaved run on the background thread once the game has been saved, may be null
+     */
+    public void saveInBackground(Game game, File file, @Nullable Runnable onSaved) {
+        long start = System.nanoTime();
+        byte[] snapshot;
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(1024 * 1024);
+            try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+                out.writeObject(game);
+            }
+            snapshot = bos.toByteArray();
+        } catch (Exception e) {
+            // The game cannot be copied, so it has to be saved while the game thread waits
+            LogManager.getLogger().error("Unable to take a snapshot of the game, saving it directly", e);
+            if (save(game, file) && (onSaved != null)) {
+                onSaved.run();
+            }
+            return;
+        }
+        snapshotTimes.add(System.nanoTime() - start);
+        synchronized (this) {
+            snapshotBytes = snapshot.length;
+        }
+
+        executor.execute(() -> {
+            long writeStart = System.nanoTime();
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(snapshot))) {
+                Game copy = (Game) in.readObject();
+                if (!write(copy, file)) {
+                    return;
+                }
+            } catch (Exception e) {
+                LogManager.getLogger().error("Unable to restore the snapshot of the game", e);
+                synchronized (this) {
+                    failedSaves++;
+                }
+                return;
+            }
+            writeTimes.add(System.nanoTime() - writeStart);
+            if (onSaved != null) {
+                onSaved.run();
+            }
+        });
+    }
+
+    /**
+     * Waits for the waiting snapshots to be written and stops the background thread.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                LogManager.getLogger().error("Timed out waiting for the autosave to be written");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return a description of the durations and sizes of the saves made so far
+     */
+    public synchronized List<String> getStatistics() {
+        List<String> lines = new ArrayList<>();
+        lines.add("Snapshots: " + snapshotTimes + ", last snapshot " + (snapshotBytes / 1024) + " KB");
+        lines.add("Writes: " + writeTimes + ", last save game " + (savedBytes / 1024) + " KB");
+        lines.add("Waiting: " + executor.getQueue().size() + ", dropped: " + droppedSaves
+                + ", failed: " + failedSaves);
+        return lines;
+    }
+
+    private boolean write(Game game, File file) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        File tempFile = null;
+        try {
+            // Unique, so that an autosave and an explicit save of the same file do not collide
+            tempFile = File.createTempFile(file.getName(), ".tmp", parent);
+            if (file.getName().endsWith(MMConstants.SAVE_FILE_BIN_EXT)) {
+                BinarySaveGame.write(game, new FileOutputStream(tempFile));
+            } else {
+                writeXml(game, tempFile);
+            }
+            try {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            synchronized (this) {
+                savedBytes = file.length();
+            }
+            return true;
+        } catch (Exception e) {
+            LogManager.getLogger().error("Unable to save file: " + file, e);
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+            synchronized (this) {
+                failedSaves++;
+            }
+            return false;
+        }
+    }
+
+    private static void writeXml(Game game, File file) throws IOException {
+        XStream xstream = new XStream();
+
+        // This will make save games much smaller
+        // by using a more efficient means of referencing
+        // objects in the XML graph
+        xstream.setMode(XStream.ID_REFERENCES);
+
+        try (OutputStream os = new FileOutputStream(file);
+             OutputStream bos = new BufferedOutputStream(os);
+             OutputStream gzo = new GZIPOutputStream(bos);
+             Writer writer = new OutputStreamWriter(gzo, StandardCharsets.UTF_8)) {
+            xstream.toXML(game, writer);
+        }
+    }
+
+    /**
+     * Count, average and maximum of a duration
+     */
+    private static class SaveStatistics {
+        private int count;
+        private long totalNanos;
+        private long lastNanos;
+        private long maxNanos;
+
+        synchronized void add(long nanos) {
+            count++;
+            totalNanos += nanos;
+            lastNanos = nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        @Override
+        public synchronized String toString() {
+            if (count == 0) {
+                return "none";
+            }
+            return count + ", last " + (lastNanos / 1_000_000) + " ms, average "
+                    + (totalNanos / count / 1_000_000) + " ms, max " + (maxNanos / 1_000_000) + " ms";
+        }
+    }
+}
@@ -16,7 +16,6 @@
 */
 package megamek.server;
 
-import com.thoughtworks.xstream.XStream;
 import megamek.MegaMek;
 import megamek.MMConstants;
 import megamek.Version;
@@ -57,14 +56,13 @@ import org.apache.logging.log4j.LogManager;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.Timer;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.stream.Collectors;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * @author Ben Mazur
@@ -115,6 +113,11 @@ public class Server implements Runnable {
 
     private ServerSocket serverSocket;
 
+    /**
+     * Reads and writes the non-blocking connections of this server
+     */
+    private final ConnectionSelector connectionSelector;
+
     private String motd;
 
     private EmailService mailer;
@@ -248,6 +251,11 @@ public class Server implements Runnable {
 
     private List<DemolitionCharge> explodingCharges = new ArrayList<>();
 
+    /**
+     * Accepts connections from clients and bots running in this JVM, see {@link ConnectionFactory}
+     */
+    private final LocalConnectionAcceptor localConnectionAcceptor = this::acceptLocalConnection;
+
     private ConnectionListener connectionListener = new ConnectionListener() {
 
         /**
@@ -377,6 +385,8 @@ public class Server implements Runnable {
      */
     private final Object serverLock = new Object();
 
+    private final GameSaver gameSaver = new GameSaver();
+
     public Server(String password, int port) throws IOException {
         this(password, port, false, "", null, false);
     }
@@ -410,7 +420,16 @@ public class Server implements Runnable {
         this.dedicated = dedicated;
 
         // initialize server socket
-        serverSocket = new ServerSocket(port);
+        // the channel lets accepted sockets be read and written without a thread per connection
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(new InetSocketAddress(port));
+            connectionSelector = new ConnectionSelector();
+        } catch (IOException e) {
+            serverChannel.close();
+            throw e;
+        }
+        serverSocket = serverChannel.socket();
 
         motd = createMotd();
 
@@ -456,6 +475,7 @@ public class Server implements Runnable {
         registerCommand(new ResetCommand(this));
         registerCommand(new RollCommand(this));
         registerCommand(new SaveGameCommand(this));
+        registerCommand(new SaveStatsCommand(this));
         registerCommand(new LoadGameCommand(this));
         registerCommand(new SeeAllCommand(this));
         registerCommand(new SkipCommand(this));
@@ -507,6 +527,7 @@ public class Server implements Runnable {
         // Fully initialised, now accept connections
         connector = new Thread(this, "Connection Listener");
         connector.start();
+        ConnectionFactory.getInstance().registerLocalServer(serverSocket.getLocalPort(), localConnectionAcceptor);
 
         serverInstance = this;
     }
@@ -625,6 +646,7 @@ public class Server implements Runnable {
         watchdogTimer.cancel();
 
         // kill thread accepting new connections
+        ConnectionFactory.getInstance().unregisterLocalServer(serverSocket.getLocalPort(), localConnectionAcceptor);
         connector = null;
         packetPump.signalEnd();
         packetPumpThread.interrupt();
@@ -655,10 +677,12 @@ public class Server implements Runnable {
             AbstractConnection conn = connEnum.nextElement();
             conn.close();
         }
+        connectionSelector.shutdown();
 
         if (mailer != null) {
             mailer.shutdown();
         }
+        gameSaver.shutdown();
 
         connections.removeAllElements();
         connectionIds.clear();
@@ -853,6 +877,7 @@ public class Server implements Runnable {
         connectionsPending.removeElement(conn);
         connections.addElement(conn);
         connectionIds.put(conn.getId(), conn);
+        conn.setAuthenticated(true);
 
         // add and validate the player info
         if (!returning) {
@@ -1181,7 +1206,12 @@ public class Server implements Runnable {
         if (PreferenceManager.getClientPreferences().stampFilenames()) {
             fileName = StringUtil.addDateTimeStamp(fileName);
         }
-        saveGame(fileName, game.getOptions().booleanOption(OptionsConstants.BASE_AUTOSAVE_MSG));
+        File saveFile = getSaveGameFile(fileName);
+        Runnable onSaved = null;
+        if (game.getOptions().booleanOption(OptionsConstants.BASE_AUTOSAVE_MSG)) {
+            onSaved = () -> sendChat("MegaMek", "Game saved to " + saveFile);
+        }
+        gameSaver.saveInBackground(game, saveFile, onSaved);
     }
 
     /**
@@ -1203,16 +1233,21 @@ public class Server implements Runnable {
             }
         }
         sLocalPath = sLocalPath.replaceAll("\\|", " ");
-        String localFile = MMConstants.SAVEGAME_DIR + File.separator + sFinalFile;
-        try (InputStream in = new FileInputStream(localFile); InputStream bin = new BufferedInputStream(in)) {
-            List<Integer> data = new ArrayList<>();
-            int input;
-            while ((input = bin.read()) != -1) {
-                data.add(input);
-            }
-            send(connId, new Packet(Packet.COMMAND_SEND_SAVEGAME, new Object[]{
-                    sFinalFile, data, sLocalPath}));
-            sendChat(connId, "***Server", "Save game has been sent to you.");
+        File localFile = new File(MMConstants.SAVEGAME_DIR, sFinalFile);
+        AbstractConnection conn = getClient(connId);
+        if (conn == null) {
+            return;
+        }
+        try {
+            conn.sendFile(localFile, Packet.COMMAND_SEND_SAVEGAME, new Object[] { sFinalFile, sLocalPath },
+                    new FileTransferListener() {
+                        @Override
+                        public void transferFinished(boolean success) {
+                            if (success) {
+                                sendChat(connId, "***Server", "Save game has been sent to you.");
+                            }
+                        }
+                    });
         } catch (Exception e) {
             LogManager.getLogger().error("Unable to load file: " + localFile, e);
         }
@@ -1231,36 +1266,38 @@ public class Server implements Runnable {
         if (sFile.endsWith(".gz")) {
             sFile = sFile.replace(".gz", "");
         }
-        XStream xstream = new XStream();
+        File saveFile = getSaveGameFile(sFile);
+        gameSaver.save(game, saveFile);
 
-        // This will make save games much smaller
-        // by using a more efficient means of referencing
-        // objects in the XML graph
-        xstream.setMode(XStream.ID_REFERENCES);
-
-        String sFinalFile = sFile;
-        if (!sFinalFile.endsWith(MMConstants.SAVE_FILE_EXT)) {
-            sFinalFile = sFile + MMConstants.SAVE_FILE_EXT;
+        if (sendChat) {
+            sendChat("MegaMek", "Game saved to " + saveFile);
         }
+    }
+
+    /**
+     * @param sFile the save game name, without the .gz extension, or the name of a binary save game
+     * @return the save game file in the save game directory
+     */
+    private File getSaveGameFile(String sFile) {
         File sDir = new File(MMConstants.SAVEGAME_DIR);
         if (!sDir.exists()) {
             sDir.mkdir();
         }
-
-        sFinalFile = sDir + File.separator + sFinalFile;
-
-        try (OutputStream os = new FileOutputStream(sFinalFile + ".gz");
-             OutputStream gzo = new GZIPOutputStream(os);
-             Writer writer = new OutputStreamWriter(gzo, StandardCharsets.UTF_8)) {
-
-            xstream.toXML(game, writer);
-        } catch (Exception e) {
-            LogManager.getLogger().error("Unable to save file: " + sFinalFile, e);
+        if (sFile.endsWith(MMConstants.SAVE_FILE_BIN_EXT)) {
+            return new File(sDir, sFile);
         }
-
-        if (sendChat) {
-            sendChat("MegaMek", "Game saved to " + sFinalFile);
+        String sFinalFile = sFile;
+        if (!sFinalFile.endsWith(MMConstants.SAVE_FILE_EXT)) {
+            sFinalFile = sFile + MMConstants.SAVE_FILE_EXT;
         }
+        return new File(sDir, sFinalFile + ".gz");
+    }
+
+    /**
+     * @return the writer of the save games of this server
+     */
+    public GameSaver getGameSaver() {
+        return gameSaver;
     }
 
     /**
@@ -1314,9 +1351,8 @@ public class Server implements Runnable {
         LogManager.getLogger().info("s: loading saved game file '" + f + "'");
 
         Game newGame;
-        try (InputStream is = new FileInputStream(f); InputStream gzi = new GZIPInputStream(is)) {
-            XStream xstream = SerializationHelper.getXStream();
-            newGame = (Game) xstream.fromXML(gzi);
+        try {
+            newGame = SerializationHelper.loadSaveGame(f);
         } catch (Exception e) {
             LogManager.getLogger().error("Unable to load file: " + f, e);
             return false;
@@ -14168,8 +14204,7 @@ public class Server implements Runnable {
     private void resolveWhatPlayersCanSeeWhatUnits() {
         List<ECMInfo> allECMInfo = null;
         if (game.getOptions().booleanOption(OptionsConstants.ADVANCED_TACOPS_SENSORS)) {
-            allECMInfo = ComputeECM.computeAllEntitiesECMInfo(game
-                    .getEntitiesVector());
+            allECMInfo = ComputeECM.getAllEntitiesECMInfo(game);
         }
         Map<EntityTargetPair, LosEffects> losCache = new HashMap<>();
         for (Entity entity : game.getEntitiesVector()) {
@@ -24162,18 +24197,10 @@ public class Server implements Runnable {
 
         // This is technically part of cratering, but...
         // Now we destroy all the units inside the cratering range.
-        for (Entity entity : game.getEntitiesVector()) {
-            // loaded units and off board units don't have a position,
-            // so we don't count 'em here
-            if ((entity.getTransportId() != Entity.NONE) || (entity.getPosition() == null)) {
-                continue;
-            }
-
-            // If it's too far away for this...
-            if (position.distance(entity.getPosition()) >= range) {
-                continue;
-            }
-
+        // loaded units and off board units don't have a position,
+        // so we don't count 'em here
+        for (Entity entity : game.getEntitiesWithin(position, range - 1,
+                e -> e.getTransportId() == Entity.NONE)) {
             // If it's already destroyed...
             if (entity.isDestroyed()) {
                 continue;
@@ -29010,25 +29037,22 @@ public class Server implements Runnable {
             if ((eTarget.getECMRange() > 0) && (eTarget.getPosition() != null)) {
                 int ecmRange = eTarget.getECMRange();
                 Coords pos = eTarget.getPosition();
-                for (Entity ent : game.getEntitiesVector()) {
-                    if ((ent.getPosition() != null)
-                        && (pos.distance(ent.getPosition()) <= ecmRange)) {
-                        if (!vCanSee.contains(ent.getOwner())) {
-                            vCanSee.add(ent.getOwner());
-                        }
+                for (Entity ent : game.getEntitiesWithin(pos, ecmRange, null)) {
+                    if (!vCanSee.contains(ent.getOwner())) {
+                        vCanSee.add(ent.getOwner());
                     }
                 }
             }
 
             // send an entity update to everyone who can see
-            Packet pack = createEntityPacket(nEntityID, movePath);
+            EncodedPacket pack = new EncodedPacket(createEntityPacket(nEntityID, movePath));
             for (int x = 0; x < vCanSee.size(); x++) {
                 Player p = vCanSee.elementAt(x);
                 send(p.getId(), pack);
             }
             // send an entity delete to everyone else
-            pack = createRemoveEntityPacket(nEntityID,
-                                            eTarget.getRemovalCondition());
+            pack = new EncodedPacket(createRemoveEntityPacket(nEntityID,
+                                            eTarget.getRemovalCondition()));
             for (int x = 0; x < playersVector.size(); x++) {
                 if (!vCanSee.contains(playersVector.elementAt(x))) {
                     Player p = playersVector.elementAt(x);
@@ -29054,19 +29078,19 @@ public class Server implements Runnable {
      */
     private void entityUpdateLoadedUnits(Entity loader, Vector<Player> vCanSee,
                                          Vector<Player> playersVector) {
-        Packet pack;
+        EncodedPacket pack;
 
         // In double-blind, the client may not know about the loaded units,
         // so we need to send them.
         for (Entity eLoaded : loader.getLoadedUnits()) {
             // send an entity update to everyone who can see
-            pack = createEntityPacket(eLoaded.getId(), null);
+            pack = new EncodedPacket(createEntityPacket(eLoaded.getId(), null));
             for (int x = 0; x < vCanSee.size(); x++) {
                 Player p = vCanSee.elementAt(x);
                 send(p.getId(), pack);
             }
             // send an entity delete to everyone else
-            pack = createRemoveEntityPacket(eLoaded.getId(), eLoaded.getRemovalCondition());
+            pack = new EncodedPacket(createRemoveEntityPacket(eLoaded.getId(), eLoaded.getRemovalCondition()));
             for (int x = 0; x < playersVector.size(); x++) {
                 if (!vCanSee.contains(playersVector.elementAt(x))) {
                     Player p = playersVector.elementAt(x);
@@ -29105,8 +29129,7 @@ public class Server implements Runnable {
 
         List<ECMInfo> allECMInfo = null;
         if (game.getOptions().booleanOption(OptionsConstants.ADVANCED_TACOPS_SENSORS) && useSensors) {
-            allECMInfo = ComputeECM.computeAllEntitiesECMInfo(game
-                    .getEntitiesVector());
+            allECMInfo = ComputeECM.getAllEntitiesECMInfo(game);
         }
 
         boolean bTeamVision = game.getOptions().booleanOption(OptionsConstants.ADVANCED_TEAM_VISION);
@@ -29278,7 +29301,7 @@ public class Server implements Runnable {
 
         List<ECMInfo> allECMInfo = null;
         if (game.getOptions().booleanOption(OptionsConstants.ADVANCED_TACOPS_SENSORS)) {
-            allECMInfo = ComputeECM.computeAllEntitiesECMInfo(game.getEntitiesVector());
+            allECMInfo = ComputeECM.getAllEntitiesECMInfo(game);
         }
 
         // If they're an observer, they can see anything seen by any enemy.
@@ -29519,8 +29542,7 @@ public class Server implements Runnable {
         }
         List<ECMInfo> allECMInfo = null;
         if (game.getOptions().booleanOption(OptionsConstants.ADVANCED_TACOPS_SENSORS)) {
-            allECMInfo = ComputeECM.computeAllEntitiesECMInfo(game
-                    .getEntitiesVector());
+            allECMInfo = ComputeECM.getAllEntitiesECMInfo(game);
         }
 
         List<Entity> vAllEntities = game.getEntitiesVector();
@@ -31007,15 +31029,16 @@ public class Server implements Runnable {
     }
 
     /**
-     * Send a packet to all connected clients.
+     * Send a packet to all connected clients. The packet is marshalled and compressed only once.
      */
     void send(Packet packet) {
         if (connections == null) {
             return;
         }
+        EncodedPacket encodedPacket = new EncodedPacket(packet);
         for (Enumeration<AbstractConnection> connEnum = connections.elements(); connEnum.hasMoreElements(); ) {
             AbstractConnection conn = connEnum.nextElement();
-            conn.send(packet);
+            conn.send(encodedPacket);
         }
     }
 
@@ -31076,6 +31099,15 @@ public class Server implements Runnable {
         // For now, nothing.
     }
 
+    /**
+     * Send a packet that is sent to several connections to a specific connection.
+     */
+    private void send(int connId, EncodedPacket packet) {
+        if (getClient(connId) != null) {
+            getClient(connId).send(packet);
+        }
+    }
+
     /**
      * Send a packet to a pending connection
      */
@@ -31154,6 +31186,11 @@ public class Server implements Runnable {
             case Packet.COMMAND_CLIENT_VERSIONS:
                 final boolean valid = receivePlayerVersion(packet, connId);
                 if (valid) {
+                    // Older clients do not send the id of their compression dictionary
+                    final Object dictionaryId = packet.getObject(2);
+                    if ((dictionaryId != null) && dictionaryId.equals(PacketCompression.getDictionaryId())) {
+                        getPendingConnection(connId).setDictionaryCompression(true);
+                    }
                     sendToPending(connId, new Packet(Packet.COMMAND_SERVER_GREETING));
                 } else {
                     sendToPending(connId, new Packet(Packet.COMMAND_ILLEGAL_CLIENT_VERSION, MMConstants.VERSION));
@@ -31454,18 +31491,7 @@ public class Server implements Runnable {
                     int id = getFreeConnectionId();
                     LogManager.getLogger().info("s: accepting player connection #" + id + "...");
 
-                    AbstractConnection c = ConnectionFactory.getInstance().createServerConnection(s, id);
-                    c.addConnectionListener(connectionListener);
-                    c.open();
-                    connectionsPending.addElement(c);
-                    ConnectionHandler ch = new ConnectionHandler(c);
-                    Thread newConnThread = new Thread(ch, "Connection " + id);
-                    newConnThread.start();
-                    connectionHandlers.put(id, ch);
-
-                    clientVersionCheck(id);
-                    ConnectionWatchdog w = new ConnectionWatchdog(this, id);
-                    watchdogTimer.schedule(w, 1000, 500);
+                    acceptConnection(ConnectionFactory.getInstance().createServerConnection(s, id, connectionSelector));
                 }
             } catch (Exception ignored) {
 
@@ -31473,6 +31499,43 @@ public class Server implements Runnable {
         }
     }
 
+    /**
+     * Accepts the server side of an in-memory connection from a client running in this JVM.
+     */
+    private boolean acceptLocalConnection(AbstractConnection c) {
+        synchronized (serverLock) {
+            if (connector == null) {
+                return false;
+            }
+            int id = getFreeConnectionId();
+            LogManager.getLogger().info("s: accepting local player connection #" + id + "...");
+            c.setId(id);
+            acceptConnection(c);
+            return true;
+        }
+    }
+
+    /**
+     * Starts handling a newly accepted connection and asks its client for its version.
+     * Must be called while holding the server lock.
+     */
+    private void acceptConnection(AbstractConnection c) {
+        int id = c.getId();
+        c.addConnectionListener(connectionListener);
+        c.open();
+        connectionsPending.addElement(c);
+        if (!c.isNonBlocking()) {
+            ConnectionHandler ch = new ConnectionHandler(c);
+            Thread newConnThread = new Thread(ch, "Connection " + id);
+            newConnThread.start();
+            connectionHandlers.put(id, ch);
+        }
+
+        clientVersionCheck(id);
+        ConnectionWatchdog w = new ConnectionWatchdog(this, id);
+        watchdogTimer.schedule(w, 1000, 500);
+    }
+
     /**
      * Makes one slot of inferno ammo, determined by certain rules, explode on a
      * mech.
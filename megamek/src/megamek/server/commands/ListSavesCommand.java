@@ -45,7 +45,8 @@ public class ListSavesCommand extends ServerCommand {
             if (saveGames[i].isFile()) {
                 File save = saveGames[i];
                 if (save.getName().endsWith(MMConstants.SAVE_FILE_EXT)
-                        || save.getName().endsWith(MMConstants.SAVE_FILE_GZ_EXT)) {
+                        || save.getName().endsWith(MMConstants.SAVE_FILE_GZ_EXT)
+                        || save.getName().endsWith(MMConstants.SAVE_FILE_BIN_EXT)) {
                     server.sendServerChat("  " + save.getName());
                     listedAFile = true;
                 }
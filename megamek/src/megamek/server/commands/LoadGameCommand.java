@@ -48,10 +48,12 @@ public class LoadGameCommand extends ServerCommand {
         if (args.length > 1) {
             String sFinalFile = args[1];
             if (!sFinalFile.endsWith(MMConstants.SAVE_FILE_EXT)
-                    && !sFinalFile.endsWith(MMConstants.SAVE_FILE_GZ_EXT)) {
+                    && !sFinalFile.endsWith(MMConstants.SAVE_FILE_GZ_EXT)
+                    && !sFinalFile.endsWith(MMConstants.SAVE_FILE_BIN_EXT)) {
                 sFinalFile = sFinalFile + MMConstants.SAVE_FILE_EXT;
             }
-            if (!sFinalFile.endsWith(MMConstants.GZ_FILE_EXT)) {
+            if (!sFinalFile.endsWith(MMConstants.GZ_FILE_EXT)
+                    && !sFinalFile.endsWith(MMConstants.SAVE_FILE_BIN_EXT)) {
                 sFinalFile = sFinalFile + MMConstants.GZ_FILE_EXT;
             }
             load(new File(MMConstants.SAVEGAME_DIR, sFinalFile), connId);
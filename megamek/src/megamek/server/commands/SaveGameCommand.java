@@ -33,7 +33,8 @@ public class SaveGameCommand extends ServerCommand {
     /** Creates a new instance of SaveGameCommand */
     public SaveGameCommand(Server server) {
         super(server, "save",
-                "Saves the game to a file.  Usage: /save [filename]");
+                "Saves the game to a file.  Usage: /save [filename]  File names ending in "
+                        + MMConstants.SAVE_FILE_BIN_EXT + " are saved in the faster binary format.");
     }
 
     /**
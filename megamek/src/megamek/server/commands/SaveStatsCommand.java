@@ -0,0 +1,33 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.server.commands;
+
+import megamek.server.Server;
+
+/**
+ * Shows how long the server took to save the game
+ */
+public class SaveStatsCommand extends ServerCommand {
+
+    public SaveStatsCommand(Server server) {
+        super(server, "saveStats", "Shows how long taking snapshots of the game and writing save games took.");
+    }
+
+    @Override
+    public void run(int connId, String[] args) {
+        for (String line : server.getGameSaver().getStatistics()) {
+            server.sendServerChat(connId, line);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.test;
+
+import megamek.common.Board;
+import megamek.common.BoardDimensions;
+import megamek.common.Configuration;
+import megamek.common.MapSettings;
+import megamek.common.util.BoardUtilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Measures loading a map of many board sheets the way the server does: loading every sheet,
+ * combining them into one board, and the heap taken up by the combined board.
+ * <p>
+ * Usage: BoardLoadBenchmark [-warmup n] [-rounds n] [-dir boards-directory] sheets...
+ * <p>
+ * Each number of sheets (100 and 144 by default) is laid out in a square as far as possible
+ * and measured the given number of rounds (5 by default), after warm-up rounds (5 by default)
+ * whose results are discarded so that class loading and compilation are not measured. The best
+ * load and combine times and the median retained heap are printed. The sheets are the 16x17 boards found in the boards directory,
+ * repeated when there are not enough.
+ */
+public class BoardLoadBenchmark {
+
+    private static final int SHEET_WIDTH = 16;
+    private static final int SHEET_HEIGHT = 17;
+
+    private static volatile Object sink;
+
+    public static void main(String... args) throws Exception {
+        int warmup = 5;
+        int rounds = 5;
+        File dir = Configuration.boardsDir();
+        List<Integer> counts = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-warmup")) {
+                warmup = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-rounds")) {
+                rounds = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-dir")) {
+                dir = new File(args[++i]);
+            } else {
+                counts.add(Integer.parseInt(args[i]));
+            }
+        }
+        if (counts.isEmpty()) {
+            counts.add(100);
+            counts.add(144);
+        }
+
+        List<File> sheets = findSheets(dir);
+        if (sheets.isEmpty()) {
+            System.out.println("No " + SHEET_WIDTH + "x" + SHEET_HEIGHT + " boards found in " + dir);
+            return;
+        }
+        System.out.println(sheets.size() + " different sheets");
+        System.out.println("sheets, hexes, load ms, combine ms, retained MB");
+        for (int count : counts) {
+            int mapWidth = (int) Math.ceil(Math.sqrt(count));
+            int mapHeight = (count + mapWidth - 1) / mapWidth;
+            long load = Long.MAX_VALUE;
+            long combine = Long.MAX_VALUE;
+            long[] retained = new long[rounds];
+            long hexes = 0;
+            for (int round = 0; round < warmup; round++) {
+                measure(sheets, mapWidth, mapHeight);
+            }
+            for (int round = 0; round < rounds; round++) {
+                long[] result = measure(sheets, mapWidth, mapHeight);
+                load = Math.min(load, result[0]);
+                combine = Math.min(combine, result[1]);
+                retained[round] = result[2];
+                hexes = result[3];
+            }
+            Arrays.sort(retained);
+            System.out.println((mapWidth * mapHeight) + ", " + hexes + ", " + (load / 1_000_000.0) + ", "
+                    + (combine / 1_000_000.0) + ", "
+                    + String.format("%.1f", retained[rounds / 2] / (1024.0 * 1024.0)));
+        }
+    }
+
+    /**
+     * Loads and combines one map. Kept apart from the rounds so that no board of an earlier round
+     * is still referenced while measuring the heap.
+     *
+     * @return the load and combine time in nanoseconds, the retained heap in bytes and the hexes
+     */
+    private static long[] measure(List<File> sheets, int mapWidth, int mapHeight) throws InterruptedException {
+        long before = usedMemory();
+        long start = System.nanoTime();
+        Board[] boards = new Board[mapWidth * mapHeight];
+        List<Boolean> isRotated = new ArrayList<>();
+        for (int i = 0; i < boards.length; i++) {
+            boards[i] = new Board();
+            boards[i].load(sheets.get(i % sheets.size()));
+            isRotated.add(false);
+        }
+        long load = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        Board board = BoardUtilities.combine(SHEET_WIDTH, SHEET_HEIGHT, mapWidth, mapHeight,
+                boards, isRotated, MapSettings.MEDIUM_GROUND);
+        long combine = System.nanoTime() - start;
+        boards = null;
+
+        sink = board;
+        long retained = usedMemory() - before;
+        sink = null;
+        return new long[] { load, combine, retained, (long) board.getWidth() * board.getHeight() };
+    }
+
+    private static List<File> findSheets(File dir) throws IOException {
+        if (!dir.isDirectory()) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            return paths.filter(p -> p.toString().endsWith(".board"))
+                    .map(Path::toFile)
+                    .filter(f -> {
+                        BoardDimensions size = Board.getSize(f);
+                        return (size != null) && (size.width() == SHEET_WIDTH)
+                                && (size.height() == SHEET_HEIGHT);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * @return the heap in use after collecting garbage
+     */
+    private static long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
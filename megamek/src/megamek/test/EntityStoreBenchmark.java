@@ -0,0 +1,142 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.test;
+
+import megamek.common.BipedMech;
+import megamek.common.Entity;
+import megamek.common.Game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the entity storage of {@link Game}: adding many entities, looking them up by ID and
+ * iterating them, the last also while other threads iterate the entities at the same time, as the
+ * Princess precognition thread does.
+ * <p>
+ * Usage: EntityStoreBenchmark [-rounds n] [-readers n] entity-count...
+ * <p>
+ * Each count (400 by default) is measured the given number of rounds (5 by default) and the best
+ * time of each operation is printed.
+ */
+public class EntityStoreBenchmark {
+
+    private static final int LOOKUPS_PER_ENTITY = 100;
+    private static final int ITERATIONS = 1000;
+
+    private static volatile long sink;
+
+    public static void main(String... args) throws Exception {
+        int rounds = 5;
+        int readers = 2;
+        List<Integer> counts = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-rounds")) {
+                rounds = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-readers")) {
+                readers = Integer.parseInt(args[++i]);
+            } else {
+                counts.add(Integer.parseInt(args[i]));
+            }
+        }
+        if (counts.isEmpty()) {
+            counts.add(400);
+        }
+
+        System.out.println("entities, add ms, lookup ms, iterate ms, iterate with " + readers
+                + " readers ms, reader iterations");
+        for (int count : counts) {
+            List<Entity> entities = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Entity entity = new BipedMech();
+                entity.setId(i);
+                entities.add(entity);
+            }
+            long add = Long.MAX_VALUE;
+            long lookup = Long.MAX_VALUE;
+            long iterate = Long.MAX_VALUE;
+            long iterateShared = Long.MAX_VALUE;
+            long readerIterations = 0;
+            for (int round = 0; round < rounds; round++) {
+                Game game = new Game();
+                long start = System.nanoTime();
+                for (Entity entity : entities) {
+                    game.addEntity(entity, false);
+                }
+                add = Math.min(add, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                long found = 0;
+                for (int i = 0; i < count * LOOKUPS_PER_ENTITY; i++) {
+                    if (game.getEntity(i % count) != null) {
+                        found++;
+                    }
+                }
+                sink = found;
+                lookup = Math.min(lookup, System.nanoTime() - start);
+
+                iterate = Math.min(iterate, iterate(game));
+
+                AtomicBoolean running = new AtomicBoolean(true);
+                AtomicLong iterations = new AtomicLong();
+                List<Thread> threads = new ArrayList<>();
+                for (int i = 0; i < readers; i++) {
+                    Thread thread = new Thread(() -> {
+                        while (running.get()) {
+                            int seen = 0;
+                            for (Entity entity : game.getEntitiesVector()) {
+                                seen += entity.getId();
+                            }
+                            sink = seen;
+                            iterations.incrementAndGet();
+                        }
+                    });
+                    thread.setDaemon(true);
+                    thread.start();
+                    threads.add(thread);
+                }
+                iterateShared = Math.min(iterateShared, iterate(game));
+                running.set(false);
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                readerIterations = Math.max(readerIterations, iterations.get());
+            }
+            System.out.println(count + ", " + (add / 1_000_000.0) + ", " + (lookup / 1_000_000.0) + ", "
+                    + (iterate / 1_000_000.0) + ", " + (iterateShared / 1_000_000.0) + ", " + readerIterations);
+        }
+    }
+
+    /**
+     * Iterates the entities of the game while replacing one of them now and then, as the game
+     * does when entity updates arrive.
+     */
+    private static long iterate(Game game) {
+        long start = System.nanoTime();
+        long seen = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (Entity entity : game.getEntitiesVector()) {
+                seen += entity.getId();
+            }
+            if (i % 100 == 0) {
+                Entity entity = game.getEntity(i % game.getNoOfEntities());
+                game.setEntity(entity.getId(), entity);
+            }
+        }
+        sink = seen;
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.test;
+
+import megamek.MMConstants;
+import megamek.common.Game;
+import megamek.common.util.BinarySaveGame;
+import megamek.common.util.SerializationHelper;
+import megamek.server.GameSaver;
+
+import java.io.File;
+
+/**
+ * Compares loading and saving the XML and binary save game formats on a set of save games, and
+ * optionally converts them to binary save games.
+ * <p>
+ * Usage: SaveGameBenchmark [-convert] [-rounds n] file-or-directory...
+ * <p>
+ * Directories are searched for .sav.gz files. Each save game is loaded and saved in both formats
+ * the given number of times (3 by default) and the best time of each is printed. With -convert, a
+ * .sav.bin is written next to each save game.
+ */
+public class SaveGameBenchmark {
+
+    public static void main(String... args) throws Exception {
+        boolean convert = false;
+        int rounds = 3;
+        int firstFile = 0;
+        while (firstFile < args.length && args[firstFile].startsWith("-")) {
+            if (args[firstFile].equals("-convert")) {
+                convert = true;
+            } else if (args[firstFile].equals("-rounds")) {
+                rounds = Integer.parseInt(args[++firstFile]);
+            }
+            firstFile++;
+        }
+        if (firstFile == args.length) {
+            System.out.println("Usage: SaveGameBenchmark [-convert] [-rounds n] file-or-directory...");
+            return;
+        }
+
+        System.out.println("file, xml KB, bin KB, xml load ms, bin load ms, xml save ms, bin save ms");
+        for (int i = firstFile; i < args.length; i++) {
+            File file = new File(args[i]);
+            File[] files = file.isDirectory()
+                    ? file.listFiles((dir, name) -> name.endsWith(MMConstants.SAVE_FILE_GZ_EXT))
+                    : new File[] { file };
+            if (files == null) {
+                continue;
+            }
+            for (File saveGame : files) {
+                benchmark(saveGame, rounds, convert);
+            }
+        }
+    }
+
+    private static void benchmark(File xmlFile, int rounds, boolean convert) throws Exception {
+        File xmlCopy = File.createTempFile("benchmark", MMConstants.SAVE_FILE_GZ_EXT);
+        File binFile = File.createTempFile("benchmark", MMConstants.SAVE_FILE_BIN_EXT);
+        GameSaver saver = new GameSaver();
+        try {
+            long xmlLoad = Long.MAX_VALUE;
+            long binLoad = Long.MAX_VALUE;
+            long xmlSave = Long.MAX_VALUE;
+            long binSave = Long.MAX_VALUE;
+            for (int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                Game game = SerializationHelper.loadSaveGame(xmlFile);
+                xmlLoad = Math.min(xmlLoad, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                saver.save(game, xmlCopy);
+                xmlSave = Math.min(xmlSave, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                saver.save(game, binFile);
+                binSave = Math.min(binSave, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                BinarySaveGame.read(binFile);
+                binLoad = Math.min(binLoad, System.nanoTime() - start);
+            }
+            System.out.println(xmlFile.getName() + ", " + (xmlFile.length() / 1024) + ", "
+                    + (binFile.length() / 1024) + ", " + (xmlLoad / 1_000_000) + ", "
+                    + (binLoad / 1_000_000) + ", " + (xmlSave / 1_000_000) + ", " + (binSave / 1_000_000));
+
+            if (convert) {
+                String name = xmlFile.getName();
+                name = name.substring(0, name.length() - MMConstants.SAVE_FILE_GZ_EXT.length())
+                        + MMConstants.SAVE_FILE_BIN_EXT;
+                BinarySaveGame.convert(xmlFile, new File(xmlFile.getParentFile(), name));
+            }
+        } catch (Exception e) {
+            System.out.println(xmlFile.getName() + ": " + e.getMessage());
+        } finally {
+            saver.shutdown();
+            xmlCopy.delete();
+            binFile.delete();
+        }
+    }
+}
@@ -31,6 +31,9 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.Source;
 import javax.xml.transform.sax.SAXSource;
 
@@ -47,6 +50,7 @@ public class MegaMekXmlUtil {
     //region Variable Declarations
     private static DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY;
     private static SAXParserFactory SAX_PARSER_FACTORY;
+    private static XMLInputFactory XML_INPUT_FACTORY;
 
     private static final String[] INDENTS = new String[] {
             "",
@@ -137,6 +141,23 @@ public class MegaMekXmlUtil {
         return new SAXSource(createSafeXMLReader(), new InputSource(inputStream));
     }
 
+    /**
+     * @return a StAX {@linkplain XMLStreamReader} for the provided input stream that is safe from
+     * external entities and entity expansion attacks.
+     * @throws XMLStreamException if the stream cannot be read
+     *
+     * @see "https://www.owasp.org/index.php/XML_External_Entity_(XXE)_Prevention_Cheat_Sheet#StAX"
+     */
+    public static XMLStreamReader createSafeXmlStreamReader(InputStream inputStream) throws XMLStreamException {
+        if (XML_INPUT_FACTORY == null) {
+            XMLInputFactory xif = XMLInputFactory.newInstance();
+            xif.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            xif.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            XML_INPUT_FACTORY = xif;
+        }
+        return XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+    }
+
     //region XML Writing
     //region Open Tag
     /**
@@ -0,0 +1,71 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.client.bot.princess;
+
+import megamek.common.Coords;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ArtilleryValueRasterTest {
+
+    /**
+     * Sums the values hex by hex over the rings of the blast, the way the damage value used to be calculated.
+     */
+    private static double expectedDamageValue(int damage, Coords coords, Map<Coords, Double> hexValues) {
+        int blastRadius = (int) Math.ceil(damage / 10.0) - 1;
+        double total = hexValues.getOrDefault(coords, 0.0) * damage;
+        for (int distance = 1; distance <= blastRadius; distance++) {
+            for (Coords ring : coords.allAtDistance(distance)) {
+                total += hexValues.getOrDefault(ring, 0.0) * (damage - distance * 10);
+            }
+        }
+        return total;
+    }
+
+    @Test
+    public void testDamageValuesMatchHexByHexSums() {
+        Random random = new Random(42);
+        Map<Coords, Double> hexValues = new HashMap<>();
+        for (int i = 0; i < 40; i++) {
+            // a few units stand just off the board
+            Coords coords = new Coords(random.nextInt(20) - 1, random.nextInt(18) - 1);
+            hexValues.merge(coords, (random.nextBoolean() ? 1.0 : -1.0) / (random.nextInt(8) + 1), Double::sum);
+        }
+        ArtilleryValueRaster raster = new ArtilleryValueRaster(16, 17, hexValues);
+
+        for (int damage : new int[] { 5, 10, 15, 20, 25, 30, 60 }) {
+            for (int x = -2; x < 18; x++) {
+                for (int y = -2; y < 19; y++) {
+                    Coords coords = new Coords(x, y);
+                    assertEquals(coords + " " + damage, expectedDamageValue(damage, coords, hexValues),
+                            raster.getDamageValue(damage, coords), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyBoardHasNoValue() {
+        ArtilleryValueRaster raster = new ArtilleryValueRaster(16, 17, new HashMap<>());
+        assertEquals(0, raster.getDamageValue(20, new Coords(3, 4)), 0);
+    }
+}
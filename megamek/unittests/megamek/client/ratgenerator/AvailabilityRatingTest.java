@@ -0,0 +1,52 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.client.ratgenerator;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class AvailabilityRatingTest {
+
+    private static AvailabilityRating copy(AvailabilityRating ar) throws Exception {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        ar.writeTo(new DataOutputStream(data));
+        return AvailabilityRating.readFrom(new DataInputStream(new ByteArrayInputStream(data.toByteArray())),
+                ar.getUnitName(), ar.getEra());
+    }
+
+    @Test
+    public void testSnapshotKeepsAllFields() throws Exception {
+        for (String code : new String[] { "FS:6", "DC!A:8+:3052", "CJF!Keshik,Front:4-", "LA:5:3053" }) {
+            AvailabilityRating ar = new AvailabilityRating("Atlas AS7-D", 3050, code);
+            AvailabilityRating copy = copy(ar);
+
+            assertEquals(code, ar.toString(), copy.toString());
+            assertEquals(ar.getFactionCode(), copy.getFactionCode());
+            assertEquals(ar.getRatings(), copy.getRatings());
+            assertEquals(ar.getRatingAdjustment(), copy.getRatingAdjustment());
+            assertEquals(ar.getStartYear(), copy.getStartYear());
+            assertEquals("Atlas AS7-D", copy.getUnitName());
+            assertEquals(3050, copy.getEra());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.client.ratgenerator;
+
+import megamek.common.Entity;
+import megamek.common.MechSummaryCache;
+import megamek.common.UnitType;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ForceGenerationTest {
+
+    @BeforeClass
+    public static void loadData() throws InterruptedException {
+        MechSummaryCache msc = MechSummaryCache.getInstance();
+        while (!msc.isInitialized()) {
+            Thread.sleep(50);
+        }
+        while (!RATGenerator.getInstance().isInitialized()) {
+            Thread.sleep(50);
+        }
+        Ruleset.loadData();
+    }
+
+    @Test
+    public void testSameSeedGivesSameForceInParallel() {
+        String sequential = describe(generate(42L, false));
+        assertTrue(sequential.contains("Entity"));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(sequential, describe(generate(42L, true)));
+        }
+    }
+
+    private static ForceDescriptor generate(long seed, boolean parallel) {
+        ForceDescriptor fd = new ForceDescriptor();
+        fd.setTopLevel(true);
+        fd.setYear(3067);
+        fd.setFaction("FS");
+        fd.setUnitType(UnitType.MEK);
+        fd.setEschelon(5);
+        fd.setExperience(ForceDescriptor.EXP_REGULAR);
+        fd.setAttachments(true);
+        Ruleset.findRuleset(fd).processRoot(fd, null, seed, parallel);
+        return fd;
+    }
+
+    /**
+     * @return the units, skills and loaded entities of the force tree, in tree order; crew names
+     *         are not derived from the seed
+     */
+    private static String describe(ForceDescriptor fd) {
+        StringBuilder sb = new StringBuilder();
+        describe(fd, sb, 0);
+        return sb.toString();
+    }
+
+    private static void describe(ForceDescriptor fd, StringBuilder sb, int depth) {
+        sb.append(depth).append(' ').append(fd.getModelName());
+        if (fd.getCo() != null) {
+            sb.append(" skills ").append(fd.getCo().getGunnery()).append('/').append(fd.getCo().getPiloting());
+        }
+        Entity entity = fd.getEntity();
+        if (entity != null) {
+            sb.append(" Entity ").append(entity.getShortName()).append(" canon ").append(entity.isCanon())
+                    .append(" force ").append(entity.getForceString());
+        }
+        sb.append('\n');
+        for (ForceDescriptor sub : fd.getSubforces()) {
+            describe(sub, sb, depth + 1);
+        }
+        for (ForceDescriptor sub : fd.getAttached()) {
+            describe(sub, sb, depth + 1);
+        }
+    }
+}
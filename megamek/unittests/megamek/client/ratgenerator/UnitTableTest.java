@@ -0,0 +1,85 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.client.ratgenerator;
+
+import megamek.common.MechSummary;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class UnitTableTest {
+
+    private static UnitTable.TableEntry entry(String name, int weight) {
+        MechSummary ms = new MechSummary();
+        ms.setName(name);
+        return new UnitTable.TableEntry(weight, ms);
+    }
+
+    @Test
+    public void testAliasTableMatchesWeights() {
+        List<UnitTable.TableEntry> entries = new ArrayList<>();
+        entries.add(entry("Locust", 1));
+        entries.add(entry("Wasp", 0));
+        entries.add(entry("Phoenix Hawk", 6));
+        entries.add(entry("Atlas", 13));
+        UnitTable.AliasTable table = new UnitTable.AliasTable(entries);
+
+        Map<String, Integer> counts = new HashMap<>();
+        int draws = 200000;
+        for (int i = 0; i < draws; i++) {
+            counts.merge(table.draw().toString(), 1, Integer::sum);
+        }
+
+        assertNull(counts.get("Wasp"));
+        assertEquals(1.0 / 20, counts.get("Locust") / (double) draws, 0.005);
+        assertEquals(6.0 / 20, counts.get("Phoenix Hawk") / (double) draws, 0.01);
+        assertEquals(13.0 / 20, counts.get("Atlas") / (double) draws, 0.01);
+    }
+
+    @Test
+    public void testAliasTableWithTotalWeightAboveIntRange() {
+        List<UnitTable.TableEntry> entries = new ArrayList<>();
+        entries.add(entry("Locust", Integer.MAX_VALUE / 4));
+        entries.add(entry("Phoenix Hawk", Integer.MAX_VALUE / 2));
+        entries.add(entry("Atlas", Integer.MAX_VALUE));
+        entries.add(entry("Wasp", 1));
+        UnitTable.AliasTable table = new UnitTable.AliasTable(entries);
+
+        Map<String, Integer> counts = new HashMap<>();
+        int draws = 200000;
+        for (int i = 0; i < draws; i++) {
+            counts.merge(table.draw().toString(), 1, Integer::sum);
+        }
+
+        assertEquals(1.0 / 7, counts.get("Locust") / (double) draws, 0.01);
+        assertEquals(2.0 / 7, counts.get("Phoenix Hawk") / (double) draws, 0.01);
+        assertEquals(4.0 / 7, counts.get("Atlas") / (double) draws, 0.01);
+        assertTrue(counts.getOrDefault("Wasp", 0) < 10);
+    }
+
+    @Test
+    public void testEmptyAliasTable() {
+        assertNull(new UnitTable.AliasTable(Collections.emptyList()).draw());
+        assertNull(new UnitTable.AliasTable(Collections.singletonList(entry("Wasp", 0))).draw());
+    }
+}
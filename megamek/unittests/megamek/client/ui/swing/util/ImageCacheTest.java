@@ -0,0 +1,123 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.client.ui.swing.util;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ImageCacheTest {
+
+    @After
+    public void restoreMemoryBudget() {
+        ImageCache.setMemoryBudget(0);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsDropped() {
+        ImageCache<String, String> cache = new ImageCache<>(2);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        assertEquals("A", cache.get("a"));
+        cache.put("c", "C");
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals("A", cache.get("a"));
+        assertEquals("C", cache.get("c"));
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void testDefaultCacheKeepsAllEntries() {
+        ImageCache<Integer, String> cache = new ImageCache<>();
+        for (int i = 0; i <= ImageCache.MAX_SIZE; i++) {
+            cache.put(i, "Hex");
+        }
+        ImageCache.setMemoryBudget(1);
+
+        assertEquals(ImageCache.MAX_SIZE + 1, cache.size());
+        assertEquals("Hex", cache.get(0));
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    public void testWeighedCachesShareTheMemoryBudget() {
+        ImageCache<String, Long> first = new ImageCache<>("first", bytes -> bytes);
+        ImageCache<String, Long> second = new ImageCache<>("second", bytes -> bytes);
+        ImageCache.setMemoryBudget(100);
+
+        first.put("a", 40L);
+        second.put("b", 40L);
+        first.get("a");
+        // b is now used least recently of all entries, so it makes room
+        first.put("c", 40L);
+        assertNull(second.get("b"));
+        assertEquals(80, first.getBytes());
+        assertEquals(0, second.getBytes());
+        assertEquals(1, second.getEvictions());
+
+        // An entry larger than the budget is kept until the next one arrives
+        second.put("d", 150L);
+        assertEquals(0, first.size());
+        assertEquals(Long.valueOf(150), second.get("d"));
+        second.put("e", 10L);
+        assertNull(second.get("d"));
+        assertEquals(10, second.getBytes());
+
+        ImageCache.setMemoryBudget(5);
+        assertEquals(0, second.size());
+    }
+
+    @Test
+    public void testConcurrentUseKeepsToTheBudget() throws Exception {
+        ImageCache<Integer, Long> first = new ImageCache<>("first", bytes -> bytes);
+        ImageCache<Integer, Long> second = new ImageCache<>("second", bytes -> bytes);
+        ImageCache.setMemoryBudget(1000);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            ImageCache<Integer, Long> cache = (t % 2 == 0) ? first : second;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    cache.put(i % 100, 10L);
+                    cache.get((i + 50) % 100);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join(10000);
+            assertFalse(thread.isAlive());
+        }
+
+        assertTrue(first.getBytes() + second.getBytes() <= 1000);
+        assertEquals(first.size() * 10L, first.getBytes());
+        assertEquals(second.size() * 10L, second.getBytes());
+    }
+
+    @Test
+    public void testImageSizeEstimate() {
+        assertEquals(40 * 30 * 4, ImageCache.estimateBytes(new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB)));
+        assertEquals(40 * 30, ImageCache.estimateBytes(new BufferedImage(40, 30, BufferedImage.TYPE_BYTE_GRAY)));
+        assertEquals(0, ImageCache.estimateBytes(null));
+    }
+}
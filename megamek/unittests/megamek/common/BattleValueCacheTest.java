@@ -0,0 +1,118 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common;
+
+import megamek.common.options.OptionsConstants;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class BattleValueCacheTest {
+
+    private Entity mech;
+    private int bv;
+
+    @Before
+    public void setUp() throws Exception {
+        mech = new MechFileParser(new File("data/mechfiles/mechs/3050U/Exterminator EXT-4A.mtf")).getEntity();
+        bv = mech.calculateBattleValue();
+    }
+
+    @Test
+    public void testUnchangedUnitUsesTheCache() {
+        assertTrue(mech.isBattleValueCached(false, false));
+        assertFalse(mech.isBattleValueCached(true, true));
+        assertEquals(bv, mech.calculateBattleValue());
+
+        String text = mech.getBVText();
+        assertTrue(text.contains(mech.getChassis()));
+        assertSame(text, mech.getBVText());
+        assertTrue(mech.isBattleValueCached(false, false));
+    }
+
+    @Test
+    public void testDamageInvalidatesTheCache() {
+        mech.setArmor(0, Mech.LOC_CT);
+        assertFalse(mech.isBattleValueCached(false, false));
+        assertTrue(mech.calculateBattleValue() < bv);
+    }
+
+    @Test
+    public void testArmorMovedBetweenLocationsInvalidatesTheCache() {
+        int total = mech.getTotalArmor();
+        mech.setArmor(mech.getArmor(Mech.LOC_LARM) - 1, Mech.LOC_LARM);
+        mech.setArmor(mech.getArmor(Mech.LOC_RARM) + 1, Mech.LOC_RARM);
+        assertEquals(total, mech.getTotalArmor());
+        assertFalse(mech.isBattleValueCached(false, false));
+    }
+
+    @Test
+    public void testCrewChangesInvalidateTheCache() {
+        mech.getCrew().setGunnery(2, 0);
+        assertFalse(mech.isBattleValueCached(false, false));
+        assertTrue(mech.calculateBattleValue() > bv);
+
+        int skilledBV = mech.calculateBattleValue();
+        mech.setCrew(new Crew(CrewType.SINGLE));
+        assertEquals(bv, mech.calculateBattleValue());
+        assertTrue(skilledBV > bv);
+    }
+
+    @Test
+    public void testAbilitiesAndImplantsInvalidateTheCache() {
+        mech.getCrew().getOptions().getOption(OptionsConstants.MD_VDNI).setValue(true);
+        assertFalse(mech.isBattleValueCached(false, false));
+        assertTrue(mech.calculateBattleValue() > bv);
+    }
+
+    @Test
+    public void testQuirksInvalidateTheCache() {
+        mech.getQuirks().getOption(OptionsConstants.QUIRK_POS_BATTLE_COMP).setValue(true);
+        assertFalse(mech.isBattleValueCached(false, false));
+        mech.calculateBattleValue();
+        assertTrue(mech.isBattleValueCached(false, false));
+
+        mech.getWeaponList().get(0).getQuirks().getOption(OptionsConstants.QUIRK_WEAP_POS_ACCURATE).setValue(true);
+        assertFalse(mech.isBattleValueCached(false, false));
+    }
+
+    @Test
+    public void testMovementInvalidatesTheCache() {
+        mech.setOriginalWalkMP(mech.getOriginalWalkMP() + 1);
+        assertFalse(mech.isBattleValueCached(false, false));
+        assertTrue(mech.calculateBattleValue() > bv);
+    }
+
+    @Test
+    public void testGameOptionsInvalidateTheCache() {
+        Game game = new Game();
+        Player player = new Player(0, "Player");
+        game.addPlayer(0, player);
+        mech.setOwner(player);
+        mech.setGame(game);
+        assertFalse(mech.isBattleValueCached(false, false));
+        mech.calculateBattleValue();
+
+        game.getOptions().getOption(OptionsConstants.ADVANCED_GEOMETRIC_MEAN_BV).setValue(true);
+        assertFalse(mech.isBattleValueCached(false, false));
+        mech.calculateBattleValue();
+        assertTrue(mech.isBattleValueCached(false, false));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class BoardTest {
+
+    @Test
+    public void testBoardFileLines() {
+        List<String> tokens = new ArrayList<>();
+        Board.tokenizeBoardLine("hex 0101 -1 \"woods:1;foliage_elev:2\" \"\" # comment", tokens);
+        assertEquals(List.of("hex", "101", "-1", "woods:1;foliage_elev:2", ""), tokens);
+        Board.tokenizeBoardLine("description \"A \\\"quoted\\\" #1\"", tokens);
+        assertEquals(List.of("description", "A \"quoted\" #1"), tokens);
+    }
+
+    @Test
+    public void testBoardFileLinesFollowTheStreamTokenizerSyntax() {
+        List<String> tokens = new ArrayList<>();
+        Board.tokenizeBoardLine("tag 'single' / comment", tokens);
+        assertEquals(List.of("tag", "single"), tokens);
+        Board.tokenizeBoardLine("note 1.9 \"a\\bb\\fc\\vd\\ae\\101\\0619\\477\" \"open", tokens);
+        assertEquals(List.of("note", "1", "a\bb\fc\u000Bd\u0007eA19'7", "open"), tokens);
+        // Numbers end at the first other character, words may contain digits
+        Board.tokenizeBoardLine("size 16x17 foliage_elev2-3", tokens);
+        assertEquals(List.of("size", "16", "x17", "foliage_elev2-3"), tokens);
+        // Any other character ends the line, as it ended the arguments of a statement
+        Board.tokenizeBoardLine("hex 0101 0 woods:1", tokens);
+        assertEquals(List.of("hex", "101", "0", "woods"), tokens);
+        Board.tokenizeBoardLine("hex - 1", tokens);
+        assertEquals(List.of("hex"), tokens);
+    }
+
+    @Test
+    public void testBoardIsLoaded() {
+        Board board = new Board();
+        String file = "size 2 1\nhex 0101 0 \"water:1\" \"snow\"\nhex 0201 1 \"\" \"snow\"\ntag \"Tag\"\nend";
+        board.load(new ByteArrayInputStream(file.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(2, board.getWidth());
+        assertEquals(1, board.getHex(0, 0).terrainLevel(Terrains.WATER));
+        assertSame(board.getHex(0, 0).getTheme(), board.getHex(1, 0).getTheme());
+        assertTrue(board.getTags().contains("Tag"));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ECMFieldMapTest {
+
+    @Test
+    public void testEffectsMatchCheckingEveryField() {
+        Random random = new Random(3);
+        Player[] players = { new Player(0, "A"), new Player(1, "B"), new Player(2, "C") };
+        players[0].setTeam(1);
+        players[1].setTeam(1);
+        players[2].setTeam(2);
+
+        List<ECMInfo> fields = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Player owner = (i % 10 == 0) ? null : players[random.nextInt(players.length)];
+            ECMInfo info = new ECMInfo(random.nextInt(7), new Coords(random.nextInt(30), random.nextInt(20)),
+                    owner, random.nextInt(2), random.nextInt(2));
+            info.setECCMStrength(random.nextInt(2));
+            info.setECMNova(random.nextInt(4) == 0);
+            fields.add(info);
+        }
+        ECMFieldMap map = new ECMFieldMap(fields, new Board(30, 20));
+
+        for (int i = 0; i < 500; i++) {
+            Player owner = players[random.nextInt(players.length)];
+            Coords position = new Coords(random.nextInt(36) - 3, random.nextInt(26) - 3);
+            ECMInfo expected = null;
+            for (ECMInfo info : fields) {
+                if (position.distance(info.getPos()) <= info.getRange()) {
+                    if (expected == null) {
+                        expected = new ECMInfo(0, 0, owner, position);
+                    }
+                    expected.addOpposingECMEffects(info);
+                }
+            }
+            assertEquals(expected, map.getOpposingEffects(owner, position));
+            // A second look answers from the stored effects
+            assertEquals(expected, map.getOpposingEffects(owner, position));
+        }
+    }
+
+    @Test
+    public void testMapIsKeptForTheSameList() {
+        Game game = new Game();
+        List<ECMInfo> fields = new ArrayList<>();
+        fields.add(new ECMInfo(2, new Coords(3, 3), null, 1, 0));
+
+        ECMFieldMap map = game.getECMFieldMap(fields);
+        assertSame(map, game.getECMFieldMap(fields));
+        assertSame(map, game.getECMFieldMap(map.getECMInfo()));
+
+        ECMFieldMap gameMap = game.getECMFieldMap(null);
+        assertSame(gameMap, game.getECMFieldMap(null));
+        game.invalidateECMFieldMap();
+        assertNotSame(gameMap, game.getECMFieldMap(null));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class EntitySpatialIndexTest {
+
+    @Test
+    public void testQueriesMatchCheckingEveryEntity() {
+        Random random = new Random(11);
+        EntitySpatialIndex index = new EntitySpatialIndex();
+        Map<Integer, Coords> positions = new HashMap<>();
+        for (int id = 0; id < 200; id++) {
+            Coords position = new Coords(random.nextInt(60), random.nextInt(40));
+            index.update(id, position);
+            positions.put(id, position);
+        }
+        // Move some entities and take some off the board
+        for (int id = 0; id < 200; id += 7) {
+            Coords position = new Coords(random.nextInt(60), random.nextInt(40));
+            index.update(id, position);
+            positions.put(id, position);
+        }
+        for (int id = 3; id < 200; id += 13) {
+            index.remove(id);
+            positions.remove(id);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            Coords center = new Coords(random.nextInt(70) - 5, random.nextInt(50) - 5);
+            int distance = random.nextInt(30);
+
+            List<Integer> expected = new ArrayList<>();
+            int closest = Entity.NONE;
+            int closestDistance = Integer.MAX_VALUE;
+            for (Map.Entry<Integer, Coords> entry : positions.entrySet()) {
+                int id = entry.getKey();
+                int entityDistance = center.distance(entry.getValue());
+                if (entityDistance <= distance) {
+                    expected.add(id);
+                }
+                if ((id % 2 == 0) && (entityDistance <= distance)
+                        && ((entityDistance < closestDistance)
+                        || ((entityDistance == closestDistance) && (id < closest)))) {
+                    closest = id;
+                    closestDistance = entityDistance;
+                }
+            }
+
+            List<Integer> found = new ArrayList<>();
+            index.collectWithin(center, distance, found);
+            found.sort(null);
+            expected.sort(null);
+            assertEquals(expected, found);
+            assertEquals(closest, index.findClosest(center, distance, id -> id % 2 == 0));
+        }
+    }
+
+    @Test
+    public void testFindClosestWithoutMatch() {
+        EntitySpatialIndex index = new EntitySpatialIndex();
+        index.update(1, new Coords(5, 5));
+        assertEquals(Entity.NONE, index.findClosest(new Coords(0, 0), 100, id -> false));
+        assertEquals(Entity.NONE, index.findClosest(new Coords(0, 0), 3, id -> true));
+        assertEquals(1, index.findClosest(new Coords(0, 0), 100, id -> true));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class EntityStoreTest {
+
+    private static Entity entity(int id) {
+        Entity entity = new BipedMech();
+        entity.setId(id);
+        return entity;
+    }
+
+    @Test
+    public void testSnapshotsDoNotChange() {
+        EntityStore store = new EntityStore();
+        Entity first = entity(0);
+        Entity second = entity(1);
+        store.add(first);
+        store.add(second);
+        List<Entity> before = store.snapshot();
+
+        Entity replacement = entity(1);
+        store.replace(1, replacement);
+        store.add(entity(2));
+        store.remove(0);
+
+        assertEquals(Arrays.asList(first, second), before);
+        assertEquals(2, store.size());
+        assertSame(replacement, store.snapshot().get(0));
+        assertSame(replacement, store.getById(1));
+        assertNull(store.getById(0));
+        assertEquals(2, store.idCount());
+        try {
+            store.snapshot().add(first);
+            fail("Snapshots must not be modifiable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testIdsOutsideOfTheTable() {
+        EntityStore store = new EntityStore();
+        Entity negative = entity(-5);
+        Entity large = entity(EntityStore.DENSE_ID_LIMIT + 3);
+        store.add(negative);
+        store.add(large);
+        store.add(entity(40));
+
+        assertSame(negative, store.getById(-5));
+        assertSame(large, store.getById(EntityStore.DENSE_ID_LIMIT + 3));
+        assertSame(large, store.remove(EntityStore.DENSE_ID_LIMIT + 3));
+        assertFalse(store.containsId(EntityStore.DENSE_ID_LIMIT + 3));
+        assertTrue(store.containsId(40));
+        assertEquals(2, store.idCount());
+    }
+
+    @Test
+    public void testGameKeepsOrderAndFindsEntities() throws Exception {
+        Game game = new Game();
+        for (int i = 0; i < 50; i++) {
+            game.addEntity(entity(i), false);
+        }
+        // A duplicate ID is replaced with the next free one
+        Entity duplicate = entity(10);
+        game.addEntity(duplicate, false);
+        game.removeEntity(20, IEntityRemovalConditions.REMOVE_SALVAGEABLE);
+
+        assertEquals(50, duplicate.getId());
+        assertEquals(50, game.getNoOfEntities());
+        assertSame(duplicate, game.getEntitiesVector().get(49));
+        assertNull(game.getEntity(20));
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+            out.writeObject(game);
+        }
+        Game copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+            copy = (Game) in.readObject();
+        }
+        assertEquals(50, copy.getNoOfEntities());
+        assertEquals(50, copy.getEntity(50).getId());
+        assertSame(copy.getEntity(50), copy.getEntitiesVector().get(49));
+    }
+}
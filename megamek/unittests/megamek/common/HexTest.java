@@ -0,0 +1,95 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class HexTest {
+
+    @Test
+    public void testTerrainsAreKeptByType() {
+        Hex hex = new Hex(2, "water:1;road:1:5;woods:2;water:3", null);
+        assertArrayEquals(new int[] { Terrains.WOODS, Terrains.WATER, Terrains.ROAD }, hex.getTerrainTypes());
+        assertEquals(3, hex.terrainLevel(Terrains.WATER));
+        assertEquals(5, hex.getTerrain(Terrains.ROAD).getExits());
+
+        hex.addTerrain(new Terrain(Terrains.ROUGH, 1));
+        hex.addTerrain(new Terrain(Terrains.WOODS, 1));
+        hex.removeTerrain(Terrains.WATER);
+        hex.removeTerrain(Terrains.SWAMP);
+        assertArrayEquals(new int[] { Terrains.WOODS, Terrains.ROUGH, Terrains.ROAD }, hex.getTerrainTypes());
+        assertEquals(1, hex.terrainLevel(Terrains.WOODS));
+        assertFalse(hex.containsTerrain(Terrains.WATER));
+        assertEquals(3, hex.terrainsPresent());
+
+        hex.removeAllTerrains();
+        assertEquals(0, hex.terrainsPresent());
+        assertNull(hex.getTerrain(Terrains.WOODS));
+    }
+
+    @Test
+    public void testSerializedHexKeepsItsTerrains() throws Exception {
+        Hex hex = new Hex(1, "woods:1;foliage_elev:2", "snow");
+        Hex copy = (Hex) readObject(writeObject(hex));
+        assertArrayEquals(hex.getTerrainTypes(), copy.getTerrainTypes());
+        assertTrue(copy.containsTerrain(Terrains.FOLIAGE_ELEV));
+        assertEquals("snow", copy.getTheme());
+    }
+
+    @Test
+    public void testTerrainMapOfOldSaveGamesIsConverted() throws Exception {
+        Hex hex = new Hex(0);
+        Map<Integer, Terrain> terrains = new HashMap<>();
+        terrains.put(Terrains.ROUGH, new Terrain(Terrains.ROUGH, 1));
+        terrains.put(Terrains.PAVEMENT, new Terrain(Terrains.PAVEMENT, 1));
+        Field field = Hex.class.getDeclaredField("terrains");
+        field.setAccessible(true);
+        field.set(hex, terrains);
+        Method readResolve = Hex.class.getDeclaredMethod("readResolve");
+        readResolve.setAccessible(true);
+        readResolve.invoke(hex);
+
+        assertNull(field.get(hex));
+        assertArrayEquals(new int[] { Terrains.ROUGH, Terrains.PAVEMENT }, hex.getTerrainTypes());
+        assertTrue(hex.containsTerrain(Terrains.PAVEMENT));
+    }
+
+    private static byte[] writeObject(Object object) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object readObject(byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common;
+
+import megamek.common.options.GameOptions;
+import megamek.utils.MegaMekXmlUtil;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class MULParserTest {
+
+    private static final List<MechSummary> meks = new ArrayList<>();
+
+    @BeforeClass
+    public static void loadUnits() throws InterruptedException {
+        MechSummaryCache msc = MechSummaryCache.getInstance();
+        while (!msc.isInitialized()) {
+            Thread.sleep(50);
+        }
+        // Enough units that the parser has to wait for the unit files of some of them
+        MechSummary[] all = msc.getAllMechs();
+        for (int i = 0; (i < all.length) && (meks.size() < 40); i += 50) {
+            if (all[i].getUnitType().equals("Mek")) {
+                meks.add(all[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testEntitiesKeepFileOrderAndTheirCrews() throws Exception {
+        Game game = new Game();
+        ArrayList<Entity> saved = new ArrayList<>();
+        for (MechSummary ms : meks) {
+            Entity entity = new MechFileParser(ms.getSourceFile(), ms.getEntryName()).getEntity();
+            entity.setGame(game);
+            entity.setC3UUID();
+            entity.getCrew().setName("Pilot " + saved.size(), 0);
+            entity.getCrew().setGunnery(saved.size() % 6, 0);
+            saved.add(entity);
+        }
+        File file = File.createTempFile("MULParserTest", ".mul");
+        file.deleteOnExit();
+        EntityListFile.saveTo(file, saved);
+
+        // The crew is part of the entity by the time it is handed over
+        List<String> consumedCrews = new ArrayList<>();
+        MULParser parser = new MULParser(file, new GameOptions(),
+                entity -> consumedCrews.add(entity.getCrew().getName(0)));
+        List<Entity> loaded = parser.getEntities();
+        assertEquals(saved.size(), loaded.size());
+        assertEquals(saved.size(), consumedCrews.size());
+        for (int i = 0; i < saved.size(); i++) {
+            assertEquals(saved.get(i).getChassis(), loaded.get(i).getChassis());
+            assertEquals(saved.get(i).getModel(), loaded.get(i).getModel());
+            assertEquals("Pilot " + i, loaded.get(i).getCrew().getName(0));
+            assertEquals("Pilot " + i, consumedCrews.get(i));
+            assertEquals(i % 6, loaded.get(i).getCrew().getGunnery(0));
+        }
+        assertFalse(parser.hasWarningMessage());
+    }
+
+    @Test
+    public void testConsumerReceivesEntitiesInFileOrder() throws Exception {
+        StringBuilder mul = new StringBuilder("<record version=\"0.49\"><unit>");
+        for (int i = 0; i < meks.size() - 1; i++) {
+            mul.append(entityTag(meks.get(i)));
+        }
+        mul.append("</unit><survivors>").append(entityTag(meks.get(meks.size() - 1)))
+                .append("</survivors></record>");
+        List<Entity> consumed = new ArrayList<>();
+        MULParser parser = new MULParser(new ByteArrayInputStream(mul.toString().getBytes(StandardCharsets.UTF_8)),
+                new GameOptions(), consumed::add);
+
+        List<Entity> parsed = new ArrayList<>(parser.getEntities());
+        assertEquals(meks.size(), consumed.size());
+        for (int i = 0; i < meks.size(); i++) {
+            assertSame(parsed.get(i), consumed.get(i));
+            assertEquals(meks.get(i).getChassis(), consumed.get(i).getChassis());
+        }
+    }
+
+    @Test
+    public void testPilotsOfARecordKeepFileOrder() throws Exception {
+        String mul = "<record version=\"0.49\">"
+                + "<unit>" + entityTag(meks.get(0)) + "<pilot name=\"First\" gunnery=\"3\" piloting=\"4\"/>"
+                + entityTag(meks.get(1)) + "<pilot name=\"Second\" gunnery=\"5\" piloting=\"6\"/></unit>"
+                + "<survivors>" + entityTag(meks.get(2)) + "</survivors>"
+                + "</record>";
+        MULParser parser = parse(mul);
+
+        assertEquals(1, parser.getSurvivors().size());
+        assertEquals(meks.get(2).getChassis(), parser.getSurvivors().get(0).getChassis());
+        // The survivors are returned with the entities
+        assertEquals(3, parser.getEntities().size());
+        assertEquals(meks.get(1).getChassis(), parser.getEntities().get(1).getChassis());
+        assertEquals(2, parser.getPilots().size());
+        assertEquals("First", parser.getPilots().get(0).getName());
+        assertEquals(5, parser.getPilots().get(1).getGunnery());
+        assertFalse(parser.hasWarningMessage());
+    }
+
+    @Test
+    public void testUnknownUnitIsSkipped() throws Exception {
+        String mul = "<unit version=\"0.49\">" + entityTag(meks.get(0))
+                + "<entity chassis=\"No Such Chassis\" model=\"XX-1\"/>"
+                + entityTag(meks.get(1)) + "</unit>";
+        MULParser parser = parse(mul);
+
+        assertEquals(2, parser.getEntities().size());
+        assertEquals(meks.get(0).getChassis(), parser.getEntities().get(0).getChassis());
+        assertEquals(meks.get(1).getChassis(), parser.getEntities().get(1).getChassis());
+        assertTrue(parser.getWarningMessage().contains("No Such Chassis"));
+    }
+
+    @Test
+    public void testWrongRootElementParsesNothing() throws Exception {
+        MULParser parser = parse("<units version=\"0.49\">" + entityTag(meks.get(0)) + "</units>");
+        assertTrue(parser.getEntities().isEmpty());
+        assertTrue(parser.getWarningMessage().contains("root element"));
+
+        parser = parse("<unit>" + entityTag(meks.get(0)) + "</unit>");
+        assertEquals(1, parser.getEntities().size());
+        assertTrue(parser.getWarningMessage().contains("No version specified"));
+    }
+
+    @Test
+    public void testMalformedFileFails() {
+        for (String mul : new String[] { "", "<unit version=\"0.49\">" + entityTag(meks.get(0)),
+                "<unit version=\"0.49\"><entity chassis=\"Atlas\"></unit>" }) {
+            try {
+                parse(mul);
+                fail("Parsed a malformed file: " + mul);
+            } catch (Exception expected) {
+                // expected
+            }
+        }
+    }
+
+    private static String entityTag(MechSummary ms) {
+        return "<entity chassis=\"" + MegaMekXmlUtil.escape(ms.getChassis()) + "\" model=\""
+                + MegaMekXmlUtil.escape(ms.getModel()) + "\"/>";
+    }
+
+    private static MULParser parse(String mul) throws Exception {
+        return new MULParser(new ByteArrayInputStream(mul.getBytes(StandardCharsets.UTF_8)), new GameOptions());
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class MovementCostRasterTest {
+
+    private static final int[][] TERRAINS = {
+            { Terrains.WOODS, 1 }, { Terrains.WOODS, 2 }, { Terrains.JUNGLE, 3 }, { Terrains.ROUGH, 2 },
+            { Terrains.RUBBLE, 6 }, { Terrains.MUD, 1 }, { Terrains.SWAMP, 1 }, { Terrains.SNOW, 2 },
+            { Terrains.SAND, 1 }, { Terrains.ICE, 1 }, { Terrains.RAPIDS, 2 }, { Terrains.MAGMA, 2 },
+            { Terrains.INDUSTRIAL, 1 }
+    };
+
+    private static void addRandomTerrain(Hex hex, Random random) {
+        int[] terrain = TERRAINS[random.nextInt(TERRAINS.length)];
+        hex.addTerrain(new Terrain(terrain[0], terrain[1]));
+    }
+
+    @Test
+    public void testCostsMatchTheHex() {
+        Random random = new Random(5);
+        Board board = new Board(12, 10);
+        for (int x = 0; x < 12; x++) {
+            for (int y = 0; y < 10; y++) {
+                Hex hex = new Hex();
+                for (int i = random.nextInt(3); i > 0; i--) {
+                    addRandomTerrain(hex, random);
+                }
+                board.setHex(x, y, hex);
+            }
+        }
+        Entity[] entities = { new BipedMech(), new QuadMech(), new Tank(), new Tank(), new Infantry() };
+        entities[2].setMovementMode(EntityMovementMode.HOVER);
+        entities[3].setMovementMode(EntityMovementMode.WHEELED);
+        entities[4].setMovementMode(EntityMovementMode.INF_LEG);
+
+        for (int round = 0; round < 3; round++) {
+            for (Entity entity : entities) {
+                int costClass = MovementCostRaster.costClassOf(entity);
+                for (int x = 0; x < 12; x++) {
+                    for (int y = 0; y < 10; y++) {
+                        Coords coords = new Coords(x, y);
+                        assertEquals(board.getHex(coords).movementCost(entity),
+                                board.getMovementCost(coords, costClass));
+                    }
+                }
+            }
+            // Change hexes both in place and by replacing them
+            for (int i = 0; i < 20; i++) {
+                int x = random.nextInt(12);
+                int y = random.nextInt(10);
+                if (random.nextBoolean()) {
+                    addRandomTerrain(board.getHex(x, y), random);
+                } else {
+                    Hex hex = new Hex();
+                    addRandomTerrain(hex, random);
+                    board.setHex(x, y, hex);
+                }
+            }
+        }
+        assertEquals(0, board.getMovementCost(new Coords(-1, 4), MovementCostRaster.costClassOf(entities[0])));
+    }
+
+    @Test
+    public void testRemovedTerrainIsNoticed() {
+        Board board = new Board(3, 3);
+        Hex hex = new Hex();
+        hex.addTerrain(new Terrain(Terrains.WOODS, 2));
+        board.setHex(1, 1, hex);
+        int costClass = MovementCostRaster.costClassOf(new BipedMech());
+
+        assertEquals(2, board.getMovementCost(new Coords(1, 1), costClass));
+        hex.removeTerrain(Terrains.WOODS);
+        assertEquals(0, board.getMovementCost(new Coords(1, 1), costClass));
+    }
+}
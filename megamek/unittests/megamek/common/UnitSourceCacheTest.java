@@ -0,0 +1,87 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class UnitSourceCacheTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        UnitSourceCache.clear();
+        file = File.createTempFile("unit", ".blk");
+        Files.write(file.toPath(), "first".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() {
+        UnitSourceCache.clear();
+        file.delete();
+    }
+
+    @Test
+    public void testAdmittedOnSecondRequest() throws Exception {
+        UnitSourceCache.getSource(file, null);
+        assertEquals(0, UnitSourceCache.getCachedBytes());
+
+        byte[] second = UnitSourceCache.getSource(file, null);
+        assertEquals(second.length, UnitSourceCache.getCachedBytes());
+        assertSame(second, UnitSourceCache.getSource(file, null));
+    }
+
+    @Test
+    public void testChangedFileIsReread() throws Exception {
+        UnitSourceCache.getSource(file, null);
+        UnitSourceCache.getSource(file, null);
+
+        Files.write(file.toPath(), "second version".getBytes(StandardCharsets.UTF_8));
+        assertEquals("second version",
+                new String(UnitSourceCache.getSource(file, null), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testZipEntry() throws Exception {
+        File zip = File.createTempFile("units", ".zip");
+        try {
+            try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip))) {
+                out.putNextEntry(new ZipEntry("a.blk"));
+                out.write("entry a".getBytes(StandardCharsets.UTF_8));
+                out.putNextEntry(new ZipEntry("b.blk"));
+                out.write("entry b".getBytes(StandardCharsets.UTF_8));
+            }
+            UnitSourceCache.getSource(zip, "a.blk");
+            UnitSourceCache.getSource(zip, "a.blk");
+            assertEquals("entry a", new String(UnitSourceCache.getSource(zip, "a.blk"), StandardCharsets.UTF_8));
+            assertEquals("entry b", new String(UnitSourceCache.getSource(zip, "b.blk"), StandardCharsets.UTF_8));
+        } finally {
+            zip.delete();
+        }
+    }
+}
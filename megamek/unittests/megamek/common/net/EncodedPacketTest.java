@@ -0,0 +1,85 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common.net;
+
+import megamek.common.net.marshall.PacketMarshaller;
+import megamek.common.net.marshall.PacketMarshallerFactory;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class EncodedPacketTest {
+
+    /** Counts how often packets are marshalled */
+    private static class CountingMarshaller extends PacketMarshaller {
+        final PacketMarshaller marshaller = PacketMarshallerFactory.getInstance()
+                .getMarshaller(PacketMarshaller.NATIVE_SERIALIZATION_MARSHALING);
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void marshall(Packet packet, OutputStream stream) throws Exception {
+            count.incrementAndGet();
+            marshaller.marshall(packet, stream);
+        }
+
+        @Override
+        public Packet unmarshall(InputStream stream) throws Exception {
+            return marshaller.unmarshall(stream);
+        }
+    }
+
+    @Test
+    public void testDataIsMarshalledOncePerType() throws Exception {
+        CountingMarshaller marshaller = new CountingMarshaller();
+        int type = PacketMarshaller.NATIVE_SERIALIZATION_MARSHALING;
+        String message = "Hello".repeat(100);
+        EncodedPacket packet = new EncodedPacket(new Packet(Packet.COMMAND_CHAT, message, 5));
+
+        EncodedPacket.Encoding zipped = packet.encode(marshaller, type, PacketCompression.GZIP);
+        assertSame(zipped, packet.encode(marshaller, type, PacketCompression.GZIP));
+        assertEquals(PacketCompression.GZIP, zipped.compression);
+        EncodedPacket.Encoding plain = packet.encode(marshaller, type, PacketCompression.NONE);
+        assertSame(plain, packet.encode(marshaller, type, PacketCompression.NONE));
+        EncodedPacket.Encoding deflated = packet.encode(marshaller, type, PacketCompression.DICTIONARY);
+        assertEquals(1, marshaller.count.get());
+
+        Packet unzipped = marshaller.unmarshall(new GZIPInputStream(new ByteArrayInputStream(zipped.data)));
+        assertEquals(Packet.COMMAND_CHAT, unzipped.getCommand());
+        assertEquals(message, unzipped.getObject(0));
+        assertEquals(5, marshaller.unmarshall(new ByteArrayInputStream(plain.data)).getIntValue(1));
+        Packet inflated = marshaller.unmarshall(PacketCompression.decompress(deflated.data, deflated.compression));
+        assertEquals(message, inflated.getObject(0));
+        assertTrue(deflated.data.length < zipped.data.length);
+    }
+
+    @Test
+    public void testSmallPacketsAreNotCompressed() throws Exception {
+        PacketMarshaller marshaller = new CountingMarshaller();
+        int type = PacketMarshaller.NATIVE_SERIALIZATION_MARSHALING;
+        EncodedPacket packet = new EncodedPacket(new Packet(Packet.COMMAND_CLOSE_CONNECTION, (Object[]) null));
+        assertEquals(PacketCompression.NONE, packet.encode(marshaller, type, PacketCompression.GZIP).compression);
+        packet = new EncodedPacket(new Packet(Packet.COMMAND_PLAYER_READY, 1));
+        assertEquals(PacketCompression.NONE, packet.encode(marshaller, type, PacketCompression.DICTIONARY).compression);
+        assertTrue(PacketCompression.getCounters().get(Packet.COMMAND_PLAYER_READY).getPackets() > 0);
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common.net;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class FileTransferChannelTest {
+
+    private static final int PORT = 65010;
+
+    private final BlockingQueue<Packet> received = new LinkedBlockingQueue<>();
+    private AbstractConnection serverSide;
+    private AbstractConnection client;
+    private LocalConnectionAcceptor acceptor;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        acceptor = connection -> {
+            connection.addConnectionListener(new ConnectionListener() {
+                @Override
+                public void packetReceived(PacketReceivedEvent e) {
+                    received.add(e.getPacket());
+                }
+            });
+            connection.setAuthenticated(true);
+            serverSide = connection;
+            return true;
+        };
+        ConnectionFactory.getInstance().registerLocalServer(PORT, acceptor);
+        client = ConnectionFactory.getInstance().createClientConnection("localhost", PORT, 1);
+        assertTrue(client.open());
+        new Thread(() -> serverSide.update()).start();
+        new Thread(() -> client.update()).start();
+
+        byte[] content = new byte[3 * FileTransferChannel.CHUNK_SIZE + 1234];
+        new Random(7).nextBytes(content);
+        file = File.createTempFile("transfer", ".sav.gz");
+        Files.write(file.toPath(), content);
+    }
+
+    @After
+    public void tearDown() {
+        FileTransferChannel.idleTimeoutMillis = TimeUnit.MINUTES.toMillis(2);
+        FileTransferChannel.resumeTimeoutMillis = TimeUnit.MINUTES.toMillis(10);
+        client.close();
+        ConnectionFactory.getInstance().unregisterLocalServer(PORT, acceptor);
+        file.delete();
+    }
+
+    @Test
+    public void testFileIsDeliveredWithData() throws Exception {
+        Packet packet = sendAndReceive(new AtomicLong());
+
+        assertEquals(Packet.COMMAND_SEND_SAVEGAME, packet.getCommand());
+        assertEquals("game.sav.gz", packet.getObject(0));
+        File receivedFile = (File) packet.getObject(1);
+        try {
+            assertArrayEquals(Files.readAllBytes(file.toPath()), Files.readAllBytes(receivedFile.toPath()));
+        } finally {
+            receivedFile.delete();
+        }
+    }
+
+    @Test
+    public void testInterruptedTransferResumes() throws Exception {
+        byte[] content = Files.readAllBytes(file.toPath());
+        File partFile = FileTransferChannel.getPartFile(FileTransferChannel.checksum(file), content.length);
+        Files.write(partFile.toPath(), Arrays.copyOf(content, FileTransferChannel.CHUNK_SIZE + 10));
+
+        AtomicLong firstProgress = new AtomicLong(-1);
+        File receivedFile = (File) sendAndReceive(firstProgress).getObject(1);
+        try {
+            assertEquals(FileTransferChannel.CHUNK_SIZE + 10, firstProgress.get());
+            assertArrayEquals(content, Files.readAllBytes(receivedFile.toPath()));
+            assertFalse(partFile.exists());
+        } finally {
+            receivedFile.delete();
+        }
+    }
+
+    @Test
+    public void testPartFilesArePrivateAndLinksAreNotFollowed() throws Exception {
+        File partFile = FileTransferChannel.getPartFile(FileTransferChannel.checksum(file), (int) file.length());
+        Path dir = partFile.getParentFile().toPath();
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(dir));
+        }
+
+        File victim = File.createTempFile("victim", ".txt");
+        try {
+            Files.write(victim.toPath(), new byte[] { 1, 2, 3 });
+            Files.createSymbolicLink(partFile.toPath(), victim.toPath());
+            BlockingQueue<Boolean> finished = new LinkedBlockingQueue<>();
+            client.sendFile(file, Packet.COMMAND_SEND_SAVEGAME, new Object[] { "game.sav.gz" },
+                    finishedListener(finished));
+
+            assertEquals(Boolean.FALSE, finished.poll(5, TimeUnit.SECONDS));
+            assertArrayEquals(new byte[] { 1, 2, 3 }, Files.readAllBytes(victim.toPath()));
+        } finally {
+            Files.deleteIfExists(partFile.toPath());
+            victim.delete();
+        }
+    }
+
+    @Test
+    public void testLargePacketIsDeliveredAsPacket() throws Exception {
+        Vector<String> payload = new Vector<>();
+        payload.add("Atlas");
+        client.sendLarge(new Packet(Packet.COMMAND_LOAD_GAME, payload), null);
+
+        Packet packet = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(packet);
+        assertEquals(Packet.COMMAND_LOAD_GAME, packet.getCommand());
+        assertEquals(payload, packet.getObject(0));
+    }
+
+    @Test
+    public void testUnauthenticatedConnectionRefusesTransfers() throws Exception {
+        serverSide.setAuthenticated(false);
+        BlockingQueue<Boolean> finished = new LinkedBlockingQueue<>();
+        client.sendFile(file, Packet.COMMAND_SEND_SAVEGAME, new Object[] { "game.sav.gz" },
+                finishedListener(finished));
+
+        assertEquals(Boolean.FALSE, finished.poll(5, TimeUnit.SECONDS));
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testAbandonedTransferDeletesItsPartFile() throws Exception {
+        FileTransferChannel.idleTimeoutMillis = 200;
+        File partFile = startTransferWithoutChunks();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (partFile.exists() && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(50);
+        }
+        assertFalse(partFile.exists());
+    }
+
+    @Test
+    public void testPartFilesOfClosedConnectionAreDeleted() throws Exception {
+        FileTransferChannel.resumeTimeoutMillis = 200;
+        File partFile = startTransferWithoutChunks();
+
+        serverSide.close();
+        assertTrue(partFile.exists());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (partFile.exists() && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(50);
+        }
+        assertFalse(partFile.exists());
+    }
+
+    /**
+     * Announces a transfer to the server side like a peer that never sends its chunks.
+     *
+     * @return the partial file of the transfer
+     */
+    private File startTransferWithoutChunks() throws Exception {
+        int length = (int) file.length();
+        int checksum = FileTransferChannel.checksum(file);
+        File partFile = FileTransferChannel.getPartFile(checksum, length);
+        client.send(new Packet(Packet.COMMAND_FILE_TRANSFER_START, new Object[] {
+                -1, FileTransferChannel.KIND_FILE, Packet.COMMAND_SEND_SAVEGAME, null,
+                client.getMarshallingType(), length, checksum }));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!partFile.exists() && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(20);
+        }
+        assertTrue(partFile.exists());
+        return partFile;
+    }
+
+    private static FileTransferListener finishedListener(BlockingQueue<Boolean> finished) {
+        return new FileTransferListener() {
+            @Override
+            public void transferFinished(boolean success) {
+                finished.add(success);
+            }
+        };
+    }
+
+    private Packet sendAndReceive(AtomicLong firstProgress) throws Exception {
+        BlockingQueue<Boolean> finished = new LinkedBlockingQueue<>();
+        client.sendFile(file, Packet.COMMAND_SEND_SAVEGAME, new Object[] { "game.sav.gz" },
+                new FileTransferListener() {
+                    @Override
+                    public void transferProgress(long sent, long total) {
+                        firstProgress.compareAndSet(-1, sent);
+                    }
+
+                    @Override
+                    public void transferFinished(boolean success) {
+                        finished.add(success);
+                    }
+                });
+        Packet packet = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(packet);
+        assertEquals(Boolean.TRUE, finished.poll(5, TimeUnit.SECONDS));
+        return packet;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common.net;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.SocketException;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class LoopbackConnectionTest {
+
+    @Test
+    public void testCopyIsIsolated() throws Exception {
+        Vector<String> payload = new Vector<>();
+        payload.add("Atlas");
+        Packet packet = new Packet(Packet.COMMAND_CHAT, payload, 3);
+        Packet copy = LoopbackConnection.copyOf(packet);
+        payload.add("Locust");
+
+        assertEquals(Packet.COMMAND_CHAT, copy.getCommand());
+        assertEquals(1, ((Vector<?>) copy.getObject(0)).size());
+        assertEquals(3, copy.getIntValue(1));
+    }
+
+    @Test
+    public void testImmutablePacketSharesValues() throws Exception {
+        String message = "Hello";
+        Packet copy = LoopbackConnection.copyOf(new Packet(Packet.COMMAND_CHAT, message));
+        assertSame(message, copy.getObject(0));
+    }
+
+    @Test
+    public void testLocalClientConnectionDeliversPackets() throws Exception {
+        int port = 65000;
+        AtomicReference<AbstractConnection> serverSide = new AtomicReference<>();
+        CountDownLatch received = new CountDownLatch(1);
+        AtomicReference<Packet> receivedPacket = new AtomicReference<>();
+        LocalConnectionAcceptor acceptor = connection -> {
+            connection.addConnectionListener(new ConnectionListener() {
+                @Override
+                public void packetReceived(PacketReceivedEvent e) {
+                    receivedPacket.set(e.getPacket());
+                    received.countDown();
+                }
+            });
+            serverSide.set(connection);
+            return true;
+        };
+        ConnectionFactory.getInstance().registerLocalServer(port, acceptor);
+        try {
+            AbstractConnection client = ConnectionFactory.getInstance().createClientConnection("localhost", port, 1);
+            assertTrue(client instanceof LoopbackConnection);
+            assertTrue(client.open());
+            assertNotNull(serverSide.get());
+            assertTrue(serverSide.get().isServer());
+
+            Thread reader = new Thread(() -> serverSide.get().update());
+            reader.start();
+            client.send(new Packet(Packet.COMMAND_PLAYER_READY, true));
+            assertTrue(received.await(5, TimeUnit.SECONDS));
+            assertEquals(Packet.COMMAND_PLAYER_READY, receivedPacket.get().getCommand());
+            assertTrue(receivedPacket.get().getBooleanValue(0));
+
+            client.close();
+            reader.join(5000);
+            assertTrue(serverSide.get().isClosed());
+        } finally {
+            ConnectionFactory.getInstance().unregisterLocalServer(port, acceptor);
+        }
+    }
+
+    @Test
+    public void testEncodedPacketIsDeliveredToThePeer() throws Exception {
+        int port = 65002;
+        AtomicReference<AbstractConnection> serverSide = new AtomicReference<>();
+        LocalConnectionAcceptor acceptor = connection -> {
+            serverSide.set(connection);
+            return true;
+        };
+        ConnectionFactory.getInstance().registerLocalServer(port, acceptor);
+        try {
+            LoopbackConnection client = (LoopbackConnection) ConnectionFactory.getInstance()
+                    .createClientConnection("localhost", port, 1);
+            assertTrue(client.open());
+            CountDownLatch received = new CountDownLatch(1);
+            AtomicReference<Packet> receivedPacket = new AtomicReference<>();
+            serverSide.get().addConnectionListener(new ConnectionListener() {
+                @Override
+                public void packetReceived(PacketReceivedEvent e) {
+                    receivedPacket.set(e.getPacket());
+                    received.countDown();
+                }
+            });
+            Thread reader = new Thread(() -> serverSide.get().update());
+            reader.start();
+
+            Vector<String> payload = new Vector<>();
+            payload.add("Atlas");
+            EncodedPacket.Encoding encoding = new EncodedPacket(new Packet(Packet.COMMAND_CHAT, payload))
+                    .encode(client.marshaller, client.getMarshallingType(), PacketCompression.GZIP);
+            client.sendNetworkPacket(encoding.data, encoding.compression);
+            assertTrue(received.await(5, TimeUnit.SECONDS));
+            assertEquals(Packet.COMMAND_CHAT, receivedPacket.get().getCommand());
+            assertEquals(payload, receivedPacket.get().getObject(0));
+
+            client.close();
+            reader.join(5000);
+            try {
+                client.sendNetworkPacket(encoding.data, encoding.compression);
+                fail("Sent on a closed connection");
+            } catch (SocketException expected) {
+                // expected
+            }
+        } finally {
+            ConnectionFactory.getInstance().unregisterLocalServer(port, acceptor);
+        }
+    }
+
+    @Test
+    public void testRemoteHostUsesSocketConnection() {
+        AbstractConnection client = ConnectionFactory.getInstance().createClientConnection("localhost", 65001, 1);
+        assertFalse(client instanceof LoopbackConnection);
+    }
+}
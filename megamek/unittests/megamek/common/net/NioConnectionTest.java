@@ -0,0 +1,212 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common.net;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class NioConnectionTest {
+
+    private ConnectionSelector selector;
+    private ServerSocket serverSocket;
+    private AbstractConnection serverSide;
+    private AbstractConnection client;
+    private final BlockingQueue<Packet> serverReceived = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Packet> clientReceived = new LinkedBlockingQueue<>();
+    private final CountDownLatch disconnected = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws Exception {
+        selector = new ConnectionSelector();
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.bind(new InetSocketAddress("localhost", 0));
+        serverSocket = channel.socket();
+
+        client = ConnectionFactory.getInstance().createClientConnection("localhost", serverSocket.getLocalPort(), 1);
+        client.addConnectionListener(new ConnectionListener() {
+            @Override
+            public void packetReceived(PacketReceivedEvent e) {
+                clientReceived.add(e.getPacket());
+            }
+        });
+        assertTrue(client.open());
+        Thread clientThread = new Thread(() -> client.update());
+        clientThread.setDaemon(true);
+        clientThread.start();
+
+        serverSide = ConnectionFactory.getInstance().createServerConnection(serverSocket.accept(), 1, selector);
+        serverSide.addConnectionListener(new ConnectionListener() {
+            @Override
+            public void disconnected(DisconnectedEvent e) {
+                disconnected.countDown();
+            }
+
+            @Override
+            public void packetReceived(PacketReceivedEvent e) {
+                serverReceived.add(e.getPacket());
+            }
+        });
+        assertTrue(serverSide.open());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        NioConnection.sendTimeoutMillis = TimeUnit.SECONDS.toMillis(30);
+        client.close();
+        serverSide.close();
+        serverSocket.close();
+        selector.shutdown();
+    }
+
+    @Test
+    public void testPacketsTravelBothWays() throws Exception {
+        assertTrue(serverSide.isNonBlocking());
+        // larger than a pooled buffer, so that it is read and written in several parts
+        String message = "x".repeat(3 * ConnectionSelector.BUFFER_SIZE);
+        client.setCompression(false);
+        client.send(new Packet(Packet.COMMAND_CHAT, message));
+        client.send(new Packet(Packet.COMMAND_CLIENT_NAME, "Bot", 2));
+
+        Packet packet = serverReceived.poll(5, TimeUnit.SECONDS);
+        assertNotNull(packet);
+        assertEquals(message, packet.getObject(0));
+        packet = serverReceived.poll(5, TimeUnit.SECONDS);
+        assertNotNull(packet);
+        assertEquals(Packet.COMMAND_CLIENT_NAME, packet.getCommand());
+        assertEquals(2, packet.getIntValue(1));
+
+        serverSide.send(new Packet(Packet.COMMAND_CHAT, message));
+        packet = clientReceived.poll(5, TimeUnit.SECONDS);
+        assertNotNull(packet);
+        assertEquals(message, packet.getObject(0));
+    }
+
+    @Test
+    public void testShuttingDownAnotherSelectorKeepsTheConnections() throws Exception {
+        ConnectionSelector otherSelector = new ConnectionSelector();
+        try (SocketChannel otherClient = SocketChannel.open(serverSocket.getLocalSocketAddress())) {
+            AbstractConnection otherConnection = openStalledConnection(new CountDownLatch(1), otherSelector);
+            otherConnection.close();
+            otherSelector.shutdown();
+
+            client.send(new Packet(Packet.COMMAND_CHAT, "still there"));
+            Packet packet = serverReceived.poll(5, TimeUnit.SECONDS);
+            assertNotNull(packet);
+            assertEquals("still there", packet.getObject(0));
+            serverSide.send(new Packet(Packet.COMMAND_CHAT, "still there"));
+            assertNotNull(clientReceived.poll(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testDispatcherThreadsAreBounded() throws Exception {
+        int tasks = ConnectionSelector.MAX_DISPATCHER_THREADS * 2;
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger mostRunning = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            selector.dispatch(() -> {
+                mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                }
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+        Thread.sleep(200);
+        assertEquals(ConnectionSelector.MAX_DISPATCHER_THREADS, mostRunning.get());
+        // The waiting tasks still run
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testClosedClientDisconnects() throws Exception {
+        client.close();
+        assertTrue(disconnected.await(5, TimeUnit.SECONDS));
+        assertTrue(serverSide.isClosed());
+    }
+
+    @Test
+    public void testClientThatTakesNoDataIsClosedWhenTooMuchWaits() throws Exception {
+        try (SocketChannel stalledClient = SocketChannel.open(serverSocket.getLocalSocketAddress())) {
+            CountDownLatch stalledDisconnected = new CountDownLatch(1);
+            AbstractConnection connection = openStalledConnection(stalledDisconnected);
+            String message = "x".repeat(1024 * 1024);
+            long start = System.nanoTime();
+            for (int i = 0; (i < 64) && !connection.isClosed(); i++) {
+                connection.send(new Packet(Packet.COMMAND_CHAT, message));
+            }
+            // Sending must neither block until the client takes data nor wait for the timeout
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+            assertTrue(stalledDisconnected.await(5, TimeUnit.SECONDS));
+            assertTrue(connection.isClosed());
+        }
+    }
+
+    @Test
+    public void testClientThatTakesNoDataIsClosedAfterTheTimeout() throws Exception {
+        NioConnection.sendTimeoutMillis = 200;
+        try (SocketChannel stalledClient = SocketChannel.open(serverSocket.getLocalSocketAddress())) {
+            CountDownLatch stalledDisconnected = new CountDownLatch(1);
+            AbstractConnection connection = openStalledConnection(stalledDisconnected);
+            // Below the pending output limit, but more than the socket buffers take
+            connection.send(new Packet(Packet.COMMAND_CHAT, "x".repeat(NioConnection.MAX_PENDING_OUTPUT / 2)));
+            assertFalse(connection.isClosed());
+            assertTrue(stalledDisconnected.await(10, TimeUnit.SECONDS));
+            assertTrue(connection.isClosed());
+        }
+    }
+
+    /**
+     * Opens the server side of a client that was connected without a connection reading from it
+     */
+    private AbstractConnection openStalledConnection(CountDownLatch disconnected) throws Exception {
+        return openStalledConnection(disconnected, selector);
+    }
+
+    private AbstractConnection openStalledConnection(CountDownLatch disconnected, ConnectionSelector selector)
+            throws Exception {
+        AbstractConnection connection = ConnectionFactory.getInstance().createServerConnection(serverSocket.accept(), 2,
+                selector);
+        connection.setCompression(false);
+        connection.addConnectionListener(new ConnectionListener() {
+            @Override
+            public void disconnected(DisconnectedEvent e) {
+                disconnected.countDown();
+            }
+        });
+        assertTrue(connection.open());
+        return connection;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common.net;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class PacketCompressionTest {
+
+    private static final int LIMIT = 64 * 1024;
+
+    @After
+    public void tearDown() {
+        PacketCompression.maxUncompressedSize = NioConnection.MAX_PACKET_SIZE;
+    }
+
+    @Test
+    public void testDataUpToTheLimitIsUncompressed() throws Exception {
+        PacketCompression.maxUncompressedSize = LIMIT;
+        byte[] data = new byte[LIMIT];
+        Arrays.fill(data, (byte) 'x');
+        for (int format : new int[] { PacketCompression.GZIP, PacketCompression.DICTIONARY }) {
+            byte[] compressed = PacketCompression.compress(Packet.COMMAND_CHAT, data, format);
+            try (InputStream in = PacketCompression.decompress(compressed, format)) {
+                assertArrayEquals(data, in.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    public void testDataBeyondTheLimitIsRefused() throws Exception {
+        PacketCompression.maxUncompressedSize = LIMIT;
+        byte[] data = new byte[LIMIT + 1];
+        for (int format : new int[] { PacketCompression.GZIP, PacketCompression.DICTIONARY }) {
+            byte[] compressed = PacketCompression.compress(Packet.COMMAND_CHAT, data, format);
+            assertTrue(compressed.length < 1024);
+            try (InputStream in = PacketCompression.decompress(compressed, format)) {
+                in.readAllBytes();
+                fail("Data that expands beyond the limit must be refused");
+            } catch (IOException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testTruncatedDataIsRefused() throws Exception {
+        byte[] data = new byte[4096];
+        byte[] compressed = PacketCompression.compress(Packet.COMMAND_CHAT, data, PacketCompression.DICTIONARY);
+        try {
+            PacketCompression.decompress(Arrays.copyOf(compressed, compressed.length / 2), PacketCompression.DICTIONARY);
+            fail("Truncated data must be refused");
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common.util;
+
+import megamek.common.Game;
+import megamek.common.Player;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class BinarySaveGameTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        File file = File.createTempFile("game", ".sav.bin");
+        try {
+            Game game = new Game();
+            game.addPlayer(0, new Player(0, "Binary"));
+            BinarySaveGame.write(game, new FileOutputStream(file));
+
+            assertTrue(BinarySaveGame.isBinarySaveGame(file));
+            Game loaded = SerializationHelper.loadSaveGame(file);
+            assertEquals("Binary", loaded.getPlayer(0).getName());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testXmlSaveGameIsNotBinary() throws Exception {
+        File file = File.createTempFile("game", ".sav.gz");
+        try {
+            try (GZIPOutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+                out.write("<megamek.common.Game/>".getBytes());
+            }
+            assertFalse(BinarySaveGame.isBinarySaveGame(file));
+            try {
+                BinarySaveGame.read(file);
+                fail("An XML save game must not be read as a binary save game");
+            } catch (IOException expected) {
+                // expected
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testGameSavedByAnotherVersionIsRefused() throws Exception {
+        File file = File.createTempFile("game", ".sav.bin");
+        try {
+            writeWithHeader(file, BinarySaveGame.FORMAT_VERSION, "0.49.7");
+            try {
+                BinarySaveGame.read(file);
+                fail("A save game of another MegaMek version must not be read");
+            } catch (IOException expected) {
+                assertTrue(expected.getMessage().contains("0.49.7"));
+                assertTrue(expected.getMessage().contains("load an XML save game instead"));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testNewerFormatIsRefused() throws Exception {
+        File file = File.createTempFile("game", ".sav.bin");
+        try {
+            writeWithHeader(file, BinarySaveGame.FORMAT_VERSION + 1, "99.0.0");
+            try {
+                BinarySaveGame.read(file);
+                fail("A save game of a newer format must not be read");
+            } catch (IOException expected) {
+                assertTrue(expected.getMessage().contains("99.0.0"));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Writes a binary save game whose header has the given format and MegaMek versions
+     */
+    private static void writeWithHeader(File file, int formatVersion, String version) throws IOException {
+        Game game = new Game();
+        game.addPlayer(0, new Player(0, "Binary"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinarySaveGame.write(game, bytes);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        byte[] magic = new byte[8];
+        in.readFully(magic);
+        in.readInt();
+        in.readUTF();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.write(magic);
+            out.writeInt(formatVersion);
+            out.writeUTF(version);
+            in.transferTo(out);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.common.util;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class BuildingBlockTest {
+
+    private static BuildingBlock read(String content) {
+        return new BuildingBlock(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testReadSkipsCommentsAndBlankLines() {
+        BuildingBlock bb = read("#comment\r\n<Name>\r\n  Atlas  \r\n\r\n</Name>\n<Tonnage>\n100\n</Tonnage>");
+
+        assertEquals(6, bb.dataSize());
+        assertArrayEquals(new String[] { "Atlas" }, bb.getDataAsString("Name"));
+        assertArrayEquals(new int[] { 100 }, bb.getDataAsInt("tonnage"));
+        assertEquals(1, bb.findStartIndex("NAME"));
+        assertEquals(2, bb.findEndIndex("name"));
+    }
+
+    @Test
+    public void testFirstBlockWinsAndMissingBlocksAreEmpty() {
+        BuildingBlock bb = read("<armor>\n1\n2\n</armor>\n<armor>\n3\n</armor>\n<empty>\n</empty>");
+
+        assertArrayEquals(new int[] { 1, 2 }, bb.getDataAsInt("armor"));
+        assertTrue(bb.exists("empty"));
+        assertArrayEquals(new String[] { "" }, bb.getDataAsString("empty"));
+        assertFalse(bb.exists("model"));
+        assertArrayEquals(new String[] { "" }, bb.getDataAsString("model"));
+        assertTrue(bb.getDataAsVector("model").isEmpty());
+    }
+
+    @Test
+    public void testWrittenBlocksAreFound() {
+        BuildingBlock bb = new BuildingBlock();
+        bb.createNewBlock();
+        bb.writeBlockData("Name", "Locust");
+        assertArrayEquals(new String[] { "Locust" }, bb.getDataAsString("Name"));
+
+        bb.writeBlockData("Tonnage", 20);
+        assertArrayEquals(new int[] { 20 }, bb.getDataAsInt("Tonnage"));
+
+        bb.clearData();
+        assertFalse(bb.exists("Name"));
+    }
+}
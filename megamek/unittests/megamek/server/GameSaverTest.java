@@ -0,0 +1,66 @@
+/*
+ * MegaMek - Copyright (C) 2022 The MegaMek Team
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package megamek.server;
+
+import com.thoughtworks.xstream.XStream;
+import megamek.common.Game;
+import megamek.common.Player;
+import megamek.common.util.SerializationHelper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class GameSaverTest {
+
+    @Test
+    public void testBackgroundSaveWritesSnapshot() throws Exception {
+        File dir = Files.createTempDirectory("saves").toFile();
+        File file = new File(dir, "autosave.sav.gz");
+        GameSaver saver = new GameSaver();
+        try {
+            Game game = new Game();
+            game.addPlayer(0, new Player(0, "Snapshot"));
+            CountDownLatch saved = new CountDownLatch(1);
+            saver.saveInBackground(game, file, saved::countDown);
+            // Changes after the snapshot must not end up in the save game
+            game.getPlayer(0).setName("Changed");
+
+            assertTrue(saved.await(30, TimeUnit.SECONDS));
+            XStream xstream = SerializationHelper.getXStream();
+            try (InputStream is = new GZIPInputStream(new FileInputStream(file))) {
+                Game loaded = (Game) xstream.fromXML(is);
+                assertEquals("Snapshot", loaded.getPlayer(0).getName());
+            }
+            // Only the save game remains, no temporary files
+            assertEquals(1, dir.listFiles().length);
+        } finally {
+            saver.shutdown();
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+}